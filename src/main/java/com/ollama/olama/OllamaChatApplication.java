@@ -5,6 +5,7 @@ import com.ollama.olama.manager.SettingsManager;
 import com.ollama.olama.manager.SettingsManagerImpl;
 import com.ollama.olama.manager.ThemeManager;
 import com.ollama.olama.model.AppSettings;
+import com.ollama.olama.service.AsyncRuntime;
 import com.ollama.olama.service.AuthenticationService;
 import com.ollama.olama.service.AuthenticationServiceImpl;
 import javafx.application.Application;
@@ -43,4 +44,10 @@ public class OllamaChatApplication extends Application {
         stage.setScene(scene);
         stage.show();
     }
+    
+    @Override
+    public void stop() {
+        // Cancel outstanding requests and stop background threads so the JVM exits promptly
+        AsyncRuntime.shutdownShared();
+    }
 }
\ No newline at end of file
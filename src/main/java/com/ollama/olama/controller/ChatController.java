@@ -1,36 +1,57 @@
 package com.ollama.olama.controller;
 
+import com.ollama.olama.manager.ContextBuilder;
+import com.ollama.olama.manager.ConversationJournal;
+import com.ollama.olama.manager.ConversationLibrary;
 import com.ollama.olama.manager.ConversationManager;
 import com.ollama.olama.manager.SettingsManager;
 import com.ollama.olama.manager.ThemeManager;
 import com.ollama.olama.model.AppSettings;
 import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.ConversationSummary;
 import com.ollama.olama.model.LoginSession;
 import com.ollama.olama.model.OllamaModel;
+import com.ollama.olama.search.FullTextIndex;
+import com.ollama.olama.search.SemanticSearchIndex;
+import com.ollama.olama.service.AsyncRuntime;
 import com.ollama.olama.service.AuthenticationService;
+import com.ollama.olama.service.ChatGeneration;
+import com.ollama.olama.service.ConnectionState;
+import com.ollama.olama.service.ModelCatalogDiff;
+import com.ollama.olama.service.OllamaException;
 import com.ollama.olama.service.OllamaService;
+import com.ollama.olama.service.TaskScope;
+import com.ollama.olama.ui.ChatEntry;
+import com.ollama.olama.ui.ChatHistoryView;
+import com.ollama.olama.ui.FxQueueMonitor;
 import com.ollama.olama.ui.MessageBubble;
+import com.ollama.olama.ui.TokenPipeline;
 import com.ollama.olama.util.MessageValidator;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
 import javafx.fxml.Initializable;
-import javafx.geometry.Insets;
-import javafx.geometry.Pos;
 import javafx.scene.Parent;
 import javafx.scene.Scene;
 import javafx.scene.control.*;
 import javafx.scene.input.KeyCode;
 import javafx.scene.input.KeyEvent;
-import javafx.scene.layout.HBox;
-import javafx.scene.layout.Region;
 import javafx.scene.layout.VBox;
 import javafx.stage.Modality;
 import javafx.stage.Stage;
 
 import java.io.IOException;
 import java.net.URL;
+import java.time.format.DateTimeFormatter;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.ResourceBundle;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
 
 /**
  * Main controller for the chat interface.
@@ -38,33 +59,53 @@ import java.util.ResourceBundle;
  */
 public class ChatController implements Initializable {
     
+    private static final DateTimeFormatter CONVERSATION_TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+    
     // FXML injected components
     @FXML private ComboBox<OllamaModel> modelSelector;
-    @FXML private VBox chatHistory;
-    @FXML private ScrollPane chatScrollPane;
+    @FXML private ListView<ChatEntry> chatHistory;
     @FXML private TextArea messageInput;
     @FXML private Button sendButton;
     @FXML private Button clearButton;
     @FXML private Button refreshButton;
+    @FXML private Button compareButton;
+    @FXML private Button searchButton;
     @FXML private Button cancelButton;
     @FXML private Button settingsButton;
     @FXML private Button logoutButton;
     @FXML private Button userManagementButton;
     @FXML private Label connectionStatus;
     @FXML private Label userInfoLabel;
+    @FXML private VBox librarySidebar;
+    @FXML private ListView<ConversationSummary> conversationList;
     
     // Services - will be injected via constructor or setter
     private OllamaService ollamaService;
     private ConversationManager conversationManager;
     private SettingsManager settingsManager;
     private AuthenticationService authenticationService;
+    private SemanticSearchIndex semanticSearch;
+    private FullTextIndex fullTextSearch;
+    private ConversationJournal conversationJournal;
+    private ConversationLibrary conversationLibrary;
     
     // Authentication
     private LoginSession currentSession;
     
     // State
     private boolean isGenerating = false;
-    private MessageBubble currentAssistantBubble;
+    private ChatHistoryView chatHistoryView;
+    private ChatEntry currentAssistantEntry;
+    private ChatGeneration currentGeneration;
+    private String activeModelName;
+    
+    // Background work for this window, cancelled when the user logs out
+    private final TaskScope tasks = AsyncRuntime.shared().openScope();
+    private final Consumer<ConnectionState> connectionListener = this::onConnectionStateChanged;
+    private TokenPipeline tokenPipeline;
+    private final Runnable libraryListener = this::onLibraryChanged;
+    private final AtomicBoolean libraryRefreshPending = new AtomicBoolean();
+    private boolean showingLibrary;
     
     /**
      * Default constructor for FXML loading
@@ -89,9 +130,11 @@ public class ChatController implements Initializable {
     @Override
     public void initialize(URL location, ResourceBundle resources) {
         // Initialize UI components
+        chatHistoryView = new ChatHistoryView(chatHistory);
         setupModelSelector();
         setupMessageInput();
         setupConnectionStatus();
+        setupConversationList();
         
         // Load models and check connection when services are available
         Platform.runLater(this::initializeAfterServicesSet);
@@ -102,8 +145,9 @@ public class ChatController implements Initializable {
      */
     private void initializeAfterServicesSet() {
         if (ollamaService != null) {
-            loadAvailableModels();
-            checkConnectionStatus();
+            loadAvailableModels(false);
+            // Starts background probing; the first probe reports the initial status
+            ollamaService.addConnectionListener(connectionListener);
         }
     }
     
@@ -117,11 +161,40 @@ public class ChatController implements Initializable {
     private void setupMessageInput() {
         if (messageInput != null) {
             messageInput.setOnKeyPressed(this::onInputKeyPressed);
+            // Starting to type is a good sign a request is coming; make sure the model is loaded by then
+            messageInput.textProperty().addListener((obs, oldText, newText) -> {
+                if (oldText.isEmpty() && !newText.isEmpty()) {
+                    warmUpSelectedModel();
+                }
+            });
             messageInput.setPromptText("Type your message here... (Shift+Enter for new line, Enter to send)");
             messageInput.setWrapText(true);
         }
     }
     
+    private void setupConversationList() {
+        conversationList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(ConversationSummary summary, boolean empty) {
+                super.updateItem(summary, empty);
+                setText(empty || summary == null ? null : describe(summary));
+                setPrefWidth(0);
+            }
+        });
+        conversationList.getSelectionModel().selectedItemProperty().addListener((obs, oldSummary, summary) -> {
+            if (summary != null && !showingLibrary) {
+                openConversation(summary.id(), -1);
+            }
+        });
+    }
+    
+    private static String describe(ConversationSummary summary) {
+        String title = summary.title().isEmpty() ? "Untitled conversation" : summary.title();
+        String when = summary.updatedAt() != null ? summary.updatedAt().format(CONVERSATION_TIME_FORMAT) : "";
+        return title + "\n" + when + " · " + summary.messageCount() + " messages"
+            + (summary.model() != null ? " · " + summary.model() : "");
+    }
+    
     private void setupConnectionStatus() {
         if (connectionStatus != null) {
             connectionStatus.setText("● Disconnected");
@@ -129,122 +202,108 @@ public class ChatController implements Initializable {
         }
     }
     
-    private void loadAvailableModels() {
+    /**
+     * Shows the cached model list right away, then patches in what changed once Ollama answers
+     * @param forceRefresh fetch from Ollama even if the cached list is still fresh
+     */
+    private void loadAvailableModels(boolean forceRefresh) {
         if (ollamaService == null) return;
         
-        // Clear existing models
-        modelSelector.getItems().clear();
+        if (modelSelector.getItems().isEmpty()) {
+            applyModelCatalog(ollamaService.getCachedModels());
+        }
         
-        // Load models in background thread
-        Thread modelThread = new Thread(() -> {
-            try {
-                ollamaService.getAvailableModels().thenAccept(models -> {
-                    Platform.runLater(() -> {
-                        modelSelector.getItems().addAll(models);
-                        if (!models.isEmpty()) {
-                            // Select first model by default
-                            modelSelector.getSelectionModel().selectFirst();
-                        }
-                    });
-                }).exceptionally(throwable -> {
-                    Platform.runLater(() -> {
-                        showError("Failed to load models: " + throwable.getMessage());
-                    });
-                    return null;
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showError("Failed to load models: " + e.getMessage());
-                });
-            }
-        });
-        modelThread.setDaemon(true);
-        modelThread.start();
+        // The service call is already asynchronous; the scope drops the result if the window goes away.
+        // A dependent stage is tracked so closing the scope never cancels the fetch other callers share.
+        CompletableFuture<List<OllamaModel>> catalog = forceRefresh
+            ? ollamaService.refreshAvailableModels()
+            : ollamaService.getAvailableModels();
+        tasks.track(catalog.thenApply(List::copyOf))
+            .thenAccept(models -> Platform.runLater(() -> applyModelCatalog(models)))
+            .exceptionally(throwable -> {
+                if (!tasks.isClosed()) {
+                    Platform.runLater(() -> showError("Failed to load models: " + throwable.getMessage()));
+                }
+                return null;
+            });
+    }
+    
+    /**
+     * Updates the model selector with only the models that were added, removed or changed
+     */
+    private void applyModelCatalog(List<OllamaModel> models) {
+        ModelCatalogDiff diff = ModelCatalogDiff.between(modelSelector.getItems(), models);
+        if (diff.isEmpty()) return;
+        
+        OllamaModel selected = modelSelector.getSelectionModel().getSelectedItem();
+        diff.applyTo(modelSelector.getItems());
+        if (models.isEmpty()) return;
+        
+        OllamaModel reselect = selected == null ? null : models.stream()
+            .filter(model -> model.name().equals(selected.name()))
+            .findFirst()
+            .orElse(null);
+        if (reselect == null) {
+            // Reselect the model used last time, otherwise the first one
+            selectInitialModel(models);
+        } else if (!reselect.equals(modelSelector.getSelectionModel().getSelectedItem())) {
+            modelSelector.getSelectionModel().select(reselect);
+        }
     }
     
+    private void selectInitialModel(List<OllamaModel> models) {
+        String lastModel = settingsManager != null ? settingsManager.loadSettings().lastSelectedModel() : null;
+        OllamaModel initial = models.stream()
+            .filter(model -> model.name().equals(lastModel))
+            .findFirst()
+            .orElse(models.get(0));
+        modelSelector.getSelectionModel().select(initial);
+    }
+    
+    /**
+     * Probes Ollama now; the result arrives through the connection listener
+     */
     private void checkConnectionStatus() {
         if (ollamaService == null) return;
         
-        // Update status to connecting
-        connectionStatus.setText("● Connecting...");
-        connectionStatus.getStyleClass().clear();
-        connectionStatus.getStyleClass().add("connection-status-connecting");
-        
-        // Check connection in background thread
-        Thread connectionThread = new Thread(() -> {
-            try {
-                ollamaService.checkConnection().thenAccept(connected -> {
-                    Platform.runLater(() -> {
-                        if (connected) {
-                            connectionStatus.setText("● Connected");
-                            connectionStatus.getStyleClass().clear();
-                            connectionStatus.getStyleClass().add("connection-status-connected");
-                        } else {
-                            connectionStatus.setText("● Disconnected");
-                            connectionStatus.getStyleClass().clear();
-                            connectionStatus.getStyleClass().add("connection-status-disconnected");
-                        }
-                    });
-                }).exceptionally(throwable -> {
-                    Platform.runLater(() -> {
-                        connectionStatus.setText("● Error");
-                        connectionStatus.getStyleClass().clear();
-                        connectionStatus.getStyleClass().add("connection-status-disconnected");
-                    });
-                    return null;
-                });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    connectionStatus.setText("● Error");
-                    connectionStatus.getStyleClass().clear();
-                    connectionStatus.getStyleClass().add("connection-status-disconnected");
-                });
+        setConnectionStatus("● Connecting...", "connection-status-connecting");
+        ollamaService.checkConnection();
+    }
+    
+    /**
+     * Called by the service's health monitor whenever reachability changes
+     */
+    private void onConnectionStateChanged(ConnectionState state) {
+        Platform.runLater(() -> {
+            if (tasks.isClosed()) return;
+            switch (state) {
+                case CONNECTED -> setConnectionStatus("● Connected", "connection-status-connected");
+                case DISCONNECTED -> setConnectionStatus("● Disconnected", "connection-status-disconnected");
+                case CONNECTING -> setConnectionStatus("● Connecting...", "connection-status-connecting");
             }
         });
-        connectionThread.setDaemon(true);
-        connectionThread.start();
+    }
+    
+    private void setConnectionStatus(String text, String styleClass) {
+        connectionStatus.setText(text);
+        connectionStatus.getStyleClass().clear();
+        connectionStatus.getStyleClass().add(styleClass);
     }
     
     /**
-     * Adds a message bubble to the chat history with proper alignment
+     * Adds an entry to the chat history; alignment follows the message role
      */
-    private void addMessageBubble(MessageBubble bubble) {
-        // Create a container for proper alignment
-        HBox container = new HBox();
-        container.setPrefWidth(Region.USE_COMPUTED_SIZE);
-        container.setMaxWidth(Double.MAX_VALUE);
-        
-        // Set alignment based on message role
-        if (bubble.getRole() == MessageBubble.Role.USER) {
-            // User messages on the right
-            container.setAlignment(Pos.CENTER_RIGHT);
-            HBox.setMargin(bubble, new Insets(0, 0, 0, 50)); // Left margin to limit width
-        } else if (bubble.getRole() == MessageBubble.Role.ASSISTANT) {
-            // Assistant messages on the left
-            container.setAlignment(Pos.CENTER_LEFT);
-            HBox.setMargin(bubble, new Insets(0, 50, 0, 0)); // Right margin to limit width
-        } else {
-            // System and error messages centered
-            container.setAlignment(Pos.CENTER);
-            HBox.setMargin(bubble, new Insets(0, 50, 0, 50)); // Both margins
-        }
-        
-        container.getChildren().add(bubble);
-        chatHistory.getChildren().add(container);
+    private void addEntry(ChatEntry entry) {
+        chatHistoryView.add(entry);
     }
     
     private void showError(String message) {
-        MessageBubble errorBubble = MessageBubble.error(message);
-        addMessageBubble(errorBubble);
+        addEntry(ChatEntry.now(MessageBubble.Role.ERROR, message));
         scrollToBottom();
     }
     
     private void scrollToBottom() {
-        Platform.runLater(() -> {
-            if (chatScrollPane != null) {
-                chatScrollPane.setVvalue(1.0);
-            }
-        });
+        chatHistoryView.scrollToBottom();
     }
     
     @FXML
@@ -270,64 +329,82 @@ public class ChatController implements Initializable {
         
         // Add user message to conversation and UI
         conversationManager.addMessage(userMessage);
-        MessageBubble userBubble = new MessageBubble(userMessage);
-        addMessageBubble(userBubble);
+        addEntry(ChatEntry.of(userMessage));
         
         // Clear input and set UI state for generation
         messageInput.clear();
         setGeneratingState(true);
         
-        // Create assistant message bubble for streaming
-        currentAssistantBubble = new MessageBubble(
-            MessageBubble.Role.ASSISTANT, 
-            "", 
-            java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"))
-        );
-        currentAssistantBubble.setTyping(true);
-        addMessageBubble(currentAssistantBubble);
+        // Create assistant entry for streaming
+        currentAssistantEntry = ChatEntry.now(MessageBubble.Role.ASSISTANT, "");
+        currentAssistantEntry.setTyping(true);
+        addEntry(currentAssistantEntry);
         scrollToBottom();
         
+        // Tokens are buffered off-thread and flushed once per pulse
+        TokenPipeline pipeline = new TokenPipeline(this::onTokensFlushed);
+        tokenPipeline = pipeline;
+        pipeline.start();
+        
+        // Fit the history into the model's context budget so the system prompt is never cut off
+        AppSettings settings = settingsManager != null ? settingsManager.loadSettings() : AppSettings.defaults();
+        conversationManager.setContextPolicy(ContextBuilder.Policy.fromName(settings.contextPolicy()));
+        
+        if (conversationLibrary != null) {
+            conversationLibrary.modelUsed(conversationManager.getConversationId(), selectedModel.name());
+        }
+        
         // Send message to Ollama in background
-        long startTime = System.currentTimeMillis();
-        ollamaService.sendChatMessage(
+        ChatGeneration generation = ollamaService.sendChatMessage(
             selectedModel.name(),
-            conversationManager.getMessagesForApi(),
-            this::onTokenReceived
-        ).thenAccept(assistantMessage -> {
-            long generationTime = System.currentTimeMillis() - startTime;
-            
-            Platform.runLater(() -> {
-                // Create final message with generation time
-                ChatMessage finalMessage = ChatMessage.assistant(
-                    assistantMessage.content(), 
-                    generationTime
-                );
+            conversationManager.getMessagesForApi(settings.contextTokensFor(selectedModel.name())),
+            pipeline::offer
+        );
+        currentGeneration = generation;
+        generation.result().thenAccept(assistantMessage -> {
+            FxQueueMonitor.runLater(() -> {
+                if (currentGeneration != generation) {
+                    return;
+                }
+                
+                // Deliver tokens still waiting for the next pulse
+                pipeline.stop();
+                tokenPipeline = null;
                 
-                // Add to conversation
-                conversationManager.addMessage(finalMessage);
+                // The service's message already carries generation time and server counters
+                conversationManager.addMessage(assistantMessage);
                 
-                // Update timestamp to show generation time
-                String timestamp = java.time.LocalTime.now().format(
-                    java.time.format.DateTimeFormatter.ofPattern("HH:mm")
-                ) + " (" + generationTime + "ms)";
-                currentAssistantBubble.updateTimestamp(timestamp);
+                // Update timestamp to show generation time and speed
+                currentAssistantEntry.setTimestamp(ChatEntry.formatTimestamp(assistantMessage));
                 
                 // Reset UI state
                 setGeneratingState(false);
-                currentAssistantBubble = null;
+                currentAssistantEntry = null;
+                currentGeneration = null;
                 
                 // Return focus to input
                 messageInput.requestFocus();
             });
         }).exceptionally(throwable -> {
-            Platform.runLater(() -> {
+            if (isCancellation(throwable)) {
+                // onCancelGeneration has already reset the UI
+                return null;
+            }
+            FxQueueMonitor.runLater(() -> {
+                if (currentGeneration != generation) {
+                    return;
+                }
+                pipeline.discard();
+                tokenPipeline = null;
+                
                 // Handle error
-                currentAssistantBubble.setTyping(false);
-                currentAssistantBubble.setContent("Error: " + throwable.getMessage());
-                currentAssistantBubble.getStyleClass().add("message-bubble-error");
+                currentAssistantEntry.setTyping(false);
+                currentAssistantEntry.setContent("Error: " + errorMessage(throwable));
+                currentAssistantEntry.setError(true);
                 
                 setGeneratingState(false);
-                currentAssistantBubble = null;
+                currentAssistantEntry = null;
+                currentGeneration = null;
                 messageInput.requestFocus();
             });
             return null;
@@ -335,16 +412,33 @@ public class ChatController implements Initializable {
     }
     
     /**
-     * Called when a token is received during streaming
+     * Gets the user-facing message of the OllamaException behind a failure, e.g. which phase of a chat timed out
      */
-    private void onTokenReceived(String token) {
-        Platform.runLater(() -> {
-            if (currentAssistantBubble != null) {
-                currentAssistantBubble.setTyping(false);
-                currentAssistantBubble.appendText(token);
-                scrollToBottom();
+    private static String errorMessage(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OllamaException ollamaException) {
+                return ollamaException.getUserMessage();
             }
-        });
+        }
+        return throwable.getMessage();
+    }
+    
+    private static boolean isCancellation(Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+            ? throwable.getCause()
+            : throwable;
+        return cause instanceof CancellationException;
+    }
+    
+    /**
+     * Called on the FX thread with the tokens received since the previous pulse
+     */
+    private void onTokensFlushed(String tokens) {
+        if (currentAssistantEntry != null) {
+            currentAssistantEntry.setTyping(false);
+            // Stays pinned to the bottom unless the user has scrolled up
+            chatHistoryView.append(currentAssistantEntry, tokens);
+        }
     }
     
     @FXML
@@ -378,13 +472,22 @@ public class ChatController implements Initializable {
         }
         
         // Clear UI
-        chatHistory.getChildren().clear();
+        chatHistoryView.clear();
+        if (conversationLibrary != null) {
+            // The new conversation is listed once it has a message
+            showLibrary();
+        }
         
         // Reset state
+        discardTokenPipeline();
+        if (currentGeneration != null) {
+            currentGeneration.cancel();
+            currentGeneration = null;
+        }
         if (isGenerating) {
             setGeneratingState(false);
         }
-        currentAssistantBubble = null;
+        currentAssistantEntry = null;
         
         // Return focus to input
         messageInput.requestFocus();
@@ -392,21 +495,28 @@ public class ChatController implements Initializable {
     
     @FXML
     private void onRefreshModels() {
-        loadAvailableModels();
+        loadAvailableModels(true);
         checkConnectionStatus();
     }
     
     @FXML
     private void onCancelGeneration() {
         if (isGenerating && ollamaService != null) {
-            ollamaService.cancelCurrentRequest();
+            // Abort the HTTP stream so Ollama stops generating and the connection is released
+            discardTokenPipeline();
+            if (currentGeneration != null) {
+                currentGeneration.cancel();
+                currentGeneration = null;
+            } else {
+                ollamaService.cancelCurrentRequest();
+            }
             
             // Update UI state
-            if (currentAssistantBubble != null) {
-                currentAssistantBubble.setTyping(false);
-                currentAssistantBubble.setContent("Generation cancelled");
-                currentAssistantBubble.getStyleClass().add("message-bubble-error");
-                currentAssistantBubble = null;
+            if (currentAssistantEntry != null) {
+                currentAssistantEntry.setTyping(false);
+                currentAssistantEntry.setContent("Generation cancelled");
+                currentAssistantEntry.setError(true);
+                currentAssistantEntry = null;
             }
             
             setGeneratingState(false);
@@ -414,6 +524,20 @@ public class ChatController implements Initializable {
         }
     }
     
+    private void discardTokenPipeline() {
+        if (tokenPipeline != null) {
+            tokenPipeline.discard();
+            tokenPipeline = null;
+        }
+    }
+    
+    /**
+     * Gets delivery metrics for the response currently streaming, or null if idle
+     */
+    public TokenPipeline.Metrics getTokenPipelineMetrics() {
+        return tokenPipeline != null ? tokenPipeline.getMetrics() : null;
+    }
+    
     /**
      * Sets the UI state for generation mode
      */
@@ -426,6 +550,8 @@ public class ChatController implements Initializable {
         modelSelector.setDisable(generating);
         clearButton.setDisable(generating);
         refreshButton.setDisable(generating);
+        compareButton.setDisable(generating);
+        conversationList.setDisable(generating);
         
         // Show/hide cancel button
         cancelButton.setVisible(generating);
@@ -472,6 +598,223 @@ public class ChatController implements Initializable {
         }
     }
     
+    @FXML
+    private void onCompareModels() {
+        if (modelSelector.getItems().isEmpty()) {
+            showError("No models available to compare.");
+            return;
+        }
+        
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/ollama/olama/comparison-view.fxml"));
+            Parent root = loader.load();
+            
+            AppSettings settings = settingsManager != null ? settingsManager.loadSettings() : AppSettings.defaults();
+            OllamaModel selectedModel = modelSelector.getSelectionModel().getSelectedItem();
+            
+            // Each model gets the history a normal chat would send it; models sharing a budget share the list
+            List<String> models = modelSelector.getItems().stream().map(OllamaModel::name).toList();
+            Map<Integer, List<ChatMessage>> historiesByBudget = new HashMap<>();
+            Map<String, List<ChatMessage>> histories = new HashMap<>();
+            for (String model : models) {
+                histories.put(model, historiesByBudget.computeIfAbsent(
+                    settings.contextTokensFor(model), conversationManager::getMessagesForApi));
+            }
+            
+            ComparisonController controller = loader.getController();
+            controller.setup(
+                ollamaService,
+                models,
+                histories,
+                selectedModel != null ? selectedModel.name() : null
+            );
+            
+            Stage stage = new Stage();
+            stage.setTitle("Compare Models");
+            Scene scene = new Scene(root, 1000, 700);
+            ThemeManager.applyTheme(scene, settings.theme(), settings.fontFamily(), settings.fontSize());
+            
+            stage.setScene(scene);
+            stage.initOwner(messageInput.getScene().getWindow());
+            controller.setDialogStage(stage);
+            
+            stage.show();
+            
+        } catch (IOException e) {
+            showError("Failed to open model comparison: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Makes the conversation recovered from the journal at login the current one, unless the user has
+     * already started another while it was being read
+     * @return whether it was restored
+     */
+    public boolean restoreConversation(String conversationId, List<ChatMessage> messages) {
+        if (!conversationManager.getMessages().isEmpty()) {
+            return false;
+        }
+        conversationManager.restoreConversation(conversationId, messages);
+        chatHistoryView.setAll(messages.stream().map(ChatEntry::of).toList());
+        if (conversationLibrary != null) {
+            showLibrary();
+        }
+        return true;
+    }
+    
+    /**
+     * Whether the user logged out of this window; whatever finishes opening for it afterwards is closed
+     * instead of handed over
+     */
+    public boolean isLoggedOut() {
+        return tasks.isClosed();
+    }
+    
+    /**
+     * Sets the journal that records this window's conversation, closed at logout
+     */
+    public void setConversationJournal(ConversationJournal journal) {
+        this.conversationJournal = journal;
+    }
+    
+    /**
+     * Shows the user's saved conversations in the sidebar, closed at logout
+     */
+    public void setConversationLibrary(ConversationLibrary library) {
+        this.conversationLibrary = library;
+        library.addChangeListener(libraryListener);
+        librarySidebar.setVisible(true);
+        librarySidebar.setManaged(true);
+        showLibrary();
+    }
+    
+    /**
+     * Called on whichever thread changed the library; bursts of changes refresh the list once
+     */
+    private void onLibraryChanged() {
+        if (libraryRefreshPending.compareAndSet(false, true)) {
+            Platform.runLater(() -> {
+                libraryRefreshPending.set(false);
+                if (conversationLibrary != null) {
+                    showLibrary();
+                }
+            });
+        }
+    }
+    
+    /**
+     * Lists the library from its index and keeps the current conversation selected
+     */
+    private void showLibrary() {
+        List<ConversationSummary> summaries = conversationLibrary.list();
+        String currentId = conversationManager != null ? conversationManager.getConversationId() : null;
+        showingLibrary = true;
+        try {
+            conversationList.getItems().setAll(summaries);
+            summaries.stream()
+                .filter(summary -> summary.id().equals(currentId))
+                .findFirst()
+                .ifPresentOrElse(
+                    summary -> conversationList.getSelectionModel().select(summary),
+                    () -> conversationList.getSelectionModel().clearSelection()
+                );
+        } finally {
+            showingLibrary = false;
+        }
+    }
+    
+    /**
+     * Reads a saved conversation's messages in the background and makes it the current one.
+     * All of them are read, not just the pages in view: the conversation manager builds each request's
+     * context from the whole history and hands it to the journal, library and search indexes, which
+     * would take a partial one for an edit. The history view only creates cells for the visible rows.
+     * @param messageIndex the message to scroll to, or -1 for the end
+     */
+    private void openConversation(String conversationId, int messageIndex) {
+        if (isGenerating || conversationLibrary == null) {
+            return;
+        }
+        if (conversationId.equals(conversationManager.getConversationId())) {
+            scrollToMessage(messageIndex);
+            return;
+        }
+        
+        ConversationLibrary library = conversationLibrary;
+        tasks.supplyAsync(() -> library.load(conversationId)).whenComplete((messages, throwable) -> Platform.runLater(() -> {
+            if (tasks.isClosed() || isGenerating) {
+                return;
+            }
+            if (throwable != null) {
+                Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null
+                    ? throwable.getCause()
+                    : throwable;
+                showError("Failed to open conversation: " + cause.getMessage());
+                return;
+            }
+            conversationManager.restoreConversation(conversationId, messages);
+            chatHistoryView.setAll(messages.stream().map(ChatEntry::of).toList());
+            scrollToMessage(messageIndex);
+            showLibrary();
+            messageInput.requestFocus();
+        }));
+    }
+    
+    private void scrollToMessage(int messageIndex) {
+        if (messageIndex >= 0 && messageIndex < chatHistoryView.size()) {
+            chatHistoryView.scrollTo(messageIndex);
+        }
+    }
+    
+    /**
+     * Enables searching saved conversations by meaning
+     * @param index the index kept current from this window's conversation
+     */
+    public void setSemanticSearch(SemanticSearchIndex index) {
+        this.semanticSearch = index;
+        searchButton.setVisible(true);
+        searchButton.setManaged(true);
+    }
+    
+    /**
+     * Enables searching saved conversations by their exact words, closed at logout
+     */
+    public void setFullTextSearch(FullTextIndex index) {
+        this.fullTextSearch = index;
+        searchButton.setVisible(true);
+        searchButton.setManaged(true);
+    }
+    
+    @FXML
+    private void onSearchHistory() {
+        if (semanticSearch == null && fullTextSearch == null) {
+            showError("Enable semantic search in settings to search your conversations.");
+            return;
+        }
+        
+        try {
+            FXMLLoader loader = new FXMLLoader(getClass().getResource("/com/ollama/olama/search-view.fxml"));
+            Parent root = loader.load();
+            
+            SearchController controller = loader.getController();
+            controller.setup(semanticSearch, fullTextSearch, this::openConversation);
+            
+            Stage stage = new Stage();
+            stage.setTitle("Search Conversations");
+            Scene scene = new Scene(root, 700, 550);
+            AppSettings settings = settingsManager != null ? settingsManager.loadSettings() : AppSettings.defaults();
+            ThemeManager.applyTheme(scene, settings.theme(), settings.fontFamily(), settings.fontSize());
+            
+            stage.setScene(scene);
+            stage.initOwner(messageInput.getScene().getWindow());
+            controller.setDialogStage(stage);
+            
+            stage.show();
+            
+        } catch (IOException e) {
+            showError("Failed to open search: " + e.getMessage());
+        }
+    }
+    
     @FXML
     private void onInputKeyPressed(KeyEvent event) {
         // Handle Enter key for sending messages
@@ -537,15 +880,46 @@ public class ChatController implements Initializable {
     
     private void onModelSelected() {
         OllamaModel selectedModel = modelSelector.getSelectionModel().getSelectedItem();
-        if (selectedModel != null) {
+        // Catalog updates replace items in place; only a different model counts as a change
+        if (selectedModel != null && !selectedModel.name().equals(activeModelName)) {
+            activeModelName = selectedModel.name();
             // Show model change notification
-            MessageBubble systemBubble = new MessageBubble(
+            addEntry(ChatEntry.now(
                 MessageBubble.Role.SYSTEM, 
-                "Model changed to: " + selectedModel.name(),
-                java.time.LocalTime.now().format(java.time.format.DateTimeFormatter.ofPattern("HH:mm"))
-            );
-            addMessageBubble(systemBubble);
+                "Model changed to: " + selectedModel.name()
+            ));
             scrollToBottom();
+            
+            // Load the model now so the first message does not pay for it
+            warmUpSelectedModel();
+            rememberSelectedModel(selectedModel.name());
+        }
+    }
+    
+    private void warmUpSelectedModel() {
+        OllamaModel selectedModel = modelSelector.getSelectionModel().getSelectedItem();
+        if (ollamaService == null || selectedModel == null || ollamaService.isModelWarm(selectedModel.name())) {
+            return;
+        }
+        
+        AppSettings settings = settingsManager != null ? settingsManager.loadSettings() : AppSettings.defaults();
+        ollamaService.warmUp(selectedModel.name(), settings.keepAliveFor(selectedModel.name()))
+            .exceptionally(throwable -> {
+                // Warm-up is best effort; an invalid keep-alive is reported once here
+                Platform.runLater(() -> showError("Failed to load model: " + throwable.getMessage()));
+                return false;
+            });
+    }
+    
+    private void rememberSelectedModel(String modelName) {
+        if (settingsManager == null) return;
+        
+        AppSettings settings = settingsManager.loadSettings();
+        if (modelName.equals(settings.lastSelectedModel())) return;
+        try {
+            settingsManager.saveSettings(settings.withLastSelectedModel(modelName));
+        } catch (IOException e) {
+            System.err.println("Failed to save selected model: " + e.getMessage());
         }
     }
     
@@ -590,6 +964,44 @@ public class ChatController implements Initializable {
                 // Clear current session
                 currentSession = null;
                 
+                // Stop this window's background work before the service is replaced at the next login
+                tasks.close();
+                if (currentGeneration != null) {
+                    currentGeneration.cancel();
+                    currentGeneration = null;
+                }
+                if (ollamaService != null) {
+                    ollamaService.removeConnectionListener(connectionListener);
+                    ollamaService.close();
+                }
+                if (semanticSearch != null) {
+                    // Saving the index writes to disk, so it happens off the FX thread
+                    SemanticSearchIndex index = semanticSearch;
+                    conversationManager.removeListener(index);
+                    AsyncRuntime.shared().executor().execute(index::close);
+                    semanticSearch = null;
+                }
+                if (fullTextSearch != null) {
+                    // Writes what is still in memory, so it happens off the FX thread
+                    FullTextIndex index = fullTextSearch;
+                    conversationManager.removeListener(index);
+                    AsyncRuntime.shared().executor().execute(index::close);
+                    fullTextSearch = null;
+                }
+                if (conversationLibrary != null) {
+                    ConversationLibrary library = conversationLibrary;
+                    conversationManager.removeListener(library);
+                    library.removeChangeListener(libraryListener);
+                    AsyncRuntime.shared().executor().execute(library::close);
+                    conversationLibrary = null;
+                }
+                if (conversationJournal != null) {
+                    ConversationJournal journal = conversationJournal;
+                    conversationManager.removeListener(journal);
+                    AsyncRuntime.shared().executor().execute(journal::close);
+                    conversationJournal = null;
+                }
+                
                 // Return to login screen
                 returnToLogin();
             }
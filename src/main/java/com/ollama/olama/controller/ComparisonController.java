@@ -0,0 +1,216 @@
+package com.ollama.olama.controller;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.service.AsyncRuntime;
+import com.ollama.olama.service.ModelComparison;
+import com.ollama.olama.service.OllamaException;
+import com.ollama.olama.service.OllamaService;
+import com.ollama.olama.service.TaskScope;
+import com.ollama.olama.ui.TokenPipeline;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.layout.HBox;
+import javafx.scene.layout.Priority;
+import javafx.scene.layout.VBox;
+import javafx.stage.Stage;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Controller for the comparison window: sends one prompt with the current conversation to several
+ * models and streams their answers into side-by-side columns with timing for each.
+ */
+public class ComparisonController {
+    
+    @FXML private ListView<String> modelList;
+    @FXML private Spinner<Integer> parallelSpinner;
+    @FXML private HBox columnsBox;
+    @FXML private TextArea promptInput;
+    @FXML private Button compareButton;
+    @FXML private Button cancelButton;
+    @FXML private Label statusLabel;
+    
+    private final TaskScope tasks = AsyncRuntime.shared().openScope();
+    private final Map<String, Column> columns = new LinkedHashMap<>();
+    private OllamaService ollamaService;
+    private Map<String, List<ChatMessage>> histories = Map.of();
+    private ModelComparison comparison;
+    
+    @FXML
+    private void initialize() {
+        modelList.getSelectionModel().setSelectionMode(SelectionMode.MULTIPLE);
+        parallelSpinner.setValueFactory(
+            new SpinnerValueFactory.IntegerSpinnerValueFactory(1, 8, ModelComparison.DEFAULT_MAX_CONCURRENT)
+        );
+    }
+    
+    /**
+     * @param models the models to choose from
+     * @param histories for each model, the conversation so far within its context budget, including the
+     *                  system prompt, sent before the new prompt
+     * @param selectedModel the model to preselect, or null
+     */
+    public void setup(OllamaService ollamaService, List<String> models, Map<String, List<ChatMessage>> histories,
+                      String selectedModel) {
+        this.ollamaService = ollamaService;
+        this.histories = Map.copyOf(histories);
+        modelList.getItems().setAll(models);
+        if (selectedModel != null) {
+            modelList.getSelectionModel().select(selectedModel);
+        }
+    }
+    
+    public void setDialogStage(Stage dialogStage) {
+        // Closing the window stops the generations it started
+        dialogStage.setOnHidden(event -> {
+            onCancel();
+            columns.values().forEach(column -> column.pipeline.discard());
+            tasks.close();
+        });
+    }
+    
+    @FXML
+    private void onCompare() {
+        List<String> models = List.copyOf(modelList.getSelectionModel().getSelectedItems());
+        String prompt = promptInput.getText().trim();
+        if (models.isEmpty()) {
+            statusLabel.setText("Select at least one model");
+            return;
+        }
+        if (prompt.isEmpty()) {
+            statusLabel.setText("Enter a prompt");
+            return;
+        }
+        
+        columns.values().forEach(column -> column.pipeline.discard());
+        columns.clear();
+        columnsBox.getChildren().clear();
+        for (String model : models) {
+            Column column = new Column(model);
+            columns.put(model, column);
+            columnsBox.getChildren().add(column.root);
+        }
+        
+        ChatMessage promptMessage = ChatMessage.user(prompt);
+        
+        comparison = new ModelComparison(ollamaService, AsyncRuntime.shared().executor(), parallelSpinner.getValue());
+        setRunning(true);
+        statusLabel.setText("Comparing " + models.size() + " models...");
+        
+        tasks.track(comparison.run(models, model -> {
+            List<ChatMessage> messages = new ArrayList<>(histories.getOrDefault(model, List.of()));
+            messages.add(promptMessage);
+            return messages;
+        }, new ModelComparison.Listener() {
+            @Override
+            public void onStarted(String model) {
+                Platform.runLater(() -> columns.get(model).stats.setText("Generating..."));
+            }
+            
+            @Override
+            public void onToken(String model, String token) {
+                columns.get(model).pipeline.offer(token);
+            }
+            
+            @Override
+            public void onFinished(ModelComparison.Result result) {
+                Platform.runLater(() -> columns.get(result.model()).finish(result));
+            }
+        })).whenComplete((results, throwable) -> Platform.runLater(() -> {
+            setRunning(false);
+            statusLabel.setText(results != null ? summarize(results) : "Comparison stopped");
+        }));
+    }
+    
+    @FXML
+    private void onCancel() {
+        if (comparison != null) {
+            comparison.cancel();
+        }
+    }
+    
+    private void setRunning(boolean running) {
+        compareButton.setDisable(running);
+        cancelButton.setDisable(!running);
+        modelList.setDisable(running);
+        parallelSpinner.setDisable(running);
+    }
+    
+    /**
+     * Names the models with the quickest first token and the highest generation speed
+     */
+    private static String summarize(List<ModelComparison.Result> results) {
+        List<ModelComparison.Result> succeeded = results.stream().filter(ModelComparison.Result::succeeded).toList();
+        if (succeeded.isEmpty()) {
+            return "No model answered";
+        }
+        ModelComparison.Result quickest = succeeded.stream()
+            .filter(result -> result.timeToFirstTokenMs() >= 0)
+            .min(Comparator.comparingLong(ModelComparison.Result::timeToFirstTokenMs))
+            .orElse(succeeded.get(0));
+        ModelComparison.Result fastest = succeeded.stream()
+            .max(Comparator.comparingDouble(ModelComparison.Result::tokensPerSecond))
+            .orElseThrow();
+        return "Quickest first token: " + quickest.model() + " · Fastest generation: " + fastest.model();
+    }
+    
+    private static String formatStats(ModelComparison.Result result) {
+        if (!result.succeeded()) {
+            return result.error() instanceof CancellationException ? "Cancelled" : "Failed: " + errorMessage(result.error());
+        }
+        StringBuilder text = new StringBuilder();
+        text.append(String.format(Locale.ROOT, "TTFT %d ms · %.1f tok/s · %.1f s total",
+            result.timeToFirstTokenMs(), result.tokensPerSecond(), result.totalMs() / 1000.0));
+        if (result.queuedMs() >= 100) {
+            text.append(String.format(Locale.ROOT, " (queued %.1f s)", result.queuedMs() / 1000.0));
+        }
+        return text.toString();
+    }
+    
+    private static String errorMessage(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OllamaException ollamaException) {
+                return ollamaException.getUserMessage();
+            }
+        }
+        return throwable.getMessage();
+    }
+    
+    /**
+     * One model's answer and timing
+     */
+    private static final class Column {
+        
+        final VBox root = new VBox(6);
+        final TextArea output = new TextArea();
+        final Label stats = new Label("Waiting for a free slot...");
+        final TokenPipeline pipeline = new TokenPipeline(output::appendText);
+        
+        Column(String model) {
+            Label title = new Label(model);
+            title.getStyleClass().add("subsection-title");
+            output.setEditable(false);
+            output.setWrapText(true);
+            VBox.setVgrow(output, Priority.ALWAYS);
+            stats.setWrapText(true);
+            stats.getStyleClass().add("help-text");
+            root.setPrefWidth(320);
+            root.setMinWidth(240);
+            HBox.setHgrow(root, Priority.ALWAYS);
+            root.getChildren().addAll(title, output, stats);
+            pipeline.start();
+        }
+        
+        void finish(ModelComparison.Result result) {
+            pipeline.stop();
+            stats.setText(formatStats(result));
+        }
+    }
+}
@@ -1,15 +1,24 @@
 package com.ollama.olama.controller;
 
+import com.ollama.olama.manager.ConversationJournal;
+import com.ollama.olama.manager.ConversationLibrary;
 import com.ollama.olama.manager.ConversationManager;
 import com.ollama.olama.manager.ConversationManagerImpl;
 import com.ollama.olama.manager.SettingsManager;
 import com.ollama.olama.manager.SettingsManagerImpl;
 import com.ollama.olama.manager.ThemeManager;
 import com.ollama.olama.model.AppSettings;
+import com.ollama.olama.model.ChatMessage;
 import com.ollama.olama.model.LoginSession;
+import com.ollama.olama.search.FullTextIndex;
+import com.ollama.olama.search.SemanticSearchIndex;
+import com.ollama.olama.service.AsyncRuntime;
 import com.ollama.olama.service.AuthenticationService;
+import com.ollama.olama.service.ChatTimeouts;
 import com.ollama.olama.service.OllamaService;
 import com.ollama.olama.service.OllamaServiceImpl;
+import com.ollama.olama.service.ResponseCache;
+import com.ollama.olama.service.TaskScope;
 import javafx.application.Platform;
 import javafx.fxml.FXML;
 import javafx.fxml.FXMLLoader;
@@ -19,7 +28,10 @@ import javafx.scene.control.*;
 import javafx.stage.Stage;
 
 import java.io.IOException;
-import java.util.Optional;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Controller for the login screen.
@@ -35,6 +47,7 @@ public class LoginController {
     private AuthenticationService authService;
     private SettingsManager settingsManager;
     private Stage primaryStage;
+    private final TaskScope tasks = AsyncRuntime.shared().openScope();
     
     public void initialize() {
         // Set up enter key handling
@@ -80,15 +93,17 @@ public class LoginController {
         loadingIndicator.setVisible(true);
         statusLabel.setText("Authenticating...");
         
-        // Authenticate in background thread
-        Thread authThread = new Thread(() -> {
-            try {
-                Optional<LoginSession> session = authService.authenticate(username, password);
-                
+        // Password hashing and file access run on a virtual thread
+        tasks.supplyAsync(() -> authService.authenticate(username, password))
+            .whenComplete((session, throwable) -> {
+                if (tasks.isClosed()) return;
                 Platform.runLater(() -> {
                     loadingIndicator.setVisible(false);
                     
-                    if (session.isPresent()) {
+                    if (throwable != null) {
+                        Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                        showStatus("Login failed: " + cause.getMessage(), true);
+                    } else if (session.isPresent()) {
                         openMainApplication(session.get());
                     } else {
                         showStatus("Invalid username or password", true);
@@ -96,16 +111,208 @@ public class LoginController {
                         passwordField.requestFocus();
                     }
                 });
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    loadingIndicator.setVisible(false);
-                    showStatus("Login failed: " + e.getMessage(), true);
-                });
-            }
-        });
-        
-        authThread.setDaemon(true);
-        authThread.start();
+            });
+    }
+    
+    /**
+     * Enables the response cache in a directory next to settings.json; chats work without it if it cannot be opened
+     */
+    private static void openResponseCache(OllamaService ollamaService, SettingsManager settingsManager,
+                                          AppSettings settings) {
+        try {
+            Path directory = Path.of(settingsManager.getSettingsFilePath()).resolveSibling("response-cache");
+            ResponseCache cache = new ResponseCache(directory, settings.responseCacheMaxMb() * 1024L * 1024L);
+            ollamaService.setResponseCache(cache, settings.cacheReplayTokensPerSecond());
+        } catch (IOException e) {
+            System.err.println("Failed to open response cache: " + e.getMessage());
+        }
+    }
+    
+    /**
+     * Opens the user's semantic search index in the background, since a large one takes a moment to read,
+     * and then keeps it current with the conversation, hands it to the chat window and embeds the saved
+     * conversations it does not have yet
+     * @param library the saved conversations, or null if the library could not be opened
+     */
+    private static void openSemanticSearch(OllamaService ollamaService,
+                                           ConversationManager conversationManager,
+                                           ConversationLibrary library,
+                                           SettingsManager settingsManager,
+                                           AppSettings settings,
+                                           LoginSession session,
+                                           ChatController chatController) {
+        Path file = userDataDirectory(settingsManager, session).resolve("semantic-index.bin");
+        AsyncRuntime runtime = AsyncRuntime.shared();
+        String model = settings.embeddingModel();
+        CompletableFuture.supplyAsync(() -> new SemanticSearchIndex(
+                file, model, inputs -> ollamaService.embed(model, inputs), runtime.scheduler(), runtime.executor()
+            ), runtime.executor())
+            .thenAccept(index -> Platform.runLater(() -> {
+                if (chatController.isLoggedOut()) {
+                    // Logged out while the index was opening; the library it would catch up from is closed
+                    runtime.executor().execute(index::close);
+                    return;
+                }
+                // Catches up on the conversation restored while the index was opening
+                index.conversationLoaded(conversationManager.getConversationId(), conversationManager.getMessages());
+                conversationManager.addListener(index);
+                chatController.setSemanticSearch(index);
+                if (library != null) {
+                    runtime.executor().execute(() -> index.indexLibrary(library));
+                }
+            }));
+    }
+    
+    /**
+     * Opens the user's full-text index in the background, then keeps it current with the conversation,
+     * hands it to the chat window and indexes the saved conversations it does not have yet
+     */
+    private static void openFullTextSearch(ConversationManager conversationManager,
+                                           ConversationLibrary library,
+                                           SettingsManager settingsManager,
+                                           LoginSession session,
+                                           ChatController chatController) {
+        Path directory = userDataDirectory(settingsManager, session).resolve("fulltext");
+        AsyncRuntime runtime = AsyncRuntime.shared();
+        CompletableFuture.supplyAsync(() -> new FullTextIndex(
+                directory, library, runtime.scheduler(), runtime.executor()
+            ), runtime.executor())
+            .thenAccept(index -> Platform.runLater(() -> {
+                if (chatController.isLoggedOut()) {
+                    // Logged out while the index was opening; nothing else will close it
+                    runtime.executor().execute(index::close);
+                    return;
+                }
+                // Catches up on the conversation restored while the index was opening
+                index.conversationLoaded(conversationManager.getConversationId(), conversationManager.getMessages());
+                conversationManager.addListener(index);
+                chatController.setFullTextSearch(index);
+                runtime.executor().execute(index::indexLibrary);
+            }));
+    }
+    
+    /**
+     * The user's saved conversations and journal as opened in the background
+     * @param library null if it could not be opened
+     * @param journal null if it could not be opened
+     * @param recovered the conversation recovered from the journal, empty if there is none
+     */
+    private record ConversationStores(ConversationLibrary library, ConversationJournal journal,
+                                      List<ChatMessage> recovered) {}
+    
+    /**
+     * Opens the user's saved conversations and journal in the background, since the library checks every
+     * conversation file and the journal is replayed. Then recovers the last conversation, keeps recording
+     * the current one in both and opens the search indexes over the library.
+     */
+    private static void openConversationStores(OllamaService ollamaService,
+                                               ConversationManager conversationManager,
+                                               SettingsManager settingsManager,
+                                               AppSettings settings,
+                                               LoginSession session,
+                                               ChatController chatController) {
+        AsyncRuntime runtime = AsyncRuntime.shared();
+        CompletableFuture.supplyAsync(() -> {
+                ConversationLibrary library = openConversationLibrary(settingsManager, session);
+                ConversationJournal journal = openConversationJournal(library, settingsManager, session);
+                List<ChatMessage> recovered = journal != null && journal.conversationId() != null
+                    ? journal.messages()
+                    : List.of();
+                return new ConversationStores(library, journal, recovered);
+            }, runtime.executor())
+            .thenAccept(stores -> Platform.runLater(() -> {
+                ConversationLibrary library = stores.library();
+                ConversationJournal journal = stores.journal();
+                if (chatController.isLoggedOut()) {
+                    // Logged out while they were opening; nothing else will close them
+                    runtime.executor().execute(() -> {
+                        if (journal != null) {
+                            journal.close();
+                        }
+                        if (library != null) {
+                            library.close();
+                        }
+                    });
+                    return;
+                }
+                // The library listens first, so it has stored a loaded conversation when the journal sees it
+                if (library != null) {
+                    conversationManager.addListener(library);
+                    chatController.setConversationLibrary(library);
+                }
+                boolean restored = !stores.recovered().isEmpty()
+                    && chatController.restoreConversation(journal.conversationId(), stores.recovered());
+                if (!restored && !stores.recovered().isEmpty() && library != null) {
+                    // Another conversation was started meanwhile; the recovered one is kept in the library
+                    library.conversationLoaded(journal.conversationId(), stores.recovered());
+                }
+                List<ChatMessage> current = conversationManager.getMessages();
+                if (!current.isEmpty()) {
+                    // Catches up on messages sent while the stores were opening
+                    if (library != null && !restored) {
+                        library.conversationLoaded(conversationManager.getConversationId(), current);
+                    }
+                    if (journal != null) {
+                        journal.conversationLoaded(conversationManager.getConversationId(), current);
+                    }
+                }
+                if (journal != null) {
+                    conversationManager.addListener(journal);
+                    chatController.setConversationJournal(journal);
+                }
+                if (library != null) {
+                    openFullTextSearch(conversationManager, library, settingsManager, session, chatController);
+                }
+                if (settings.semanticSearchEnabled()) {
+                    openSemanticSearch(ollamaService, conversationManager, library, settingsManager, settings, session,
+                        chatController);
+                }
+            }));
+    }
+    
+    /**
+     * Opens the user's saved conversations
+     * @return the library, or null if it could not be opened; conversations are then not listed
+     */
+    private static ConversationLibrary openConversationLibrary(SettingsManager settingsManager, LoginSession session) {
+        Path directory = userDataDirectory(settingsManager, session).resolve("library");
+        AsyncRuntime runtime = AsyncRuntime.shared();
+        try {
+            return ConversationLibrary.open(directory, runtime.scheduler(), runtime.executor());
+        } catch (IOException e) {
+            System.err.println("Failed to open conversation library: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Opens the journal that recovers the user's last conversation
+     * @param library holds the conversations the journal records by reference, or null
+     * @return the journal, or null if it could not be opened; the conversation is then not kept
+     */
+    private static ConversationJournal openConversationJournal(ConversationLibrary library,
+                                                               SettingsManager settingsManager,
+                                                               LoginSession session) {
+        Path file = userDataDirectory(settingsManager, session).resolve("conversation.journal");
+        AsyncRuntime runtime = AsyncRuntime.shared();
+        try {
+            // Batched syncs keep the disk off the FX thread; a crash loses at most the last second
+            return ConversationJournal.open(
+                file, ConversationJournal.SyncPolicy.BATCHED, library, runtime.scheduler(), runtime.executor()
+            );
+        } catch (IOException e) {
+            System.err.println("Failed to open conversation journal: " + e.getMessage());
+            return null;
+        }
+    }
+    
+    /**
+     * Each user's conversations and indexes stay in their own directory, so no user sees another's chats
+     */
+    private static Path userDataDirectory(SettingsManager settingsManager, LoginSession session) {
+        return Path.of(settingsManager.getSettingsFilePath())
+            .resolveSibling("users")
+            .resolve(session.getUsername());
     }
     
     private void openMainApplication(LoginSession session) {
@@ -116,18 +323,36 @@ public class LoginController {
             ChatController chatController = loader.getController();
             
             // Create all required services
+            SettingsManager settingsManager = new SettingsManagerImpl();
+            AppSettings settings = settingsManager.loadSettings();
             OllamaService ollamaService = new OllamaServiceImpl();
+            if (!settings.endpoints().isEmpty()) {
+                ollamaService.setEndpoints(settings.endpoints());
+            }
+            ollamaService.setChatTimeouts(new ChatTimeouts(
+                Duration.ofSeconds(settings.connectTimeoutSeconds()),
+                Duration.ofSeconds(settings.firstTokenTimeoutSeconds()),
+                Duration.ofSeconds(settings.idleTimeoutSeconds())
+            ));
+            ollamaService.setChatOptions(settings.chatOptions());
+            if (settings.responseCacheEnabled()) {
+                openResponseCache(ollamaService, settingsManager, settings);
+            }
+            // The model list is cached next to settings.json so the selector fills instantly next time
+            ollamaService.setModelCacheFile(
+                Path.of(settingsManager.getSettingsFilePath()).resolveSibling("models-cache.json")
+            );
             ConversationManager conversationManager = new ConversationManagerImpl();
-            SettingsManager settingsManager = new SettingsManagerImpl();
             
             // Set services and session
             chatController.setServices(ollamaService, conversationManager, settingsManager, authService);
+            openConversationStores(ollamaService, conversationManager, settingsManager, settings, session,
+                chatController);
             chatController.setLoginSession(session);
             
             Scene scene = new Scene(root, 1000, 700);
             
             // Apply theme from settings
-            AppSettings settings = settingsManager.loadSettings();
             ThemeManager.applyTheme(scene, settings.theme(), settings.fontFamily(), settings.fontSize());
             
             primaryStage.setScene(scene);
@@ -136,6 +361,9 @@ public class LoginController {
             primaryStage.setMinWidth(800);
             primaryStage.setMinHeight(600);
             
+            // The login screen is gone
+            tasks.close();
+            
         } catch (IOException e) {
             showStatus("Failed to load main application: " + e.getMessage(), true);
         }
@@ -0,0 +1,206 @@
+package com.ollama.olama.controller;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.search.FullTextIndex;
+import com.ollama.olama.search.SemanticSearchIndex;
+import com.ollama.olama.service.AsyncRuntime;
+import com.ollama.olama.service.OllamaException;
+import com.ollama.olama.service.TaskScope;
+import javafx.application.Platform;
+import javafx.fxml.FXML;
+import javafx.scene.control.*;
+import javafx.scene.input.KeyCode;
+import javafx.stage.Stage;
+
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.BiConsumer;
+
+/**
+ * Controller for the search window: finds messages in saved conversations either by their exact words,
+ * using the full-text index, or by meaning, using the semantic search index. Opening a result shows
+ * its conversation in the chat window.
+ */
+public class SearchController {
+
+    private static final int MAX_HITS = 20;
+    private static final int EXCERPT_CHARS = 300;
+    private static final int EXCERPT_LEAD_CHARS = 80;
+    private static final String EXACT_MODE = "Exact words";
+    private static final String MEANING_MODE = "Similar meaning";
+    private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm");
+
+    @FXML private ComboBox<String> modeSelector;
+    @FXML private TextField queryInput;
+    @FXML private Button searchButton;
+    @FXML private Label helpLabel;
+    @FXML private ListView<Result> resultList;
+    @FXML private Label statusLabel;
+
+    private final TaskScope tasks = AsyncRuntime.shared().openScope();
+    private SemanticSearchIndex semanticIndex;
+    private FullTextIndex fullTextIndex;
+    private BiConsumer<String, Integer> onOpen;
+
+    /**
+     * A found message, from either index
+     * @param score similarity to the query, or NaN for an exact match
+     */
+    private record Result(
+        String conversationId,
+        int messageIndex,
+        String role,
+        LocalDateTime timestamp,
+        String excerpt,
+        float score
+    ) {}
+
+    @FXML
+    private void initialize() {
+        resultList.setCellFactory(list -> new ListCell<>() {
+            @Override
+            protected void updateItem(Result result, boolean empty) {
+                super.updateItem(result, empty);
+                setText(empty || result == null ? null : describe(result));
+                setWrapText(true);
+                setPrefWidth(0);
+            }
+        });
+        resultList.setOnMouseClicked(event -> {
+            if (event.getClickCount() == 2) {
+                openSelected();
+            }
+        });
+        resultList.setOnKeyPressed(event -> {
+            if (event.getCode() == KeyCode.ENTER) {
+                openSelected();
+            }
+        });
+        modeSelector.setOnAction(event -> updateHelp());
+    }
+
+    /**
+     * @param semanticIndex the semantic index, or null if semantic search is off
+     * @param fullTextIndex the full-text index, or null if it could not be opened
+     * @param onOpen shows a conversation at a message, given its id and the message's index
+     */
+    public void setup(SemanticSearchIndex semanticIndex, FullTextIndex fullTextIndex,
+                      BiConsumer<String, Integer> onOpen) {
+        this.semanticIndex = semanticIndex;
+        this.fullTextIndex = fullTextIndex;
+        this.onOpen = onOpen;
+
+        if (semanticIndex != null && fullTextIndex != null) {
+            modeSelector.getItems().setAll(EXACT_MODE, MEANING_MODE);
+            modeSelector.setVisible(true);
+            modeSelector.setManaged(true);
+        }
+        modeSelector.getSelectionModel().select(fullTextIndex != null ? EXACT_MODE : MEANING_MODE);
+        updateHelp();
+    }
+
+    public void setDialogStage(Stage dialogStage) {
+        dialogStage.setOnHidden(event -> tasks.close());
+    }
+
+    private boolean isExactMode() {
+        return fullTextIndex != null && !MEANING_MODE.equals(modeSelector.getValue());
+    }
+
+    private void updateHelp() {
+        if (isExactMode()) {
+            queryInput.setPromptText("Words, \"an exact phrase\" or a prefix*...");
+            helpLabel.setText("Matches messages containing all the words, newest first");
+            statusLabel.setText(fullTextIndex.size() + " messages indexed");
+        } else {
+            queryInput.setPromptText("Describe what you are looking for...");
+            helpLabel.setText("Matches messages with a similar meaning, not only the same words");
+            statusLabel.setText(semanticIndex.size() + " messages indexed with " + semanticIndex.model());
+        }
+    }
+
+    @FXML
+    private void onSearch() {
+        String query = queryInput.getText().trim();
+        if (query.isEmpty()) {
+            statusLabel.setText("Enter something to search for");
+            return;
+        }
+
+        boolean exact = isExactMode();
+        CompletableFuture<List<Result>> results = exact
+            ? fullTextIndex.search(query, MAX_HITS).thenApply(hits -> hits.stream().map(hit -> toResult(hit, query)).toList())
+            : semanticIndex.search(query, MAX_HITS).thenApply(hits -> hits.stream().map(SearchController::toResult).toList());
+
+        searchButton.setDisable(true);
+        statusLabel.setText("Searching...");
+        tasks.track(results).whenComplete((found, throwable) -> Platform.runLater(() -> {
+            searchButton.setDisable(false);
+            if (throwable != null) {
+                if (!(throwable instanceof CancellationException)) {
+                    statusLabel.setText("Search failed: " + errorMessage(throwable));
+                }
+                return;
+            }
+            resultList.getItems().setAll(found);
+            if (found.isEmpty()) {
+                statusLabel.setText("No matches");
+            } else {
+                statusLabel.setText((exact ? found.size() + " most recent matches" : found.size() + " closest messages")
+                    + " · double-click to open");
+            }
+        }));
+    }
+
+    private void openSelected() {
+        Result result = resultList.getSelectionModel().getSelectedItem();
+        if (result != null && onOpen != null) {
+            onOpen.accept(result.conversationId(), result.messageIndex());
+        }
+    }
+
+    private static Result toResult(SemanticSearchIndex.Hit hit) {
+        return new Result(hit.conversationId(), hit.messageIndex(), hit.role(), hit.timestamp(),
+            hit.excerpt(), hit.score());
+    }
+
+    private static Result toResult(FullTextIndex.Hit hit, String query) {
+        ChatMessage message = hit.message();
+        return new Result(hit.conversationId(), hit.messageIndex(), message.role(), message.timestamp(),
+            excerpt(message.content(), query), Float.NaN);
+    }
+
+    /**
+     * Gets the part of a message around the first word of the query, on one line
+     */
+    private static String excerpt(String content, String query) {
+        String line = content.strip().replaceAll("\\s+", " ");
+        String firstWord = query.replace("\"", " ").replace("*", " ").trim().split("\\s+")[0];
+        int found = line.toLowerCase(Locale.ROOT).indexOf(firstWord.toLowerCase(Locale.ROOT));
+        int start = found > EXCERPT_LEAD_CHARS ? found - EXCERPT_LEAD_CHARS : 0;
+        int end = Math.min(line.length(), start + EXCERPT_CHARS);
+        return (start > 0 ? "…" : "") + line.substring(start, end) + (end < line.length() ? "…" : "");
+    }
+
+    private static String describe(Result result) {
+        String when = result.timestamp() != null ? result.timestamp().format(TIME_FORMAT) : "unknown time";
+        String header = Float.isNaN(result.score())
+            ? String.format(Locale.ROOT, "%s · %s · message %d", result.role(), when, result.messageIndex() + 1)
+            : String.format(Locale.ROOT, "%s · %s · message %d · %.2f",
+                result.role(), when, result.messageIndex() + 1, result.score());
+        return header + System.lineSeparator() + result.excerpt();
+    }
+
+    private static String errorMessage(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OllamaException ollamaException) {
+                return ollamaException.getUserMessage();
+            }
+        }
+        return throwable.getMessage();
+    }
+}
@@ -3,6 +3,8 @@ package com.ollama.olama.controller;
 import com.ollama.olama.manager.SettingsManager;
 import com.ollama.olama.manager.ThemeManager;
 import com.ollama.olama.model.AppSettings;
+import com.ollama.olama.service.AsyncRuntime;
+import com.ollama.olama.service.TaskScope;
 import javafx.animation.KeyFrame;
 import javafx.animation.Timeline;
 import javafx.application.Platform;
@@ -12,6 +14,9 @@ import javafx.stage.Stage;
 import javafx.util.Duration;
 
 import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
 
 /**
  * Controller for the settings dialog.
@@ -31,6 +36,7 @@ public class SettingsController {
     private SettingsManager settingsManager;
     private AppSettings currentSettings;
     private Stage dialogStage;
+    private final TaskScope tasks = AsyncRuntime.shared().openScope();
     
     public void initialize() {
         // Set up form validation
@@ -74,6 +80,7 @@ public class SettingsController {
     
     public void setDialogStage(Stage dialogStage) {
         this.dialogStage = dialogStage;
+        dialogStage.setOnHidden(e -> tasks.close());
     }
     
     private void loadCurrentSettings() {
@@ -111,7 +118,22 @@ public class SettingsController {
                 systemPromptArea.getText().trim(),
                 themeComboBox.getValue().toLowerCase(),
                 fontFamilyComboBox.getValue(),
-                (int) fontSizeSpinner.getValue()
+                (int) fontSizeSpinner.getValue(),
+                currentSettings.contextTokens(),
+                currentSettings.modelContextTokens(),
+                currentSettings.contextPolicy(),
+                currentSettings.keepAlive(),
+                currentSettings.modelKeepAlive(),
+                currentSettings.ollamaEndpoints(),
+                currentSettings.connectTimeoutSeconds(),
+                currentSettings.firstTokenTimeoutSeconds(),
+                currentSettings.idleTimeoutSeconds(),
+                currentSettings.chatOptions(),
+                currentSettings.responseCacheEnabled(),
+                currentSettings.responseCacheMaxMb(),
+                currentSettings.cacheReplayTokensPerSecond(),
+                currentSettings.semanticSearchEnabled(),
+                currentSettings.embeddingModel()
             );
             
             // Save settings
@@ -181,49 +203,42 @@ public class SettingsController {
             testButton.setText("Testing...");
         }
         
-        // Test connection in background thread
-        Thread testThread = new Thread(() -> {
-            try {
-                // Simple HTTP test - you can enhance this with actual Ollama API call
-                java.net.http.HttpClient client = java.net.http.HttpClient.newHttpClient();
-                java.net.http.HttpRequest request = java.net.http.HttpRequest.newBuilder()
-                    .uri(java.net.URI.create(url + "/api/tags"))
-                    .timeout(java.time.Duration.ofSeconds(5))
-                    .GET()
-                    .build();
-                
-                java.net.http.HttpResponse<String> response = client.send(request, 
-                    java.net.http.HttpResponse.BodyHandlers.ofString());
-                
+        HttpRequest request;
+        try {
+            request = HttpRequest.newBuilder()
+                .uri(URI.create(url + "/api/tags"))
+                .timeout(java.time.Duration.ofSeconds(5))
+                .GET()
+                .build();
+        } catch (IllegalArgumentException e) {
+            showStatus("✗ Invalid URL: " + e.getMessage(), true);
+            resetTestButton(testButton);
+            return;
+        }
+        
+        // Uses the application's HTTP client; closing the dialog abandons the test
+        tasks.track(AsyncRuntime.shared().httpClient().sendAsync(request, HttpResponse.BodyHandlers.discarding()))
+            .whenComplete((response, throwable) -> {
+                if (tasks.isClosed()) return;
                 Platform.runLater(() -> {
-                    if (response.statusCode() == 200) {
+                    if (throwable != null) {
+                        Throwable cause = throwable.getCause() != null ? throwable.getCause() : throwable;
+                        showStatus("✗ Connection failed: " + cause.getMessage(), true);
+                    } else if (response.statusCode() == 200) {
                         showStatus("✓ Connection successful!", false);
                     } else {
                         showStatus("✗ Connection failed (HTTP " + response.statusCode() + ")", true);
                     }
-                    
-                    // Re-enable button
-                    if (testButton != null) {
-                        testButton.setDisable(false);
-                        testButton.setText("Test Connection");
-                    }
-                });
-                
-            } catch (Exception e) {
-                Platform.runLater(() -> {
-                    showStatus("✗ Connection failed: " + e.getMessage(), true);
-                    
-                    // Re-enable button
-                    if (testButton != null) {
-                        testButton.setDisable(false);
-                        testButton.setText("Test Connection");
-                    }
+                    resetTestButton(testButton);
                 });
-            }
-        });
-        
-        testThread.setDaemon(true);
-        testThread.start();
+            });
+    }
+    
+    private void resetTestButton(Button testButton) {
+        if (testButton != null) {
+            testButton.setDisable(false);
+            testButton.setText("Test Connection");
+        }
     }
     
     private void showStatus(String message, boolean isError) {
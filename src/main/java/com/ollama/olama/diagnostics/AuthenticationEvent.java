@@ -0,0 +1,23 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A login attempt, including password hashing and saving the last login time
+ */
+@Name("com.ollama.olama.Authentication")
+@Label("Authentication")
+@Category({"Ollama Chat", "Security"})
+@Description("A login attempt, including password hashing and saving the last login time")
+public class AuthenticationEvent extends Event {
+
+    @Label("Username")
+    public String username;
+
+    @Label("Success")
+    public boolean success;
+}
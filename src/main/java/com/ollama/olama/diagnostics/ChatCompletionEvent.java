@@ -0,0 +1,44 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * A whole chat request, from building the body until it completed, failed or was cancelled
+ */
+@Name("com.ollama.olama.ChatCompletion")
+@Label("Chat Completion")
+@Category({"Ollama Chat", "Chat Request"})
+@Description("A whole chat request from building the body until it completed, failed or was cancelled")
+public class ChatCompletionEvent extends Event {
+
+    public static final String COMPLETED = "completed";
+    public static final String CANCELLED = "cancelled";
+    public static final String FAILED = "failed";
+
+    @Label("Model")
+    public String model;
+
+    @Label("Outcome")
+    public String outcome;
+
+    @Label("Tokens Received")
+    @Description("Content chunks decoded from the stream")
+    public long tokenCount;
+
+    @Label("Bytes Received")
+    @DataAmount(DataAmount.BYTES)
+    public long bytesReceived;
+
+    @Label("Prompt Tokens")
+    @Description("prompt_eval_count reported by Ollama")
+    public long promptEvalCount;
+
+    @Label("Generated Tokens")
+    @Description("eval_count reported by Ollama")
+    public long evalCount;
+}
@@ -0,0 +1,24 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time from sending the chat request until the response headers arrive
+ */
+@Name("com.ollama.olama.ChatConnect")
+@Label("Chat Connect")
+@Category({"Ollama Chat", "Chat Request"})
+@Description("From sending the request until response headers arrive; includes connection setup, "
+    + "since HttpClient does not report TCP connect separately")
+public class ChatConnectEvent extends Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Status Code")
+    public int statusCode;
+}
@@ -0,0 +1,20 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time from sending the chat request until the first byte of the response body is read
+ */
+@Name("com.ollama.olama.ChatFirstByte")
+@Label("Chat First Byte")
+@Category({"Ollama Chat", "Chat Request"})
+@Description("From sending the request until the first response body byte is read")
+public class ChatFirstByteEvent extends Event {
+
+    @Label("Model")
+    public String model;
+}
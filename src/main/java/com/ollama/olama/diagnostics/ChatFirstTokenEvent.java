@@ -0,0 +1,20 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Time from sending the chat request until the first content token is decoded
+ */
+@Name("com.ollama.olama.ChatFirstToken")
+@Label("Chat First Token")
+@Category({"Ollama Chat", "Chat Request"})
+@Description("From sending the request until the first content token is decoded")
+public class ChatFirstTokenEvent extends Event {
+
+    @Label("Model")
+    public String model;
+}
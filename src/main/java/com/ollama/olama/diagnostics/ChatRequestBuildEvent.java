@@ -0,0 +1,28 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Writing the /api/chat request body, which happens while it is sent
+ */
+@Name("com.ollama.olama.ChatRequestBuild")
+@Label("Chat Request Build")
+@Category({"Ollama Chat", "Chat Request"})
+@Description("Writing the conversation as the JSON request body, until the last byte was handed to the HTTP client")
+public class ChatRequestBuildEvent extends Event {
+
+    @Label("Model")
+    public String model;
+
+    @Label("Messages")
+    public int messageCount;
+
+    @Label("Body Size")
+    @DataAmount(DataAmount.BYTES)
+    public long bodyBytes;
+}
@@ -0,0 +1,36 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * Saving or loading a conversation file, or replaying or compacting the conversation journal
+ */
+@Name("com.ollama.olama.ConversationIo")
+@Label("Conversation I/O")
+@Category({"Ollama Chat", "Storage"})
+@Description("Saving or loading a conversation file, or replaying or compacting the conversation journal")
+public class ConversationIoEvent extends Event {
+
+    public static final String SAVE = "save";
+    public static final String LOAD = "load";
+    public static final String REPLAY = "replay";
+    public static final String COMPACT = "compact";
+
+    @Label("Operation")
+    public String operation;
+
+    @Label("Path")
+    public String path;
+
+    @Label("Messages")
+    public int messageCount;
+
+    @Label("File Size")
+    @DataAmount(DataAmount.BYTES)
+    public long bytes;
+}
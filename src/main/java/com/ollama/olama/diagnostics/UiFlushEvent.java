@@ -0,0 +1,32 @@
+package com.ollama.olama.diagnostics;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * One delivery of buffered tokens to the chat view on the JavaFX thread
+ */
+@Name("com.ollama.olama.UiFlush")
+@Label("UI Token Flush")
+@Category({"Ollama Chat", "User Interface"})
+@Description("Appending the tokens buffered since the previous pulse to the chat view")
+public class UiFlushEvent extends Event {
+
+    @Label("Tokens")
+    public long tokenCount;
+
+    @Label("Characters")
+    public int characters;
+
+    @Label("Oldest Token Wait")
+    @Description("How long the oldest token in the batch waited for this flush")
+    @Timespan(Timespan.NANOSECONDS)
+    public long waitNanos;
+
+    @Label("FX Queue Depth")
+    public int fxQueueDepth;
+}
@@ -0,0 +1,157 @@
+package com.ollama.olama.manager;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.util.TokenEstimator;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Assembles the message list sent to the model so it fits a token budget.
+ * The system prompt and the most recent turns are always kept; older messages are
+ * dropped or truncated according to the configured policy.
+ */
+public class ContextBuilder {
+
+    /**
+     * What to do with the first older message that does not fit the budget
+     */
+    public enum Policy {
+        /** Drop it and everything older */
+        DROP_OLDEST,
+        /** Keep as much of its beginning as fits, then drop everything older */
+        TRUNCATE_OLDEST;
+
+        /**
+         * Parses a policy name from settings, falling back to DROP_OLDEST
+         */
+        public static Policy fromName(String name) {
+            if (name != null) {
+                for (Policy policy : values()) {
+                    if (policy.name().equalsIgnoreCase(name.trim())) {
+                        return policy;
+                    }
+                }
+            }
+            return DROP_OLDEST;
+        }
+    }
+
+    /**
+     * Tokens the chat template adds around each message (role markers, separators)
+     */
+    public static final int MESSAGE_OVERHEAD_TOKENS = 4;
+
+    /**
+     * A truncated message shorter than this is not worth keeping
+     */
+    static final int MIN_TRUNCATED_TOKENS = 32;
+
+    static final String TRUNCATION_MARKER = " [...]";
+
+    private final Policy policy;
+    private final int keepRecentTurns;
+
+    /**
+     * @param policy how to handle the oldest message that no longer fits
+     * @param keepRecentTurns number of most recent turns (a user message and the replies after it)
+     *                        that are always kept, even if they exceed the budget
+     */
+    public ContextBuilder(Policy policy, int keepRecentTurns) {
+        if (keepRecentTurns < 1) {
+            throw new IllegalArgumentException("At least one recent turn must be kept");
+        }
+        this.policy = policy;
+        this.keepRecentTurns = keepRecentTurns;
+    }
+
+    /**
+     * Builds the API message list
+     * @param systemMessage the system prompt message, or null if there is none
+     * @param history the conversation in chronological order
+     * @param tokenBudget the maximum number of prompt tokens
+     * @return the system message (if any) followed by the kept messages in chronological order
+     */
+    public List<ChatMessage> build(ChatMessage systemMessage, List<ChatMessage> history, int tokenBudget) {
+        int remaining = tokenBudget;
+        if (systemMessage != null) {
+            remaining -= cost(systemMessage);
+        }
+
+        // Walk from the newest message backwards, collecting what fits
+        List<ChatMessage> kept = new ArrayList<>();
+        int protectedFrom = recentTurnsStart(history);
+        int index = history.size() - 1;
+
+        for (; index >= protectedFrom; index--) {
+            ChatMessage message = history.get(index);
+            kept.add(message);
+            remaining -= cost(message);
+        }
+
+        for (; index >= 0; index--) {
+            ChatMessage message = history.get(index);
+            int cost = cost(message);
+            if (cost <= remaining) {
+                kept.add(message);
+                remaining -= cost;
+                continue;
+            }
+
+            if (policy == Policy.TRUNCATE_OLDEST) {
+                ChatMessage truncated = truncate(message, remaining);
+                if (truncated != null) {
+                    kept.add(truncated);
+                }
+            }
+            break;
+        }
+
+        Collections.reverse(kept);
+        if (systemMessage != null) {
+            kept.add(0, systemMessage);
+        }
+        return kept;
+    }
+
+    /**
+     * Estimates the total prompt tokens of a message list
+     */
+    public static int estimateTokens(List<ChatMessage> messages) {
+        int total = 0;
+        for (ChatMessage message : messages) {
+            total += cost(message);
+        }
+        return total;
+    }
+
+    private static int cost(ChatMessage message) {
+        return message.tokenEstimate() + MESSAGE_OVERHEAD_TOKENS;
+    }
+
+    /**
+     * Finds the index where the protected recent turns start
+     */
+    private int recentTurnsStart(List<ChatMessage> history) {
+        int turns = 0;
+        for (int i = history.size() - 1; i >= 0; i--) {
+            if ("user".equals(history.get(i).role())) {
+                turns++;
+                if (turns == keepRecentTurns) {
+                    return i;
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static ChatMessage truncate(ChatMessage message, int remainingTokens) {
+        int allowance = remainingTokens - MESSAGE_OVERHEAD_TOKENS - TokenEstimator.estimate(TRUNCATION_MARKER);
+        if (allowance < MIN_TRUNCATED_TOKENS) {
+            return null;
+        }
+        String prefix = TokenEstimator.keepFirstTokens(message.content(), allowance);
+        return message.withContent(prefix + TRUNCATION_MARKER);
+    }
+}
@@ -0,0 +1,603 @@
+package com.ollama.olama.manager;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ollama.olama.diagnostics.ConversationIoEvent;
+import com.ollama.olama.model.ChatMessage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-ahead journal of the current conversation. Every change is appended as one record, so saving
+ * after a turn costs one message of I/O instead of the whole history, and a crash loses at most the
+ * record being written. Opening the journal replays it record by record to recover the conversation.
+ * <p>
+ * Records of cleared conversations stay in the file until it is compacted in the background, which
+ * rewrites it with only the current conversation once most of it is dead.
+ * <p>
+ * Switching to a conversation the ConversationLibrary already holds records only an "open" record with
+ * its message count; recovery reads those messages back from the library. The library must be registered
+ * as a listener before the journal, so it has stored a loaded conversation by the time the journal sees it.
+ * <p>
+ * File layout: a header (magic, version) followed by records of [length][CRC32][JSON payload].
+ * A record that is cut short or fails its checksum ends the replay and is truncated away.
+ */
+public final class ConversationJournal implements ConversationListener, AutoCloseable {
+
+    /**
+     * When appended records are forced to disk
+     */
+    public enum SyncPolicy {
+        /** Before every append returns; nothing acknowledged is ever lost */
+        ALWAYS,
+        /** At most SYNC_INTERVAL after an append; a crash can lose the last second of messages */
+        BATCHED,
+        /** Left to the operating system; only a process crash is survived, not a power loss */
+        NEVER
+    }
+
+    static final Duration SYNC_INTERVAL = Duration.ofSeconds(1);
+    /** Compaction waits until the file is at least this big and mostly dead records */
+    static final long COMPACT_MIN_BYTES = 1024 * 1024;
+
+    private static final int MAGIC = 0x4F434A31;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+
+    private static final String RESET = "reset";
+    private static final String OPEN = "open";
+    private static final String MESSAGE = "message";
+    private static final String CLEAR = "clear";
+
+    private final Path file;
+    private final Path compactFile;
+    private final SyncPolicy syncPolicy;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final ObjectMapper objectMapper;
+    private final ConversationLibrary library;
+
+    // Guarded by this
+    private FileChannel channel;
+    private long size;
+    private long liveBytes;
+    private String liveId;
+    /** Messages of the live conversation kept in the library rather than in this journal */
+    private int storedCount;
+    private final List<ChatMessage> liveMessages = new ArrayList<>();
+    private boolean syncScheduled;
+    private CompletableFuture<Void> compaction;
+    private boolean closed;
+
+    /**
+     * One journal entry; messages of a conversation follow its reset or open record or start a new one
+     * @param storedCount for an open record, the number of messages read from the library
+     */
+    private record Entry(String type, String conversationId, ChatMessage message,
+                         @JsonInclude(JsonInclude.Include.NON_DEFAULT) int storedCount) {
+
+        Entry(String type, String conversationId, ChatMessage message) {
+            this(type, conversationId, message, 0);
+        }
+    }
+
+    private ConversationJournal(Path file, SyncPolicy syncPolicy, ConversationLibrary library,
+                                ScheduledExecutorService scheduler, Executor executor) {
+        this.file = file;
+        this.library = library;
+        this.compactFile = file.resolveSibling(file.getFileName() + ".compact");
+        this.syncPolicy = syncPolicy;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    /**
+     * Opens the journal, recovering the conversation it holds. Creates the file if there is none.
+     * @param scheduler runs the batched sync timer
+     * @param executor runs syncs and compaction
+     */
+    public static ConversationJournal open(Path file, SyncPolicy syncPolicy,
+                                           ScheduledExecutorService scheduler, Executor executor) throws IOException {
+        return open(file, syncPolicy, null, scheduler, executor);
+    }
+
+    /**
+     * Opens the journal, recording conversations the library holds by reference
+     * @param library where the messages of opened conversations are kept, or null to journal them in full
+     */
+    public static ConversationJournal open(Path file, SyncPolicy syncPolicy, ConversationLibrary library,
+                                           ScheduledExecutorService scheduler, Executor executor) throws IOException {
+        ConversationJournal journal = new ConversationJournal(file, syncPolicy, library, scheduler, executor);
+        journal.recover();
+        return journal;
+    }
+
+    /**
+     * The id of the recovered or current conversation, or null if it was cleared
+     */
+    public synchronized String conversationId() {
+        return liveId;
+    }
+
+    /**
+     * The messages of the recovered or current conversation. Those kept in the library are read from it,
+     * so call this off the FX thread.
+     * @return the messages, or an empty list if the ones kept in the library cannot be read
+     */
+    public List<ChatMessage> messages() {
+        String id;
+        int stored;
+        List<ChatMessage> journaled;
+        synchronized (this) {
+            id = liveId;
+            stored = storedCount;
+            journaled = List.copyOf(liveMessages);
+        }
+        if (stored == 0) {
+            return journaled;
+        }
+        try {
+            if (library == null) {
+                throw new IOException("no library to read it from");
+            }
+            try (ConversationPages pages = library.openPages(id)) {
+                if (pages.size() < stored) {
+                    throw new IOException("the library has " + pages.size() + " of its first " + stored + " messages");
+                }
+                List<ChatMessage> messages = new ArrayList<>(pages.messages(0, stored));
+                messages.addAll(journaled);
+                return messages;
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to recover conversation " + id + ": " + e.getMessage());
+            return List.of();
+        }
+    }
+
+    /**
+     * The journal's size on disk
+     */
+    public synchronized long sizeBytes() {
+        return size;
+    }
+
+    @Override
+    public void messageAdded(String conversationId, int index, ChatMessage message) {
+        append(new Entry(MESSAGE, conversationId, message));
+    }
+
+    @Override
+    public void conversationCleared(String conversationId) {
+        append(new Entry(CLEAR, conversationId, null));
+    }
+
+    /**
+     * Records a conversation that was opened. When the journal already holds it, e.g. after restoring from
+     * this journal, only the messages it does not have yet are appended; the last journaled message decides
+     * whether the journal's copy is a prefix of the loaded one. A conversation the library holds is recorded
+     * with one open record, so switching conversations does not copy their history.
+     */
+    @Override
+    public void conversationLoaded(String conversationId, List<ChatMessage> messages) {
+        List<Entry> entries = new ArrayList<>();
+        int from = 0;
+        synchronized (this) {
+            int recorded = storedCount + liveMessages.size();
+            boolean prefix = conversationId.equals(liveId) && recorded <= messages.size()
+                && (liveMessages.isEmpty() || liveMessages.getLast().equals(messages.get(recorded - 1)));
+            if (prefix) {
+                from = recorded;
+            } else if (isStored(conversationId, messages.size())) {
+                entries.add(new Entry(OPEN, conversationId, null, messages.size()));
+                from = messages.size();
+            } else {
+                entries.add(new Entry(RESET, conversationId, null));
+            }
+        }
+        for (ChatMessage message : messages.subList(from, messages.size())) {
+            entries.add(new Entry(MESSAGE, conversationId, message));
+        }
+        if (!entries.isEmpty()) {
+            append(entries.toArray(Entry[]::new));
+        }
+    }
+
+    private boolean isStored(String conversationId, int messageCount) {
+        return messageCount > 0 && library != null && library.summary(conversationId)
+            .map(summary -> summary.messageCount() == messageCount)
+            .orElse(false);
+    }
+
+    /**
+     * Rewrites the journal with only the current conversation. Appends continue meanwhile and
+     * wait only for the final swap of the files.
+     * @return completes when the compacted journal has replaced the old one
+     */
+    public CompletableFuture<Void> compact() {
+        CompletableFuture<Void> started;
+        synchronized (this) {
+            if (compaction != null) {
+                return compaction;
+            }
+            started = new CompletableFuture<>();
+            compaction = started;
+        }
+        executor.execute(() -> {
+            RuntimeException failure = null;
+            try {
+                runCompaction();
+            } catch (RuntimeException e) {
+                failure = e;
+            }
+            // Cleared before completing so callbacks can start another compaction
+            synchronized (this) {
+                compaction = null;
+            }
+            if (failure != null) {
+                started.completeExceptionally(failure);
+            } else {
+                started.complete(null);
+            }
+        });
+        return started;
+    }
+
+    /**
+     * Forces everything appended so far to disk
+     */
+    @Override
+    public void close() {
+        FileChannel open;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            open = channel;
+        }
+        try {
+            open.force(false);
+            open.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close conversation journal: " + e.getMessage());
+        }
+    }
+
+    // Appending
+
+    private void append(Entry... entries) {
+        boolean scheduleSync = false;
+        boolean startCompaction = false;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            long start = size;
+            try {
+                for (Entry entry : entries) {
+                    int recordBytes = RecordFile.write(channel, RecordFile.frame(encode(entry)));
+                    size += recordBytes;
+                    apply(entry, recordBytes);
+                }
+                if (syncPolicy == SyncPolicy.ALWAYS) {
+                    channel.force(false);
+                } else if (syncPolicy == SyncPolicy.BATCHED && !syncScheduled) {
+                    syncScheduled = true;
+                    scheduleSync = true;
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to append to conversation journal: " + e.getMessage());
+                dropPartialAppend(start);
+            }
+            startCompaction = compaction == null && size >= COMPACT_MIN_BYTES && size > 2 * liveBytes;
+        }
+        if (scheduleSync) {
+            // The timer only hands off; forcing can take a while on a slow disk
+            scheduler.schedule(() -> executor.execute(this::syncBatch), SYNC_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        if (startCompaction) {
+            compact();
+        }
+    }
+
+    /**
+     * Cuts a record that failed half way, so later appends do not end up behind a torn record
+     */
+    private void dropPartialAppend(long goodSize) {
+        try {
+            channel.truncate(goodSize);
+            channel.position(goodSize);
+            size = goodSize;
+        } catch (IOException e) {
+            System.err.println("Failed to truncate conversation journal: " + e.getMessage());
+        }
+    }
+
+    private void syncBatch() {
+        FileChannel open;
+        synchronized (this) {
+            syncScheduled = false;
+            if (closed) {
+                return;
+            }
+            open = channel;
+        }
+        try {
+            // Outside the lock so appends are not held up by the disk
+            open.force(false);
+        } catch (IOException e) {
+            // Also thrown when compaction replaced the channel, which forces the new file itself
+            if (open.isOpen()) {
+                System.err.println("Failed to sync conversation journal: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Updates the in-memory copy of the live conversation the same way replay does
+     */
+    private void apply(Entry entry, int recordBytes) {
+        switch (entry.type()) {
+            case RESET, OPEN -> {
+                liveId = entry.conversationId();
+                storedCount = entry.storedCount();
+                liveMessages.clear();
+                liveBytes = recordBytes;
+            }
+            case MESSAGE -> {
+                if (!entry.conversationId().equals(liveId)) {
+                    liveId = entry.conversationId();
+                    storedCount = 0;
+                    liveMessages.clear();
+                    liveBytes = 0;
+                }
+                liveMessages.add(entry.message());
+                liveBytes += recordBytes;
+            }
+            case CLEAR -> {
+                if (entry.conversationId().equals(liveId)) {
+                    liveId = null;
+                    storedCount = 0;
+                    liveMessages.clear();
+                    liveBytes = 0;
+                }
+            }
+            default -> {
+                // Written by a newer version; nothing this version can restore from it
+            }
+        }
+    }
+
+    private byte[] encode(Entry entry) throws IOException {
+        return objectMapper.writeValueAsBytes(entry);
+    }
+
+    // Recovery
+
+    private synchronized void recover() throws IOException {
+        ConversationIoEvent event = new ConversationIoEvent();
+        event.begin();
+
+        // A compaction that did not finish; the journal itself is still complete
+        Files.deleteIfExists(compactFile);
+        Files.createDirectories(file.toAbsolutePath().getParent());
+
+        long goodSize = 0;
+        if (Files.exists(file)) {
+            goodSize = replay();
+        }
+
+        channel = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (goodSize == 0) {
+            channel.truncate(0);
+            RecordFile.write(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+            channel.force(false);
+            goodSize = HEADER_BYTES;
+        } else if (channel.size() > goodSize) {
+            System.err.println("Conversation journal ends with an incomplete record; dropping "
+                + (channel.size() - goodSize) + " bytes");
+            channel.truncate(goodSize);
+            channel.force(false);
+        }
+        channel.position(goodSize);
+        size = goodSize;
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = ConversationIoEvent.REPLAY;
+            event.path = file.toString();
+            event.messageCount = liveMessages.size();
+            event.bytes = size;
+            event.commit();
+        }
+    }
+
+    /**
+     * Applies every intact record in file order, reading one record at a time
+     * @return the offset after the last intact record, or 0 if the file is not a journal
+     */
+    private long replay() throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file), 64 * 1024))) {
+            if (readHeader(in) != VERSION) {
+                moveAside();
+                return 0;
+            }
+            long offset = HEADER_BYTES;
+            while (true) {
+                byte[] payload;
+                int expectedCrc;
+                try {
+                    int length = in.readInt();
+                    expectedCrc = in.readInt();
+                    if (length < 0 || length > RecordFile.MAX_RECORD_BYTES) {
+                        return offset;
+                    }
+                    payload = in.readNBytes(length);
+                    if (payload.length < length) {
+                        return offset;
+                    }
+                } catch (EOFException e) {
+                    return offset;
+                }
+                if (RecordFile.checksum(payload) != expectedCrc) {
+                    return offset;
+                }
+                Entry entry;
+                try {
+                    entry = objectMapper.readValue(payload, Entry.class);
+                } catch (IOException e) {
+                    // Intact but not understood; treated like a torn record
+                    return offset;
+                }
+                int recordBytes = RecordFile.RECORD_HEADER_BYTES + payload.length;
+                apply(entry, recordBytes);
+                offset += recordBytes;
+            }
+        }
+    }
+
+    /**
+     * @return the version, or -1 if the file does not start with a journal header
+     */
+    private static int readHeader(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(in);
+        try {
+            return data.readInt() == MAGIC ? data.readInt() : -1;
+        } catch (EOFException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Keeps a file this version cannot read instead of overwriting it
+     */
+    private void moveAside() throws IOException {
+        if (Files.size(file) > 0) {
+            Path aside = file.resolveSibling(file.getFileName() + ".unreadable");
+            System.err.println("Conversation journal is not readable; moved to " + aside);
+            Files.move(file, aside, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    // Compaction
+
+    private void runCompaction() {
+        ConversationIoEvent event = new ConversationIoEvent();
+        event.begin();
+
+        String id;
+        int stored;
+        List<ChatMessage> snapshot;
+        long snapshotEnd;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            id = liveId;
+            stored = storedCount;
+            snapshot = List.copyOf(liveMessages);
+            snapshotEnd = size;
+        }
+
+        try {
+            // The bulk of the work happens without the lock
+            try (FileChannel target = FileChannel.open(compactFile, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+                 DataOutputStream out = new DataOutputStream(
+                     new BufferedOutputStream(Channels.newOutputStream(target), 64 * 1024))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                if (id != null) {
+                    Entry start = stored > 0 ? new Entry(OPEN, id, null, stored) : new Entry(RESET, id, null);
+                    writeRecord(out, encode(start));
+                    for (ChatMessage message : snapshot) {
+                        writeRecord(out, encode(new Entry(MESSAGE, id, message)));
+                    }
+                }
+            }
+
+            synchronized (this) {
+                if (closed) {
+                    Files.deleteIfExists(compactFile);
+                    return;
+                }
+                try (FileChannel target = FileChannel.open(compactFile, StandardOpenOption.WRITE)) {
+                    // Records appended while the snapshot was written
+                    long copied = target.size();
+                    target.position(copied);
+                    long position = snapshotEnd;
+                    while (position < size) {
+                        position += channel.transferTo(position, size - position, target);
+                    }
+                    target.force(false);
+                    copied = target.size();
+
+                    channel.close();
+                    Files.move(compactFile, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                    channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                    channel.position(copied);
+                    size = copied;
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to compact conversation journal: " + e.getMessage());
+            reopenAfterFailedCompaction();
+            return;
+        }
+
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = ConversationIoEvent.COMPACT;
+            event.path = file.toString();
+            event.messageCount = snapshot.size();
+            event.bytes = sizeBytes();
+            event.commit();
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, byte[] payload) throws IOException {
+        out.writeInt(payload.length);
+        out.writeInt(RecordFile.checksum(payload));
+        out.write(payload);
+    }
+
+    /**
+     * Keeps appending to the old journal if the swap failed after it was closed
+     */
+    private synchronized void reopenAfterFailedCompaction() {
+        try {
+            Files.deleteIfExists(compactFile);
+            if (!closed && !channel.isOpen()) {
+                // Either the old journal or the complete compacted one, depending on where it failed
+                channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+                size = channel.size();
+                channel.position(size);
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to reopen conversation journal: " + e.getMessage());
+        }
+    }
+}
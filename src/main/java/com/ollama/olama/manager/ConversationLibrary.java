@@ -0,0 +1,606 @@
+package com.ollama.olama.manager;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.ConversationSummary;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Per-user store of every conversation. A small index (id, title, timestamps, message count, model,
+ * size) is kept in memory and in index.json, so conversations can be listed without touching their
+ * messages. Each conversation's messages are appended to their own file as the conversation grows
+ * and are read back through memory-mapped ConversationPages only when it is opened.
+ * <p>
+ * A file that readers may still have mapped is never rewritten in place: replacing a conversation writes
+ * a new generation of its file, and deleting one writes an empty generation that marks it deleted. Older
+ * generations are removed as soon as the system allows, or when the library is next opened.
+ * <p>
+ * The index is saved a few seconds after a change and on close. If the app stopped before that,
+ * opening the library notices message files whose size differs from the index and rescans them.
+ */
+public final class ConversationLibrary implements ConversationListener, AutoCloseable {
+
+    static final Duration SAVE_DELAY = Duration.ofSeconds(5);
+    static final int TITLE_LENGTH = 60;
+
+    private static final int MAGIC = 0x4F434C31;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 8;
+    private static final String EXTENSION = ".conv";
+    // Ids become file names; ones read from an imported file are not trusted to be UUIDs
+    private static final Pattern STORABLE_ID = Pattern.compile("[A-Za-z0-9_-]{1,128}");
+    private static final Pattern BODY_FILE = Pattern.compile("([A-Za-z0-9_-]{1,128})(?:\\.(\\d{1,9}))?\\.conv");
+
+    private final Path indexFile;
+    private final Path conversationsDirectory;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+    private final ObjectMapper objectMapper;
+    private final List<Runnable> changeListeners = new CopyOnWriteArrayList<>();
+
+    // Guarded by this
+    private final Map<String, ConversationSummary> index = new HashMap<>();
+    private final Map<String, Integer> generations = new HashMap<>();
+    private String appendingId;
+    private FileChannel appendChannel;
+    private ScheduledFuture<?> saveTimer;
+    private boolean dirty;
+    private boolean closed;
+
+    /**
+     * Index as stored on disk
+     */
+    private record IndexData(int version, List<ConversationSummary> conversations) {
+
+        @JsonCreator
+        IndexData(
+            @JsonProperty("version") int version,
+            @JsonProperty("conversations") List<ConversationSummary> conversations
+        ) {
+            this.version = version;
+            this.conversations = conversations != null ? conversations : List.of();
+        }
+    }
+
+    private ConversationLibrary(Path directory, ScheduledExecutorService scheduler, Executor executor) {
+        this.indexFile = directory.resolve("index.json");
+        this.conversationsDirectory = directory.resolve("conversations");
+        this.scheduler = scheduler;
+        this.executor = executor;
+        this.objectMapper = new ObjectMapper();
+        this.objectMapper.registerModule(new JavaTimeModule());
+    }
+
+    /**
+     * Opens the library in a directory, creating it if needed
+     * @param scheduler runs the index save timer
+     * @param executor runs index saves
+     */
+    public static ConversationLibrary open(Path directory, ScheduledExecutorService scheduler,
+                                           Executor executor) throws IOException {
+        ConversationLibrary library = new ConversationLibrary(directory, scheduler, executor);
+        library.load();
+        return library;
+    }
+
+    /**
+     * Lists every conversation from the index alone, most recently updated first
+     */
+    public synchronized List<ConversationSummary> list() {
+        List<ConversationSummary> summaries = new ArrayList<>(index.values());
+        summaries.sort(Comparator.comparing(ConversationSummary::updatedAt,
+            Comparator.nullsLast(Comparator.reverseOrder())));
+        return summaries;
+    }
+
+    public synchronized Optional<ConversationSummary> summary(String conversationId) {
+        return Optional.ofNullable(index.get(conversationId));
+    }
+
+    public synchronized int size() {
+        return index.size();
+    }
+
+    /**
+     * Maps a conversation's messages for reading page by page; the caller closes it
+     */
+    public ConversationPages openPages(String conversationId) throws IOException {
+        Path file;
+        synchronized (this) {
+            if (!index.containsKey(conversationId)) {
+                throw new IOException("No conversation " + conversationId);
+            }
+            file = bodyFile(conversationId);
+        }
+        return ConversationPages.open(conversationId, file, MAGIC, HEADER_BYTES, objectMapper);
+    }
+
+    /**
+     * Reads all messages of a conversation
+     */
+    public List<ChatMessage> load(String conversationId) throws IOException {
+        try (ConversationPages pages = openPages(conversationId)) {
+            return pages.all();
+        }
+    }
+
+    /**
+     * Records the model that answers in a conversation, shown in the listing
+     */
+    public void modelUsed(String conversationId, String model) {
+        synchronized (this) {
+            ConversationSummary summary = index.get(conversationId);
+            if (summary == null || model.equals(summary.model())) {
+                return;
+            }
+            index.put(conversationId, summary.withModel(model));
+            markDirty();
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Removes a conversation and its messages
+     */
+    public void delete(String conversationId) {
+        synchronized (this) {
+            if (index.remove(conversationId) == null) {
+                return;
+            }
+            if (conversationId.equals(appendingId)) {
+                closeAppendChannel();
+            }
+            int generation = generations.getOrDefault(conversationId, 0) + 1;
+            Path marker = bodyFile(conversationId, generation);
+            try {
+                Files.write(marker, new byte[0]);
+                generations.put(conversationId, generation);
+                if (deleteGenerationsBefore(conversationId, generation)) {
+                    Files.deleteIfExists(marker);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to delete conversation " + conversationId + ": " + e.getMessage());
+            }
+            markDirty();
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Registers a callback for any change to the index, called on the thread that made the change
+     */
+    public void addChangeListener(Runnable listener) {
+        changeListeners.add(listener);
+    }
+
+    public void removeChangeListener(Runnable listener) {
+        changeListeners.remove(listener);
+    }
+
+    @Override
+    public void messageAdded(String conversationId, int index, ChatMessage message) {
+        synchronized (this) {
+            if (closed || !isStorable(conversationId)) {
+                return;
+            }
+            try {
+                append(conversationId, List.of(message));
+            } catch (IOException e) {
+                System.err.println("Failed to store message of conversation " + conversationId + ": " + e.getMessage());
+                return;
+            }
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Stores a conversation that was opened from elsewhere, e.g. a file or the journal. Only the messages
+     * the library does not have yet are written when the stored copy is a prefix of the loaded one, judged
+     * by its last message; any other difference replaces the stored copy.
+     */
+    @Override
+    public void conversationLoaded(String conversationId, List<ChatMessage> messages) {
+        synchronized (this) {
+            if (closed || messages.isEmpty() || !isStorable(conversationId)) {
+                return;
+            }
+            ConversationSummary stored = index.get(conversationId);
+            try {
+                boolean prefix = stored != null && stored.messageCount() > 0 && stored.messageCount() <= messages.size()
+                    && isStoredLast(conversationId, stored.messageCount(), messages.get(stored.messageCount() - 1));
+                if (prefix && stored.messageCount() == messages.size()) {
+                    return;
+                } else if (prefix) {
+                    append(conversationId, messages.subList(stored.messageCount(), messages.size()));
+                } else {
+                    rewrite(conversationId, messages, stored != null ? stored.model() : null);
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to store conversation " + conversationId + ": " + e.getMessage());
+                return;
+            }
+        }
+        notifyChanged();
+    }
+
+    /**
+     * Checks whether a message is the last one stored, comparing what the listing and search show
+     */
+    private boolean isStoredLast(String conversationId, int messageCount, ChatMessage message) throws IOException {
+        ChatMessage last;
+        try (ConversationPages pages = openPages(conversationId)) {
+            if (pages.size() != messageCount) {
+                return false;
+            }
+            last = pages.get(messageCount - 1);
+        }
+        return Objects.equals(last.role(), message.role())
+            && Objects.equals(last.content(), message.content())
+            && Objects.equals(last.timestamp(), message.timestamp());
+    }
+
+    /**
+     * Writes the index now if it changed
+     */
+    public void save() {
+        IndexData data;
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+            data = new IndexData(VERSION, List.copyOf(index.values()));
+        }
+        try {
+            // Write a temporary file and move it so a crash never leaves a half-written index
+            Path temp = Files.createTempFile(indexFile.getParent(), indexFile.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), data);
+            Files.move(temp, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save conversation index to " + indexFile + ": " + e.getMessage());
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (saveTimer != null) {
+                saveTimer.cancel(false);
+            }
+            closeAppendChannel();
+        }
+        save();
+    }
+
+    // Writing
+
+    /**
+     * Appends messages to a conversation's file and updates its index entry
+     */
+    private void append(String conversationId, List<ChatMessage> messages) throws IOException {
+        FileChannel channel = appendChannel(conversationId);
+        long written = 0;
+        for (ChatMessage message : messages) {
+            written += RecordFile.write(channel, RecordFile.frame(objectMapper.writeValueAsBytes(message)));
+        }
+        ConversationSummary stored = index.get(conversationId);
+        index.put(conversationId, stored == null
+            ? summarize(conversationId, messages, null, HEADER_BYTES + written)
+            : extend(stored, messages, written));
+        markDirty();
+    }
+
+    /**
+     * Replaces a conversation's file with the given messages
+     */
+    private void rewrite(String conversationId, List<ChatMessage> messages, String model) throws IOException {
+        if (conversationId.equals(appendingId)) {
+            closeAppendChannel();
+        }
+        int generation = generations.getOrDefault(conversationId, 0) + 1;
+        Path temp = Files.createTempFile(conversationsDirectory, conversationId, ".tmp");
+        long size;
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            writeHeader(channel);
+            for (ChatMessage message : messages) {
+                RecordFile.write(channel, RecordFile.frame(objectMapper.writeValueAsBytes(message)));
+            }
+            size = channel.size();
+        }
+        Files.move(temp, bodyFile(conversationId, generation), StandardCopyOption.REPLACE_EXISTING,
+            StandardCopyOption.ATOMIC_MOVE);
+        generations.put(conversationId, generation);
+        deleteGenerationsBefore(conversationId, generation);
+        index.put(conversationId, summarize(conversationId, messages, model, size));
+        markDirty();
+    }
+
+    /**
+     * Deletes the files of a conversation older than a generation
+     * @return whether none are left; one still mapped by a reader is deleted when the library is next opened
+     */
+    private boolean deleteGenerationsBefore(String conversationId, int generation) {
+        boolean deletedAll = true;
+        String glob = conversationId + "*" + EXTENSION;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(conversationsDirectory, glob)) {
+            for (Path file : files) {
+                Matcher matcher = BODY_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches() || !matcher.group(1).equals(conversationId)
+                        || generationOf(matcher) >= generation) {
+                    continue;
+                }
+                try {
+                    Files.deleteIfExists(file);
+                } catch (IOException e) {
+                    deletedAll = false;
+                }
+            }
+        } catch (IOException e) {
+            return false;
+        }
+        return deletedAll;
+    }
+
+    /**
+     * Keeps the current conversation's file open, since messages arrive one at a time
+     */
+    private FileChannel appendChannel(String conversationId) throws IOException {
+        if (conversationId.equals(appendingId) && appendChannel != null) {
+            return appendChannel;
+        }
+        closeAppendChannel();
+        FileChannel channel = FileChannel.open(bodyFile(conversationId),
+            StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+        if (channel.size() == 0) {
+            writeHeader(channel);
+        }
+        appendingId = conversationId;
+        appendChannel = channel;
+        return channel;
+    }
+
+    private void closeAppendChannel() {
+        if (appendChannel != null) {
+            try {
+                appendChannel.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close conversation " + appendingId + ": " + e.getMessage());
+            }
+        }
+        appendChannel = null;
+        appendingId = null;
+    }
+
+    private static void writeHeader(FileChannel channel) throws IOException {
+        RecordFile.write(channel, ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip());
+    }
+
+    private void markDirty() {
+        dirty = true;
+        if (saveTimer == null || saveTimer.isDone()) {
+            // The timer only hands off; writing thousands of entries is not for the scheduler thread
+            saveTimer = scheduler.schedule(() -> executor.execute(this::save),
+                SAVE_DELAY.toMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void notifyChanged() {
+        for (Runnable listener : changeListeners) {
+            listener.run();
+        }
+    }
+
+    // Index entries
+
+    private static ConversationSummary summarize(String conversationId, List<ChatMessage> messages,
+                                                 String model, long sizeBytes) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime created = messages.get(0).timestamp() != null ? messages.get(0).timestamp() : now;
+        LocalDateTime updated = messages.get(messages.size() - 1).timestamp() != null
+            ? messages.get(messages.size() - 1).timestamp() : now;
+        return new ConversationSummary(conversationId, titleOf(messages), created, updated,
+            messages.size(), model, sizeBytes);
+    }
+
+    private static ConversationSummary extend(ConversationSummary stored, List<ChatMessage> added, long addedBytes) {
+        ChatMessage last = added.get(added.size() - 1);
+        String title = stored.title().isEmpty() ? titleOf(added) : stored.title();
+        return new ConversationSummary(stored.id(), title, stored.createdAt(),
+            last.timestamp() != null ? last.timestamp() : LocalDateTime.now(),
+            stored.messageCount() + added.size(), stored.model(), stored.sizeBytes() + addedBytes);
+    }
+
+    /**
+     * The beginning of the first user message on one line, or empty if there is none yet
+     */
+    static String titleOf(List<ChatMessage> messages) {
+        for (ChatMessage message : messages) {
+            if ("user".equals(message.role()) && message.content() != null && !message.content().isBlank()) {
+                String line = message.content().strip().replaceAll("\\s+", " ");
+                return line.length() <= TITLE_LENGTH ? line : line.substring(0, TITLE_LENGTH - 1) + "…";
+            }
+        }
+        return "";
+    }
+
+    // Loading
+
+    private synchronized void load() throws IOException {
+        Files.createDirectories(conversationsDirectory);
+        if (Files.isReadable(indexFile)) {
+            try {
+                IndexData data = objectMapper.readValue(indexFile.toFile(), IndexData.class);
+                for (ConversationSummary summary : data.conversations()) {
+                    index.put(summary.id(), summary);
+                }
+            } catch (IOException e) {
+                // Rebuilt from the message files below
+                System.err.println("Failed to load conversation index from " + indexFile + ": " + e.getMessage());
+            }
+        }
+
+        // The newest generation of each conversation's file is the current one
+        Map<String, Path> newest = new HashMap<>();
+        Set<String> withOlder = new HashSet<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(conversationsDirectory, "*" + EXTENSION)) {
+            for (Path file : files) {
+                Matcher matcher = BODY_FILE.matcher(file.getFileName().toString());
+                if (!matcher.matches()) {
+                    continue;
+                }
+                String conversationId = matcher.group(1);
+                int generation = generationOf(matcher);
+                Integer known = generations.get(conversationId);
+                if (known != null) {
+                    withOlder.add(conversationId);
+                }
+                if (known == null || generation > known) {
+                    generations.put(conversationId, generation);
+                    newest.put(conversationId, file);
+                }
+            }
+        }
+
+        // Only files whose size differs from the index are read, so a clean start touches no messages
+        Set<String> found = new HashSet<>();
+        for (Map.Entry<String, Path> entry : newest.entrySet()) {
+            String conversationId = entry.getKey();
+            Path file = entry.getValue();
+            boolean olderGone = !withOlder.contains(conversationId)
+                || deleteGenerationsBefore(conversationId, generations.get(conversationId));
+            if (Files.size(file) == 0) {
+                // Marks a deleted conversation; kept until its older files are gone
+                if (olderGone) {
+                    Files.deleteIfExists(file);
+                }
+                continue;
+            }
+            found.add(conversationId);
+            ConversationSummary stored = index.get(conversationId);
+            if (stored == null || stored.sizeBytes() != Files.size(file)) {
+                rescan(conversationId, file, stored);
+            }
+        }
+        if (index.keySet().retainAll(found)) {
+            dirty = true;
+        }
+        if (dirty) {
+            markDirty();
+        }
+    }
+
+    /**
+     * Rebuilds the index entry of a conversation from its file, dropping a message cut short at the end.
+     * Reads through a plain channel so nothing stays mapped while the file is truncated.
+     */
+    private void rescan(String conversationId, Path file, ConversationSummary stored) {
+        List<ChatMessage> firstPage = new ArrayList<>();
+        ChatMessage last;
+        int messageCount;
+        long validBytes;
+        long size;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            size = channel.size();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            if (size >= HEADER_BYTES) {
+                RecordFile.readFully(channel, header, 0);
+            }
+            if (size < HEADER_BYTES || header.getInt(0) != MAGIC) {
+                throw new IOException("not a conversation file");
+            }
+            RecordFile.Layout layout = RecordFile.scan(channel, HEADER_BYTES);
+            long[] offsets = layout.offsets();
+            messageCount = offsets.length;
+            validBytes = layout.end();
+            if (messageCount == 0) {
+                index.remove(conversationId);
+                dirty = true;
+                return;
+            }
+            for (int i = 0; i < Math.min(ConversationPages.PAGE_SIZE, messageCount); i++) {
+                firstPage.add(readMessage(channel, offsets[i]));
+            }
+            last = readMessage(channel, offsets[messageCount - 1]);
+        } catch (IOException e) {
+            // Stays listed as it was; the file is read again on the next start
+            System.err.println("Failed to read conversation " + conversationId + ": " + e.getMessage());
+            return;
+        }
+        index.put(conversationId, new ConversationSummary(conversationId, titleOf(firstPage),
+            firstPage.get(0).timestamp(), last.timestamp(), messageCount,
+            stored != null ? stored.model() : null, validBytes));
+        dirty = true;
+        if (validBytes < size) {
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validBytes);
+            } catch (IOException e) {
+                System.err.println("Failed to repair conversation " + conversationId + ": " + e.getMessage());
+            }
+        }
+    }
+
+    private ChatMessage readMessage(FileChannel channel, long position) throws IOException {
+        return objectMapper.readValue(RecordFile.read(channel, position), ChatMessage.class);
+    }
+
+    private static boolean isStorable(String conversationId) {
+        if (conversationId != null && STORABLE_ID.matcher(conversationId).matches()) {
+            return true;
+        }
+        System.err.println("Failed to store conversation " + conversationId + ": not a valid conversation id");
+        return false;
+    }
+
+    /**
+     * The current file of a conversation
+     */
+    private Path bodyFile(String conversationId) {
+        return bodyFile(conversationId, generations.getOrDefault(conversationId, 0));
+    }
+
+    private Path bodyFile(String conversationId, int generation) {
+        return conversationsDirectory.resolve(generation == 0
+            ? conversationId + EXTENSION
+            : conversationId + "." + generation + EXTENSION);
+    }
+
+    private static int generationOf(Matcher matcher) {
+        return matcher.group(2) != null ? Integer.parseInt(matcher.group(2)) : 0;
+    }
+}
@@ -0,0 +1,32 @@
+package com.ollama.olama.manager;
+
+import com.ollama.olama.model.ChatMessage;
+
+import java.util.List;
+
+/**
+ * Receives changes to the conversation held by a ConversationManager, e.g. to keep a search index current.
+ * Called on the thread that made the change, so implementations must return quickly and hand
+ * slow work to a background thread.
+ */
+public interface ConversationListener {
+
+    /**
+     * Called after a message was appended
+     * @param conversationId the conversation the message belongs to
+     * @param index the message's position in the conversation, starting at 0
+     */
+    void messageAdded(String conversationId, int index, ChatMessage message);
+
+    /**
+     * Called after the conversation was cleared; later messages belong to a new conversation id
+     */
+    default void conversationCleared(String conversationId) {
+    }
+
+    /**
+     * Called after a saved conversation was loaded, replacing the current one
+     */
+    default void conversationLoaded(String conversationId, List<ChatMessage> messages) {
+    }
+}
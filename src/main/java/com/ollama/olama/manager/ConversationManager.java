@@ -22,15 +22,42 @@ public interface ConversationManager {
     List<ChatMessage> getMessages();
     
     /**
-     * Clears the current conversation
+     * Clears the current conversation and starts a new one with a new id
      */
     void clearConversation();
     
+    /**
+     * Gets the id of the current conversation, which stays the same when it is saved and loaded again
+     */
+    String getConversationId();
+    
+    /**
+     * Registers a listener for added messages, cleared and loaded conversations
+     */
+    void addListener(ConversationListener listener);
+    
+    /**
+     * Removes a listener added with addListener
+     */
+    void removeListener(ConversationListener listener);
+    
     /**
      * Gets the current conversation for API requests (includes system prompt)
      */
     List<ChatMessage> getMessagesForApi();
     
+    /**
+     * Gets the conversation for API requests trimmed to a prompt token budget.
+     * The system prompt and the most recent turn are always included; older messages
+     * are dropped or truncated according to the context policy.
+     */
+    List<ChatMessage> getMessagesForApi(int tokenBudget);
+    
+    /**
+     * Sets how older messages are handled when the conversation exceeds the token budget
+     */
+    void setContextPolicy(ContextBuilder.Policy policy);
+    
     /**
      * Sets the system prompt
      */
@@ -45,4 +72,10 @@ public interface ConversationManager {
      * Loads conversation from file
      */
     void loadFromFile(File file) throws IOException;
+    
+    /**
+     * Replaces the current conversation with one recovered from storage, keeping its id.
+     * Listeners are told as if it had been loaded from a file.
+     */
+    void restoreConversation(String conversationId, List<ChatMessage> messages);
 }
\ No newline at end of file
@@ -2,26 +2,35 @@ package com.ollama.olama.manager;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ollama.olama.diagnostics.ConversationIoEvent;
 import com.ollama.olama.model.ChatMessage;
 
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * Implementation of ConversationManager that manages chat history and provides
- * JSON serialization for conversation persistence.
+ * JSON serialization for conversation persistence. Listeners are told about every change.
  */
 public class ConversationManagerImpl implements ConversationManager {
     
     private final List<ChatMessage> messages;
+    private final List<ConversationListener> listeners = new CopyOnWriteArrayList<>();
+    private String conversationId;
     private String systemPrompt;
+    private ChatMessage systemMessage;
+    private ContextBuilder contextBuilder;
     private final ObjectMapper objectMapper;
     
     public ConversationManagerImpl() {
         this.messages = new ArrayList<>();
+        this.conversationId = newConversationId();
         this.systemPrompt = null;
+        this.contextBuilder = new ContextBuilder(ContextBuilder.Policy.DROP_OLDEST, 1);
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
     }
@@ -29,6 +38,10 @@ public class ConversationManagerImpl implements ConversationManager {
     @Override
     public void addMessage(ChatMessage message) {
         messages.add(message);
+        int index = messages.size() - 1;
+        for (ConversationListener listener : listeners) {
+            listener.messageAdded(conversationId, index, message);
+        }
     }
     
     @Override
@@ -39,6 +52,26 @@ public class ConversationManagerImpl implements ConversationManager {
     @Override
     public void clearConversation() {
         messages.clear();
+        String clearedId = conversationId;
+        conversationId = newConversationId();
+        for (ConversationListener listener : listeners) {
+            listener.conversationCleared(clearedId);
+        }
+    }
+    
+    @Override
+    public String getConversationId() {
+        return conversationId;
+    }
+    
+    @Override
+    public void addListener(ConversationListener listener) {
+        listeners.add(listener);
+    }
+    
+    @Override
+    public void removeListener(ConversationListener listener) {
+        listeners.remove(listener);
     }
     
     @Override
@@ -46,8 +79,8 @@ public class ConversationManagerImpl implements ConversationManager {
         List<ChatMessage> apiMessages = new ArrayList<>();
         
         // Add system prompt first if it exists
-        if (systemPrompt != null && !systemPrompt.trim().isEmpty()) {
-            apiMessages.add(ChatMessage.system(systemPrompt));
+        if (systemMessage != null) {
+            apiMessages.add(systemMessage);
         }
         
         // Add all conversation messages
@@ -56,29 +89,85 @@ public class ConversationManagerImpl implements ConversationManager {
         return apiMessages;
     }
     
+    @Override
+    public List<ChatMessage> getMessagesForApi(int tokenBudget) {
+        return contextBuilder.build(systemMessage, messages, tokenBudget);
+    }
+    
+    @Override
+    public void setContextPolicy(ContextBuilder.Policy policy) {
+        this.contextBuilder = new ContextBuilder(policy, 1);
+    }
+    
     @Override
     public void setSystemPrompt(String prompt) {
         this.systemPrompt = prompt;
+        // Built once so its token estimate is reused across requests
+        this.systemMessage = prompt != null && !prompt.trim().isEmpty() ? ChatMessage.system(prompt) : null;
     }
     
     @Override
     public void saveToFile(File file) throws IOException {
-        ConversationData data = new ConversationData(messages, systemPrompt);
+        ConversationIoEvent event = new ConversationIoEvent();
+        event.begin();
+        
+        ConversationData data = new ConversationData(conversationId, messages, systemPrompt);
         objectMapper.writeValue(file, data);
+        
+        commitIoEvent(event, ConversationIoEvent.SAVE, file);
     }
     
     @Override
     public void loadFromFile(File file) throws IOException {
+        ConversationIoEvent event = new ConversationIoEvent();
+        event.begin();
+        
         ConversationData data = objectMapper.readValue(file, ConversationData.class);
         messages.clear();
         messages.addAll(data.messages());
-        this.systemPrompt = data.systemPrompt();
+        // Files saved before conversations had ids get a new one
+        conversationId = data.conversationId() != null ? data.conversationId() : newConversationId();
+        setSystemPrompt(data.systemPrompt());
+        
+        commitIoEvent(event, ConversationIoEvent.LOAD, file);
+        notifyLoaded();
+    }
+    
+    @Override
+    public void restoreConversation(String conversationId, List<ChatMessage> messages) {
+        this.messages.clear();
+        this.messages.addAll(messages);
+        this.conversationId = conversationId;
+        notifyLoaded();
+    }
+    
+    private void notifyLoaded() {
+        List<ChatMessage> loaded = List.copyOf(messages);
+        for (ConversationListener listener : listeners) {
+            listener.conversationLoaded(conversationId, loaded);
+        }
+    }
+    
+    private static String newConversationId() {
+        return UUID.randomUUID().toString();
+    }
+    
+    private void commitIoEvent(ConversationIoEvent event, String operation, File file) {
+        event.end();
+        if (event.shouldCommit()) {
+            event.operation = operation;
+            event.path = file.getPath();
+            event.messageCount = messages.size();
+            event.bytes = file.length();
+            event.commit();
+        }
     }
     
     /**
      * Data class for JSON serialization of conversation state
      */
     private record ConversationData(
+        String conversationId,
         List<ChatMessage> messages,
         String systemPrompt
     ) {}
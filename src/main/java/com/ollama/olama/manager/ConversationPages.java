@@ -0,0 +1,149 @@
+package com.ollama.olama.manager;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.ollama.olama.model.ChatMessage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Read-only view of a stored conversation's messages, memory-mapped so only the pages that are
+ * read are brought in from disk. Opening scans the record headers to find where each message
+ * starts; messages are decoded a page at a time when asked for.
+ * <p>
+ * Shows the messages stored when it was opened; later appends need a new view.
+ */
+public final class ConversationPages implements AutoCloseable {
+
+    public static final int PAGE_SIZE = 50;
+
+    private final String conversationId;
+    private final ObjectMapper objectMapper;
+    private final FileChannel channel;
+    private final MappedByteBuffer buffer;
+    private final int[] offsets;
+
+    private ConversationPages(String conversationId, ObjectMapper objectMapper, FileChannel channel,
+                              MappedByteBuffer buffer, int[] offsets) {
+        this.conversationId = conversationId;
+        this.objectMapper = objectMapper;
+        this.channel = channel;
+        this.buffer = buffer;
+        this.offsets = offsets;
+    }
+
+    /**
+     * Maps a conversation file written by ConversationLibrary
+     * @param magic the int the file must start with
+     * @param headerBytes size of the file header before the first record
+     */
+    static ConversationPages open(String conversationId, Path file, int magic, int headerBytes,
+                                  ObjectMapper objectMapper) throws IOException {
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ);
+        try {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("Conversation " + conversationId + " is too large to open (" + size + " bytes)");
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < headerBytes || buffer.getInt(0) != magic) {
+                throw new IOException("Conversation " + conversationId + " is not a conversation file");
+            }
+
+            int[] offsets = new int[64];
+            int count = 0;
+            int position = headerBytes;
+            // A record cut short at the end was being written when the app stopped; it is left out
+            while (position + RecordFile.RECORD_HEADER_BYTES <= size) {
+                int length = buffer.getInt(position);
+                if (length < 0 || (long) position + RecordFile.RECORD_HEADER_BYTES + length > size) {
+                    break;
+                }
+                if (count == offsets.length) {
+                    offsets = Arrays.copyOf(offsets, count * 2);
+                }
+                offsets[count++] = position;
+                position += RecordFile.RECORD_HEADER_BYTES + length;
+            }
+            return new ConversationPages(conversationId, objectMapper, channel, buffer, Arrays.copyOf(offsets, count));
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    public String conversationId() {
+        return conversationId;
+    }
+
+    /**
+     * Number of messages
+     */
+    public int size() {
+        return offsets.length;
+    }
+
+    public int pageCount() {
+        return (offsets.length + PAGE_SIZE - 1) / PAGE_SIZE;
+    }
+
+    /**
+     * Decodes one page of messages
+     * @param page 0 for the oldest messages, pageCount() - 1 for the newest
+     */
+    public List<ChatMessage> page(int page) throws IOException {
+        int from = page * PAGE_SIZE;
+        if (page < 0 || from >= offsets.length) {
+            throw new IndexOutOfBoundsException("Page " + page + " of " + pageCount());
+        }
+        return messages(from, Math.min(from + PAGE_SIZE, offsets.length));
+    }
+
+    /**
+     * Decodes the messages from index from (inclusive) to to (exclusive)
+     */
+    public List<ChatMessage> messages(int from, int to) throws IOException {
+        List<ChatMessage> messages = new ArrayList<>(to - from);
+        for (int i = from; i < to; i++) {
+            messages.add(get(i));
+        }
+        return messages;
+    }
+
+    /**
+     * Decodes every message
+     */
+    public List<ChatMessage> all() throws IOException {
+        return messages(0, offsets.length);
+    }
+
+    /**
+     * Decodes one message
+     */
+    public ChatMessage get(int index) throws IOException {
+        int offset = offsets[index];
+        int length = buffer.getInt(offset);
+        int expectedCrc = buffer.getInt(offset + 4);
+        ByteBuffer payload = buffer.slice(offset + RecordFile.RECORD_HEADER_BYTES, length);
+        if (RecordFile.checksum(payload) != expectedCrc) {
+            throw new IOException("Conversation " + conversationId + " is damaged at message " + (index + 1));
+        }
+        return objectMapper.readValue(new ByteBufferBackedInputStream(payload), ChatMessage.class);
+    }
+
+    /**
+     * Closes the file; the mapping itself is released once the view is no longer referenced
+     */
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ollama.olama.manager;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.zip.CRC32;
+
+/**
+ * Framing shared by the conversation journal and library files: each record is
+ * [length][CRC32][payload], so a record cut short by a crash or a damaged one can be detected.
+ */
+final class RecordFile {
+
+    static final int RECORD_HEADER_BYTES = 8;
+    static final int MAX_RECORD_BYTES = 64 * 1024 * 1024;
+
+    private RecordFile() {
+    }
+
+    /**
+     * Returns the payload framed as one record, ready to write
+     */
+    static ByteBuffer frame(byte[] payload) {
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + payload.length);
+        record.putInt(payload.length).putInt(checksum(payload)).put(payload).flip();
+        return record;
+    }
+
+    static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        return (int) crc.getValue();
+    }
+
+    static int checksum(ByteBuffer payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        return (int) crc.getValue();
+    }
+
+    /**
+     * Where the complete records of a file start
+     * @param end the end of the last complete record; anything after it was cut short
+     */
+    record Layout(long[] offsets, long end) {}
+
+    /**
+     * Finds the records from a position to the end of the channel, reading only their headers
+     */
+    static Layout scan(FileChannel channel, long start) throws IOException {
+        long size = channel.size();
+        long[] offsets = new long[64];
+        int count = 0;
+        long position = start;
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        while (position + RECORD_HEADER_BYTES <= size) {
+            readFully(channel, header.clear(), position);
+            int length = header.getInt(0);
+            if (length < 0 || position + RECORD_HEADER_BYTES + length > size) {
+                break;
+            }
+            if (count == offsets.length) {
+                offsets = Arrays.copyOf(offsets, count * 2);
+            }
+            offsets[count++] = position;
+            position += RECORD_HEADER_BYTES + length;
+        }
+        return new Layout(Arrays.copyOf(offsets, count), position);
+    }
+
+    /**
+     * Reads the payload of the record at a position, checking it is intact
+     */
+    static byte[] read(FileChannel channel, long position) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(RECORD_HEADER_BYTES);
+        readFully(channel, header, position);
+        int length = header.getInt(0);
+        if (length < 0 || length > MAX_RECORD_BYTES) {
+            throw new IOException("Record at " + position + " has an invalid length " + length);
+        }
+        byte[] payload = new byte[length];
+        readFully(channel, ByteBuffer.wrap(payload), position + RECORD_HEADER_BYTES);
+        if (checksum(payload) != header.getInt(4)) {
+            throw new IOException("Record at " + position + " is damaged");
+        }
+        return payload;
+    }
+
+    /**
+     * Fills the buffer from a position without moving the channel's own position
+     */
+    static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) {
+                throw new IOException("Unexpected end of file at " + position);
+            }
+            position += read;
+        }
+    }
+
+    /**
+     * Writes the whole buffer at the channel's position
+     * @return the bytes written
+     */
+    static int write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        int length = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        return length;
+    }
+}
@@ -3,6 +3,11 @@ package com.ollama.olama.model;
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 /**
  * Application settings including Ollama configuration, window state, and user preferences.
  * Provides default values for initial application setup.
@@ -17,9 +22,33 @@ public record AppSettings(
     String systemPrompt,
     String theme,
     String fontFamily,
-    int fontSize
+    int fontSize,
+    int contextTokens,
+    Map<String, Integer> modelContextTokens,
+    String contextPolicy,
+    String keepAlive,
+    Map<String, String> modelKeepAlive,
+    List<String> ollamaEndpoints,
+    int connectTimeoutSeconds,
+    int firstTokenTimeoutSeconds,
+    int idleTimeoutSeconds,
+    Map<String, Object> chatOptions,
+    boolean responseCacheEnabled,
+    int responseCacheMaxMb,
+    int cacheReplayTokensPerSecond,
+    boolean semanticSearchEnabled,
+    String embeddingModel
 ) {
     
+    public static final int DEFAULT_CONTEXT_TOKENS = 4096;
+    public static final String DEFAULT_CONTEXT_POLICY = "DROP_OLDEST";
+    public static final String DEFAULT_KEEP_ALIVE = "5m";
+    public static final int DEFAULT_CONNECT_TIMEOUT_SECONDS = 10;
+    public static final int DEFAULT_FIRST_TOKEN_TIMEOUT_SECONDS = 120;
+    public static final int DEFAULT_IDLE_TIMEOUT_SECONDS = 30;
+    public static final int DEFAULT_RESPONSE_CACHE_MAX_MB = 256;
+    public static final String DEFAULT_EMBEDDING_MODEL = "nomic-embed-text";
+    
     @JsonCreator
     public AppSettings(
         @JsonProperty("ollamaBaseUrl") String ollamaBaseUrl,
@@ -31,7 +60,22 @@ public record AppSettings(
         @JsonProperty("systemPrompt") String systemPrompt,
         @JsonProperty("theme") String theme,
         @JsonProperty("fontFamily") String fontFamily,
-        @JsonProperty("fontSize") int fontSize
+        @JsonProperty("fontSize") int fontSize,
+        @JsonProperty("contextTokens") int contextTokens,
+        @JsonProperty("modelContextTokens") Map<String, Integer> modelContextTokens,
+        @JsonProperty("contextPolicy") String contextPolicy,
+        @JsonProperty("keepAlive") String keepAlive,
+        @JsonProperty("modelKeepAlive") Map<String, String> modelKeepAlive,
+        @JsonProperty("ollamaEndpoints") List<String> ollamaEndpoints,
+        @JsonProperty("connectTimeoutSeconds") int connectTimeoutSeconds,
+        @JsonProperty("firstTokenTimeoutSeconds") int firstTokenTimeoutSeconds,
+        @JsonProperty("idleTimeoutSeconds") int idleTimeoutSeconds,
+        @JsonProperty("chatOptions") Map<String, Object> chatOptions,
+        @JsonProperty("responseCacheEnabled") boolean responseCacheEnabled,
+        @JsonProperty("responseCacheMaxMb") int responseCacheMaxMb,
+        @JsonProperty("cacheReplayTokensPerSecond") int cacheReplayTokensPerSecond,
+        @JsonProperty("semanticSearchEnabled") boolean semanticSearchEnabled,
+        @JsonProperty("embeddingModel") String embeddingModel
     ) {
         this.ollamaBaseUrl = ollamaBaseUrl;
         this.windowWidth = windowWidth;
@@ -43,6 +87,91 @@ public record AppSettings(
         this.theme = theme != null ? theme : "light";
         this.fontFamily = fontFamily != null ? fontFamily : "System";
         this.fontSize = fontSize > 0 ? fontSize : 14;
+        this.contextTokens = contextTokens > 0 ? contextTokens : DEFAULT_CONTEXT_TOKENS;
+        this.modelContextTokens = modelContextTokens != null ? Map.copyOf(modelContextTokens) : Map.of();
+        this.contextPolicy = contextPolicy != null ? contextPolicy : DEFAULT_CONTEXT_POLICY;
+        this.keepAlive = keepAlive != null && !keepAlive.isBlank() ? keepAlive : DEFAULT_KEEP_ALIVE;
+        this.modelKeepAlive = modelKeepAlive != null ? Map.copyOf(modelKeepAlive) : Map.of();
+        this.ollamaEndpoints = ollamaEndpoints != null ? List.copyOf(ollamaEndpoints) : List.of();
+        this.connectTimeoutSeconds = connectTimeoutSeconds > 0 ? connectTimeoutSeconds : DEFAULT_CONNECT_TIMEOUT_SECONDS;
+        this.firstTokenTimeoutSeconds = firstTokenTimeoutSeconds > 0
+            ? firstTokenTimeoutSeconds : DEFAULT_FIRST_TOKEN_TIMEOUT_SECONDS;
+        this.idleTimeoutSeconds = idleTimeoutSeconds > 0 ? idleTimeoutSeconds : DEFAULT_IDLE_TIMEOUT_SECONDS;
+        this.chatOptions = chatOptions != null ? Map.copyOf(chatOptions) : Map.of();
+        this.responseCacheEnabled = responseCacheEnabled;
+        this.responseCacheMaxMb = responseCacheMaxMb > 0 ? responseCacheMaxMb : DEFAULT_RESPONSE_CACHE_MAX_MB;
+        this.cacheReplayTokensPerSecond = Math.max(cacheReplayTokensPerSecond, 0);
+        this.semanticSearchEnabled = semanticSearchEnabled;
+        this.embeddingModel = embeddingModel != null && !embeddingModel.isBlank()
+            ? embeddingModel : DEFAULT_EMBEDDING_MODEL;
+    }
+    
+    /**
+     * Creates settings with default context budgeting, keep-alive and timeouts, a single Ollama endpoint,
+     * no model options, no response cache and no semantic search
+     */
+    public AppSettings(
+        String ollamaBaseUrl,
+        double windowWidth,
+        double windowHeight,
+        double windowX,
+        double windowY,
+        String lastSelectedModel,
+        String systemPrompt,
+        String theme,
+        String fontFamily,
+        int fontSize
+    ) {
+        this(ollamaBaseUrl, windowWidth, windowHeight, windowX, windowY, lastSelectedModel,
+             systemPrompt, theme, fontFamily, fontSize, DEFAULT_CONTEXT_TOKENS, Map.of(), DEFAULT_CONTEXT_POLICY,
+             DEFAULT_KEEP_ALIVE, Map.of(), List.of(), DEFAULT_CONNECT_TIMEOUT_SECONDS,
+             DEFAULT_FIRST_TOKEN_TIMEOUT_SECONDS, DEFAULT_IDLE_TIMEOUT_SECONDS, Map.of(), false,
+             DEFAULT_RESPONSE_CACHE_MAX_MB, 0, false, DEFAULT_EMBEDDING_MODEL);
+    }
+    
+    /**
+     * Gets the prompt token budget for a model, falling back to the default budget
+     */
+    public int contextTokensFor(String model) {
+        Integer budget = model != null ? modelContextTokens.get(model) : null;
+        return budget != null && budget > 0 ? budget : contextTokens;
+    }
+    
+    /**
+     * Gets how long Ollama should keep a model loaded (e.g. "5m", "1h", "-1" for forever),
+     * falling back to the default keep-alive
+     */
+    public String keepAliveFor(String model) {
+        String value = model != null ? modelKeepAlive.get(model) : null;
+        return value != null && !value.isBlank() ? value : keepAlive;
+    }
+    
+    /**
+     * Gets every Ollama node to use: the base URL first, then any additional endpoints, without duplicates
+     */
+    public List<String> endpoints() {
+        Set<String> urls = new LinkedHashSet<>();
+        addEndpoint(urls, ollamaBaseUrl);
+        ollamaEndpoints.forEach(url -> addEndpoint(urls, url));
+        return List.copyOf(urls);
+    }
+    
+    private static void addEndpoint(Set<String> urls, String url) {
+        if (url != null && !url.isBlank()) {
+            String trimmed = url.trim();
+            urls.add(trimmed.endsWith("/") ? trimmed.substring(0, trimmed.length() - 1) : trimmed);
+        }
+    }
+    
+    /**
+     * Returns a copy with a different last selected model
+     */
+    public AppSettings withLastSelectedModel(String model) {
+        return new AppSettings(ollamaBaseUrl, windowWidth, windowHeight, windowX, windowY, model,
+            systemPrompt, theme, fontFamily, fontSize, contextTokens, modelContextTokens, contextPolicy,
+            keepAlive, modelKeepAlive, ollamaEndpoints, connectTimeoutSeconds, firstTokenTimeoutSeconds,
+            idleTimeoutSeconds, chatOptions, responseCacheEnabled, responseCacheMaxMb, cacheReplayTokensPerSecond,
+            semanticSearchEnabled, embeddingModel);
     }
     
     /**
@@ -2,19 +2,24 @@ package com.ollama.olama.model;
 
 import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
+import com.ollama.olama.util.TokenEstimator;
 
 import java.time.LocalDateTime;
 import java.util.Map;
 
 /**
  * Represents a chat message with role, content, timestamp, and optional generation time.
+ * Assistant messages also carry the performance counters of the response that produced them.
+ * The token estimate is computed once when the message is created and reused for context budgeting.
  * Supports conversion to Ollama API format.
  */
 public record ChatMessage(
     String role,
     String content,
     LocalDateTime timestamp,
-    Long generationTimeMs
+    Long generationTimeMs,
+    int tokenEstimate,
+    GenerationStats stats
 ) {
     
     @JsonCreator
@@ -22,12 +27,21 @@ public record ChatMessage(
         @JsonProperty("role") String role,
         @JsonProperty("content") String content,
         @JsonProperty("timestamp") LocalDateTime timestamp,
-        @JsonProperty("generationTimeMs") Long generationTimeMs
+        @JsonProperty("generationTimeMs") Long generationTimeMs,
+        @JsonProperty("tokenEstimate") int tokenEstimate,
+        @JsonProperty("stats") GenerationStats stats
     ) {
         this.role = role;
         this.content = content;
         this.timestamp = timestamp;
         this.generationTimeMs = generationTimeMs;
+        // Older saved conversations have no estimate; compute it once here
+        this.tokenEstimate = tokenEstimate > 0 ? tokenEstimate : TokenEstimator.estimate(content);
+        this.stats = stats;
+    }
+    
+    public ChatMessage(String role, String content, LocalDateTime timestamp, Long generationTimeMs) {
+        this(role, content, timestamp, generationTimeMs, 0, null);
     }
     
     /**
@@ -44,6 +58,13 @@ public record ChatMessage(
         return new ChatMessage("assistant", content, LocalDateTime.now(), generationTimeMs);
     }
     
+    /**
+     * Creates an assistant message with current timestamp, generation time and response counters
+     */
+    public static ChatMessage assistant(String content, long generationTimeMs, GenerationStats stats) {
+        return new ChatMessage("assistant", content, LocalDateTime.now(), generationTimeMs, 0, stats);
+    }
+    
     /**
      * Creates a system message with current timestamp
      */
@@ -51,6 +72,13 @@ public record ChatMessage(
         return new ChatMessage("system", content, LocalDateTime.now(), null);
     }
     
+    /**
+     * Returns a copy with different content, keeping role, timestamp and stats; the estimate is recomputed
+     */
+    public ChatMessage withContent(String newContent) {
+        return new ChatMessage(role, newContent, timestamp, generationTimeMs, 0, stats);
+    }
+    
     /**
      * Converts to JSON format for Ollama API requests
      */
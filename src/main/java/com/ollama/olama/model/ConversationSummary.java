@@ -0,0 +1,49 @@
+package com.ollama.olama.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+import java.time.LocalDateTime;
+
+/**
+ * Index entry of a saved conversation: everything needed to list it without reading its messages.
+ * @param title the beginning of the first user message
+ * @param model the model last used in the conversation, or null if not known
+ * @param sizeBytes size of the stored messages on disk
+ */
+public record ConversationSummary(
+    String id,
+    String title,
+    LocalDateTime createdAt,
+    LocalDateTime updatedAt,
+    int messageCount,
+    String model,
+    long sizeBytes
+) {
+
+    @JsonCreator
+    public ConversationSummary(
+        @JsonProperty("id") String id,
+        @JsonProperty("title") String title,
+        @JsonProperty("createdAt") LocalDateTime createdAt,
+        @JsonProperty("updatedAt") LocalDateTime updatedAt,
+        @JsonProperty("messageCount") int messageCount,
+        @JsonProperty("model") String model,
+        @JsonProperty("sizeBytes") long sizeBytes
+    ) {
+        this.id = id;
+        this.title = title != null ? title : "";
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.messageCount = messageCount;
+        this.model = model;
+        this.sizeBytes = sizeBytes;
+    }
+
+    /**
+     * Returns a copy with another model
+     */
+    public ConversationSummary withModel(String model) {
+        return new ConversationSummary(id, title, createdAt, updatedAt, messageCount, model, sizeBytes);
+    }
+}
@@ -0,0 +1,63 @@
+package com.ollama.olama.model;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * Performance counters for one assistant response.
+ * Durations reported by Ollama in its final done:true chunk are in nanoseconds; the
+ * time-to-first-token and inter-token gaps are measured by the client and include network time.
+ */
+public record GenerationStats(
+    long totalDurationNanos,
+    long loadDurationNanos,
+    long promptEvalCount,
+    long promptEvalDurationNanos,
+    long evalCount,
+    long evalDurationNanos,
+    long timeToFirstTokenMs,
+    double meanTokenGapMs,
+    double maxTokenGapMs
+) {
+
+    @JsonCreator
+    public GenerationStats(
+        @JsonProperty("totalDurationNanos") long totalDurationNanos,
+        @JsonProperty("loadDurationNanos") long loadDurationNanos,
+        @JsonProperty("promptEvalCount") long promptEvalCount,
+        @JsonProperty("promptEvalDurationNanos") long promptEvalDurationNanos,
+        @JsonProperty("evalCount") long evalCount,
+        @JsonProperty("evalDurationNanos") long evalDurationNanos,
+        @JsonProperty("timeToFirstTokenMs") long timeToFirstTokenMs,
+        @JsonProperty("meanTokenGapMs") double meanTokenGapMs,
+        @JsonProperty("maxTokenGapMs") double maxTokenGapMs
+    ) {
+        this.totalDurationNanos = totalDurationNanos;
+        this.loadDurationNanos = loadDurationNanos;
+        this.promptEvalCount = promptEvalCount;
+        this.promptEvalDurationNanos = promptEvalDurationNanos;
+        this.evalCount = evalCount;
+        this.evalDurationNanos = evalDurationNanos;
+        this.timeToFirstTokenMs = timeToFirstTokenMs;
+        this.meanTokenGapMs = meanTokenGapMs;
+        this.maxTokenGapMs = maxTokenGapMs;
+    }
+
+    /**
+     * Generation speed as reported by Ollama, or 0 if the server sent no eval counters
+     */
+    public double tokensPerSecond() {
+        return rate(evalCount, evalDurationNanos);
+    }
+
+    /**
+     * Prompt processing speed as reported by Ollama, or 0 if unknown
+     */
+    public double promptTokensPerSecond() {
+        return rate(promptEvalCount, promptEvalDurationNanos);
+    }
+
+    private static double rate(long count, long durationNanos) {
+        return durationNanos > 0 ? count * 1_000_000_000.0 / durationNanos : 0.0;
+    }
+}
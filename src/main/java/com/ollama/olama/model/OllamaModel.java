@@ -1,18 +1,43 @@
 package com.ollama.olama.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.JsonNode;
 
 /**
- * Represents an Ollama model with name, size information, and modification date.
+ * Represents an Ollama model with name, size information, modification date and content digest.
  * Provides display formatting and JSON parsing capabilities.
  */
 public record OllamaModel(
     String name,
     String size,
     long sizeBytes,
-    String modifiedAt
+    String modifiedAt,
+    String digest
 ) {
     
+    @JsonCreator
+    public OllamaModel(
+        @JsonProperty("name") String name,
+        @JsonProperty("size") String size,
+        @JsonProperty("sizeBytes") long sizeBytes,
+        @JsonProperty("modifiedAt") String modifiedAt,
+        @JsonProperty("digest") String digest
+    ) {
+        this.name = name;
+        this.size = size;
+        this.sizeBytes = sizeBytes;
+        this.modifiedAt = modifiedAt;
+        this.digest = digest;
+    }
+    
+    /**
+     * Creates a model whose digest is unknown
+     */
+    public OllamaModel(String name, String size, long sizeBytes, String modifiedAt) {
+        this(name, size, sizeBytes, modifiedAt, null);
+    }
+    
     /**
      * Returns display format: "name (size)"
      */
@@ -28,11 +53,12 @@ public record OllamaModel(
         String name = json.get("name").asText();
         long sizeBytes = json.get("size").asLong();
         String modifiedAt = json.get("modified_at").asText();
+        String digest = json.hasNonNull("digest") ? json.get("digest").asText() : null;
         
         // Convert bytes to human-readable format
         String size = formatBytes(sizeBytes);
         
-        return new OllamaModel(name, size, sizeBytes, modifiedAt);
+        return new OllamaModel(name, size, sizeBytes, modifiedAt, digest);
     }
     
     /**
@@ -0,0 +1,276 @@
+package com.ollama.olama.search;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * An immutable segment written by SegmentWriter, memory-mapped so its postings stay out of the heap.
+ * It is made of three files:
+ * <ul>
+ *   <li>postings: each term's encoded Postings, one after another</li>
+ *   <li>terms: the terms in byte order, in blocks of SegmentWriter.TERMS_PER_BLOCK; within a block each
+ *       term shares a prefix with the one before it and points to its postings</li>
+ *   <li>docs: the conversation ordinal and message index of every doc id</li>
+ * </ul>
+ * Only the first term of every block is kept on the heap. A lookup binary searches those and then scans
+ * one block.
+ */
+final class DiskSegment implements IndexSegment {
+
+    static final int MAGIC = 0x46545331;
+    static final int VERSION = 1;
+    static final int FILE_HEADER_BYTES = 8;
+    static final int DOCS_HEADER_BYTES = 12;
+
+    private final int id;
+    private final Path directory;
+    private final ByteBuffer postings;
+    private final ByteBuffer terms;
+    private final ByteBuffer docs;
+    private final int docBase;
+    private final int docCount;
+    private final byte[][] blockFirstTerms;
+    private final int[] blockOffsets;
+
+    private DiskSegment(int id, Path directory, ByteBuffer postings, ByteBuffer terms, ByteBuffer docs,
+                        byte[][] blockFirstTerms, int[] blockOffsets) {
+        this.id = id;
+        this.directory = directory;
+        this.postings = postings;
+        this.terms = terms;
+        this.docs = docs;
+        this.docBase = docs.getInt(8);
+        this.docCount = (docs.limit() - DOCS_HEADER_BYTES) / 8;
+        this.blockFirstTerms = blockFirstTerms;
+        this.blockOffsets = blockOffsets;
+    }
+
+    static Path postingsFile(Path directory, int id) {
+        return directory.resolve("segment-" + id + ".postings");
+    }
+
+    static Path termsFile(Path directory, int id) {
+        return directory.resolve("segment-" + id + ".terms");
+    }
+
+    static Path docsFile(Path directory, int id) {
+        return directory.resolve("segment-" + id + ".docs");
+    }
+
+    /**
+     * Maps a segment and reads the first term of each terms block
+     */
+    static DiskSegment open(Path directory, int id) throws IOException {
+        ByteBuffer postings = map(postingsFile(directory, id));
+        ByteBuffer terms = map(termsFile(directory, id));
+        ByteBuffer docs = map(docsFile(directory, id));
+        if (docs.limit() < DOCS_HEADER_BYTES) {
+            throw new IOException("Segment " + id + " is not a full-text index segment");
+        }
+
+        List<byte[]> firstTerms = new ArrayList<>();
+        int[] offsets = new int[64];
+        int position = FILE_HEADER_BYTES;
+        while (position < terms.limit()) {
+            if (firstTerms.size() == offsets.length) {
+                offsets = Arrays.copyOf(offsets, offsets.length * 2);
+            }
+            offsets[firstTerms.size()] = position;
+            ByteBuffer block = terms.slice(position + 4, terms.getInt(position));
+            Postings.readVarInt(block);
+            byte[] first = new byte[Postings.readVarInt(block)];
+            block.get(first);
+            firstTerms.add(first);
+            position += 4 + terms.getInt(position);
+        }
+        return new DiskSegment(id, directory, postings, terms, docs,
+            firstTerms.toArray(byte[][]::new), Arrays.copyOf(offsets, firstTerms.size()));
+    }
+
+    private static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException(file.getFileName() + " is too large to map (" + size + " bytes)");
+            }
+            // The mapping stays valid after the channel is closed
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (size < FILE_HEADER_BYTES || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                throw new IOException(file.getFileName() + " is not a full-text index segment");
+            }
+            return buffer;
+        }
+    }
+
+    int id() {
+        return id;
+    }
+
+    /**
+     * Size of the postings on disk, used to choose which segments to merge
+     */
+    long postingsBytes() {
+        return postings.limit();
+    }
+
+    @Override
+    public int docBase() {
+        return docBase;
+    }
+
+    @Override
+    public int docCount() {
+        return docCount;
+    }
+
+    @Override
+    public Postings.Cursor postings(String term) {
+        byte[] key = term.getBytes(StandardCharsets.UTF_8);
+        TermIterator iterator = new TermIterator(startBlock(key));
+        while (iterator.next()) {
+            int comparison = iterator.compareTo(key);
+            if (comparison == 0) {
+                return iterator.cursor();
+            } else if (comparison > 0) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public List<Postings.Cursor> postingsWithPrefix(String prefix, int maxTerms) {
+        byte[] key = prefix.getBytes(StandardCharsets.UTF_8);
+        List<Postings.Cursor> cursors = new ArrayList<>();
+        TermIterator iterator = new TermIterator(startBlock(key));
+        while (iterator.next() && cursors.size() < maxTerms) {
+            if (iterator.startsWith(key)) {
+                cursors.add(iterator.cursor());
+            } else if (iterator.compareTo(key) > 0) {
+                break;
+            }
+        }
+        return cursors;
+    }
+
+    @Override
+    public int conversationOf(int doc) {
+        return docs.getInt(DOCS_HEADER_BYTES + (doc - docBase) * 8);
+    }
+
+    @Override
+    public int messageIndexOf(int doc) {
+        return docs.getInt(DOCS_HEADER_BYTES + (doc - docBase) * 8 + 4);
+    }
+
+    /**
+     * Iterates every term in byte order, for merging
+     */
+    TermIterator terms() {
+        return new TermIterator(0);
+    }
+
+    /**
+     * Deletes the segment's files. Searches still holding the segment keep working where the platform
+     * lets mapped files be deleted; elsewhere the files are removed the next time the index is opened.
+     */
+    void delete() {
+        for (Path file : List.of(postingsFile(directory, id), termsFile(directory, id), docsFile(directory, id))) {
+            try {
+                Files.deleteIfExists(file);
+            } catch (IOException e) {
+                System.err.println("Failed to delete " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Index of the last block whose first term is not after the key
+     */
+    private int startBlock(byte[] key) {
+        int low = 0;
+        int high = blockFirstTerms.length - 1;
+        int found = 0;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            if (Arrays.compareUnsigned(blockFirstTerms[middle], key) <= 0) {
+                found = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Decodes terms one at a time from a starting block to the end of the segment
+     */
+    final class TermIterator {
+
+        private int nextBlock;
+        private ByteBuffer block;
+        private byte[] term = new byte[32];
+        private int termLength;
+        private int docFreq;
+        private int offset;
+
+        private TermIterator(int startBlock) {
+            this.nextBlock = startBlock;
+        }
+
+        boolean next() {
+            while (block == null || !block.hasRemaining()) {
+                if (nextBlock >= blockOffsets.length) {
+                    return false;
+                }
+                int position = blockOffsets[nextBlock++];
+                block = terms.slice(position + 4, terms.getInt(position));
+                offset = 0;
+            }
+            int shared = Postings.readVarInt(block);
+            int suffix = Postings.readVarInt(block);
+            if (shared + suffix > term.length) {
+                term = Arrays.copyOf(term, Math.max(term.length * 2, shared + suffix));
+            }
+            block.get(term, shared, suffix);
+            termLength = shared + suffix;
+            docFreq = Postings.readVarInt(block);
+            // The first term of a block stores its offset, the others the distance from the previous one
+            offset += Postings.readVarInt(block);
+            return true;
+        }
+
+        int compareTo(byte[] key) {
+            return Arrays.compareUnsigned(term, 0, termLength, key, 0, key.length);
+        }
+
+        int compareTo(TermIterator other) {
+            return Arrays.compareUnsigned(term, 0, termLength, other.term, 0, other.termLength);
+        }
+
+        boolean startsWith(byte[] prefix) {
+            return termLength >= prefix.length && Arrays.equals(term, 0, prefix.length, prefix, 0, prefix.length);
+        }
+
+        byte[] term() {
+            return Arrays.copyOf(term, termLength);
+        }
+
+        int docFreq() {
+            return docFreq;
+        }
+
+        Postings.Cursor cursor() {
+            return new Postings.Cursor(postings.slice(offset, postings.limit() - offset), docFreq, docBase);
+        }
+    }
+}
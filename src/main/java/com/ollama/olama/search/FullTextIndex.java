@@ -0,0 +1,575 @@
+package com.ollama.olama.search;
+
+import com.ollama.olama.manager.ConversationLibrary;
+import com.ollama.olama.manager.ConversationListener;
+import com.ollama.olama.manager.ConversationPages;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.ConversationSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Exact word, phrase and prefix search over every stored conversation, for things semantic search
+ * blurs such as error codes and function names. See FullTextQuery for the syntax.
+ * <p>
+ * Registered as a ConversationListener, it adds each user and assistant message to an in-memory segment
+ * as it arrives. Once that segment reaches FLUSH_BYTES, or a while after the last change, it is written
+ * out as an immutable DiskSegment with compressed postings, and small segments are merged as they pile
+ * up. Searching holds only the terms index of each segment on the heap and evaluates the segments in
+ * parallel, newest matches first. Hits come with their ChatMessage read from the ConversationLibrary.
+ * <p>
+ * Messages not yet written out when the app stops are indexed again when their conversation is next loaded
+ * or by indexLibrary, which also catches up on conversations saved before the index existed.
+ */
+public class FullTextIndex implements ConversationListener, AutoCloseable {
+
+    static final long FLUSH_BYTES = 8L * 1024 * 1024;
+    static final Duration FLUSH_DELAY = Duration.ofSeconds(30);
+    static final int MAX_SEGMENTS = 8;
+    static final int MERGE_FACTOR = 4;
+
+    private static final int MAGIC = 0x4654534D;
+    private static final int VERSION = 1;
+    private static final Pattern SEGMENT_FILE = Pattern.compile("segment-(\\d+)\\.(postings|terms|docs)");
+
+    private final Path directory;
+    private final Path manifest;
+    private final ConversationLibrary library;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+
+    /** Held while segments are written, merged or listed in the manifest, so only one of those runs at a time */
+    private final Object writeLock = new Object();
+
+    // Guarded by this
+    private List<DiskSegment> segments = List.of();
+    private final ArrayDeque<MemorySegment> unwritten = new ArrayDeque<>();
+    private MemorySegment current;
+    private final List<String> conversationIds = new ArrayList<>();
+    private final Map<String, Integer> conversationOrdinals = new HashMap<>();
+    private final Map<String, BitSet> known = new HashMap<>();
+    private int nextSegmentId;
+    private ScheduledFuture<?> flushTimer;
+    private boolean closed;
+
+    /**
+     * A message matching a query
+     * @param messageIndex the message's position in its conversation
+     */
+    public record Hit(String conversationId, int messageIndex, ChatMessage message) {}
+
+    private record Match(int doc, int conversation, int messageIndex) {}
+
+    /**
+     * Opens the index in a directory, creating it if needed
+     * @param library where the messages of hits are read from
+     * @param scheduler runs the flush timer
+     * @param executor indexes messages, writes and merges segments, and evaluates queries
+     */
+    public FullTextIndex(Path directory, ConversationLibrary library,
+                         ScheduledExecutorService scheduler, Executor executor) {
+        this.directory = directory;
+        this.manifest = directory.resolve("manifest.bin");
+        this.library = library;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        readManifest();
+        this.current = new MemorySegment(nextDocBaseOf(segments));
+    }
+
+    /**
+     * Gets the number of messages that can be found
+     */
+    public synchronized int size() {
+        int size = current.docCount();
+        for (DiskSegment segment : segments) {
+            size += segment.docCount();
+        }
+        for (MemorySegment segment : unwritten) {
+            size += segment.docCount();
+        }
+        return size;
+    }
+
+    /**
+     * Gets the number of segments on disk
+     */
+    public synchronized int segmentCount() {
+        return segments.size();
+    }
+
+    @Override
+    public void messageAdded(String conversationId, int index, ChatMessage message) {
+        // Splitting a long pasted document into words is kept off the caller's thread, often the FX thread
+        inBackground(() -> index(conversationId, index, message));
+    }
+
+    @Override
+    public void conversationLoaded(String conversationId, List<ChatMessage> messages) {
+        List<ChatMessage> loaded = List.copyOf(messages);
+        inBackground(() -> {
+            for (int i = 0; i < loaded.size(); i++) {
+                index(conversationId, i, loaded.get(i));
+            }
+        });
+    }
+
+    /**
+     * Indexes every saved conversation whose messages are not all indexed yet, reading each a page at a time
+     * and writing full segments out before reading on, so a long history is never in memory at once. Blocks
+     * until done, so run it in the background; messages already indexed are skipped, so it can run again.
+     */
+    public void indexLibrary() {
+        for (ConversationSummary summary : library.list()) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                BitSet indexed = known.get(summary.id());
+                if (indexed != null && indexed.nextClearBit(0) >= summary.messageCount()) {
+                    continue;
+                }
+            }
+            try (ConversationPages pages = library.openPages(summary.id())) {
+                for (int page = 0; page < pages.pageCount(); page++) {
+                    List<ChatMessage> messages = pages.page(page);
+                    int first = page * ConversationPages.PAGE_SIZE;
+                    for (int i = 0; i < messages.size(); i++) {
+                        index(summary.id(), first + i, messages.get(i));
+                    }
+                    if (hasUnwritten()) {
+                        writeUnwritten();
+                        if (hasUnwritten()) {
+                            // Writing failed; the rest is indexed by the next call
+                            return;
+                        }
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to index conversation " + summary.id() + " for search: " + e.getMessage());
+            }
+        }
+    }
+
+    private synchronized boolean hasUnwritten() {
+        return !unwritten.isEmpty();
+    }
+
+    /**
+     * Adds a message unless it is already indexed
+     */
+    void index(String conversationId, int index, ChatMessage message) {
+        if (!isSearchable(message)) {
+            return;
+        }
+        List<String> tokens = FullTextQuery.tokenize(message.content());
+        boolean full;
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            BitSet indexed = known.computeIfAbsent(conversationId, id -> new BitSet());
+            if (indexed.get(index)) {
+                return;
+            }
+            indexed.set(index);
+            current.add(ordinal(conversationId), index, tokens);
+            full = current.heapBytes() >= FLUSH_BYTES;
+            if (full) {
+                freezeCurrent();
+            } else if (flushTimer == null) {
+                flushTimer = schedule(FLUSH_DELAY, this::flush);
+            }
+        }
+        if (full) {
+            inBackground(this::writeUnwritten);
+        }
+    }
+
+    /**
+     * Finds the messages containing a query's words, phrases and prefixes
+     * @param limit the maximum number of hits
+     * @return CompletableFuture with the hits, most recently added first; a hit whose conversation was
+     *         deleted is left out
+     */
+    public CompletableFuture<List<Hit>> search(String query, int limit) {
+        FullTextQuery parsed = FullTextQuery.parse(query == null ? "" : query);
+        if (parsed.isEmpty() || limit <= 0) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+
+        List<IndexSegment> immutable;
+        MemorySegment active;
+        synchronized (this) {
+            immutable = new ArrayList<>(segments);
+            immutable.addAll(unwritten);
+            active = current;
+        }
+        List<CompletableFuture<List<Match>>> parts = new ArrayList<>(immutable.size() + 1);
+        for (IndexSegment segment : immutable) {
+            parts.add(CompletableFuture.supplyAsync(() -> matches(parsed, segment, limit), executor));
+        }
+        // The segment taking new messages changes under the lock, so it is searched holding it
+        parts.add(CompletableFuture.supplyAsync(() -> {
+            synchronized (this) {
+                return matches(parsed, active, limit);
+            }
+        }, executor));
+
+        return CompletableFuture.allOf(parts.toArray(CompletableFuture[]::new))
+            .thenApplyAsync(ignored -> {
+                List<Match> newest = parts.stream()
+                    .flatMap(part -> part.join().stream())
+                    .sorted(Comparator.comparingInt(Match::doc).reversed())
+                    .limit(limit)
+                    .toList();
+                return open(newest);
+            }, executor);
+    }
+
+    private static List<Match> matches(FullTextQuery query, IndexSegment segment, int limit) {
+        int[] docs = query.newest(segment, limit);
+        List<Match> matches = new ArrayList<>(docs.length);
+        for (int doc : docs) {
+            matches.add(new Match(doc, segment.conversationOf(doc), segment.messageIndexOf(doc)));
+        }
+        return matches;
+    }
+
+    /**
+     * Reads the matching messages, opening each conversation once
+     */
+    private List<Hit> open(List<Match> matches) {
+        Map<String, List<Integer>> positionsByConversation = new LinkedHashMap<>();
+        synchronized (this) {
+            for (int i = 0; i < matches.size(); i++) {
+                String conversationId = conversationIds.get(matches.get(i).conversation());
+                positionsByConversation.computeIfAbsent(conversationId, id -> new ArrayList<>()).add(i);
+            }
+        }
+        Hit[] hits = new Hit[matches.size()];
+        for (Map.Entry<String, List<Integer>> entry : positionsByConversation.entrySet()) {
+            if (library.summary(entry.getKey()).isEmpty()) {
+                continue;
+            }
+            try (ConversationPages pages = library.openPages(entry.getKey())) {
+                for (int position : entry.getValue()) {
+                    int messageIndex = matches.get(position).messageIndex();
+                    if (messageIndex < pages.size()) {
+                        hits[position] = new Hit(entry.getKey(), messageIndex, pages.get(messageIndex));
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to read conversation " + entry.getKey() + " for search: " + e.getMessage());
+            }
+        }
+        List<Hit> found = new ArrayList<>(hits.length);
+        for (Hit hit : hits) {
+            if (hit != null) {
+                found.add(hit);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Writes every message indexed so far to disk
+     */
+    public void flush() {
+        synchronized (this) {
+            if (current.docCount() > 0) {
+                freezeCurrent();
+            }
+        }
+        writeUnwritten();
+    }
+
+    /**
+     * Stops the timer and writes what is still in memory
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            if (flushTimer != null) {
+                flushTimer.cancel(false);
+                flushTimer = null;
+            }
+        }
+        flush();
+    }
+
+    private void freezeCurrent() {
+        unwritten.add(current);
+        current = new MemorySegment(current.docBase() + current.docCount());
+        if (flushTimer != null) {
+            flushTimer.cancel(false);
+            flushTimer = null;
+        }
+    }
+
+    /**
+     * Writes frozen memory segments out oldest first, then merges if there are too many segments.
+     * Stops at the first failure so the segments on disk always cover consecutive doc ids.
+     */
+    private void writeUnwritten() {
+        synchronized (writeLock) {
+            while (true) {
+                MemorySegment next;
+                int id;
+                synchronized (this) {
+                    next = unwritten.peek();
+                    if (next == null) {
+                        break;
+                    }
+                    id = nextSegmentId++;
+                }
+                DiskSegment written;
+                try {
+                    written = SegmentWriter.write(next, directory, id);
+                } catch (IOException e) {
+                    // Stays searchable in memory and is written with the next flush
+                    System.err.println("Failed to write full-text index segment: " + e.getMessage());
+                    return;
+                }
+                synchronized (this) {
+                    List<DiskSegment> updated = new ArrayList<>(segments);
+                    updated.add(written);
+                    segments = List.copyOf(updated);
+                    unwritten.poll();
+                }
+                writeManifest();
+            }
+            mergeSegments();
+        }
+    }
+
+    /**
+     * Merges the smallest run of MERGE_FACTOR adjacent segments until at most MAX_SEGMENTS remain.
+     * Called holding writeLock, so the list only grows at its end meanwhile.
+     */
+    private void mergeSegments() {
+        while (true) {
+            List<DiskSegment> snapshot;
+            synchronized (this) {
+                snapshot = segments;
+            }
+            if (snapshot.size() <= MAX_SEGMENTS) {
+                return;
+            }
+            int start = -1;
+            long smallest = Long.MAX_VALUE;
+            for (int i = 0; i + MERGE_FACTOR <= snapshot.size(); i++) {
+                long bytes = 0;
+                for (DiskSegment segment : snapshot.subList(i, i + MERGE_FACTOR)) {
+                    bytes += segment.postingsBytes();
+                }
+                if (bytes < smallest && bytes <= SegmentWriter.MAX_SEGMENT_BYTES) {
+                    smallest = bytes;
+                    start = i;
+                }
+            }
+            if (start < 0) {
+                return;
+            }
+
+            List<DiskSegment> merging = List.copyOf(snapshot.subList(start, start + MERGE_FACTOR));
+            int id;
+            synchronized (this) {
+                id = nextSegmentId++;
+            }
+            DiskSegment merged;
+            try {
+                merged = SegmentWriter.merge(merging, directory, id);
+            } catch (IOException e) {
+                System.err.println("Failed to merge full-text index segments: " + e.getMessage());
+                return;
+            }
+            synchronized (this) {
+                List<DiskSegment> updated = new ArrayList<>(segments);
+                updated.subList(start, start + MERGE_FACTOR).clear();
+                updated.add(start, merged);
+                segments = List.copyOf(updated);
+            }
+            writeManifest();
+            merging.forEach(DiskSegment::delete);
+        }
+    }
+
+    private int ordinal(String conversationId) {
+        Integer ordinal = conversationOrdinals.get(conversationId);
+        if (ordinal == null) {
+            ordinal = conversationIds.size();
+            conversationIds.add(conversationId);
+            conversationOrdinals.put(conversationId, ordinal);
+        }
+        return ordinal;
+    }
+
+    private static boolean isSearchable(ChatMessage message) {
+        return ("user".equals(message.role()) || "assistant".equals(message.role()))
+            && message.content() != null && !message.content().isBlank();
+    }
+
+    private void inBackground(Runnable task) {
+        try {
+            executor.execute(task);
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+        }
+    }
+
+    /**
+     * Runs a task on the executor after a delay; the scheduler thread only hands it over
+     */
+    private ScheduledFuture<?> schedule(Duration delay, Runnable task) {
+        try {
+            return scheduler.schedule(() -> inBackground(task), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+            return null;
+        }
+    }
+
+    /**
+     * Lists the segments and conversations; written after every change to the segments, so the
+     * manifest never names a segment that is not complete
+     */
+    private void writeManifest() {
+        List<DiskSegment> listed;
+        List<String> conversations;
+        int nextId;
+        synchronized (this) {
+            listed = segments;
+            conversations = List.copyOf(conversationIds);
+            nextId = nextSegmentId;
+        }
+        try {
+            // Write a temporary file and move it so a crash never leaves a half-written manifest
+            Path temp = Files.createTempFile(directory, "manifest", ".tmp");
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(nextId);
+                out.writeInt(listed.size());
+                for (DiskSegment segment : listed) {
+                    out.writeInt(segment.id());
+                }
+                out.writeInt(conversations.size());
+                for (String conversationId : conversations) {
+                    out.writeUTF(conversationId);
+                }
+            }
+            Files.move(temp, manifest, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save full-text index manifest to " + manifest + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Opens the segments the manifest lists and deletes any other segment files, left by a write or
+     * merge that did not finish
+     */
+    private void readManifest() {
+        Set<Integer> listed = new HashSet<>();
+        try {
+            Files.createDirectories(directory);
+            if (Files.isReadable(manifest)) {
+                try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(manifest)))) {
+                    if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                        throw new IOException("Not a full-text index manifest");
+                    }
+                    nextSegmentId = in.readInt();
+                    int[] ids = new int[in.readInt()];
+                    for (int i = 0; i < ids.length; i++) {
+                        ids[i] = in.readInt();
+                    }
+                    int conversations = in.readInt();
+                    for (int i = 0; i < conversations; i++) {
+                        ordinal(in.readUTF());
+                    }
+                    openSegments(ids, listed);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to load full-text index from " + directory + ": " + e.getMessage());
+        }
+        deleteUnlisted(listed);
+    }
+
+    private void openSegments(int[] ids, Set<Integer> listed) {
+        List<DiskSegment> opened = new ArrayList<>(ids.length);
+        for (int id : ids) {
+            try {
+                DiskSegment segment = DiskSegment.open(directory, id);
+                if (segment.docBase() != nextDocBaseOf(opened)) {
+                    throw new IOException("Segment " + id + " does not follow the one before it");
+                }
+                opened.add(segment);
+                listed.add(id);
+            } catch (IOException | RuntimeException e) {
+                // Later segments would leave a gap in the doc ids; their messages are indexed again when loaded
+                System.err.println("Failed to open full-text index segment " + id + ": " + e.getMessage());
+                break;
+            }
+        }
+        for (DiskSegment segment : opened) {
+            for (int doc = segment.docBase(); doc < segment.docBase() + segment.docCount(); doc++) {
+                known.computeIfAbsent(conversationIds.get(segment.conversationOf(doc)), id -> new BitSet())
+                    .set(segment.messageIndexOf(doc));
+            }
+        }
+        segments = List.copyOf(opened);
+    }
+
+    private static int nextDocBaseOf(List<DiskSegment> segments) {
+        if (segments.isEmpty()) {
+            return 0;
+        }
+        DiskSegment last = segments.get(segments.size() - 1);
+        return last.docBase() + last.docCount();
+    }
+
+    private void deleteUnlisted(Set<Integer> listed) {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*")) {
+            for (Path file : files) {
+                Matcher matcher = SEGMENT_FILE.matcher(file.getFileName().toString());
+                if (matcher.matches() && !listed.contains(Integer.parseInt(matcher.group(1)))) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to clean up full-text index in " + directory + ": " + e.getMessage());
+        }
+    }
+}
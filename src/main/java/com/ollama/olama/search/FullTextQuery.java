@@ -0,0 +1,219 @@
+package com.ollama.olama.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * A parsed full-text query: every clause must match.
+ * <ul>
+ *   <li>{@code word} matches messages with the word</li>
+ *   <li>{@code "some words"} matches the words next to each other in that order</li>
+ *   <li>{@code prefix*} matches any word starting with the prefix</li>
+ * </ul>
+ * Text is split into words the same way messages are, so something like {@code ERR_CONNECTION_REFUSED},
+ * {@code getUserById} or {@code java.lang.NullPointerException} can be searched as typed; the last is
+ * matched as the phrase of its three words.
+ */
+final class FullTextQuery {
+
+    /** Longer words are cut to this length, in messages and queries alike */
+    static final int MAX_TERM_LENGTH = 64;
+
+    /** A prefix that matches more words than this only finds messages with the first ones */
+    static final int MAX_PREFIX_TERMS = 512;
+
+    private final List<Clause> clauses;
+
+    private sealed interface Clause permits Term, Prefix, Phrase {}
+
+    private record Term(String term) implements Clause {}
+
+    private record Prefix(String prefix) implements Clause {}
+
+    private record Phrase(List<String> terms) implements Clause {}
+
+    private FullTextQuery(List<Clause> clauses) {
+        this.clauses = clauses;
+    }
+
+    /**
+     * Splits text into lower-case words of letters, digits and underscores
+     */
+    static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= text.length(); ) {
+            int codePoint = i < text.length() ? text.codePointAt(i) : ' ';
+            boolean wordChar = Character.isLetterOrDigit(codePoint) || codePoint == '_';
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(term(text.substring(start, i)));
+                start = -1;
+            }
+            i += i < text.length() ? Character.charCount(codePoint) : 1;
+        }
+        return tokens;
+    }
+
+    private static String term(String word) {
+        String lower = word.toLowerCase(Locale.ROOT);
+        if (lower.length() <= MAX_TERM_LENGTH) {
+            return lower;
+        }
+        // Never split a surrogate pair
+        int end = Character.isHighSurrogate(lower.charAt(MAX_TERM_LENGTH - 1)) ? MAX_TERM_LENGTH - 1 : MAX_TERM_LENGTH;
+        return lower.substring(0, end);
+    }
+
+    static FullTextQuery parse(String query) {
+        List<Clause> clauses = new ArrayList<>();
+        String[] parts = query.split("\"", -1);
+        for (int i = 0; i < parts.length; i++) {
+            if (i % 2 == 1) {
+                // Between quotes; an unclosed quote runs to the end
+                addPhrase(clauses, tokenize(parts[i]));
+                continue;
+            }
+            for (String word : parts[i].trim().split("\\s+")) {
+                boolean prefix = word.endsWith("*");
+                List<String> tokens = tokenize(word);
+                if (tokens.isEmpty()) {
+                    continue;
+                }
+                if (prefix) {
+                    // foo.ba* is foo followed by a word starting with ba; only the prefix is checked
+                    tokens.subList(0, tokens.size() - 1).forEach(token -> clauses.add(new Term(token)));
+                    clauses.add(new Prefix(tokens.get(tokens.size() - 1)));
+                } else {
+                    addPhrase(clauses, tokens);
+                }
+            }
+        }
+        return new FullTextQuery(List.copyOf(clauses));
+    }
+
+    private static void addPhrase(List<Clause> clauses, List<String> tokens) {
+        if (tokens.size() == 1) {
+            clauses.add(new Term(tokens.get(0)));
+        } else if (tokens.size() > 1) {
+            clauses.add(new Phrase(List.copyOf(tokens)));
+        }
+    }
+
+    boolean isEmpty() {
+        return clauses.isEmpty();
+    }
+
+    /**
+     * Finds the most recently added matching messages of a segment
+     * @return up to limit doc ids, newest first
+     */
+    int[] newest(IndexSegment segment, int limit) {
+        BitSet matches = null;
+        for (Clause clause : clauses) {
+            BitSet clauseMatches = switch (clause) {
+                case Term term -> docs(segment, segment.postings(term.term()));
+                case Prefix prefix -> prefixDocs(segment, prefix.prefix());
+                case Phrase phrase -> phraseDocs(segment, phrase.terms(), matches);
+            };
+            if (matches == null) {
+                matches = clauseMatches;
+            } else {
+                matches.and(clauseMatches);
+            }
+            if (matches.isEmpty()) {
+                return new int[0];
+            }
+        }
+        if (matches == null) {
+            return new int[0];
+        }
+        int[] newest = new int[Math.min(limit, matches.cardinality())];
+        int found = 0;
+        for (int bit = matches.length() - 1; bit >= 0 && found < newest.length; bit = matches.previousSetBit(bit - 1)) {
+            newest[found++] = segment.docBase() + bit;
+        }
+        return newest;
+    }
+
+    /**
+     * Docs of one term as bits relative to the segment's doc base
+     */
+    private static BitSet docs(IndexSegment segment, Postings.Cursor cursor) {
+        BitSet docs = new BitSet(segment.docCount());
+        if (cursor != null) {
+            while (cursor.next()) {
+                docs.set(cursor.doc() - segment.docBase());
+            }
+        }
+        return docs;
+    }
+
+    private static BitSet prefixDocs(IndexSegment segment, String prefix) {
+        BitSet docs = new BitSet(segment.docCount());
+        for (Postings.Cursor cursor : segment.postingsWithPrefix(prefix, MAX_PREFIX_TERMS)) {
+            while (cursor.next()) {
+                docs.set(cursor.doc() - segment.docBase());
+            }
+        }
+        return docs;
+    }
+
+    /**
+     * Finds docs with every term, then checks that they appear next to each other
+     * @param candidates docs matched by earlier clauses, or null; positions are only decoded for these
+     */
+    private static BitSet phraseDocs(IndexSegment segment, List<String> terms, BitSet candidates) {
+        BitSet withAll = candidates != null ? (BitSet) candidates.clone() : null;
+        for (String term : terms) {
+            BitSet docs = docs(segment, segment.postings(term));
+            if (withAll == null) {
+                withAll = docs;
+            } else {
+                withAll.and(docs);
+            }
+            if (withAll.isEmpty()) {
+                return withAll;
+            }
+        }
+
+        List<Map<Integer, int[]>> positions = new ArrayList<>(terms.size());
+        for (String term : terms) {
+            Map<Integer, int[]> termPositions = new HashMap<>();
+            Postings.Cursor cursor = segment.postings(term);
+            while (cursor.next()) {
+                if (withAll.get(cursor.doc() - segment.docBase())) {
+                    termPositions.put(cursor.doc(), cursor.positions());
+                }
+            }
+            positions.add(termPositions);
+        }
+
+        BitSet matches = new BitSet(segment.docCount());
+        for (int bit = withAll.nextSetBit(0); bit >= 0; bit = withAll.nextSetBit(bit + 1)) {
+            int doc = segment.docBase() + bit;
+            for (int start : positions.get(0).get(doc)) {
+                if (followsAt(positions, doc, start)) {
+                    matches.set(bit);
+                    break;
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static boolean followsAt(List<Map<Integer, int[]>> positions, int doc, int start) {
+        for (int i = 1; i < positions.size(); i++) {
+            if (Arrays.binarySearch(positions.get(i).get(doc), start + i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
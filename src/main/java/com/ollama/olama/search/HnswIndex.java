@@ -0,0 +1,418 @@
+package com.ollama.olama.search;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Approximate nearest-neighbour index over vectors, compared by cosine similarity (HNSW: hierarchical
+ * navigable small world graph). Every vector is a node linked to its closest neighbours on level 0 and,
+ * with exponentially falling probability, on sparser upper levels. A search descends greedily through the
+ * upper levels and then explores a bounded candidate list on level 0, so it visits a few thousand nodes
+ * instead of all of them.
+ * <p>
+ * Vectors are normalized and stored as one signed byte per dimension with a per-vector scale, a quarter of
+ * the memory of floats at a small cost in precision. Node ids are assigned in insertion order from 0.
+ * Searches may run concurrently; inserts are serialized.
+ */
+public class HnswIndex {
+
+    public static final int DEFAULT_MAX_LINKS = 16;
+    public static final int DEFAULT_EF_CONSTRUCTION = 100;
+
+    private static final int MAGIC = 0x484E5357;
+    private static final int VERSION = 1;
+    private static final int[] NO_LINKS = new int[0];
+    private static final Comparator<Neighbor> MOST_SIMILAR_FIRST =
+        Comparator.comparingDouble(Neighbor::similarity).reversed();
+    private static final Comparator<Neighbor> LEAST_SIMILAR_FIRST =
+        Comparator.comparingDouble(Neighbor::similarity);
+
+    private final int dimensions;
+    private final int maxLinks;
+    private final int efConstruction;
+    private final double levelFactor;
+    private final Random random;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private byte[] codes;
+    private float[] scales;
+    /** links[node][level] holds the node's neighbours on that level */
+    private int[][][] links;
+    private int size;
+    private int entryPoint = -1;
+    private int topLevel = -1;
+
+    /**
+     * A node found by a search
+     * @param similarity cosine similarity to the query, from about -1 to 1
+     */
+    public record Neighbor(int id, float similarity) {}
+
+    public HnswIndex(int dimensions) {
+        this(dimensions, DEFAULT_MAX_LINKS, DEFAULT_EF_CONSTRUCTION, 42);
+    }
+
+    /**
+     * @param dimensions length of every vector
+     * @param maxLinks neighbours kept per node on upper levels; level 0 keeps twice as many
+     * @param efConstruction candidates considered when linking a new node; higher builds a better graph, slower
+     * @param seed seeds the random level assignment, so a build is repeatable
+     */
+    public HnswIndex(int dimensions, int maxLinks, int efConstruction, long seed) {
+        if (dimensions <= 0 || maxLinks < 2 || efConstruction < 1) {
+            throw new IllegalArgumentException("Invalid index parameters");
+        }
+        this.dimensions = dimensions;
+        this.maxLinks = maxLinks;
+        this.efConstruction = efConstruction;
+        this.levelFactor = 1.0 / Math.log(maxLinks);
+        this.random = new Random(seed);
+        this.codes = new byte[16 * dimensions];
+        this.scales = new float[16];
+        this.links = new int[16][][];
+    }
+
+    public int dimensions() {
+        return dimensions;
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Adds a vector and links it into the graph
+     * @return the new node's id
+     */
+    public int add(float[] vector) {
+        float[] unit = normalize(vector);
+        lock.writeLock().lock();
+        try {
+            int node = size;
+            ensureCapacity(node + 1);
+            encode(node, unit);
+            int level = randomLevel();
+            links[node] = new int[level + 1][];
+            Arrays.fill(links[node], NO_LINKS);
+            size++;
+
+            if (entryPoint < 0) {
+                entryPoint = node;
+                topLevel = level;
+                return node;
+            }
+
+            int closest = entryPoint;
+            for (int l = topLevel; l > level; l--) {
+                closest = greedyClosest(unit, closest, l);
+            }
+            for (int l = Math.min(level, topLevel); l >= 0; l--) {
+                List<Neighbor> candidates = searchLayer(unit, closest, efConstruction, l);
+                int[] selected = selectNeighbors(candidates, maxLinksOn(l));
+                links[node][l] = selected;
+                for (int neighbor : selected) {
+                    link(neighbor, node, l);
+                }
+                if (!candidates.isEmpty()) {
+                    closest = candidates.get(0).id();
+                }
+            }
+            if (level > topLevel) {
+                topLevel = level;
+                entryPoint = node;
+            }
+            return node;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Finds the nodes most similar to a vector
+     * @param k how many nodes to return
+     * @param ef size of the candidate list; higher finds the true nearest neighbours more often, slower
+     * @return up to k nodes, most similar first
+     */
+    public List<Neighbor> search(float[] query, int k, int ef) {
+        float[] unit = normalize(query);
+        lock.readLock().lock();
+        try {
+            if (entryPoint < 0 || k <= 0) {
+                return List.of();
+            }
+            int closest = entryPoint;
+            for (int l = topLevel; l > 0; l--) {
+                closest = greedyClosest(unit, closest, l);
+            }
+            List<Neighbor> found = searchLayer(unit, closest, Math.max(ef, k), 0);
+            return List.copyOf(found.subList(0, Math.min(k, found.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the vectors and the graph
+     */
+    public void writeTo(DataOutputStream out) throws IOException {
+        lock.readLock().lock();
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeInt(dimensions);
+            out.writeInt(maxLinks);
+            out.writeInt(efConstruction);
+            out.writeInt(size);
+            out.writeInt(entryPoint);
+            out.writeInt(topLevel);
+            out.write(codes, 0, size * dimensions);
+            for (int node = 0; node < size; node++) {
+                out.writeFloat(scales[node]);
+                out.writeByte(links[node].length);
+                for (int[] neighbors : links[node]) {
+                    out.writeShort(neighbors.length);
+                    for (int neighbor : neighbors) {
+                        out.writeInt(neighbor);
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Reads an index written by writeTo
+     */
+    public static HnswIndex readFrom(DataInputStream in) throws IOException {
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a vector index file");
+        }
+        int dimensions = in.readInt();
+        int maxLinks = in.readInt();
+        int efConstruction = in.readInt();
+        int size = in.readInt();
+        if (dimensions <= 0 || maxLinks < 2 || efConstruction < 1 || size < 0) {
+            throw new IOException("Corrupt vector index header");
+        }
+        HnswIndex index = new HnswIndex(dimensions, maxLinks, efConstruction, size);
+        index.ensureCapacity(size);
+        index.entryPoint = in.readInt();
+        index.topLevel = in.readInt();
+        in.readFully(index.codes, 0, size * dimensions);
+        for (int node = 0; node < size; node++) {
+            index.scales[node] = in.readFloat();
+            int[][] levels = new int[in.readUnsignedByte()][];
+            for (int l = 0; l < levels.length; l++) {
+                int[] neighbors = new int[in.readUnsignedShort()];
+                for (int i = 0; i < neighbors.length; i++) {
+                    neighbors[i] = in.readInt();
+                }
+                levels[l] = neighbors;
+            }
+            index.links[node] = levels;
+        }
+        index.size = size;
+        return index;
+    }
+
+    private int maxLinksOn(int level) {
+        return level == 0 ? 2 * maxLinks : maxLinks;
+    }
+
+    private int randomLevel() {
+        return (int) (-Math.log(1.0 - random.nextDouble()) * levelFactor);
+    }
+
+    /**
+     * Follows the single most similar neighbour until no neighbour is more similar
+     */
+    private int greedyClosest(float[] query, int start, int level) {
+        int current = start;
+        float best = similarity(query, current);
+        boolean moved = true;
+        while (moved) {
+            moved = false;
+            for (int neighbor : links[current][level]) {
+                float candidate = similarity(query, neighbor);
+                if (candidate > best) {
+                    best = candidate;
+                    current = neighbor;
+                    moved = true;
+                }
+            }
+        }
+        return current;
+    }
+
+    /**
+     * Best-first search of one level keeping the ef most similar nodes seen
+     * @return the nodes found, most similar first
+     */
+    private List<Neighbor> searchLayer(float[] query, int start, int ef, int level) {
+        BitSet visited = new BitSet(size);
+        PriorityQueue<Neighbor> candidates = new PriorityQueue<>(MOST_SIMILAR_FIRST);
+        PriorityQueue<Neighbor> results = new PriorityQueue<>(LEAST_SIMILAR_FIRST);
+        Neighbor first = new Neighbor(start, similarity(query, start));
+        visited.set(start);
+        candidates.add(first);
+        results.add(first);
+
+        while (!candidates.isEmpty()) {
+            Neighbor nearest = candidates.poll();
+            if (results.size() >= ef && nearest.similarity() < results.peek().similarity()) {
+                break;
+            }
+            for (int neighbor : links[nearest.id()][level]) {
+                if (visited.get(neighbor)) {
+                    continue;
+                }
+                visited.set(neighbor);
+                float similarity = similarity(query, neighbor);
+                if (results.size() < ef || similarity > results.peek().similarity()) {
+                    Neighbor found = new Neighbor(neighbor, similarity);
+                    candidates.add(found);
+                    results.add(found);
+                    if (results.size() > ef) {
+                        results.poll();
+                    }
+                }
+            }
+        }
+
+        List<Neighbor> sorted = new ArrayList<>(results);
+        sorted.sort(MOST_SIMILAR_FIRST);
+        return sorted;
+    }
+
+    /**
+     * Picks up to max neighbours from candidates sorted most similar first. A candidate is preferred when it is
+     * closer to the new node than to every neighbour already picked, which keeps links pointing in different
+     * directions; remaining slots are filled with the closest skipped candidates.
+     */
+    private int[] selectNeighbors(List<Neighbor> candidates, int max) {
+        if (candidates.size() <= max) {
+            return candidates.stream().mapToInt(Neighbor::id).toArray();
+        }
+        List<Integer> selected = new ArrayList<>(max);
+        List<Integer> skipped = new ArrayList<>();
+        for (Neighbor candidate : candidates) {
+            if (selected.size() == max) {
+                break;
+            }
+            float[] vector = decode(candidate.id());
+            boolean diverse = true;
+            for (int i = 0; i < selected.size() && diverse; i++) {
+                diverse = similarity(vector, selected.get(i)) < candidate.similarity();
+            }
+            if (diverse) {
+                selected.add(candidate.id());
+            } else {
+                skipped.add(candidate.id());
+            }
+        }
+        for (int i = 0; i < skipped.size() && selected.size() < max; i++) {
+            selected.add(skipped.get(i));
+        }
+        return selected.stream().mapToInt(Integer::intValue).toArray();
+    }
+
+    /**
+     * Adds a link from node to neighbour, pruning node's links if it has too many
+     */
+    private void link(int node, int neighbor, int level) {
+        int[] current = links[node][level];
+        int max = maxLinksOn(level);
+        if (current.length < max) {
+            int[] extended = Arrays.copyOf(current, current.length + 1);
+            extended[current.length] = neighbor;
+            links[node][level] = extended;
+            return;
+        }
+        float[] vector = decode(node);
+        List<Neighbor> candidates = new ArrayList<>(current.length + 1);
+        for (int existing : current) {
+            candidates.add(new Neighbor(existing, similarity(vector, existing)));
+        }
+        candidates.add(new Neighbor(neighbor, similarity(vector, neighbor)));
+        candidates.sort(MOST_SIMILAR_FIRST);
+        links[node][level] = selectNeighbors(candidates, max);
+    }
+
+    private float similarity(float[] unit, int node) {
+        int offset = node * dimensions;
+        float dot = 0f;
+        for (int i = 0; i < dimensions; i++) {
+            dot += unit[i] * codes[offset + i];
+        }
+        return dot / scales[node];
+    }
+
+    /**
+     * Stores a unit vector as bytes scaled so its largest component maps to 127
+     */
+    private void encode(int node, float[] unit) {
+        float maxAbs = 0f;
+        for (float value : unit) {
+            maxAbs = Math.max(maxAbs, Math.abs(value));
+        }
+        float scale = maxAbs > 0 ? 127f / maxAbs : 1f;
+        int offset = node * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            codes[offset + i] = (byte) Math.round(unit[i] * scale);
+        }
+        scales[node] = scale;
+    }
+
+    private float[] decode(int node) {
+        float[] vector = new float[dimensions];
+        int offset = node * dimensions;
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = codes[offset + i] / scales[node];
+        }
+        return vector;
+    }
+
+    private float[] normalize(float[] vector) {
+        if (vector.length != dimensions) {
+            throw new IllegalArgumentException(
+                "Expected a vector of " + dimensions + " dimensions but got " + vector.length
+            );
+        }
+        double norm = 0;
+        for (float value : vector) {
+            norm += value * value;
+        }
+        float inverse = norm > 0 ? (float) (1.0 / Math.sqrt(norm)) : 0f;
+        float[] unit = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            unit[i] = vector[i] * inverse;
+        }
+        return unit;
+    }
+
+    private void ensureCapacity(int nodes) {
+        if (nodes <= links.length) {
+            return;
+        }
+        int capacity = Math.max(nodes, links.length + (links.length >> 1));
+        codes = Arrays.copyOf(codes, capacity * dimensions);
+        scales = Arrays.copyOf(scales, capacity);
+        links = Arrays.copyOf(links, capacity);
+    }
+}
@@ -0,0 +1,42 @@
+package com.ollama.olama.search;
+
+import java.util.List;
+
+/**
+ * A range of consecutive doc ids of the full-text index with their terms and postings. Segments never
+ * overlap, so queries can be evaluated on each one independently.
+ */
+interface IndexSegment {
+
+    /**
+     * Doc id of the segment's first message
+     */
+    int docBase();
+
+    /**
+     * Number of messages in the segment
+     */
+    int docCount();
+
+    /**
+     * Gets the postings of a term
+     * @return a cursor before the first message, or null if no message in the segment has the term
+     */
+    Postings.Cursor postings(String term);
+
+    /**
+     * Gets the postings of every term that starts with a prefix
+     * @param maxTerms stop after this many terms
+     */
+    List<Postings.Cursor> postingsWithPrefix(String prefix, int maxTerms);
+
+    /**
+     * Conversation ordinal of a message in the index's conversation table
+     */
+    int conversationOf(int doc);
+
+    /**
+     * Position of a message in its conversation
+     */
+    int messageIndexOf(int doc);
+}
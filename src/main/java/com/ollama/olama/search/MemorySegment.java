@@ -0,0 +1,139 @@
+package com.ollama.olama.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * The segment new messages are added to. Postings are encoded as they arrive, in the same format the
+ * on-disk segments use, so writing it out copies them unchanged. Not thread-safe; the index guards it.
+ */
+final class MemorySegment implements IndexSegment {
+
+    /** Rough per-term cost of the map entry, key and buffer headers */
+    private static final int TERM_OVERHEAD_BYTES = 96;
+
+    private final int docBase;
+    private final NavigableMap<String, TermPostings> terms = new TreeMap<>();
+    private int[] conversations = new int[256];
+    private int[] messageIndexes = new int[256];
+    private int docCount;
+    private long heapBytes;
+
+    /**
+     * A term's encoded postings and where the last message left off
+     */
+    static final class TermPostings {
+
+        final Postings.Buffer buffer = new Postings.Buffer(8);
+        int docFreq;
+        int lastDoc;
+
+        TermPostings(int docBase) {
+            this.lastDoc = docBase;
+        }
+    }
+
+    MemorySegment(int docBase) {
+        this.docBase = docBase;
+    }
+
+    /**
+     * Adds a message as the next doc id
+     * @param tokens the message's terms in order
+     * @return the message's doc id
+     */
+    int add(int conversation, int messageIndex, List<String> tokens) {
+        int doc = docBase + docCount;
+        if (docCount == conversations.length) {
+            conversations = Arrays.copyOf(conversations, docCount * 2);
+            messageIndexes = Arrays.copyOf(messageIndexes, docCount * 2);
+        }
+        conversations[docCount] = conversation;
+        messageIndexes[docCount] = messageIndex;
+        docCount++;
+
+        Map<String, List<Integer>> positions = new HashMap<>();
+        for (int i = 0; i < tokens.size(); i++) {
+            positions.computeIfAbsent(tokens.get(i), term -> new ArrayList<>()).add(i);
+        }
+        for (Map.Entry<String, List<Integer>> entry : positions.entrySet()) {
+            TermPostings postings = terms.get(entry.getKey());
+            if (postings == null) {
+                postings = new TermPostings(docBase);
+                terms.put(entry.getKey(), postings);
+                heapBytes += TERM_OVERHEAD_BYTES + 2L * entry.getKey().length();
+            }
+            int before = postings.buffer.capacity();
+            postings.buffer.writeVarInt(doc - postings.lastDoc);
+            postings.buffer.writeVarInt(entry.getValue().size());
+            int previous = 0;
+            for (int position : entry.getValue()) {
+                postings.buffer.writeVarInt(position - previous);
+                previous = position;
+            }
+            postings.docFreq++;
+            postings.lastDoc = doc;
+            heapBytes += postings.buffer.capacity() - before;
+        }
+        heapBytes += 8;
+        return doc;
+    }
+
+    /**
+     * Approximate heap used, for deciding when to write the segment out
+     */
+    long heapBytes() {
+        return heapBytes;
+    }
+
+    /**
+     * Terms in the order the map keeps them; SegmentWriter sorts them into byte order
+     */
+    Map<String, TermPostings> terms() {
+        return terms;
+    }
+
+    @Override
+    public int docBase() {
+        return docBase;
+    }
+
+    @Override
+    public int docCount() {
+        return docCount;
+    }
+
+    @Override
+    public Postings.Cursor postings(String term) {
+        TermPostings postings = terms.get(term);
+        return postings == null ? null : new Postings.Cursor(postings.buffer.view(), postings.docFreq, docBase);
+    }
+
+    @Override
+    public List<Postings.Cursor> postingsWithPrefix(String prefix, int maxTerms) {
+        List<Postings.Cursor> cursors = new ArrayList<>();
+        for (Map.Entry<String, TermPostings> entry : terms.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix) || cursors.size() == maxTerms) {
+                break;
+            }
+            TermPostings postings = entry.getValue();
+            cursors.add(new Postings.Cursor(postings.buffer.view(), postings.docFreq, docBase));
+        }
+        return cursors;
+    }
+
+    @Override
+    public int conversationOf(int doc) {
+        return conversations[doc - docBase];
+    }
+
+    @Override
+    public int messageIndexOf(int doc) {
+        return messageIndexes[doc - docBase];
+    }
+}
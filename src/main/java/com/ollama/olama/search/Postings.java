@@ -0,0 +1,153 @@
+package com.ollama.olama.search;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Encoding of a term's posting list, shared by the in-memory and on-disk segments. For each message
+ * containing the term, in increasing doc id order: the doc id as a delta from the previous one (the
+ * first from the segment's doc base), the number of occurrences, then each token position as a delta
+ * from the previous one. All numbers are variable-length ints, so most take one byte.
+ */
+final class Postings {
+
+    private Postings() {
+    }
+
+    /**
+     * Growable byte array that postings are encoded into
+     */
+    static final class Buffer {
+
+        private byte[] bytes;
+        private int length;
+
+        Buffer(int capacity) {
+            bytes = new byte[Math.max(capacity, 8)];
+        }
+
+        void writeVarInt(int value) {
+            if (length + 5 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + 5));
+            }
+            while ((value & ~0x7F) != 0) {
+                bytes[length++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            bytes[length++] = (byte) value;
+        }
+
+        void writeBytes(byte[] source) {
+            if (length + source.length > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + source.length));
+            }
+            System.arraycopy(source, 0, bytes, length, source.length);
+            length += source.length;
+        }
+
+        int length() {
+            return length;
+        }
+
+        int capacity() {
+            return bytes.length;
+        }
+
+        void clear() {
+            length = 0;
+        }
+
+        /**
+         * Read-only view of the bytes written so far
+         */
+        ByteBuffer view() {
+            return ByteBuffer.wrap(bytes, 0, length).slice().asReadOnlyBuffer();
+        }
+
+        void writeTo(OutputStream out) throws IOException {
+            out.write(bytes, 0, length);
+        }
+    }
+
+    static int readVarInt(ByteBuffer in) {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            byte b = in.get();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalStateException("Malformed variable-length int");
+    }
+
+    /**
+     * Walks one term's postings a message at a time
+     */
+    static final class Cursor {
+
+        private final ByteBuffer in;
+        private int remaining;
+        private int doc;
+        private int freq;
+        private boolean positionsRead = true;
+
+        /**
+         * @param in the encoded postings, starting at the first message
+         * @param docFreq the number of messages that contain the term
+         * @param docBase the doc id the first delta is relative to
+         */
+        Cursor(ByteBuffer in, int docFreq, int docBase) {
+            this.in = in;
+            this.remaining = docFreq;
+            this.doc = docBase;
+        }
+
+        /**
+         * Moves to the next message, skipping the positions of the current one if they were not read
+         * @return false when there are no more messages
+         */
+        boolean next() {
+            if (!positionsRead) {
+                for (int i = 0; i < freq; i++) {
+                    readVarInt(in);
+                }
+            }
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            doc += readVarInt(in);
+            freq = readVarInt(in);
+            positionsRead = false;
+            return true;
+        }
+
+        int doc() {
+            return doc;
+        }
+
+        int freq() {
+            return freq;
+        }
+
+        /**
+         * Decodes the current message's token positions in increasing order; callable once per message
+         */
+        int[] positions() {
+            if (positionsRead) {
+                throw new IllegalStateException("Positions of doc " + doc + " were already read");
+            }
+            int[] positions = new int[freq];
+            int position = 0;
+            for (int i = 0; i < freq; i++) {
+                position += readVarInt(in);
+                positions[i] = position;
+            }
+            positionsRead = true;
+            return positions;
+        }
+    }
+}
@@ -0,0 +1,228 @@
+package com.ollama.olama.search;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Writes the files of a DiskSegment, either from a MemorySegment or by merging adjacent segments.
+ * Terms must be added in byte order; everything is streamed, so merging large segments needs no more
+ * heap than the postings of one term.
+ */
+final class SegmentWriter implements AutoCloseable {
+
+    static final int TERMS_PER_BLOCK = 32;
+
+    /** Segments over this size are never merged further, keeping every file mappable */
+    static final long MAX_SEGMENT_BYTES = 512L * 1024 * 1024;
+
+    private final Path directory;
+    private final int id;
+    private final int docBase;
+    private final DataOutputStream postings;
+    private final DataOutputStream terms;
+    private final DataOutputStream docs;
+    private final Postings.Buffer block = new Postings.Buffer(1024);
+    private final Postings.Buffer termPostings = new Postings.Buffer(1024);
+    private byte[] previousTerm = new byte[0];
+    private int blockTerms;
+    private long postingsOffset = DiskSegment.FILE_HEADER_BYTES;
+    private long previousOffset;
+    private int termDocFreq;
+    private int termLastDoc;
+    private boolean finished;
+
+    private SegmentWriter(Path directory, int id, int docBase) throws IOException {
+        this.directory = directory;
+        this.id = id;
+        this.postings = open(DiskSegment.postingsFile(directory, id));
+        this.terms = open(DiskSegment.termsFile(directory, id));
+        this.docs = open(DiskSegment.docsFile(directory, id));
+        docs.writeInt(docBase);
+        this.docBase = docBase;
+        this.termLastDoc = docBase;
+    }
+
+    private static DataOutputStream open(Path file) throws IOException {
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file), 64 * 1024));
+        out.writeInt(DiskSegment.MAGIC);
+        out.writeInt(DiskSegment.VERSION);
+        return out;
+    }
+
+    /**
+     * Writes a memory segment out; its postings are copied as they are
+     */
+    static DiskSegment write(MemorySegment segment, Path directory, int id) throws IOException {
+        List<Map.Entry<byte[], MemorySegment.TermPostings>> sorted = new ArrayList<>(segment.terms().size());
+        for (Map.Entry<String, MemorySegment.TermPostings> entry : segment.terms().entrySet()) {
+            sorted.add(Map.entry(entry.getKey().getBytes(StandardCharsets.UTF_8), entry.getValue()));
+        }
+        // UTF-8 byte order, which can differ from String order for characters outside the BMP
+        sorted.sort(Map.Entry.comparingByKey(Arrays::compareUnsigned));
+
+        try (SegmentWriter writer = new SegmentWriter(directory, id, segment.docBase())) {
+            for (int doc = segment.docBase(); doc < segment.docBase() + segment.docCount(); doc++) {
+                writer.addDoc(segment.conversationOf(doc), segment.messageIndexOf(doc));
+            }
+            for (Map.Entry<byte[], MemorySegment.TermPostings> entry : sorted) {
+                MemorySegment.TermPostings postings = entry.getValue();
+                writer.addTerm(entry.getKey(), postings.docFreq, postings.buffer);
+            }
+            writer.finish();
+        }
+        return DiskSegment.open(directory, id);
+    }
+
+    /**
+     * Merges segments covering consecutive doc ids into one
+     * @param segments in doc id order
+     */
+    static DiskSegment merge(List<DiskSegment> segments, Path directory, int id) throws IOException {
+        record Head(DiskSegment.TermIterator terms, int order) {}
+        Comparator<Head> byTerm = (a, b) -> {
+            int comparison = a.terms().compareTo(b.terms());
+            return comparison != 0 ? comparison : Integer.compare(a.order(), b.order());
+        };
+        PriorityQueue<Head> heads = new PriorityQueue<>(byTerm);
+        for (int i = 0; i < segments.size(); i++) {
+            DiskSegment.TermIterator iterator = segments.get(i).terms();
+            if (iterator.next()) {
+                heads.add(new Head(iterator, i));
+            }
+        }
+
+        try (SegmentWriter writer = new SegmentWriter(directory, id, segments.get(0).docBase())) {
+            for (DiskSegment segment : segments) {
+                for (int doc = segment.docBase(); doc < segment.docBase() + segment.docCount(); doc++) {
+                    writer.addDoc(segment.conversationOf(doc), segment.messageIndexOf(doc));
+                }
+            }
+            List<Head> same = new ArrayList<>();
+            while (!heads.isEmpty()) {
+                Head first = heads.poll();
+                byte[] term = first.terms().term();
+                same.add(first);
+                while (!heads.isEmpty() && heads.peek().terms().compareTo(first.terms()) == 0) {
+                    same.add(heads.poll());
+                }
+                // Equal terms come out in segment order, so doc ids keep increasing
+                for (Head head : same) {
+                    Postings.Cursor cursor = head.terms().cursor();
+                    while (cursor.next()) {
+                        writer.addPosting(cursor.doc(), cursor.positions());
+                    }
+                }
+                writer.finishTerm(term);
+                for (Head head : same) {
+                    if (head.terms().next()) {
+                        heads.add(head);
+                    }
+                }
+                same.clear();
+            }
+            writer.finish();
+        }
+        return DiskSegment.open(directory, id);
+    }
+
+    private void addDoc(int conversation, int messageIndex) throws IOException {
+        docs.writeInt(conversation);
+        docs.writeInt(messageIndex);
+    }
+
+    /**
+     * Adds a term with postings that are already encoded
+     */
+    private void addTerm(byte[] term, int docFreq, Postings.Buffer encoded) throws IOException {
+        encoded.writeTo(postings);
+        addTermEntry(term, docFreq, encoded.length());
+    }
+
+    /**
+     * Adds one message to the postings of the term being merged
+     */
+    private void addPosting(int doc, int[] positions) {
+        termPostings.writeVarInt(doc - termLastDoc);
+        termPostings.writeVarInt(positions.length);
+        int previous = 0;
+        for (int position : positions) {
+            termPostings.writeVarInt(position - previous);
+            previous = position;
+        }
+        termLastDoc = doc;
+        termDocFreq++;
+    }
+
+    private void finishTerm(byte[] term) throws IOException {
+        addTerm(term, termDocFreq, termPostings);
+        termPostings.clear();
+        termDocFreq = 0;
+        termLastDoc = docBase;
+    }
+
+    private void addTermEntry(byte[] term, int docFreq, int postingsLength) throws IOException {
+        if (postingsOffset + postingsLength > Integer.MAX_VALUE) {
+            throw new IOException("Segment " + id + " is too large");
+        }
+        if (blockTerms == TERMS_PER_BLOCK) {
+            flushBlock();
+        }
+        int shared = blockTerms == 0 ? 0 : Arrays.mismatch(previousTerm, term);
+        if (shared < 0) {
+            throw new IOException("Term added twice to segment " + id);
+        }
+        block.writeVarInt(shared);
+        block.writeVarInt(term.length - shared);
+        block.writeBytes(Arrays.copyOfRange(term, shared, term.length));
+        block.writeVarInt(docFreq);
+        block.writeVarInt((int) (postingsOffset - (blockTerms == 0 ? 0 : previousOffset)));
+        previousTerm = term;
+        previousOffset = postingsOffset;
+        postingsOffset += postingsLength;
+        blockTerms++;
+    }
+
+    private void flushBlock() throws IOException {
+        if (blockTerms == 0) {
+            return;
+        }
+        terms.writeInt(block.length());
+        block.writeTo(terms);
+        block.clear();
+        blockTerms = 0;
+    }
+
+    private void finish() throws IOException {
+        flushBlock();
+        postings.close();
+        terms.close();
+        docs.close();
+        finished = true;
+    }
+
+    /**
+     * Deletes the files of a segment that could not be finished
+     */
+    @Override
+    public void close() throws IOException {
+        if (finished) {
+            return;
+        }
+        postings.close();
+        terms.close();
+        docs.close();
+        Files.deleteIfExists(DiskSegment.postingsFile(directory, id));
+        Files.deleteIfExists(DiskSegment.termsFile(directory, id));
+        Files.deleteIfExists(DiskSegment.docsFile(directory, id));
+    }
+}
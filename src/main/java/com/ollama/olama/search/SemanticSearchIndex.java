@@ -0,0 +1,564 @@
+package com.ollama.olama.search;
+
+import com.ollama.olama.manager.ConversationLibrary;
+import com.ollama.olama.manager.ConversationListener;
+import com.ollama.olama.manager.ConversationPages;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.ConversationSummary;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Semantic search over conversation messages. Messages are embedded through Ollama in batches and their
+ * vectors kept in an HnswIndex, so a query costs one embedding plus a graph search regardless of how
+ * many messages are indexed.
+ * <p>
+ * Registered as a ConversationListener, it queues every user and assistant message as it is added and embeds
+ * the queue once it holds a full batch or has waited briefly. The index is saved to one file a while after it
+ * changes and on close(); messages still queued at that point are indexed again when their conversation is
+ * next loaded or by indexLibrary, which also catches up on conversations saved before the index existed.
+ * A file built with a different embedding model is ignored.
+ */
+public class SemanticSearchIndex implements ConversationListener, AutoCloseable {
+
+    static final int BATCH_SIZE = 32;
+    static final Duration BATCH_DELAY = Duration.ofSeconds(2);
+    static final Duration SAVE_DELAY = Duration.ofSeconds(30);
+    static final Duration RETRY_DELAY = Duration.ofSeconds(30);
+    /** Queued messages at which indexLibrary waits for them to be embedded */
+    static final int BACKFILL_QUEUE = 4 * BATCH_SIZE;
+
+    private static final int MAGIC = 0x53454D31;
+    private static final int MAX_EMBED_CHARS = 8_000;
+    private static final int EXCERPT_CHARS = 300;
+    private static final int MIN_EF_SEARCH = 64;
+
+    private final Path file;
+    private final String model;
+    private final Function<List<String>, CompletableFuture<List<float[]>>> embedder;
+    private final ScheduledExecutorService scheduler;
+    private final Executor executor;
+
+    /** Held while vectors are added or the index is written, so a save never sees half a batch */
+    private final Object writeLock = new Object();
+    /** Node id i describes documents.get(i); guarded by itself */
+    private final List<Document> documents = new ArrayList<>();
+    private volatile HnswIndex vectors;
+
+    // Guarded by this
+    private final ArrayDeque<Document> pending = new ArrayDeque<>();
+    private final Map<String, BitSet> known = new HashMap<>();
+    private CompletableFuture<Void> batchInFlight;
+    private ScheduledFuture<?> batchTimer;
+    private ScheduledFuture<?> saveTimer;
+    private boolean dirty;
+    private boolean closed;
+
+    /**
+     * A message matching a query
+     * @param messageIndex the message's position in its conversation
+     * @param excerpt the beginning of the message
+     * @param score cosine similarity to the query; higher is closer
+     */
+    public record Hit(
+        String conversationId,
+        int messageIndex,
+        String role,
+        LocalDateTime timestamp,
+        String excerpt,
+        float score
+    ) {}
+
+    private record Document(
+        String conversationId,
+        int messageIndex,
+        String role,
+        LocalDateTime timestamp,
+        String excerpt,
+        String text
+    ) {
+
+        /**
+         * Drops the text to embed, which is only needed while the message is queued
+         */
+        Document withoutText() {
+            return new Document(conversationId, messageIndex, role, timestamp, excerpt, null);
+        }
+    }
+
+    /**
+     * Opens the index, loading it from file if it was built with the same model
+     * @param file where the index is saved
+     * @param model the embedding model
+     * @param embedder embeds a batch of texts, returning one vector per text in order
+     * @param scheduler runs the batch and save timers
+     * @param executor runs saves, which can take a while for large indexes
+     */
+    public SemanticSearchIndex(Path file, String model,
+                               Function<List<String>, CompletableFuture<List<float[]>>> embedder,
+                               ScheduledExecutorService scheduler, Executor executor) {
+        this.file = file;
+        this.model = model;
+        this.embedder = embedder;
+        this.scheduler = scheduler;
+        this.executor = executor;
+        readFile();
+    }
+
+    public String model() {
+        return model;
+    }
+
+    /**
+     * Gets the number of messages that can be found
+     */
+    public int size() {
+        synchronized (documents) {
+            return documents.size();
+        }
+    }
+
+    /**
+     * Gets the number of messages waiting to be embedded
+     */
+    public synchronized int pendingCount() {
+        return pending.size();
+    }
+
+    @Override
+    public void messageAdded(String conversationId, int index, ChatMessage message) {
+        synchronized (this) {
+            enqueue(conversationId, index, message);
+        }
+        scheduleBatch();
+    }
+
+    @Override
+    public void conversationLoaded(String conversationId, List<ChatMessage> messages) {
+        indexConversation(conversationId, messages);
+    }
+
+    /**
+     * Queues the messages of a saved conversation that are not indexed yet
+     */
+    public void indexConversation(String conversationId, List<ChatMessage> messages) {
+        synchronized (this) {
+            for (int i = 0; i < messages.size(); i++) {
+                enqueue(conversationId, i, messages.get(i));
+            }
+        }
+        scheduleBatch();
+    }
+
+    /**
+     * Queues the messages of every saved conversation that are not indexed yet, reading each conversation
+     * a page at a time. Waits for the queue to be embedded whenever it holds a few batches, so a long history
+     * is never in memory at once. Blocks until done, so run it in the background; if embedding fails it stops
+     * and the remaining conversations are picked up by the next call.
+     */
+    public void indexLibrary(ConversationLibrary library) {
+        for (ConversationSummary summary : library.list()) {
+            synchronized (this) {
+                if (closed) {
+                    return;
+                }
+                BitSet indexed = known.get(summary.id());
+                if (indexed != null && indexed.nextClearBit(0) >= summary.messageCount()) {
+                    continue;
+                }
+            }
+            try (ConversationPages pages = library.openPages(summary.id())) {
+                for (int page = 0; page < pages.pageCount(); page++) {
+                    List<ChatMessage> messages = pages.page(page);
+                    int first = page * ConversationPages.PAGE_SIZE;
+                    synchronized (this) {
+                        for (int i = 0; i < messages.size(); i++) {
+                            enqueue(summary.id(), first + i, messages.get(i));
+                        }
+                    }
+                    if (pendingCount() >= BACKFILL_QUEUE) {
+                        flush().join();
+                    }
+                }
+            } catch (IOException e) {
+                System.err.println("Failed to index conversation " + summary.id() + " for search: " + e.getMessage());
+            } catch (CompletionException e) {
+                System.err.println("Failed to embed saved conversations for search: " + e.getMessage());
+                return;
+            }
+        }
+        scheduleBatch();
+    }
+
+    /**
+     * Finds the messages closest in meaning to a query
+     * @param limit the maximum number of hits
+     * @return CompletableFuture with the hits, best first
+     */
+    public CompletableFuture<List<Hit>> search(String query, int limit) {
+        if (query == null || query.isBlank() || vectors == null) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        return embedder.apply(List.of(truncate(query, MAX_EMBED_CHARS)))
+            .thenApply(embedded -> search(embedded.get(0), limit));
+    }
+
+    /**
+     * Finds the messages closest to an embedded query
+     */
+    public List<Hit> search(float[] query, int limit) {
+        HnswIndex index = vectors;
+        if (index == null || query.length != index.dimensions()) {
+            return List.of();
+        }
+        List<HnswIndex.Neighbor> neighbors = index.search(query, limit, Math.max(MIN_EF_SEARCH, limit));
+        List<Hit> hits = new ArrayList<>(neighbors.size());
+        synchronized (documents) {
+            for (HnswIndex.Neighbor neighbor : neighbors) {
+                // A node added by a batch that is still being applied has no document yet
+                if (neighbor.id() < documents.size()) {
+                    Document document = documents.get(neighbor.id());
+                    hits.add(new Hit(document.conversationId(), document.messageIndex(), document.role(),
+                        document.timestamp(), document.excerpt(), neighbor.similarity()));
+                }
+            }
+        }
+        return hits;
+    }
+
+    /**
+     * Embeds every queued message now
+     * @return CompletableFuture that completes when the queue is empty, or fails if a batch could not be embedded
+     */
+    public synchronized CompletableFuture<Void> flush() {
+        if (batchInFlight != null) {
+            return batchInFlight.thenCompose(ignored -> flush());
+        }
+        if (pending.isEmpty() || closed) {
+            return CompletableFuture.completedFuture(null);
+        }
+        return startBatch().thenCompose(ignored -> flush());
+    }
+
+    /**
+     * Stops the timers and saves the index if it changed
+     */
+    @Override
+    public void close() {
+        synchronized (this) {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            cancel(batchTimer);
+            cancel(saveTimer);
+        }
+        save();
+    }
+
+    /**
+     * Writes the index to its file now
+     */
+    public void save() {
+        synchronized (this) {
+            if (!dirty) {
+                return;
+            }
+            dirty = false;
+        }
+        boolean saved = false;
+        synchronized (writeLock) {
+            try {
+                writeFile();
+                saved = true;
+            } catch (IOException e) {
+                System.err.println("Failed to save semantic index to " + file + ": " + e.getMessage());
+            }
+        }
+        if (!saved) {
+            synchronized (this) {
+                dirty = true;
+            }
+        }
+    }
+
+    private void enqueue(String conversationId, int index, ChatMessage message) {
+        if (closed || !isSearchable(message)) {
+            return;
+        }
+        BitSet indexed = known.computeIfAbsent(conversationId, id -> new BitSet());
+        if (indexed.get(index)) {
+            return;
+        }
+        indexed.set(index);
+        pending.add(new Document(conversationId, index, message.role(), message.timestamp(),
+            excerpt(message.content()), truncate(message.content(), MAX_EMBED_CHARS)));
+    }
+
+    private static boolean isSearchable(ChatMessage message) {
+        return ("user".equals(message.role()) || "assistant".equals(message.role()))
+            && message.content() != null && !message.content().isBlank();
+    }
+
+    /**
+     * Starts a batch right away once a full one is queued, otherwise after a short wait for more messages
+     */
+    private void scheduleBatch() {
+        synchronized (this) {
+            if (closed || pending.isEmpty() || batchInFlight != null) {
+                return;
+            }
+            if (pending.size() < BATCH_SIZE) {
+                if (batchTimer == null) {
+                    batchTimer = schedule(BATCH_DELAY, () -> {
+                        synchronized (this) {
+                            batchTimer = null;
+                        }
+                        drainInBackground();
+                    });
+                }
+                return;
+            }
+        }
+        try {
+            // Serializing a batch takes a moment; keep it off the caller's thread, which is often the FX thread
+            executor.execute(this::drainInBackground);
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+        }
+    }
+
+    private void drainInBackground() {
+        flush().exceptionally(throwable -> {
+            System.err.println("Failed to embed messages for search: " + throwable.getMessage());
+            return null;
+        });
+    }
+
+    /**
+     * Embeds the next batch. On failure the batch goes back to the front of the queue and is retried later.
+     */
+    private synchronized CompletableFuture<Void> startBatch() {
+        List<Document> batch = new ArrayList<>(BATCH_SIZE);
+        while (batch.size() < BATCH_SIZE && !pending.isEmpty()) {
+            batch.add(pending.poll());
+        }
+        CompletableFuture<Void> done = new CompletableFuture<>();
+        batchInFlight = done;
+
+        CompletableFuture<List<float[]>> embedding;
+        try {
+            embedding = embedder.apply(batch.stream().map(Document::text).toList());
+        } catch (RuntimeException e) {
+            embedding = CompletableFuture.failedFuture(e);
+        }
+        embedding.whenComplete((embedded, throwable) -> {
+            if (throwable == null) {
+                apply(batch, embedded);
+            }
+            synchronized (this) {
+                // Cleared before completing so callbacks that flush again start the next batch
+                batchInFlight = null;
+                if (throwable == null) {
+                    dirty = true;
+                    scheduleSave();
+                } else {
+                    for (int i = batch.size() - 1; i >= 0; i--) {
+                        pending.addFirst(batch.get(i));
+                    }
+                    scheduleRetry();
+                }
+            }
+            if (throwable == null) {
+                done.complete(null);
+            } else {
+                done.completeExceptionally(throwable);
+            }
+        });
+        return done;
+    }
+
+    /**
+     * Adds the embedded batch to the index. Messages without a usable vector are forgotten, so they are
+     * queued again the next time their conversation is indexed.
+     */
+    private void apply(List<Document> batch, List<float[]> embedded) {
+        List<Document> skipped = new ArrayList<>();
+        synchronized (writeLock) {
+            for (int i = 0; i < batch.size(); i++) {
+                if (i >= embedded.size()) {
+                    skipped.add(batch.get(i));
+                    continue;
+                }
+                float[] vector = embedded.get(i);
+                HnswIndex index = vectors;
+                if (index == null) {
+                    index = new HnswIndex(vector.length);
+                    vectors = index;
+                }
+                if (vector.length != index.dimensions()) {
+                    System.err.println("Skipping embedding with " + vector.length + " dimensions; the index has "
+                        + index.dimensions());
+                    skipped.add(batch.get(i));
+                    continue;
+                }
+                index.add(vector);
+                synchronized (documents) {
+                    documents.add(batch.get(i).withoutText());
+                }
+            }
+        }
+        if (!skipped.isEmpty()) {
+            synchronized (this) {
+                for (Document document : skipped) {
+                    known.get(document.conversationId()).clear(document.messageIndex());
+                }
+            }
+        }
+    }
+
+    private void scheduleSave() {
+        if (saveTimer == null && !closed) {
+            saveTimer = schedule(SAVE_DELAY, () -> {
+                synchronized (this) {
+                    saveTimer = null;
+                }
+                save();
+            });
+        }
+    }
+
+    private void scheduleRetry() {
+        if (batchTimer == null && !closed) {
+            batchTimer = schedule(RETRY_DELAY, () -> {
+                synchronized (this) {
+                    batchTimer = null;
+                }
+                drainInBackground();
+            });
+        }
+    }
+
+    /**
+     * Runs a task on the executor after a delay; the scheduler thread only hands it over
+     */
+    private ScheduledFuture<?> schedule(Duration delay, Runnable task) {
+        try {
+            return scheduler.schedule(() -> executor.execute(task), delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+            return null;
+        }
+    }
+
+    private static void cancel(ScheduledFuture<?> timer) {
+        if (timer != null) {
+            timer.cancel(false);
+        }
+    }
+
+    private void writeFile() throws IOException {
+        HnswIndex index = vectors;
+        if (index == null) {
+            return;
+        }
+        Files.createDirectories(file.getParent());
+        // Write a temporary file and move it so a crash never leaves a half-written index
+        Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp)))) {
+            out.writeInt(MAGIC);
+            out.writeUTF(model);
+            List<Document> snapshot;
+            synchronized (documents) {
+                snapshot = List.copyOf(documents);
+            }
+            out.writeInt(snapshot.size());
+            for (Document document : snapshot) {
+                out.writeUTF(document.conversationId());
+                out.writeInt(document.messageIndex());
+                out.writeUTF(document.role());
+                out.writeLong(document.timestamp() != null
+                    ? document.timestamp().toInstant(ZoneOffset.UTC).toEpochMilli()
+                    : Long.MIN_VALUE);
+                out.writeUTF(document.excerpt());
+            }
+            index.writeTo(out);
+        }
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void readFile() {
+        if (!Files.isReadable(file)) {
+            return;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            if (in.readInt() != MAGIC || !model.equals(in.readUTF())) {
+                // Vectors from another model are not comparable with new ones
+                return;
+            }
+            int count = in.readInt();
+            List<Document> loaded = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String conversationId = in.readUTF();
+                int messageIndex = in.readInt();
+                String role = in.readUTF();
+                long millis = in.readLong();
+                LocalDateTime timestamp = millis != Long.MIN_VALUE
+                    ? LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneOffset.UTC)
+                    : null;
+                loaded.add(new Document(conversationId, messageIndex, role, timestamp, in.readUTF(), null));
+            }
+            HnswIndex index = HnswIndex.readFrom(in);
+            if (index.size() != loaded.size()) {
+                throw new IOException("Index has " + index.size() + " vectors for " + loaded.size() + " messages");
+            }
+            synchronized (this) {
+                for (Document document : loaded) {
+                    known.computeIfAbsent(document.conversationId(), id -> new BitSet()).set(document.messageIndex());
+                }
+            }
+            synchronized (documents) {
+                documents.addAll(loaded);
+            }
+            vectors = index;
+        } catch (IOException e) {
+            System.err.println("Failed to load semantic index from " + file + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the start of a message on one line, for showing in a result list
+     */
+    private static String excerpt(String content) {
+        return truncate(content.strip().replaceAll("\\s+", " "), EXCERPT_CHARS);
+    }
+
+    private static String truncate(String text, int maxChars) {
+        return text.length() <= maxChars ? text : text.substring(0, maxChars);
+    }
+}
@@ -0,0 +1,128 @@
+package com.ollama.olama.service;
+
+import java.net.http.HttpClient;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+/**
+ * Application-wide async infrastructure: one HttpClient whose connections are reused by every
+ * service (plus one per other connect timeout in use, since HttpClient fixes it per client),
+ * a virtual-thread executor for blocking work and a single scheduler thread for timers.
+ * Windows open a TaskScope so their outstanding work is cancelled when they close, and
+ * the application calls close() on exit so no thread or connection outlives it.
+ */
+public final class AsyncRuntime implements AutoCloseable {
+
+    public static final Duration DEFAULT_CONNECT_TIMEOUT = Duration.ofSeconds(10);
+
+    private static AsyncRuntime shared;
+
+    private final ExecutorService executor;
+    private final ScheduledExecutorService scheduler;
+    private final HttpClient httpClient;
+    private final Map<Duration, HttpClient> clientsByConnectTimeout = new ConcurrentHashMap<>();
+    private final Set<TaskScope> scopes = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    public AsyncRuntime() {
+        this.executor = Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name("ollama-task-", 0).factory());
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("ollama-scheduler").daemon().factory()
+        );
+        this.httpClient = newHttpClient(DEFAULT_CONNECT_TIMEOUT);
+        clientsByConnectTimeout.put(DEFAULT_CONNECT_TIMEOUT, httpClient);
+    }
+
+    /**
+     * Gets the runtime shared by the whole application, creating it on first use
+     */
+    public static synchronized AsyncRuntime shared() {
+        if (shared == null || shared.closed) {
+            shared = new AsyncRuntime();
+        }
+        return shared;
+    }
+
+    /**
+     * Closes the shared runtime if it was ever created
+     */
+    public static synchronized void shutdownShared() {
+        if (shared != null) {
+            shared.close();
+            shared = null;
+        }
+    }
+
+    public HttpClient httpClient() {
+        return httpClient;
+    }
+
+    /**
+     * Gets the client that gives up connecting after the given time, creating it on first use
+     */
+    public HttpClient httpClient(Duration connectTimeout) {
+        return clientsByConnectTimeout.computeIfAbsent(connectTimeout, this::newHttpClient);
+    }
+
+    private HttpClient newHttpClient(Duration connectTimeout) {
+        return HttpClient.newBuilder()
+            .connectTimeout(connectTimeout)
+            .executor(executor)
+            .build();
+    }
+
+    /**
+     * Gets the executor for blocking work; every task runs on its own virtual thread
+     */
+    public ExecutorService executor() {
+        return executor;
+    }
+
+    /**
+     * Gets the scheduler for delays and periodic checks; tasks must be short or hand off to executor()
+     */
+    public ScheduledExecutorService scheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Opens a scope for work that belongs to one window or session
+     */
+    public TaskScope openScope() {
+        TaskScope scope = new TaskScope(this);
+        scopes.add(scope);
+        if (closed) {
+            scope.close();
+        }
+        return scope;
+    }
+
+    void scopeClosed(TaskScope scope) {
+        scopes.remove(scope);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Cancels all scopes, aborts open HTTP exchanges and stops all threads
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        List.copyOf(scopes).forEach(TaskScope::close);
+        scheduler.shutdownNow();
+        clientsByConnectTimeout.values().forEach(HttpClient::shutdownNow);
+        executor.shutdownNow();
+    }
+}
@@ -3,6 +3,7 @@ package com.ollama.olama.service;
 import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.ollama.olama.diagnostics.AuthenticationEvent;
 import com.ollama.olama.model.LoginSession;
 import com.ollama.olama.model.User;
 
@@ -10,9 +11,6 @@ import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.security.MessageDigest;
-import java.security.NoSuchAlgorithmException;
-import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
@@ -23,20 +21,18 @@ import java.util.concurrent.ConcurrentHashMap;
 public class AuthenticationServiceImpl implements AuthenticationService {
     
     private static final String USERS_FILE = "ollama-chat-users.json";
-    private static final String SALT_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
-    private static final int SALT_LENGTH = 16;
     
     private final Path usersFilePath;
     private final ObjectMapper objectMapper;
     private final Map<String, User> users;
-    private final SecureRandom random;
+    private final PasswordHasher passwordHasher;
     
     public AuthenticationServiceImpl() {
         this.usersFilePath = Paths.get(System.getProperty("user.home"), ".ollama-chat", USERS_FILE);
         this.objectMapper = new ObjectMapper();
         this.objectMapper.registerModule(new JavaTimeModule());
         this.users = new ConcurrentHashMap<>();
-        this.random = new SecureRandom();
+        this.passwordHasher = new PasswordHasher();
         
         // Create directory if it doesn't exist
         try {
@@ -51,6 +47,21 @@ public class AuthenticationServiceImpl implements AuthenticationService {
     
     @Override
     public Optional<LoginSession> authenticate(String username, String password) {
+        AuthenticationEvent event = new AuthenticationEvent();
+        event.begin();
+        
+        Optional<LoginSession> session = doAuthenticate(username, password);
+        
+        event.end();
+        if (event.shouldCommit()) {
+            event.username = username;
+            event.success = session.isPresent();
+            event.commit();
+        }
+        return session;
+    }
+    
+    private Optional<LoginSession> doAuthenticate(String username, String password) {
         if (username == null || password == null || username.trim().isEmpty()) {
             return Optional.empty();
         }
@@ -60,7 +71,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             return Optional.empty();
         }
         
-        if (verifyPassword(password, user.passwordHash())) {
+        if (passwordHasher.verify(password, user.passwordHash())) {
             // Update last login time
             User updatedUser = user.withLastLogin(LocalDateTime.now());
             users.put(username.toLowerCase(), updatedUser);
@@ -82,7 +93,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             throw AuthenticationException.userAlreadyExists(username);
         }
         
-        String passwordHash = hashPassword(password);
+        String passwordHash = passwordHasher.hash(password);
         User user = new User(username, passwordHash, role, LocalDateTime.now(), null, true);
         
         users.put(normalizedUsername, user);
@@ -101,7 +112,7 @@ public class AuthenticationServiceImpl implements AuthenticationService {
             throw AuthenticationException.userNotFound(username);
         }
         
-        String newPasswordHash = hashPassword(newPassword);
+        String newPasswordHash = passwordHasher.hash(newPassword);
         User updatedUser = user.withPasswordHash(newPasswordHash);
         users.put(normalizedUsername, updatedUser);
         saveUsers();
@@ -216,47 +227,6 @@ public class AuthenticationServiceImpl implements AuthenticationService {
         }
     }
     
-    private String hashPassword(String password) {
-        String salt = generateSalt();
-        return salt + ":" + hashWithSalt(password, salt);
-    }
-    
-    private boolean verifyPassword(String password, String storedHash) {
-        if (storedHash == null || !storedHash.contains(":")) {
-            return false;
-        }
-        
-        String[] parts = storedHash.split(":", 2);
-        String salt = parts[0];
-        String hash = parts[1];
-        
-        return hash.equals(hashWithSalt(password, salt));
-    }
-    
-    private String generateSalt() {
-        StringBuilder salt = new StringBuilder(SALT_LENGTH);
-        for (int i = 0; i < SALT_LENGTH; i++) {
-            salt.append(SALT_CHARS.charAt(random.nextInt(SALT_CHARS.length())));
-        }
-        return salt.toString();
-    }
-    
-    private String hashWithSalt(String password, String salt) {
-        try {
-            MessageDigest md = MessageDigest.getInstance("SHA-256");
-            md.update((salt + password).getBytes());
-            byte[] hashedBytes = md.digest();
-            
-            StringBuilder sb = new StringBuilder();
-            for (byte b : hashedBytes) {
-                sb.append(String.format("%02x", b));
-            }
-            return sb.toString();
-        } catch (NoSuchAlgorithmException e) {
-            throw new RuntimeException("SHA-256 algorithm not available", e);
-        }
-    }
-    
     private long countActiveAdmins() {
         return users.values().stream()
                 .filter(user -> user.isAdmin() && user.isActive())
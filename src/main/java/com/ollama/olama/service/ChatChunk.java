@@ -0,0 +1,40 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
+
+/**
+ * One typed piece of a streamed chat response, as published by ChatStream.
+ */
+public sealed interface ChatChunk {
+
+    /**
+     * Text of the answer
+     */
+    record Content(String text) implements ChatChunk {
+    }
+
+    /**
+     * Reasoning text of a thinking model, sent before the answer
+     */
+    record Thinking(String text) implements ChatChunk {
+    }
+
+    /**
+     * A function the model wants to call
+     * @param argumentsJson the arguments object as JSON text
+     */
+    record ToolCall(String name, String argumentsJson) implements ChatChunk {
+    }
+
+    /**
+     * Last chunk of a successful response
+     * @param message the complete assistant message with timing and server counters
+     */
+    record Done(ChatMessage message) implements ChatChunk {
+
+        public GenerationStats stats() {
+            return message.stats();
+        }
+    }
+}
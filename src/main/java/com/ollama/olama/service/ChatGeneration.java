@@ -0,0 +1,119 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.ChatMessage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Handle for an in-flight chat generation returned by OllamaService.sendChatMessage.
+ * Cancelling it aborts the HTTP exchange and closes the response body, which ends the
+ * body subscription and closes the connection so Ollama stops generating right away.
+ */
+public class ChatGeneration {
+
+    private final CompletableFuture<ChatMessage> result = new CompletableFuture<>();
+    private volatile CompletableFuture<?> exchange;
+    private volatile InputStream body;
+    private volatile boolean cancelled;
+    private volatile boolean released;
+
+    /**
+     * Gets the future that completes with the assistant message when streaming finishes.
+     * It completes with a CancellationException if the generation is cancelled.
+     */
+    public CompletableFuture<ChatMessage> result() {
+        return result;
+    }
+
+    /**
+     * Cancels the generation and releases the underlying HTTP stream
+     * @return true if this call cancelled the generation, false if it had already finished
+     */
+    public boolean cancel() {
+        synchronized (this) {
+            if (cancelled || result.isDone()) {
+                return false;
+            }
+            cancelled = true;
+        }
+
+        // Settle the result first so failures caused by the abort below are ignored
+        result.cancel(false);
+        release();
+        return true;
+    }
+
+    /**
+     * Ends the generation with an error, e.g. because the stream stalled, and releases the HTTP stream
+     * @return true if this call ended the generation, false if it had already finished
+     */
+    boolean abort(Throwable reason) {
+        synchronized (this) {
+            if (cancelled || result.isDone()) {
+                return false;
+            }
+            // Settled inside the lock so a concurrent cancel() cannot also claim the generation
+            result.completeExceptionally(reason);
+        }
+        release();
+        return true;
+    }
+
+    private void release() {
+        released = true;
+        CompletableFuture<?> pendingExchange = exchange;
+        if (pendingExchange != null) {
+            pendingExchange.cancel(true);
+        }
+        InputStream openBody = body;
+        if (openBody != null) {
+            closeQuietly(openBody);
+        }
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    public boolean isDone() {
+        return result.isDone();
+    }
+
+    /**
+     * Registers the HTTP exchange so it can be aborted before the response arrives
+     */
+    void attachExchange(CompletableFuture<?> exchange) {
+        this.exchange = exchange;
+        if (released) {
+            exchange.cancel(true);
+        }
+    }
+
+    /**
+     * Registers the response body so it can be closed while streaming
+     */
+    void attachBody(InputStream body) {
+        this.body = body;
+        if (released) {
+            closeQuietly(body);
+        }
+    }
+
+    void complete(ChatMessage message) {
+        result.complete(message);
+    }
+
+    void fail(Throwable throwable) {
+        result.completeExceptionally(throwable);
+    }
+
+    private static void closeQuietly(InputStream stream) {
+        try {
+            stream.close();
+        } catch (IOException ignored) {
+            // The stream is being abandoned either way
+        }
+    }
+}
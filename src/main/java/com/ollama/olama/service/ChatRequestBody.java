@@ -0,0 +1,77 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.model.ChatMessage;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executor;
+import java.util.function.LongConsumer;
+
+/**
+ * Writes the JSON body of streaming /api/chat requests straight from the messages, without
+ * building maps or a string of the whole body first; the whole conversation is resent on every turn.
+ */
+public final class ChatRequestBody {
+
+    private ChatRequestBody() {
+    }
+
+    /**
+     * Creates a publisher that writes the body while the HTTP client sends it
+     * @param objectMapper serializes the model options
+     * @param model the model name
+     * @param messages the messages to send, in order; must not change while the request is sent
+     * @param keepAlive the keep-alive to send in Ollama's format, or null to use the server default
+     * @param options model options such as temperature and seed; omitted when empty
+     * @param executor runs the writer, see StreamingBodyPublisher
+     * @param onWritten called with the body size each time the body has been written completely
+     */
+    public static StreamingBodyPublisher publisher(ObjectMapper objectMapper, String model, List<ChatMessage> messages,
+                                                   String keepAlive, Map<String, Object> options,
+                                                   Executor executor, LongConsumer onWritten) {
+        return new StreamingBodyPublisher(out -> {
+            try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)) {
+                write(generator, model, messages, keepAlive, options);
+            }
+        }, executor, StreamingBodyPublisher.DEFAULT_CHUNK_SIZE, onWritten);
+    }
+
+    /**
+     * Writes the request body as one JSON object
+     * @param generator needs an ObjectMapper as codec when options are given
+     * @param model the model name
+     * @param messages the messages to send, in order
+     * @param keepAlive the keep-alive to send in Ollama's format, or null to use the server default
+     * @param options model options such as temperature and seed; omitted when empty
+     */
+    public static void write(JsonGenerator generator, String model, List<ChatMessage> messages, String keepAlive,
+                             Map<String, Object> options) throws IOException {
+        generator.writeStartObject();
+        generator.writeStringField("model", model);
+        generator.writeArrayFieldStart("messages");
+        for (ChatMessage message : messages) {
+            // Only role and content; timestamps and stats are local bookkeeping
+            generator.writeStartObject();
+            generator.writeStringField("role", message.role());
+            generator.writeStringField("content", message.content());
+            generator.writeEndObject();
+        }
+        generator.writeEndArray();
+        generator.writeBooleanField("stream", true);
+        if (keepAlive != null) {
+            Object value = WarmModelTracker.toApiValue(keepAlive);
+            if (value instanceof Long seconds) {
+                generator.writeNumberField("keep_alive", seconds);
+            } else {
+                generator.writeStringField("keep_alive", (String) value);
+            }
+        }
+        if (options != null && !options.isEmpty()) {
+            generator.writeObjectField("options", options);
+        }
+        generator.writeEndObject();
+    }
+}
@@ -0,0 +1,145 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.diagnostics.ChatCompletionEvent;
+import com.ollama.olama.diagnostics.ChatConnectEvent;
+import com.ollama.olama.diagnostics.ChatFirstByteEvent;
+import com.ollama.olama.diagnostics.ChatFirstTokenEvent;
+import com.ollama.olama.diagnostics.ChatRequestBuildEvent;
+import com.ollama.olama.model.GenerationStats;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Emits the JFR events for one chat request as it moves through its stages.
+ * When no recording has the events enabled, begin/commit are no-ops and the body is not wrapped.
+ * Stages are reported in order, each from whichever thread is handling the request at that point.
+ */
+final class ChatRequestTrace {
+
+    private final String model;
+    private final ChatRequestBuildEvent build = new ChatRequestBuildEvent();
+    private final ChatConnectEvent connect = new ChatConnectEvent();
+    private final ChatFirstByteEvent firstByte = new ChatFirstByteEvent();
+    private final ChatFirstTokenEvent firstToken = new ChatFirstTokenEvent();
+    private final ChatCompletionEvent completion = new ChatCompletionEvent();
+    private volatile int messageCount;
+    private boolean bodyRecorded;
+    private boolean firstByteSeen;
+    private long tokens;
+    private long bytesReceived;
+
+    ChatRequestTrace(String model) {
+        this.model = model;
+        build.begin();
+        completion.begin();
+    }
+
+    /**
+     * The request is about to be sent; its body is written while it is sent
+     */
+    void requestStarted(int messageCount) {
+        this.messageCount = messageCount;
+        connect.begin();
+        firstByte.begin();
+        firstToken.begin();
+    }
+
+    /**
+     * The request body has been written completely. Recorded once, even when the body is sent
+     * again to another node.
+     */
+    synchronized void bodyWritten(long bodyBytes) {
+        if (bodyRecorded) {
+            return;
+        }
+        bodyRecorded = true;
+        build.end();
+        if (build.shouldCommit()) {
+            build.model = model;
+            build.messageCount = messageCount;
+            build.bodyBytes = bodyBytes;
+            build.commit();
+        }
+    }
+
+    void headersReceived(int statusCode) {
+        connect.end();
+        if (connect.shouldCommit()) {
+            connect.model = model;
+            connect.statusCode = statusCode;
+            connect.commit();
+        }
+    }
+
+    /**
+     * Wraps the response body so the first byte and the total size are recorded
+     */
+    InputStream trace(InputStream body) {
+        if (!firstByte.isEnabled() && !completion.isEnabled()) {
+            return body;
+        }
+        return new FilterInputStream(body) {
+            @Override
+            public int read() throws IOException {
+                int b = super.read();
+                if (b >= 0) {
+                    bytesRead(1);
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] buffer, int offset, int length) throws IOException {
+                int n = super.read(buffer, offset, length);
+                if (n > 0) {
+                    bytesRead(n);
+                }
+                return n;
+            }
+        };
+    }
+
+    void tokenDecoded() {
+        if (tokens++ == 0) {
+            firstToken.end();
+            if (firstToken.shouldCommit()) {
+                firstToken.model = model;
+                firstToken.commit();
+            }
+        }
+    }
+
+    /**
+     * The request is over
+     * @param outcome one of the ChatCompletionEvent outcome constants
+     * @param stats the server counters if the response completed, otherwise null
+     */
+    void finished(String outcome, GenerationStats stats) {
+        completion.end();
+        if (completion.shouldCommit()) {
+            completion.model = model;
+            completion.outcome = outcome;
+            completion.tokenCount = tokens;
+            completion.bytesReceived = bytesReceived;
+            if (stats != null) {
+                completion.promptEvalCount = stats.promptEvalCount();
+                completion.evalCount = stats.evalCount();
+            }
+            completion.commit();
+        }
+    }
+
+    private void bytesRead(int count) {
+        bytesReceived += count;
+        if (!firstByteSeen) {
+            firstByteSeen = true;
+            firstByte.end();
+            if (firstByte.shouldCommit()) {
+                firstByte.model = model;
+                firstByte.commit();
+            }
+        }
+    }
+}
@@ -0,0 +1,268 @@
+package com.ollama.olama.service;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Reactive view of one chat response, returned by OllamaService.streamChat.
+ * <p>
+ * Every subscriber gets its own buffer of up to bufferSize chunks and receives them on its own
+ * virtual thread, only as far as it has requested. When any subscriber's buffer is full the HTTP
+ * reader waits, so a slow consumer slows the stream down instead of piling up chunks or being flooded.
+ * <p>
+ * Nothing is sent until connect() is called; subscribe everything that must see the whole response first.
+ * Subscribers that join later receive the chunks published after they joined. A successful response ends
+ * with a ChatChunk.Done and onComplete; a failure or cancellation is signalled with onError right away,
+ * dropping chunks still buffered.
+ */
+public final class ChatStream implements Flow.Publisher<ChatChunk> {
+
+    public static final int DEFAULT_BUFFER_SIZE = 64;
+
+    private final int bufferSize;
+    private final Executor executor;
+    private final Function<ChatStream, ChatGeneration> start;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition spaceAvailable = lock.newCondition();
+    private final List<ChunkSubscription> subscriptions = new ArrayList<>();
+    private boolean completed;
+    private Throwable failure;
+    private ChatGeneration generation;
+
+    /**
+     * @param executor runs one delivery loop per subscriber
+     * @param start sends the request and publishes its chunks to this stream
+     */
+    ChatStream(int bufferSize, Executor executor, Function<ChatStream, ChatGeneration> start) {
+        if (bufferSize <= 0) {
+            throw new IllegalArgumentException("Buffer size must be positive");
+        }
+        this.bufferSize = bufferSize;
+        this.executor = executor;
+        this.start = start;
+    }
+
+    /**
+     * Sends the chat request; later calls return the same generation
+     * @return the generation, which can be cancelled and whose result completes with the full message
+     */
+    public synchronized ChatGeneration connect() {
+        if (generation == null) {
+            generation = start.apply(this);
+        }
+        return generation;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChatChunk> subscriber) {
+        Objects.requireNonNull(subscriber, "subscriber");
+        ChunkSubscription subscription = new ChunkSubscription(subscriber);
+        lock.lock();
+        try {
+            subscriptions.add(subscription);
+        } finally {
+            lock.unlock();
+        }
+        try {
+            executor.execute(subscription::deliver);
+        } catch (RejectedExecutionException e) {
+            // The runtime is shutting down; the subscriber still gets a terminal signal
+            subscription.cancel();
+            subscriber.onSubscribe(subscription);
+            subscriber.onError(e);
+        }
+    }
+
+    /**
+     * Hands a chunk to every subscriber, waiting while any of them has a full buffer.
+     * Returns without publishing once the stream has ended.
+     */
+    void publish(ChatChunk chunk) {
+        lock.lock();
+        try {
+            while (!isTerminated() && anyBufferFull()) {
+                spaceAvailable.awaitUninterruptibly();
+            }
+            if (isTerminated()) {
+                return;
+            }
+            for (ChunkSubscription subscription : subscriptions) {
+                subscription.enqueue(chunk);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Publishes the final chunk, even past a full buffer, and completes every subscriber after it
+     */
+    void complete(ChatChunk.Done done) {
+        lock.lock();
+        try {
+            if (isTerminated()) {
+                return;
+            }
+            for (ChunkSubscription subscription : subscriptions) {
+                subscription.enqueue(done);
+            }
+            completed = true;
+            spaceAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Ends the stream with an error, which subscribers receive without waiting for buffered chunks
+     */
+    void fail(Throwable throwable) {
+        lock.lock();
+        try {
+            if (isTerminated()) {
+                return;
+            }
+            failure = throwable;
+            for (ChunkSubscription subscription : subscriptions) {
+                subscription.buffer.clear();
+                subscription.ready.signal();
+            }
+            spaceAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private boolean isTerminated() {
+        return completed || failure != null;
+    }
+
+    private boolean anyBufferFull() {
+        for (ChunkSubscription subscription : subscriptions) {
+            if (subscription.buffer.size() >= bufferSize) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * One subscriber's buffer and demand. All fields are guarded by the stream's lock.
+     */
+    private final class ChunkSubscription implements Flow.Subscription {
+
+        private final Flow.Subscriber<? super ChatChunk> subscriber;
+        private final ArrayDeque<ChatChunk> buffer = new ArrayDeque<>();
+        private final Condition ready = lock.newCondition();
+        private long demand;
+        private boolean cancelled;
+        private Throwable invalidRequest;
+
+        ChunkSubscription(Flow.Subscriber<? super ChatChunk> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            lock.lock();
+            try {
+                if (n <= 0) {
+                    // Rule 3.9: signal onError and leave the demand as it is
+                    if (invalidRequest == null) {
+                        invalidRequest = new IllegalArgumentException("Requested " + n + " chunks; must be positive");
+                    }
+                    ready.signal();
+                    return;
+                }
+                demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                ready.signal();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                subscriptions.remove(this);
+                buffer.clear();
+                ready.signal();
+                spaceAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void enqueue(ChatChunk chunk) {
+            buffer.add(chunk);
+            ready.signal();
+        }
+
+        /**
+         * Delivery loop, run on its own thread: waits for demand and chunks, then signals outside the lock
+         */
+        void deliver() {
+            subscriber.onSubscribe(this);
+            while (true) {
+                ChatChunk next;
+                Throwable error = null;
+                lock.lock();
+                try {
+                    while (!cancelled && invalidRequest == null && failure == null
+                            && (buffer.isEmpty() || demand == 0) && !(completed && buffer.isEmpty())) {
+                        ready.awaitUninterruptibly();
+                    }
+                    if (cancelled) {
+                        return;
+                    }
+                    if (invalidRequest != null || failure != null) {
+                        error = invalidRequest != null ? invalidRequest : failure;
+                        cancelled = true;
+                        subscriptions.remove(this);
+                        buffer.clear();
+                        spaceAvailable.signalAll();
+                        next = null;
+                    } else if (buffer.isEmpty()) {
+                        // Completed and fully drained
+                        cancelled = true;
+                        subscriptions.remove(this);
+                        next = null;
+                    } else {
+                        next = buffer.poll();
+                        demand--;
+                        spaceAvailable.signalAll();
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                if (error != null) {
+                    subscriber.onError(error);
+                    return;
+                }
+                if (next == null) {
+                    subscriber.onComplete();
+                    return;
+                }
+                try {
+                    subscriber.onNext(next);
+                } catch (RuntimeException e) {
+                    // A subscriber that throws is broken; stop delivering to it without stalling the others
+                    cancel();
+                    subscriber.onError(e);
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,225 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.util.function.Consumer;
+
+/**
+ * Streaming decoder for the NDJSON body returned by /api/chat.
+ * Reads chunks straight off a Jackson JsonParser so no line Strings or JsonNode trees
+ * are created per token; only the message content itself is materialized.
+ * Besides the answer text it can report thinking text and tool calls as typed ChatChunks.
+ * A decoder instance holds the state of a single response and is not thread-safe.
+ */
+public class ChatStreamDecoder {
+
+    private final JsonFactory jsonFactory;
+
+    private boolean done;
+    private String doneReason;
+    private String error;
+    private long totalDurationNanos;
+    private long loadDurationNanos;
+    private long promptEvalCount;
+    private long promptEvalDurationNanos;
+    private long evalCount;
+    private long evalDurationNanos;
+
+    public ChatStreamDecoder(JsonFactory jsonFactory) {
+        this.jsonFactory = jsonFactory;
+    }
+
+    /**
+     * Decodes the stream until end of input, passing every non-empty message.content
+     * to onContent as soon as its chunk has been read.
+     *
+     * @param in the response body; it is not closed by this method
+     * @param onContent callback for each content token
+     * @return true if a chunk with done:true was seen
+     * @throws IOException if the stream cannot be read or is not valid JSON
+     */
+    public boolean decode(InputStream in, Consumer<String> onContent) throws IOException {
+        return decodeChunks(in, chunk -> {
+            if (chunk instanceof ChatChunk.Content content) {
+                onContent.accept(content.text());
+            }
+        });
+    }
+
+    /**
+     * Decodes the stream until end of input, passing every non-empty content and thinking text
+     * and every tool call to onChunk as soon as its chunk has been read.
+     * The final stats are not emitted; read them from the getters afterwards.
+     *
+     * @param in the response body; it is not closed by this method
+     * @param onChunk callback for each Content, Thinking or ToolCall chunk
+     * @return true if a chunk with done:true was seen
+     * @throws IOException if the stream cannot be read or is not valid JSON
+     */
+    public boolean decodeChunks(InputStream in, Consumer<ChatChunk> onChunk) throws IOException {
+        try (JsonParser parser = jsonFactory.createParser(in)) {
+            parser.disable(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+            // Keep reading after done:true so the body is drained and the connection can be reused
+            JsonToken token;
+            while ((token = parser.nextToken()) != null) {
+                if (token == JsonToken.START_OBJECT) {
+                    readChunk(parser, onChunk);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        return done;
+    }
+
+    /**
+     * Reads the fields of one top-level chunk object
+     */
+    private void readChunk(JsonParser parser, Consumer<ChatChunk> onChunk) throws IOException {
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken value = parser.nextToken();
+
+            switch (field) {
+                case "message" -> readMessage(parser, value, onChunk);
+                case "done" -> done = value == JsonToken.VALUE_TRUE;
+                case "done_reason" -> doneReason = value == JsonToken.VALUE_STRING ? parser.getText() : null;
+                case "error" -> error = value == JsonToken.VALUE_STRING ? parser.getText() : "Unknown error";
+                case "total_duration" -> totalDurationNanos = readLong(parser, value);
+                case "load_duration" -> loadDurationNanos = readLong(parser, value);
+                case "prompt_eval_count" -> promptEvalCount = readLong(parser, value);
+                case "prompt_eval_duration" -> promptEvalDurationNanos = readLong(parser, value);
+                case "eval_count" -> evalCount = readLong(parser, value);
+                case "eval_duration" -> evalDurationNanos = readLong(parser, value);
+                default -> parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads the nested message object and emits its content, thinking text and tool calls
+     */
+    private void readMessage(JsonParser parser, JsonToken value, Consumer<ChatChunk> onChunk) throws IOException {
+        if (value != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            return;
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.currentName();
+            JsonToken fieldValue = parser.nextToken();
+
+            if ("content".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                if (parser.getTextLength() > 0) {
+                    onChunk.accept(new ChatChunk.Content(parser.getText()));
+                }
+            } else if ("thinking".equals(field) && fieldValue == JsonToken.VALUE_STRING) {
+                if (parser.getTextLength() > 0) {
+                    onChunk.accept(new ChatChunk.Thinking(parser.getText()));
+                }
+            } else if ("tool_calls".equals(field) && fieldValue == JsonToken.START_ARRAY) {
+                readToolCalls(parser, onChunk);
+            } else {
+                parser.skipChildren();
+            }
+        }
+    }
+
+    /**
+     * Reads a tool_calls array of {"function": {"name": ..., "arguments": {...}}} entries
+     */
+    private void readToolCalls(JsonParser parser, Consumer<ChatChunk> onChunk) throws IOException {
+        JsonToken element;
+        while ((element = parser.nextToken()) != JsonToken.END_ARRAY) {
+            if (element != JsonToken.START_OBJECT) {
+                parser.skipChildren();
+                continue;
+            }
+            String name = null;
+            String arguments = "{}";
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.currentName();
+                JsonToken value = parser.nextToken();
+                if (!"function".equals(field) || value != JsonToken.START_OBJECT) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                    String functionField = parser.currentName();
+                    JsonToken functionValue = parser.nextToken();
+                    if ("name".equals(functionField) && functionValue == JsonToken.VALUE_STRING) {
+                        name = parser.getText();
+                    } else if ("arguments".equals(functionField)) {
+                        arguments = copyAsJson(parser);
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+            }
+            if (name != null) {
+                onChunk.accept(new ChatChunk.ToolCall(name, arguments));
+            }
+        }
+    }
+
+    /**
+     * Copies the value at the parser's current token, e.g. a nested object, to JSON text
+     */
+    private String copyAsJson(JsonParser parser) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = jsonFactory.createGenerator(json)) {
+            generator.copyCurrentStructure(parser);
+        }
+        return json.toString();
+    }
+
+    private static long readLong(JsonParser parser, JsonToken value) throws IOException {
+        return value != null && value.isNumeric() ? parser.getLongValue() : 0L;
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    public String getDoneReason() {
+        return doneReason;
+    }
+
+    /**
+     * Gets the error reported in-stream by Ollama, or null if none was sent
+     */
+    public String getError() {
+        return error;
+    }
+
+    public long getTotalDurationNanos() {
+        return totalDurationNanos;
+    }
+
+    public long getLoadDurationNanos() {
+        return loadDurationNanos;
+    }
+
+    public long getPromptEvalCount() {
+        return promptEvalCount;
+    }
+
+    public long getPromptEvalDurationNanos() {
+        return promptEvalDurationNanos;
+    }
+
+    public long getEvalCount() {
+        return evalCount;
+    }
+
+    public long getEvalDurationNanos() {
+        return evalDurationNanos;
+    }
+}
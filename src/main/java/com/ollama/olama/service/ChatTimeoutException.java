@@ -0,0 +1,41 @@
+package com.ollama.olama.service;
+
+import java.time.Duration;
+
+/**
+ * OllamaException of type TIMEOUT that also tells which phase of the chat stalled.
+ */
+public class ChatTimeoutException extends OllamaException {
+
+    private final ChatTimeouts.Phase phase;
+
+    public ChatTimeoutException(ChatTimeouts.Phase phase, Duration limit) {
+        this(phase, limit, null);
+    }
+
+    public ChatTimeoutException(ChatTimeouts.Phase phase, Duration limit, Throwable cause) {
+        super(Type.TIMEOUT, message(phase, limit), cause);
+        this.phase = phase;
+    }
+
+    public ChatTimeouts.Phase getPhase() {
+        return phase;
+    }
+
+    private static String message(ChatTimeouts.Phase phase, Duration limit) {
+        return switch (phase) {
+            case CONNECT -> "Could not connect to Ollama within " + format(limit) + ".";
+            case FIRST_TOKEN -> "Ollama did not start answering within " + format(limit)
+                + ". The model may still be loading or stuck.";
+            case IDLE -> "Ollama stopped sending tokens for " + format(limit) + ". The response was cut off.";
+        };
+    }
+
+    static String format(Duration duration) {
+        long seconds = duration.toSeconds();
+        if (seconds == 0) {
+            return duration.toMillis() + "ms";
+        }
+        return seconds % 60 == 0 ? seconds / 60 + "m" : seconds + "s";
+    }
+}
@@ -0,0 +1,48 @@
+package com.ollama.olama.service;
+
+import java.time.Duration;
+
+/**
+ * Deadlines for the phases of a streamed chat. A response has no overall time limit:
+ * it may run as long as tokens keep arriving.
+ * @param connect time allowed to open the connection to a node
+ * @param firstToken time allowed from sending the request until the first token, including model loading
+ * @param idle longest allowed gap between two chunks once tokens are flowing
+ */
+public record ChatTimeouts(Duration connect, Duration firstToken, Duration idle) {
+
+    public static final ChatTimeouts DEFAULTS =
+        new ChatTimeouts(AsyncRuntime.DEFAULT_CONNECT_TIMEOUT, Duration.ofMinutes(2), Duration.ofSeconds(30));
+
+    /**
+     * The phase of a chat that ran out of time
+     */
+    public enum Phase {
+        CONNECT,
+        FIRST_TOKEN,
+        IDLE
+    }
+
+    public ChatTimeouts {
+        requirePositive(connect, "connect");
+        requirePositive(firstToken, "firstToken");
+        requirePositive(idle, "idle");
+    }
+
+    /**
+     * Gets the deadline for a phase
+     */
+    public Duration of(Phase phase) {
+        return switch (phase) {
+            case CONNECT -> connect;
+            case FIRST_TOKEN -> firstToken;
+            case IDLE -> idle;
+        };
+    }
+
+    private static void requirePositive(Duration duration, String name) {
+        if (duration == null || duration.isNegative() || duration.isZero()) {
+            throw new IllegalArgumentException(name + " timeout must be positive");
+        }
+    }
+}
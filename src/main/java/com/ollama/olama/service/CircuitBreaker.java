@@ -0,0 +1,110 @@
+package com.ollama.olama.service;
+
+import java.time.Duration;
+import java.util.function.LongSupplier;
+
+/**
+ * Circuit breaker for calls to Ollama. After a number of consecutive connection failures it opens
+ * and callers fail immediately instead of waiting for connect timeouts. Once the cool-down has
+ * passed it half-opens and lets a single trial call through: success closes it, failure opens it again.
+ * A trial that never reports back is replaced by a new one after another cool-down.
+ */
+public class CircuitBreaker {
+
+    public enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    private final int failureThreshold;
+    private final long coolDownNanos;
+    private final LongSupplier nanoClock;
+
+    private State state = State.CLOSED;
+    private int consecutiveFailures;
+    private long openedAtNanos;
+    private long trialStartedAtNanos;
+    private boolean trialInFlight;
+
+    /**
+     * @param failureThreshold consecutive failures that open the breaker
+     * @param coolDown how long the breaker stays open before allowing a trial call
+     */
+    public CircuitBreaker(int failureThreshold, Duration coolDown) {
+        this(failureThreshold, coolDown, System::nanoTime);
+    }
+
+    CircuitBreaker(int failureThreshold, Duration coolDown, LongSupplier nanoClock) {
+        if (failureThreshold < 1) {
+            throw new IllegalArgumentException("Failure threshold must be at least 1");
+        }
+        this.failureThreshold = failureThreshold;
+        this.coolDownNanos = coolDown.toNanos();
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Checks whether a call may go ahead. In the half-open state only one caller is let through.
+     */
+    public synchronized boolean allowRequest() {
+        long now = nanoClock.getAsLong();
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (now - openedAtNanos < coolDownNanos) {
+                    return false;
+                }
+                state = State.HALF_OPEN;
+                return startTrial(now);
+            default:
+                if (trialInFlight && now - trialStartedAtNanos < coolDownNanos) {
+                    return false;
+                }
+                return startTrial(now);
+        }
+    }
+
+    /**
+     * Records a call that reached Ollama, whatever its HTTP status
+     */
+    public synchronized void recordSuccess() {
+        state = State.CLOSED;
+        consecutiveFailures = 0;
+        trialInFlight = false;
+    }
+
+    /**
+     * Records a call that could not reach Ollama
+     */
+    public synchronized void recordFailure() {
+        consecutiveFailures++;
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || consecutiveFailures >= failureThreshold) {
+            state = State.OPEN;
+            openedAtNanos = nanoClock.getAsLong();
+        }
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    /**
+     * Gets the time until a trial call is allowed, or zero if calls are allowed now
+     */
+    public synchronized Duration getRetryDelay() {
+        if (state != State.OPEN) {
+            return Duration.ZERO;
+        }
+        long remaining = coolDownNanos - (nanoClock.getAsLong() - openedAtNanos);
+        return Duration.ofNanos(Math.max(0, remaining));
+    }
+
+    private boolean startTrial(long now) {
+        trialInFlight = true;
+        trialStartedAtNanos = now;
+        return true;
+    }
+}
@@ -0,0 +1,160 @@
+package com.ollama.olama.service;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.DoubleSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Probes Ollama in the background and publishes the connection state to listeners.
+ * While Ollama is reachable it probes at a steady interval; while it is down the delay doubles
+ * after each failed probe, with random jitter so many clients do not retry in lockstep.
+ */
+public class ConnectionHealthMonitor implements AutoCloseable {
+
+    static final Duration HEALTHY_INTERVAL = Duration.ofSeconds(15);
+    static final Duration BASE_RETRY_DELAY = Duration.ofSeconds(1);
+    static final Duration MAX_RETRY_DELAY = Duration.ofSeconds(30);
+
+    private final Supplier<CompletableFuture<Boolean>> probe;
+    private final ScheduledExecutorService scheduler;
+    private final DoubleSupplier random;
+    private final List<Consumer<ConnectionState>> listeners = new CopyOnWriteArrayList<>();
+
+    private volatile ConnectionState state = ConnectionState.CONNECTING;
+    private int consecutiveFailures;
+    private boolean running;
+    private ScheduledFuture<?> nextProbe;
+    private CompletableFuture<Boolean> probeInFlight;
+
+    /**
+     * @param probe checks reachability; completes with true if Ollama answered
+     * @param scheduler runs the probe timer
+     */
+    public ConnectionHealthMonitor(Supplier<CompletableFuture<Boolean>> probe, ScheduledExecutorService scheduler) {
+        this(probe, scheduler, () -> ThreadLocalRandom.current().nextDouble());
+    }
+
+    ConnectionHealthMonitor(Supplier<CompletableFuture<Boolean>> probe, ScheduledExecutorService scheduler,
+                            DoubleSupplier random) {
+        this.probe = probe;
+        this.scheduler = scheduler;
+        this.random = random;
+    }
+
+    /**
+     * Starts periodic probing with an immediate first probe; does nothing if already running
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        scheduleProbe(Duration.ZERO);
+    }
+
+    /**
+     * Probes right away, sharing a probe that is already running, and reschedules the next one
+     * @return true if Ollama answered
+     */
+    public CompletableFuture<Boolean> probeNow() {
+        CompletableFuture<Boolean> result;
+        synchronized (this) {
+            if (probeInFlight != null) {
+                return probeInFlight;
+            }
+            if (nextProbe != null) {
+                nextProbe.cancel(false);
+                nextProbe = null;
+            }
+            result = new CompletableFuture<>();
+            probeInFlight = result;
+        }
+
+        CompletableFuture<Boolean> check;
+        try {
+            check = probe.get();
+        } catch (RuntimeException e) {
+            check = CompletableFuture.completedFuture(false);
+        }
+        check.exceptionally(throwable -> false).thenAccept(reachable -> {
+            onProbeResult(reachable);
+            result.complete(reachable);
+        });
+        return result;
+    }
+
+    public ConnectionState getState() {
+        return state;
+    }
+
+    /**
+     * Adds a listener for state changes; it is called right away with the current state.
+     * Listeners run on the probing thread and must hand UI work to the UI thread.
+     */
+    public void addListener(Consumer<ConnectionState> listener) {
+        listeners.add(listener);
+        listener.accept(state);
+    }
+
+    public void removeListener(Consumer<ConnectionState> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Stops probing; listeners stay registered but are no longer called
+     */
+    @Override
+    public synchronized void close() {
+        running = false;
+        if (nextProbe != null) {
+            nextProbe.cancel(false);
+            nextProbe = null;
+        }
+    }
+
+    /**
+     * Gets the delay before the next probe after the given number of consecutive failures:
+     * between half and all of BASE_RETRY_DELAY × 2^(failures - 1), capped at MAX_RETRY_DELAY
+     */
+    static Duration retryDelay(int failures, DoubleSupplier random) {
+        long capMillis = Math.min(
+            MAX_RETRY_DELAY.toMillis(),
+            BASE_RETRY_DELAY.toMillis() << Math.min(Math.max(failures - 1, 0), 16)
+        );
+        return Duration.ofMillis(capMillis / 2 + Math.round(random.getAsDouble() * (capMillis / 2)));
+    }
+
+    private void onProbeResult(boolean reachable) {
+        ConnectionState newState = reachable ? ConnectionState.CONNECTED : ConnectionState.DISCONNECTED;
+        synchronized (this) {
+            probeInFlight = null;
+            consecutiveFailures = reachable ? 0 : consecutiveFailures + 1;
+            if (running) {
+                scheduleProbe(reachable ? HEALTHY_INTERVAL : retryDelay(consecutiveFailures, random));
+            }
+        }
+
+        if (newState != state) {
+            state = newState;
+            listeners.forEach(listener -> listener.accept(newState));
+        }
+    }
+
+    private void scheduleProbe(Duration delay) {
+        try {
+            nextProbe = scheduler.schedule(this::probeNow, delay.toMillis(), TimeUnit.MILLISECONDS);
+        } catch (RejectedExecutionException e) {
+            // The application is shutting down
+            running = false;
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.ollama.olama.service;
+
+/**
+ * Reachability of Ollama as last seen by the connection health monitor
+ */
+public enum ConnectionState {
+    /** No probe has finished yet */
+    CONNECTING,
+    /** At least one endpoint answered the last probe */
+    CONNECTED,
+    /** No endpoint answered the last probe */
+    DISCONNECTED
+}
@@ -0,0 +1,257 @@
+package com.ollama.olama.service;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongSupplier;
+
+/**
+ * Set of Ollama nodes that serve the same models, with the client's view of each node's health and load.
+ * <p>
+ * Requests go to the node with the lowest score, (in-flight requests + 1) × recent latency, where latency
+ * is a moving average of the time until the node starts answering a chat. Nodes that already have the
+ * requested model loaded are strongly preferred so requests do not pay for a model load.
+ * A node that refuses connections is skipped for a backoff period that doubles with each failure.
+ */
+public class EndpointPool {
+
+    static final double COLD_MODEL_PENALTY = 4.0;
+    private static final double LATENCY_SMOOTHING = 0.3;
+    private static final long BASE_BACKOFF_NANOS = 1_000_000_000L;
+    private static final long MAX_BACKOFF_NANOS = 30_000_000_000L;
+
+    private final List<Endpoint> endpoints;
+    private final LongSupplier nanoClock;
+
+    /**
+     * @param baseUrls one or more node URLs; duplicates and trailing slashes are removed
+     * @throws IllegalArgumentException if no URL is given or a URL is empty
+     */
+    public EndpointPool(Collection<String> baseUrls) {
+        this(baseUrls, System::nanoTime);
+    }
+
+    EndpointPool(Collection<String> baseUrls, LongSupplier nanoClock) {
+        Set<String> urls = new LinkedHashSet<>();
+        for (String baseUrl : baseUrls) {
+            urls.add(normalize(baseUrl));
+        }
+        if (urls.isEmpty()) {
+            throw new IllegalArgumentException("At least one Ollama endpoint is required");
+        }
+        this.endpoints = urls.stream().map(Endpoint::new).toList();
+        this.nanoClock = nanoClock;
+    }
+
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * Gets the base URLs of all nodes, in configuration order
+     */
+    public List<String> getBaseUrls() {
+        List<String> urls = new ArrayList<>(endpoints.size());
+        endpoints.forEach(endpoint -> urls.add(endpoint.baseUrl()));
+        return urls;
+    }
+
+    public int size() {
+        return endpoints.size();
+    }
+
+    /**
+     * Picks the node for the next request
+     * @param model the model the request uses, or null if the request does not run a model
+     * @param exclude nodes already tried for this request
+     * @return the best available node; if every node is backing off, the one whose backoff ends first;
+     *         null only if every node is excluded
+     */
+    public Endpoint select(String model, Set<Endpoint> exclude) {
+        long now = nanoClock.getAsLong();
+        double fallbackLatency = meanKnownLatency();
+
+        Endpoint best = null;
+        double bestScore = Double.MAX_VALUE;
+        Endpoint soonestRetry = null;
+        for (Endpoint endpoint : endpoints) {
+            if (exclude.contains(endpoint)) {
+                continue;
+            }
+            if (!endpoint.isAvailable(now)) {
+                if (soonestRetry == null || endpoint.retryAtNanos - soonestRetry.retryAtNanos < 0) {
+                    soonestRetry = endpoint;
+                }
+                continue;
+            }
+            double score = score(endpoint, model, fallbackLatency);
+            if (score < bestScore) {
+                best = endpoint;
+                bestScore = score;
+            }
+        }
+        return best != null ? best : soonestRetry;
+    }
+
+    /**
+     * Checks whether any node can be tried now, i.e. is not backing off after a failure
+     */
+    public boolean isAnyAvailable() {
+        long now = nanoClock.getAsLong();
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable(now)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Records that a request was sent to the node
+     */
+    public void requestStarted(Endpoint endpoint) {
+        endpoint.inFlight.incrementAndGet();
+    }
+
+    /**
+     * Records that a request to the node finished, successfully or not
+     */
+    public void requestFinished(Endpoint endpoint) {
+        endpoint.inFlight.decrementAndGet();
+    }
+
+    /**
+     * Records that the node answered a chat request
+     * @param latencyMs time from sending the request until the response started
+     */
+    public void responded(Endpoint endpoint, String model, long latencyMs) {
+        synchronized (endpoint) {
+            endpoint.latencyMs = endpoint.latencyMs < 0
+                ? latencyMs
+                : endpoint.latencyMs + LATENCY_SMOOTHING * (latencyMs - endpoint.latencyMs);
+            endpoint.consecutiveFailures = 0;
+        }
+        if (model != null) {
+            modelLoaded(endpoint, model);
+        }
+    }
+
+    /**
+     * Records that the node has loaded a model, e.g. after a warm-up request
+     */
+    public void modelLoaded(Endpoint endpoint, String model) {
+        synchronized (endpoint) {
+            if (!endpoint.loadedModels.contains(model)) {
+                Set<String> loaded = new LinkedHashSet<>(endpoint.loadedModels);
+                loaded.add(model);
+                endpoint.loadedModels = Set.copyOf(loaded);
+            }
+        }
+    }
+
+    /**
+     * Records a successful health probe
+     * @param loadedModels the models the node reports as loaded in memory
+     */
+    public void probeSucceeded(Endpoint endpoint, Set<String> loadedModels) {
+        synchronized (endpoint) {
+            endpoint.consecutiveFailures = 0;
+            endpoint.loadedModels = Set.copyOf(loadedModels);
+        }
+    }
+
+    /**
+     * Records that the node could not be reached and starts or extends its backoff
+     */
+    public void failed(Endpoint endpoint) {
+        synchronized (endpoint) {
+            int failures = ++endpoint.consecutiveFailures;
+            long backoff = BASE_BACKOFF_NANOS << Math.min(failures - 1, 5);
+            endpoint.retryAtNanos = nanoClock.getAsLong() + Math.min(backoff, MAX_BACKOFF_NANOS);
+        }
+    }
+
+    private static double score(Endpoint endpoint, String model, double fallbackLatency) {
+        double latency = endpoint.latencyMs >= 0 ? endpoint.latencyMs : fallbackLatency;
+        double score = (endpoint.inFlight.get() + 1) * Math.max(latency, 1.0);
+        if (model != null && !endpoint.loadedModels.contains(model)) {
+            score *= COLD_MODEL_PENALTY;
+        }
+        return score;
+    }
+
+    /**
+     * Gets the mean latency of nodes that have answered, so new nodes compete on load alone
+     */
+    private double meanKnownLatency() {
+        double sum = 0;
+        int known = 0;
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.latencyMs >= 0) {
+                sum += endpoint.latencyMs;
+                known++;
+            }
+        }
+        return known > 0 ? sum / known : 1.0;
+    }
+
+    private static String normalize(String baseUrl) {
+        if (baseUrl == null || baseUrl.trim().isEmpty()) {
+            throw new IllegalArgumentException("Base URL cannot be null or empty");
+        }
+        String url = baseUrl.trim();
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * One Ollama node and its current client-side statistics
+     */
+    public static final class Endpoint {
+
+        private final String baseUrl;
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private volatile double latencyMs = -1;
+        private volatile int consecutiveFailures;
+        private volatile long retryAtNanos;
+        private volatile Set<String> loadedModels = Set.of();
+
+        private Endpoint(String baseUrl) {
+            this.baseUrl = baseUrl;
+        }
+
+        public String baseUrl() {
+            return baseUrl;
+        }
+
+        public int inFlight() {
+            return inFlight.get();
+        }
+
+        /**
+         * Gets the smoothed response latency, or -1 if the node has not answered a chat yet
+         */
+        public double latencyMs() {
+            return latencyMs;
+        }
+
+        public int consecutiveFailures() {
+            return consecutiveFailures;
+        }
+
+        public Set<String> loadedModels() {
+            return loadedModels;
+        }
+
+        boolean isAvailable(long nowNanos) {
+            return consecutiveFailures == 0 || nowNanos - retryAtNanos >= 0;
+        }
+
+        @Override
+        public String toString() {
+            return baseUrl;
+        }
+    }
+}
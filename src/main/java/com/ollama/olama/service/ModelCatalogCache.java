@@ -0,0 +1,164 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.model.OllamaModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.LongSupplier;
+import java.util.function.Supplier;
+
+/**
+ * Stale-while-revalidate cache of the model catalog (/api/tags).
+ * The last catalog is kept in memory and optionally in a JSON file, so it can be shown immediately at
+ * startup while a fresh copy is fetched. Concurrent refreshes share one request.
+ * A file written for a different set of endpoints is ignored.
+ */
+public class ModelCatalogCache {
+
+    public static final Duration DEFAULT_TTL = Duration.ofMinutes(5);
+
+    private final Path file;
+    private final String source;
+    private final Duration ttl;
+    private final Supplier<CompletableFuture<List<OllamaModel>>> fetcher;
+    private final LongSupplier millisClock;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final AtomicReference<CompletableFuture<List<OllamaModel>>> inFlight = new AtomicReference<>();
+    private volatile Snapshot snapshot;
+
+    /**
+     * @param file where to persist the catalog, or null to keep it in memory only
+     * @param source identifies the endpoints the catalog comes from
+     * @param ttl how long a fetched catalog counts as fresh
+     * @param fetcher fetches the catalog from Ollama
+     */
+    public ModelCatalogCache(Path file, String source, Duration ttl,
+                             Supplier<CompletableFuture<List<OllamaModel>>> fetcher) {
+        this(file, source, ttl, fetcher, System::currentTimeMillis);
+    }
+
+    ModelCatalogCache(Path file, String source, Duration ttl,
+                      Supplier<CompletableFuture<List<OllamaModel>>> fetcher, LongSupplier millisClock) {
+        this.file = file;
+        this.source = source;
+        this.ttl = ttl;
+        this.fetcher = fetcher;
+        this.millisClock = millisClock;
+        this.snapshot = readFile();
+    }
+
+    /**
+     * Gets the last known catalog without any network access, which may be stale
+     * @return the models, or an empty list if the catalog was never fetched
+     */
+    public List<OllamaModel> getCached() {
+        Snapshot current = snapshot;
+        return current != null ? current.models() : List.of();
+    }
+
+    /**
+     * Checks whether the cached catalog is younger than the TTL
+     */
+    public boolean isFresh() {
+        Snapshot current = snapshot;
+        return current != null && millisClock.getAsLong() - current.fetchedAtMillis() < ttl.toMillis();
+    }
+
+    /**
+     * Gets the catalog, from memory while it is fresh and otherwise from Ollama
+     */
+    public CompletableFuture<List<OllamaModel>> get() {
+        Snapshot current = snapshot;
+        if (current != null && isFresh()) {
+            return CompletableFuture.completedFuture(current.models());
+        }
+        return refresh();
+    }
+
+    /**
+     * Fetches the catalog from Ollama, joining a fetch that is already running
+     */
+    public CompletableFuture<List<OllamaModel>> refresh() {
+        CompletableFuture<List<OllamaModel>> refresh = new CompletableFuture<>();
+        CompletableFuture<List<OllamaModel>> running = inFlight.compareAndExchange(null, refresh);
+        if (running != null) {
+            return running;
+        }
+
+        CompletableFuture<List<OllamaModel>> fetch;
+        try {
+            fetch = fetcher.get();
+        } catch (RuntimeException e) {
+            fetch = CompletableFuture.failedFuture(e);
+        }
+        fetch.whenComplete((models, throwable) -> {
+            if (throwable == null) {
+                store(models);
+            }
+            // Cleared before completing so callbacks that refresh again start a new fetch
+            inFlight.set(null);
+            if (throwable == null) {
+                refresh.complete(models);
+            } else {
+                refresh.completeExceptionally(throwable);
+            }
+        });
+        return refresh;
+    }
+
+    private void store(List<OllamaModel> models) {
+        Snapshot fetched = new Snapshot(source, millisClock.getAsLong(), List.copyOf(models));
+        snapshot = fetched;
+        if (file == null) {
+            return;
+        }
+        try {
+            Files.createDirectories(file.getParent());
+            // Write a temporary file and move it so a crash never leaves a half-written cache
+            Path temp = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+            objectMapper.writeValue(temp.toFile(), fetched);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            System.err.println("Failed to save model catalog to " + file + ": " + e.getMessage());
+        }
+    }
+
+    private Snapshot readFile() {
+        if (file == null || !Files.isReadable(file)) {
+            return null;
+        }
+        try {
+            Snapshot stored = objectMapper.readValue(file.toFile(), Snapshot.class);
+            return source.equals(stored.source()) ? stored : null;
+        } catch (IOException e) {
+            System.err.println("Failed to load model catalog from " + file + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Catalog as stored on disk
+     */
+    record Snapshot(String source, long fetchedAtMillis, List<OllamaModel> models) {
+
+        @JsonCreator
+        Snapshot(
+            @JsonProperty("source") String source,
+            @JsonProperty("fetchedAtMillis") long fetchedAtMillis,
+            @JsonProperty("models") List<OllamaModel> models
+        ) {
+            this.source = source;
+            this.fetchedAtMillis = fetchedAtMillis;
+            this.models = models != null ? List.copyOf(models) : List.of();
+        }
+    }
+}
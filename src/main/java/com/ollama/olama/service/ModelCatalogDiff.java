@@ -0,0 +1,77 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.OllamaModel;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Differences between two model catalogs, matched by model name, so a displayed list can be
+ * patched in place instead of being cleared and refilled.
+ */
+public record ModelCatalogDiff(
+    List<OllamaModel> added,
+    List<OllamaModel> removed,
+    List<OllamaModel> changed
+) {
+
+    /**
+     * Compares the displayed catalog with a newly fetched one
+     */
+    public static ModelCatalogDiff between(List<OllamaModel> current, List<OllamaModel> latest) {
+        Map<String, OllamaModel> before = byName(current);
+        Map<String, OllamaModel> after = byName(latest);
+
+        List<OllamaModel> added = new ArrayList<>();
+        List<OllamaModel> changed = new ArrayList<>();
+        for (OllamaModel model : latest) {
+            OllamaModel previous = before.get(model.name());
+            if (previous == null) {
+                added.add(model);
+            } else if (!previous.equals(model)) {
+                changed.add(model);
+            }
+        }
+        List<OllamaModel> removed = current.stream()
+            .filter(model -> !after.containsKey(model.name()))
+            .toList();
+        return new ModelCatalogDiff(List.copyOf(added), removed, List.copyOf(changed));
+    }
+
+    public boolean isEmpty() {
+        return added.isEmpty() && removed.isEmpty() && changed.isEmpty();
+    }
+
+    /**
+     * Applies the differences to a list sorted by name, keeping it sorted
+     */
+    public void applyTo(List<OllamaModel> target) {
+        if (!removed.isEmpty()) {
+            Set<String> names = removed.stream().map(OllamaModel::name).collect(Collectors.toSet());
+            target.removeIf(model -> names.contains(model.name()));
+        }
+        for (OllamaModel model : changed) {
+            for (int i = 0; i < target.size(); i++) {
+                if (target.get(i).name().equals(model.name())) {
+                    target.set(i, model);
+                    break;
+                }
+            }
+        }
+        for (OllamaModel model : added) {
+            int index = 0;
+            while (index < target.size() && target.get(index).name().compareTo(model.name()) < 0) {
+                index++;
+            }
+            target.add(index, model);
+        }
+    }
+
+    private static Map<String, OllamaModel> byName(List<OllamaModel> models) {
+        return models.stream().collect(Collectors.toMap(OllamaModel::name, Function.identity(), (a, b) -> a));
+    }
+}
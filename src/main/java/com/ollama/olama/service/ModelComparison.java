@@ -0,0 +1,175 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Sends the same conversation to several models and measures each answer, for choosing a model
+ * for a workload. At most maxConcurrent models generate at once so a single Ollama node is not
+ * asked to load and run every model in parallel; the others wait for a free slot in the given order.
+ */
+public final class ModelComparison {
+
+    public static final int DEFAULT_MAX_CONCURRENT = 2;
+
+    /**
+     * Receives progress of a comparison. Calls come from background threads; for one model they are
+     * made in order started, tokens, finished.
+     */
+    public interface Listener {
+
+        void onStarted(String model);
+
+        void onToken(String model, String token);
+
+        void onFinished(Result result);
+    }
+
+    /**
+     * Outcome for one model
+     * @param message the answer, or null if the model failed
+     * @param error why the model failed, or null
+     * @param queuedMs time spent waiting for a free slot before the request was sent
+     * @param timeToFirstTokenMs time from sending the request until the first token, or -1 if none arrived
+     * @param tokensPerSecond generation speed, as reported by Ollama where available
+     * @param totalMs time from sending the request until the answer was complete
+     */
+    public record Result(
+        String model,
+        ChatMessage message,
+        Throwable error,
+        long queuedMs,
+        long timeToFirstTokenMs,
+        double tokensPerSecond,
+        long totalMs
+    ) {
+
+        public boolean succeeded() {
+            return error == null;
+        }
+
+        static Result of(String model, ChatMessage message, long queuedMs) {
+            GenerationStats stats = message.stats();
+            long totalMs = message.generationTimeMs() != null ? message.generationTimeMs() : 0;
+            long timeToFirstTokenMs = stats != null ? stats.timeToFirstTokenMs() : -1;
+            double tokensPerSecond = stats != null ? stats.tokensPerSecond() : 0.0;
+            if (tokensPerSecond == 0.0 && stats != null && stats.evalCount() > 0 && totalMs > timeToFirstTokenMs) {
+                // Servers that send no eval durations: fall back to the client-side streaming rate
+                tokensPerSecond = stats.evalCount() * 1000.0 / (totalMs - Math.max(timeToFirstTokenMs, 0));
+            }
+            return new Result(model, message, null, queuedMs, timeToFirstTokenMs, tokensPerSecond, totalMs);
+        }
+
+        static Result failed(String model, Throwable error, long queuedMs) {
+            return new Result(model, null, error, queuedMs, -1, 0.0, 0);
+        }
+    }
+
+    private final OllamaService ollamaService;
+    private final Executor executor;
+    private final Semaphore slots;
+    private final Set<ChatGeneration> running = ConcurrentHashMap.newKeySet();
+    private volatile boolean cancelled;
+
+    /**
+     * @param executor runs one task per model; tasks block while waiting for a slot, so use virtual threads
+     * @param maxConcurrent how many models may generate at the same time
+     */
+    public ModelComparison(OllamaService ollamaService, Executor executor, int maxConcurrent) {
+        if (maxConcurrent <= 0) {
+            throw new IllegalArgumentException("At least one model must be allowed to run");
+        }
+        this.ollamaService = ollamaService;
+        this.executor = executor;
+        this.slots = new Semaphore(maxConcurrent, true);
+    }
+
+    /**
+     * Starts the comparison
+     * @param models the models to compare, in the order they should get a slot
+     * @param messages the shared history including the new prompt
+     * @return a future with one result per model in the given order; failures are reported per model
+     */
+    public CompletableFuture<List<Result>> run(List<String> models, List<ChatMessage> messages, Listener listener) {
+        return run(models, model -> messages, listener);
+    }
+
+    /**
+     * Starts the comparison with a history built for each model, e.g. trimmed to its own context budget
+     * @param messagesFor gives the history including the new prompt for a model
+     * @return a future with one result per model in the given order; failures are reported per model
+     */
+    public CompletableFuture<List<Result>> run(
+            List<String> models, Function<String, List<ChatMessage>> messagesFor, Listener listener) {
+        List<CompletableFuture<Result>> results = new ArrayList<>(models.size());
+        for (String model : models) {
+            List<ChatMessage> messages = messagesFor.apply(model);
+            results.add(CompletableFuture.supplyAsync(() -> runModel(model, messages, listener), executor));
+        }
+        return CompletableFuture.allOf(results.toArray(CompletableFuture[]::new))
+            .thenApply(ignored -> results.stream().map(CompletableFuture::join).toList());
+    }
+
+    /**
+     * Cancels running generations; models still waiting for a slot finish as cancelled without being sent
+     */
+    public void cancel() {
+        cancelled = true;
+        running.forEach(ChatGeneration::cancel);
+    }
+
+    private Result runModel(String model, List<ChatMessage> messages, Listener listener) {
+        long queuedAt = System.nanoTime();
+        try {
+            slots.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return finish(listener, Result.failed(model, new CancellationException("Comparison interrupted"), 0));
+        }
+        long queuedMs = (System.nanoTime() - queuedAt) / 1_000_000;
+        try {
+            if (cancelled) {
+                return finish(listener, Result.failed(model, new CancellationException("Comparison cancelled"), queuedMs));
+            }
+            listener.onStarted(model);
+            ChatGeneration generation = ollamaService.sendChatMessage(
+                model, messages, token -> listener.onToken(model, token)
+            );
+            running.add(generation);
+            if (cancelled) {
+                generation.cancel();
+            }
+            try {
+                return finish(listener, Result.of(model, generation.result().get(), queuedMs));
+            } catch (ExecutionException e) {
+                return finish(listener, Result.failed(model, e.getCause(), queuedMs));
+            } catch (CancellationException e) {
+                return finish(listener, Result.failed(model, e, queuedMs));
+            } catch (InterruptedException e) {
+                generation.cancel();
+                Thread.currentThread().interrupt();
+                return finish(listener, Result.failed(model, new CancellationException("Comparison interrupted"), queuedMs));
+            } finally {
+                running.remove(generation);
+            }
+        } finally {
+            slots.release();
+        }
+    }
+
+    private static Result finish(Listener listener, Result result) {
+        listener.onFinished(result);
+        return result;
+    }
+}
@@ -3,7 +3,9 @@ package com.ollama.olama.service;
 import com.ollama.olama.model.ChatMessage;
 import com.ollama.olama.model.OllamaModel;
 
+import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
 
@@ -11,41 +13,145 @@ import java.util.function.Consumer;
  * Service interface for communicating with the Ollama REST API.
  * Handles model discovery, chat messaging, and connection management.
  */
-public interface OllamaService {
+public interface OllamaService extends AutoCloseable {
     
     /**
-     * Fetches list of available models from /api/tags
+     * Gets the models from /api/tags, reusing the cached list while it is fresh.
+     * Concurrent fetches share one request.
      * @return CompletableFuture with list of OllamaModel sorted alphabetically by name
      */
     CompletableFuture<List<OllamaModel>> getAvailableModels();
     
+    /**
+     * Fetches the model list from Ollama even if the cached list is still fresh.
+     * Concurrent calls share one request.
+     * @return CompletableFuture with list of available models
+     */
+    CompletableFuture<List<OllamaModel>> refreshAvailableModels();
+    
+    /**
+     * Gets the last fetched model list without contacting Ollama; it may be out of date
+     * @return the cached models, or an empty list if none were fetched yet
+     */
+    List<OllamaModel> getCachedModels();
+    
+    /**
+     * Persists the model list to a file so it is available right away on the next start
+     * @param file The cache file, or null to keep the list in memory only
+     */
+    void setModelCacheFile(Path file);
+    
     /**
      * Sends a chat request and returns streaming response
      * @param model The model name to use
      * @param messages List of conversation messages
      * @param onToken Callback for each streamed token
-     * @return CompletableFuture that completes when streaming finishes with complete ChatMessage
+     * @return ChatGeneration whose result completes when streaming finishes with complete ChatMessage,
+     *         and which can be cancelled to abort the HTTP stream
      */
-    CompletableFuture<ChatMessage> sendChatMessage(
+    ChatGeneration sendChatMessage(
         String model, 
         List<ChatMessage> messages,
         Consumer<String> onToken
     );
     
     /**
-     * Cancels any ongoing request
+     * Prepares a chat whose response is published as typed chunks (content, thinking, tool calls and a
+     * final Done with the complete message) to any number of subscribers, each with its own bounded buffer
+     * and demand. Subscribe first, then call ChatStream.connect() to send the request.
+     * @param model The model name to use
+     * @param messages List of conversation messages
+     * @return the stream, not yet connected
+     */
+    ChatStream streamChat(String model, List<ChatMessage> messages);
+    
+    /**
+     * Computes embeddings for several texts in one /api/embed request
+     * @param model The embedding model, e.g. "nomic-embed-text"
+     * @param inputs The texts to embed
+     * @return CompletableFuture with one vector per input, in the same order
+     */
+    CompletableFuture<List<float[]>> embed(String model, List<String> inputs);
+    
+    /**
+     * Loads a model into memory ahead of the first chat request by sending it an empty chat.
+     * Concurrent calls for the same model share one request.
+     * @param model The model name to load
+     * @param keepAlive How long Ollama should keep the model loaded, e.g. "5m", "1h" or "-1" for forever;
+     *                  later chat requests for the model reuse this value
+     * @return CompletableFuture with true if the model is loaded
+     */
+    CompletableFuture<Boolean> warmUp(String model, String keepAlive);
+    
+    /**
+     * Checks whether a model is expected to still be loaded from a recent warm-up or chat
+     * @param model The model name
+     * @return true if the model's keep-alive has not expired yet
+     */
+    boolean isModelWarm(String model);
+    
+    /**
+     * Cancels the most recent generation started by sendChatMessage, if it is still running
      */
     void cancelCurrentRequest();
     
     /**
-     * Checks if Ollama is reachable
+     * Checks if Ollama is reachable now; the result is also published to connection listeners
      * @return CompletableFuture with connection status
      */
     CompletableFuture<Boolean> checkConnection();
     
+    /**
+     * Subscribes to connection state changes and starts background health probes.
+     * While Ollama is known to be down, requests fail immediately instead of waiting for timeouts.
+     * @param listener Called with the current state right away and on every change,
+     *                 on a background thread
+     */
+    void addConnectionListener(Consumer<ConnectionState> listener);
+    
+    /**
+     * Removes a listener added with addConnectionListener
+     */
+    void removeConnectionListener(Consumer<ConnectionState> listener);
+    
+    /**
+     * Sets the deadlines for connecting, for the first token and for gaps between tokens.
+     * A chat that misses one fails with a ChatTimeoutException naming the phase; applies to chats sent afterwards.
+     */
+    void setChatTimeouts(ChatTimeouts timeouts);
+    
+    /**
+     * Sets the model options, such as temperature and seed, sent with every chat
+     */
+    void setChatOptions(Map<String, Object> options);
+    
+    /**
+     * Enables answering deterministic chats (temperature 0 or a fixed seed) from a response cache.
+     * Cached answers are streamed through the same token callback as live ones. Requests for a model
+     * missing from the fetched model list are not cached, since its digest is unknown.
+     * @param cache the cache, or null to disable caching
+     * @param replayTokensPerSecond how fast cached tokens are replayed; 0 for as fast as possible
+     */
+    void setResponseCache(ResponseCache cache, double replayTokensPerSecond);
+    
     /**
      * Sets the base URL for Ollama API
      * @param baseUrl The URL (default: http://localhost:11434)
      */
     void setBaseUrl(String baseUrl);
+    
+    /**
+     * Sets several Ollama nodes serving the same models. Each chat goes to the least loaded
+     * healthy node, preferring nodes that already have the model loaded, and fails over to
+     * another node if the connection cannot be made.
+     * @param baseUrls The node URLs, in order of preference when nodes are otherwise equal
+     */
+    void setEndpoints(List<String> baseUrls);
+    
+    /**
+     * Stops background work and cancels the running generation, e.g. on logout.
+     * Shared HTTP connections stay open for the rest of the application.
+     */
+    @Override
+    void close();
 }
\ No newline at end of file
@@ -2,79 +2,301 @@ package com.ollama.olama.service;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.diagnostics.ChatCompletionEvent;
+import com.ollama.olama.model.AppSettings;
 import com.ollama.olama.model.ChatMessage;
 import com.ollama.olama.model.OllamaModel;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.ConnectException;
 import java.net.URI;
 import java.net.http.HttpClient;
+import java.net.http.HttpConnectTimeoutException;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.net.http.HttpTimeoutException;
+import java.nio.file.Path;
 import java.time.Duration;
 import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
 import java.util.function.Consumer;
-import java.util.stream.Stream;
+import java.util.function.Function;
 
 /**
  * Implementation of OllamaService using Java's HttpClient for API communication.
  * Handles model discovery, chat messaging with streaming, and connection management.
+ * With several endpoints, chats, model listings and embeddings are routed through an EndpointPool and
+ * fail over to another node when a connection cannot be made; a background probe keeps each node's
+ * health and loaded models current.
+ * HTTP connections and timers come from an AsyncRuntime, normally the one shared by the application.
  */
 public class OllamaServiceImpl implements OllamaService {
     
+    private static final String DEFAULT_BASE_URL = "http://localhost:11434";
+    private static final Duration PROBE_TIMEOUT = Duration.ofSeconds(3);
+    
     private final HttpClient httpClient;
     private final ObjectMapper objectMapper;
-    private String baseUrl = "http://localhost:11434";
-    private HttpRequest currentRequest;
+    private volatile EndpointPool endpoints = new EndpointPool(List.of(DEFAULT_BASE_URL));
+    private final AsyncRuntime runtime;
+    private final CircuitBreaker circuitBreaker = new CircuitBreaker(2, Duration.ofSeconds(5));
+    private final ConnectionHealthMonitor healthMonitor;
+    private Path modelCacheFile;
+    private volatile ModelCatalogCache modelCatalog;
+    private volatile ChatGeneration currentGeneration;
+    private volatile ChatTimeouts chatTimeouts = ChatTimeouts.DEFAULTS;
+    private volatile Map<String, Object> chatOptions = Map.of();
+    private volatile ResponseCache responseCache;
+    private volatile double replayTokensPerSecond;
+    private final WarmModelTracker warmModels = new WarmModelTracker();
+    private final Map<String, String> keepAlives = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Boolean>> pendingWarmUps = new ConcurrentHashMap<>();
     
+    /**
+     * Creates a service that uses the application's shared HTTP client and scheduler
+     */
     public OllamaServiceImpl() {
-        this.httpClient = HttpClient.newBuilder()
-            .connectTimeout(Duration.ofSeconds(10))
-            .build();
+        this(AsyncRuntime.shared());
+    }
+    
+    public OllamaServiceImpl(AsyncRuntime runtime) {
+        this.runtime = runtime;
+        this.httpClient = runtime.httpClient();
+        this.healthMonitor = new ConnectionHealthMonitor(this::probeEndpoints, runtime.scheduler());
         this.objectMapper = new ObjectMapper();
+        this.modelCatalog = newModelCatalog(endpoints);
     }
     
     @Override
     public CompletableFuture<List<OllamaModel>> getAvailableModels() {
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(baseUrl + "/api/tags"))
-            .GET()
-            .timeout(Duration.ofSeconds(30))
-            .build();
-            
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+        return modelCatalog.get();
+    }
+    
+    @Override
+    public CompletableFuture<List<OllamaModel>> refreshAvailableModels() {
+        return modelCatalog.refresh();
+    }
+    
+    @Override
+    public List<OllamaModel> getCachedModels() {
+        return modelCatalog.getCached();
+    }
+    
+    @Override
+    public synchronized void setModelCacheFile(Path file) {
+        this.modelCacheFile = file;
+        this.modelCatalog = newModelCatalog(endpoints);
+    }
+    
+    private ModelCatalogCache newModelCatalog(EndpointPool pool) {
+        return new ModelCatalogCache(
+            modelCacheFile, String.join(",", pool.getBaseUrls()), ModelCatalogCache.DEFAULT_TTL, this::fetchModels
+        );
+    }
+    
+    /**
+     * Fetches the model list from /api/tags
+     */
+    private CompletableFuture<List<OllamaModel>> fetchModels() {
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new RuntimeException(unreachable()));
+        }
+        
+        return sendWithFailover(null, endpoint -> HttpRequest.newBuilder()
+                .uri(URI.create(endpoint.baseUrl() + "/api/tags"))
+                .GET()
+                .timeout(Duration.ofSeconds(30))
+                .build(), HttpResponse.BodyHandlers.ofString())
             .thenApply(this::parseModelsResponse)
             .thenApply(this::sortModelsAlphabetically)
             .exceptionally(this::handleException);
     }
     
     @Override
-    public CompletableFuture<ChatMessage> sendChatMessage(
+    public ChatGeneration sendChatMessage(
             String model, 
             List<ChatMessage> messages,
             Consumer<String> onToken) {
+        return startChat(model, messages, chunk -> {
+            if (chunk instanceof ChatChunk.Content content) {
+                onToken.accept(content.text());
+            }
+        });
+    }
+    
+    @Override
+    public ChatStream streamChat(String model, List<ChatMessage> messages) {
+        return new ChatStream(ChatStream.DEFAULT_BUFFER_SIZE, runtime.executor(), stream -> {
+            ChatGeneration generation = startChat(model, messages, stream::publish);
+            generation.result().whenComplete((message, throwable) -> {
+                if (throwable == null) {
+                    stream.complete(new ChatChunk.Done(message));
+                } else {
+                    stream.fail(throwable);
+                }
+            });
+            return generation;
+        });
+    }
+    
+    /**
+     * Starts a chat, answered from the response cache when it is enabled and has the answer,
+     * and passes every chunk to onChunk on a background thread
+     */
+    private ChatGeneration startChat(String model, List<ChatMessage> messages, Consumer<ChatChunk> onChunk) {
+        ChatGeneration generation = new ChatGeneration();
+        this.currentGeneration = generation;
+        Map<String, Object> options = chatOptions;
+        ResponseCache cache = responseCache;
+        String digest = cache != null && ResponseCache.isDeterministic(options) ? modelDigest(model) : null;
+        if (digest == null) {
+            sendToOllama(generation, model, messages, options, onChunk);
+            return generation;
+        }
+        
+        try {
+            // The cache reads from disk, so keep it off the caller's thread, which is often the FX thread
+            runtime.executor().execute(() ->
+                answerFromCache(cache, cache.key(digest, messages, options), generation, model, messages, options, onChunk)
+            );
+        } catch (RejectedExecutionException e) {
+            generation.fail(e);
+        }
+        return generation;
+    }
+    
+    /**
+     * Replays a cached answer, or sends the request and caches the answer if it consists of plain content
+     */
+    private void answerFromCache(
+            ResponseCache cache,
+            String key,
+            ChatGeneration generation,
+            String model,
+            List<ChatMessage> messages,
+            Map<String, Object> options,
+            Consumer<ChatChunk> onChunk) {
+        Optional<ResponseCache.CachedResponse> cached = cache.get(key);
+        if (cached.isPresent()) {
+            replay(cached.get(), generation, onChunk);
+            return;
+        }
+        
+        // Only touched on the reading thread, and read after the result completes on that thread
+        List<String> tokens = new ArrayList<>();
+        boolean[] plainContent = {true};
+        sendToOllama(generation, model, messages, options, chunk -> {
+            if (chunk instanceof ChatChunk.Content content) {
+                tokens.add(content.text());
+            } else {
+                // Thinking and tool calls would be lost on replay
+                plainContent[0] = false;
+            }
+            onChunk.accept(chunk);
+        });
+        generation.result().thenAccept(message -> {
+            if (plainContent[0]) {
+                cache.put(key, new ResponseCache.CachedResponse(tokens, message.stats()));
+            }
+        });
+    }
+    
+    /**
+     * Streams a cached answer through onChunk at the configured replay rate. The message carries the
+     * counters of the generation that produced it and the time the replay took.
+     */
+    private void replay(ResponseCache.CachedResponse cached, ChatGeneration generation, Consumer<ChatChunk> onChunk) {
+        long startNanos = System.nanoTime();
+        double rate = replayTokensPerSecond;
+        long intervalNanos = rate > 0 ? (long) (1_000_000_000L / rate) : 0;
+        List<String> tokens = cached.tokens();
+        for (int i = 0; i < tokens.size(); i++) {
+            if (generation.isDone()) {
+                return;
+            }
+            long waitNanos = startNanos + i * intervalNanos - System.nanoTime();
+            if (waitNanos > 0) {
+                try {
+                    Thread.sleep(Duration.ofNanos(waitNanos));
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    generation.cancel();
+                    return;
+                }
+            }
+            onChunk.accept(new ChatChunk.Content(tokens.get(i)));
+        }
+        long elapsedMs = (System.nanoTime() - startNanos) / 1_000_000;
+        generation.complete(ChatMessage.assistant(cached.content(), elapsedMs, cached.stats()));
+    }
+    
+    /**
+     * Gets the digest of a model from the last fetched catalog, or null if the model is not in it
+     */
+    private String modelDigest(String model) {
+        for (OllamaModel candidate : modelCatalog.getCached()) {
+            if (candidate.name().equals(model)) {
+                return candidate.digest();
+            }
+        }
+        return null;
+    }
+    
+    /**
+     * Sends a chat request and passes every decoded chunk to onChunk on the reading thread
+     */
+    private void sendToOllama(
+            ChatGeneration generation,
+            String model,
+            List<ChatMessage> messages,
+            Map<String, Object> options,
+            Consumer<ChatChunk> onChunk) {
+        ChatRequestTrace trace = new ChatRequestTrace(model);
         
         try {
-            // Build request body
-            var requestBody = buildChatRequestBody(model, messages);
-            String jsonBody = objectMapper.writeValueAsString(requestBody);
+            // Written while it is sent, so long histories never exist as one string or byte array
+            HttpRequest.BodyPublisher body = chatRequestBody(model, messages, options, trace);
+            trace.requestStarted(messages.size());
             
-            HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(baseUrl + "/api/chat"))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
-                .timeout(Duration.ofMinutes(5))
-                .build();
-                
-            this.currentRequest = request;
+            if (!circuitBreaker.allowRequest()) {
+                // Ollama is known to be down; fail now instead of waiting for the connect timeout
+                trace.finished(ChatCompletionEvent.FAILED, null);
+                generation.fail(new RuntimeException(unreachable()));
+                return;
+            }
             
-            return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofLines())
+            EndpointPool pool = endpoints;
+            ChatTimeouts timeouts = chatTimeouts;
+            AtomicReference<EndpointPool.Endpoint> serving = new AtomicReference<>();
+            StreamTimer timer = new StreamTimer(System.nanoTime());
+            StreamWatchdog watchdog = new StreamWatchdog(timeouts, runtime.scheduler(), phase ->
+                generation.abort(new RuntimeException(new ChatTimeoutException(phase, timeouts.of(phase))))
+            );
+            generation.result().whenComplete((message, throwable) -> watchdog.stop());
+            
+            connect(pool, model, body, generation, timeouts, serving)
                 .thenApply(response -> {
+                    trace.headersReceived(response.statusCode());
+                    generation.attachBody(response.body());
+                    if (response.statusCode() == 200) {
+                        pool.responded(serving.get(), model, timer.elapsedMs(System.nanoTime()));
+                    } else {
+                        // Release the connection before reporting the error
+                        closeQuietly(response.body());
+                    }
                     if (response.statusCode() == 404) {
                         throw new RuntimeException(new OllamaException(
                             OllamaException.Type.MODEL_NOT_FOUND,
@@ -91,39 +313,287 @@ public class OllamaServiceImpl implements OllamaService {
                             "Ollama server error. Please try again."
                         ));
                     }
-                    return processStreamingResponse(response, onToken);
+                    return processStreamingResponse(response, onChunk, generation, timer, watchdog, trace);
                 })
-                .exceptionally(this::handleChatException);
+                .exceptionally(throwable -> handleChatException(throwable, timeouts))
+                .whenComplete((message, throwable) -> {
+                    EndpointPool.Endpoint endpoint = serving.getAndSet(null);
+                    if (endpoint != null) {
+                        pool.requestFinished(endpoint);
+                    }
+                    if (throwable != null) {
+                        trace.finished(generation.isCancelled()
+                            ? ChatCompletionEvent.CANCELLED
+                            : ChatCompletionEvent.FAILED, null);
+                        generation.fail(throwable);
+                    } else {
+                        trace.finished(ChatCompletionEvent.COMPLETED, message.stats());
+                        warmModels.markWarm(model, keepAlives.getOrDefault(model, AppSettings.DEFAULT_KEEP_ALIVE));
+                        generation.complete(message);
+                    }
+                });
                 
         } catch (Exception e) {
+            trace.finished(ChatCompletionEvent.FAILED, null);
+            generation.fail(
+                new OllamaException(OllamaException.Type.INVALID_REQUEST, "Failed to build request", e)
+            );
+        }
+    }
+    
+    /**
+     * Sends the chat request through the pool. The request itself has no timeout; the caller's
+     * StreamWatchdog bounds the wait for tokens instead.
+     * @param serving set to the node the returned response comes from, which the caller must release
+     */
+    private CompletableFuture<HttpResponse<InputStream>> connect(
+            EndpointPool pool,
+            String model,
+            HttpRequest.BodyPublisher body,
+            ChatGeneration generation,
+            ChatTimeouts timeouts,
+            AtomicReference<EndpointPool.Endpoint> serving) {
+        HttpClient client = runtime.httpClient(timeouts.connect());
+        return sendWithFailover(pool, model, endpoint -> {
+            HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(endpoint.baseUrl() + "/api/chat"))
+                .header("Content-Type", "application/json")
+                .POST(body)
+                .build();
+            
+            CompletableFuture<HttpResponse<InputStream>> exchange =
+                client.sendAsync(request, HttpResponse.BodyHandlers.ofInputStream());
+            generation.attachExchange(exchange);
+            return exchange;
+        }, generation::isDone, new HashSet<>(), serving);
+    }
+    
+    /**
+     * Sends a request to the best node in the pool, moving on to the next node when the
+     * connection is refused or times out. Nothing has reached Ollama in that case, so retrying is safe.
+     * @param send sends the request to one node
+     * @param abandoned tells whether the caller has stopped waiting, which ends the failover
+     * @param serving set to the node the returned response comes from, which the caller must release
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendWithFailover(
+            EndpointPool pool,
+            String model,
+            Function<EndpointPool.Endpoint, CompletableFuture<HttpResponse<T>>> send,
+            BooleanSupplier abandoned,
+            Set<EndpointPool.Endpoint> tried,
+            AtomicReference<EndpointPool.Endpoint> serving) {
+        EndpointPool.Endpoint endpoint = pool.select(model, tried);
+        tried.add(endpoint);
+        serving.set(endpoint);
+        pool.requestStarted(endpoint);
+        
+        return send.apply(endpoint)
+            .handle((response, throwable) -> {
+                if (throwable == null) {
+                    circuitBreaker.recordSuccess();
+                    return CompletableFuture.completedFuture(response);
+                }
+                if (isConnectFailure(throwable)) {
+                    serving.set(null);
+                    pool.requestFinished(endpoint);
+                    recordReachability(pool, endpoint, throwable);
+                    if (!abandoned.getAsBoolean() && pool.select(model, tried) != null) {
+                        return sendWithFailover(pool, model, send, abandoned, tried, serving);
+                    }
+                }
+                return CompletableFuture.<HttpResponse<T>>failedFuture(throwable);
+            })
+            .thenCompose(Function.identity());
+    }
+    
+    /**
+     * Sends a short request that is not tied to a running chat through the pool, releasing its node
+     * once the response has arrived
+     */
+    private <T> CompletableFuture<HttpResponse<T>> sendWithFailover(
+            String model,
+            Function<EndpointPool.Endpoint, HttpRequest> request,
+            HttpResponse.BodyHandler<T> bodyHandler) {
+        EndpointPool pool = endpoints;
+        AtomicReference<EndpointPool.Endpoint> serving = new AtomicReference<>();
+        return sendWithFailover(pool, model,
+                endpoint -> httpClient.sendAsync(request.apply(endpoint), bodyHandler),
+                () -> false, new HashSet<>(), serving)
+            .whenComplete((response, throwable) -> {
+                EndpointPool.Endpoint endpoint = serving.getAndSet(null);
+                if (endpoint != null) {
+                    pool.requestFinished(endpoint);
+                }
+            });
+    }
+    
+    private static boolean isConnectFailure(Throwable throwable) {
+        for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+            if (cause instanceof ConnectException || cause instanceof HttpConnectTimeoutException) {
+                return true;
+            }
+        }
+        return false;
+    }
+    
+    @Override
+    public CompletableFuture<List<float[]>> embed(String model, List<String> inputs) {
+        if (inputs.isEmpty()) {
+            return CompletableFuture.completedFuture(List.of());
+        }
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.failedFuture(new RuntimeException(unreachable()));
+        }
+        
+        try {
+            byte[] jsonBody = objectMapper.writeValueAsBytes(Map.of("model", model, "input", inputs));
+            return sendWithFailover(model, endpoint -> HttpRequest.newBuilder()
+                    .uri(URI.create(endpoint.baseUrl() + "/api/embed"))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofByteArray(jsonBody))
+                    .timeout(Duration.ofMinutes(2))
+                    .build(), HttpResponse.BodyHandlers.ofInputStream())
+                .thenApply(response -> parseEmbeddings(response, model, inputs.size()))
+                .exceptionally(throwable -> {
+                    // Keep the specific error, e.g. a missing embedding model, instead of a generic one
+                    for (Throwable cause = throwable; cause != null; cause = cause.getCause()) {
+                        if (cause instanceof OllamaException ollamaException) {
+                            throw new RuntimeException(ollamaException);
+                        }
+                    }
+                    return handleException(throwable);
+                });
+        } catch (IOException e) {
             return CompletableFuture.failedFuture(
                 new OllamaException(OllamaException.Type.INVALID_REQUEST, "Failed to build request", e)
             );
         }
     }
     
+    @Override
+    public CompletableFuture<Boolean> warmUp(String model, String keepAlive) {
+        Object keepAliveValue;
+        try {
+            WarmModelTracker.parseKeepAlive(keepAlive);
+            keepAliveValue = WarmModelTracker.toApiValue(keepAlive);
+        } catch (IllegalArgumentException e) {
+            return CompletableFuture.failedFuture(
+                new OllamaException(OllamaException.Type.INVALID_REQUEST, e.getMessage(), e)
+            );
+        }
+        
+        String previousKeepAlive = keepAlives.put(model, keepAlive);
+        if (keepAlive.equals(previousKeepAlive) && warmModels.isWarm(model)) {
+            return CompletableFuture.completedFuture(true);
+        }
+        
+        if (!circuitBreaker.allowRequest()) {
+            return CompletableFuture.completedFuture(false);
+        }
+        
+        CompletableFuture<Boolean> warmUp = new CompletableFuture<>();
+        CompletableFuture<Boolean> pending = pendingWarmUps.putIfAbsent(model, warmUp);
+        if (pending != null) {
+            return pending;
+        }
+        
+        EndpointPool pool = endpoints;
+        EndpointPool.Endpoint endpoint = pool.select(model, Set.of());
+        try {
+            // An empty message list makes Ollama load the model without generating anything
+            String jsonBody = objectMapper.writeValueAsString(Map.of(
+                "model", model,
+                "messages", List.of(),
+                "keep_alive", keepAliveValue,
+                "stream", false
+            ));
+            
+            HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(endpoint.baseUrl() + "/api/chat"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(jsonBody))
+                .timeout(Duration.ofMinutes(5))
+                .build();
+            
+            httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                .whenComplete((response, throwable) -> recordReachability(pool, endpoint, throwable))
+                .thenApply(response -> response.statusCode() == 200)
+                .exceptionally(throwable -> false)
+                .thenAccept(loaded -> {
+                    if (loaded) {
+                        pool.modelLoaded(endpoint, model);
+                        warmModels.markWarm(model, keepAlive);
+                    } else {
+                        warmModels.markCold(model);
+                    }
+                    pendingWarmUps.remove(model, warmUp);
+                    warmUp.complete(loaded);
+                });
+        } catch (Exception e) {
+            pendingWarmUps.remove(model, warmUp);
+            warmUp.completeExceptionally(
+                new OllamaException(OllamaException.Type.INVALID_REQUEST, "Failed to build request", e)
+            );
+        }
+        
+        return warmUp;
+    }
+    
+    @Override
+    public boolean isModelWarm(String model) {
+        return warmModels.isWarm(model);
+    }
+    
     @Override
     public void cancelCurrentRequest() {
-        // Note: HttpClient doesn't provide direct request cancellation
-        // In a real implementation, we would need to track the CompletableFuture
-        // and cancel it, or use a different HTTP client that supports cancellation
-        if (currentRequest != null) {
-            // Reset current request
-            currentRequest = null;
+        ChatGeneration generation = currentGeneration;
+        if (generation != null) {
+            generation.cancel();
+            currentGeneration = null;
         }
     }
     
     @Override
     public CompletableFuture<Boolean> checkConnection() {
-        HttpRequest request = HttpRequest.newBuilder()
-            .uri(URI.create(baseUrl + "/api/tags"))
-            .GET()
-            .timeout(Duration.ofSeconds(10))
-            .build();
-            
-        return httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
-            .thenApply(response -> response.statusCode() == 200)
-            .exceptionally(throwable -> false);
+        return healthMonitor.probeNow();
+    }
+    
+    @Override
+    public void addConnectionListener(Consumer<ConnectionState> listener) {
+        healthMonitor.addListener(listener);
+        healthMonitor.start();
+    }
+    
+    @Override
+    public void removeConnectionListener(Consumer<ConnectionState> listener) {
+        healthMonitor.removeListener(listener);
+    }
+    
+    /**
+     * Gets the circuit breaker guarding calls to Ollama, mainly for diagnostics and tests
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+    
+    @Override
+    public void setChatTimeouts(ChatTimeouts timeouts) {
+        this.chatTimeouts = timeouts;
+    }
+    
+    public ChatTimeouts getChatTimeouts() {
+        return chatTimeouts;
+    }
+    
+    @Override
+    public void setChatOptions(Map<String, Object> options) {
+        this.chatOptions = options != null ? Map.copyOf(options) : Map.of();
+    }
+    
+    @Override
+    public void setResponseCache(ResponseCache cache, double replayTokensPerSecond) {
+        this.responseCache = cache;
+        this.replayTokensPerSecond = replayTokensPerSecond;
     }
     
     @Override
@@ -132,8 +602,114 @@ public class OllamaServiceImpl implements OllamaService {
             throw new IllegalArgumentException("Base URL cannot be null or empty");
         }
         
-        // Remove trailing slash if present
-        this.baseUrl = baseUrl.endsWith("/") ? baseUrl.substring(0, baseUrl.length() - 1) : baseUrl;
+        setEndpoints(List.of(baseUrl));
+    }
+    
+    @Override
+    public synchronized void setEndpoints(List<String> baseUrls) {
+        EndpointPool pool = new EndpointPool(baseUrls);
+        this.endpoints = pool;
+        this.modelCatalog = newModelCatalog(pool);
+        
+        if (pool.size() > 1) {
+            // Routing needs each node's health and loaded models even when nobody watches the status
+            healthMonitor.start();
+        }
+    }
+    
+    @Override
+    public synchronized void close() {
+        healthMonitor.close();
+        cancelCurrentRequest();
+    }
+    
+    /**
+     * Gets the endpoint pool, mainly for diagnostics and tests
+     */
+    public EndpointPool getEndpointPool() {
+        return endpoints;
+    }
+    
+    /**
+     * Asks every node which models it has loaded, which also tells whether it is reachable.
+     * Probes bypass the circuit breaker and close or open it with their result.
+     * @return true if any node answered
+     */
+    private CompletableFuture<Boolean> probeEndpoints() {
+        EndpointPool pool = endpoints;
+        List<CompletableFuture<Boolean>> probes = new ArrayList<>();
+        for (EndpointPool.Endpoint endpoint : pool.getEndpoints()) {
+            HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(endpoint.baseUrl() + "/api/ps"))
+                .GET()
+                .timeout(PROBE_TIMEOUT)
+                .build();
+            
+            probes.add(httpClient.sendAsync(request, HttpResponse.BodyHandlers.ofString())
+                // Also bounds the connect phase, which the request timeout does not cover
+                .orTimeout(PROBE_TIMEOUT.toMillis(), TimeUnit.MILLISECONDS)
+                .thenApply(response -> {
+                    if (response.statusCode() != 200) {
+                        pool.failed(endpoint);
+                        return false;
+                    }
+                    pool.probeSucceeded(endpoint, parseLoadedModels(response.body()));
+                    return true;
+                })
+                .exceptionally(throwable -> {
+                    pool.failed(endpoint);
+                    return false;
+                }));
+        }
+        
+        return CompletableFuture.allOf(probes.toArray(CompletableFuture[]::new)).thenApply(ignored -> {
+            boolean reachable = probes.stream().anyMatch(CompletableFuture::join);
+            if (reachable) {
+                circuitBreaker.recordSuccess();
+            } else {
+                circuitBreaker.recordFailure();
+            }
+            return reachable;
+        });
+    }
+    
+    /**
+     * Feeds the outcome of a request into the node's backoff. The circuit breaker only counts a
+     * failure once every node is backing off, so one dead node does not fail requests the others could serve.
+     */
+    private void recordReachability(EndpointPool pool, EndpointPool.Endpoint endpoint, Throwable throwable) {
+        if (throwable == null) {
+            circuitBreaker.recordSuccess();
+        } else if (isConnectFailure(throwable)) {
+            pool.failed(endpoint);
+            if (!pool.isAnyAvailable()) {
+                circuitBreaker.recordFailure();
+            }
+        }
+    }
+    
+    private OllamaException unreachable() {
+        long seconds = Math.max(1, circuitBreaker.getRetryDelay().toSeconds());
+        return new OllamaException(
+            OllamaException.Type.CONNECTION_FAILED,
+            "Ollama is unreachable. Retrying automatically in " + seconds + "s."
+        );
+    }
+    
+    /**
+     * Parses model names from an /api/ps response
+     */
+    private Set<String> parseLoadedModels(String body) {
+        Set<String> names = new HashSet<>();
+        try {
+            JsonNode models = objectMapper.readTree(body).path("models");
+            for (JsonNode model : models) {
+                names.add(model.path("name").asText(model.path("model").asText()));
+            }
+        } catch (IOException e) {
+            // An unreadable answer still shows the node is up; assume nothing is loaded
+        }
+        return names;
     }
     
     /**
@@ -169,6 +745,49 @@ public class OllamaServiceImpl implements OllamaService {
         }
     }
     
+    /**
+     * Parses the vectors of an /api/embed response
+     */
+    private List<float[]> parseEmbeddings(HttpResponse<InputStream> response, String model, int expected) {
+        try (InputStream body = response.body()) {
+            if (response.statusCode() == 404) {
+                throw new OllamaException(
+                    OllamaException.Type.MODEL_NOT_FOUND,
+                    "Embedding model '" + model + "' not found. Pull it with 'ollama pull " + model + "'."
+                );
+            } else if (response.statusCode() != 200) {
+                throw new OllamaException(
+                    OllamaException.Type.SERVER_ERROR,
+                    "Failed to compute embeddings. Status: " + response.statusCode()
+                );
+            }
+            
+            JsonNode embeddings = objectMapper.readTree(body).path("embeddings");
+            List<float[]> vectors = new ArrayList<>(embeddings.size());
+            for (JsonNode embedding : embeddings) {
+                float[] vector = new float[embedding.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = (float) embedding.get(i).asDouble();
+                }
+                vectors.add(vector);
+            }
+            if (vectors.size() != expected) {
+                throw new OllamaException(
+                    OllamaException.Type.PARSE_ERROR,
+                    "Expected " + expected + " embeddings but got " + vectors.size()
+                );
+            }
+            return vectors;
+        } catch (IOException e) {
+            throw new RuntimeException(new OllamaException(
+                OllamaException.Type.PARSE_ERROR,
+                "Failed to parse embeddings response", e
+            ));
+        } catch (OllamaException e) {
+            throw new RuntimeException(e);
+        }
+    }
+    
     /**
      * Sorts models alphabetically by name
      */
@@ -179,65 +798,75 @@ public class OllamaServiceImpl implements OllamaService {
     }
     
     /**
-     * Builds the request body for chat API call
+     * Creates the streamed request body for chat API call
      */
-    private Map<String, Object> buildChatRequestBody(String model, List<ChatMessage> messages) {
-        List<Map<String, String>> apiMessages = messages.stream()
-            .map(ChatMessage::toApiFormat)
-            .toList();
-            
-        return Map.of(
-            "model", model,
-            "messages", apiMessages,
-            "stream", true
-        );
+    private HttpRequest.BodyPublisher chatRequestBody(String model, List<ChatMessage> messages,
+                                                      Map<String, Object> options, ChatRequestTrace trace) {
+        // Keep extending the keep-alive chosen at warm-up instead of falling back to the server default
+        // The list is copied because the body is written again if the request fails over to another node
+        return ChatRequestBody.publisher(objectMapper, model, List.copyOf(messages), keepAlives.get(model), options,
+            runtime.executor(), trace::bodyWritten);
     }
     
     /**
-     * Processes streaming NDJSON response and calls onToken for each token
+     * Processes streaming NDJSON response, calls onChunk for each chunk and
+     * collects the server's counters together with client-side token timings
      */
-    private ChatMessage processStreamingResponse(HttpResponse<Stream<String>> response, Consumer<String> onToken) {
+    private ChatMessage processStreamingResponse(
+            HttpResponse<InputStream> response,
+            Consumer<ChatChunk> onChunk,
+            ChatGeneration generation,
+            StreamTimer timer,
+            StreamWatchdog watchdog,
+            ChatRequestTrace trace) {
         StringBuilder completeContent = new StringBuilder();
-        long startTime = System.currentTimeMillis();
+        ChatStreamDecoder decoder = new ChatStreamDecoder(objectMapper.getFactory());
         
-        try {
-            response.body().forEach(line -> {
-                if (!line.trim().isEmpty()) {
-                    try {
-                        JsonNode json = objectMapper.readTree(line);
-                        JsonNode message = json.get("message");
-                        
-                        if (message != null) {
-                            String content = message.get("content").asText();
-                            if (!content.isEmpty()) {
-                                completeContent.append(content);
-                                onToken.accept(content);
-                            }
-                        }
-                        
-                        // Check if this is the final message
-                        if (json.has("done") && json.get("done").asBoolean()) {
-                            // Response is complete
-                            return;
-                        }
-                    } catch (IOException e) {
-                        throw new RuntimeException(new OllamaException(
-                            OllamaException.Type.PARSE_ERROR,
-                            "Failed to parse streaming response", e
-                        ));
-                    }
+        try (InputStream body = trace.trace(response.body())) {
+            decoder.decodeChunks(body, chunk -> {
+                watchdog.onToken();
+                if (chunk instanceof ChatChunk.Content content) {
+                    timer.onToken(System.nanoTime());
+                    trace.tokenDecoded();
+                    completeContent.append(content.text());
+                }
+                // A consumer that blocks holds up the stream, but that is not a stalled server
+                watchdog.pause();
+                try {
+                    onChunk.accept(chunk);
+                } finally {
+                    watchdog.resume();
                 }
             });
-            
-            long generationTime = System.currentTimeMillis() - startTime;
-            return ChatMessage.assistant(completeContent.toString(), generationTime);
-            
-        } catch (Exception e) {
+        } catch (IOException e) {
+            if (generation.isDone()) {
+                // The body was closed by cancel() or the watchdog; the generation future is already settled
+                throw new CancellationException("Generation cancelled");
+            }
             throw new RuntimeException(new OllamaException(
                 OllamaException.Type.PARSE_ERROR,
                 "Failed to process streaming response", e
             ));
         }
+        
+        if (decoder.getError() != null) {
+            throw new RuntimeException(new OllamaException(
+                OllamaException.Type.SERVER_ERROR,
+                "Ollama reported an error: " + decoder.getError()
+            ));
+        }
+        
+        // Wall-clock time from sending the request, so it includes model loading and network time
+        long generationTime = timer.elapsedMs(System.nanoTime());
+        return ChatMessage.assistant(completeContent.toString(), generationTime, timer.toStats(decoder));
+    }
+    
+    private static void closeQuietly(InputStream body) {
+        try {
+            body.close();
+        } catch (IOException ignored) {
+            // Nothing useful to do if the connection is already gone
+        }
     }
     
     /**
@@ -268,9 +897,16 @@ public class OllamaServiceImpl implements OllamaService {
     /**
      * Handles exceptions for sendChatMessage
      */
-    private ChatMessage handleChatException(Throwable throwable) {
+    private ChatMessage handleChatException(Throwable throwable, ChatTimeouts timeouts) {
         if (throwable.getCause() instanceof OllamaException) {
             throw new RuntimeException(throwable.getCause());
+        } else if (throwable.getCause() != null && throwable.getCause().getCause() instanceof OllamaException) {
+            // Stages throw RuntimeException(OllamaException), which arrives wrapped in a CompletionException
+            throw new RuntimeException(throwable.getCause().getCause());
+        } else if (throwable.getCause() instanceof HttpConnectTimeoutException) {
+            throw new RuntimeException(new ChatTimeoutException(
+                ChatTimeouts.Phase.CONNECT, timeouts.connect(), throwable
+            ));
         } else if (throwable.getCause() instanceof ConnectException) {
             throw new RuntimeException(new OllamaException(
                 OllamaException.Type.CONNECTION_FAILED,
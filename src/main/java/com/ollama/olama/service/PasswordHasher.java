@@ -0,0 +1,64 @@
+package com.ollama.olama.service;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.SecureRandom;
+
+/**
+ * Salted SHA-256 password hashing used for stored user accounts.
+ * Hashes are stored as "salt:hexdigest".
+ */
+public class PasswordHasher {
+
+    private static final String SALT_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789";
+    private static final int SALT_LENGTH = 16;
+
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Hashes a password with a new random salt
+     */
+    public String hash(String password) {
+        String salt = generateSalt();
+        return salt + ":" + hashWithSalt(password, salt);
+    }
+
+    /**
+     * Checks a password against a stored "salt:hexdigest" hash
+     */
+    public boolean verify(String password, String storedHash) {
+        if (storedHash == null || !storedHash.contains(":")) {
+            return false;
+        }
+
+        String[] parts = storedHash.split(":", 2);
+        String salt = parts[0];
+        String hash = parts[1];
+
+        return hash.equals(hashWithSalt(password, salt));
+    }
+
+    private String generateSalt() {
+        StringBuilder salt = new StringBuilder(SALT_LENGTH);
+        for (int i = 0; i < SALT_LENGTH; i++) {
+            salt.append(SALT_CHARS.charAt(random.nextInt(SALT_CHARS.length())));
+        }
+        return salt.toString();
+    }
+
+    private String hashWithSalt(String password, String salt) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-256");
+            md.update((salt + password).getBytes());
+            byte[] hashedBytes = md.digest();
+
+            StringBuilder sb = new StringBuilder();
+            for (byte b : hashedBytes) {
+                sb.append(String.format("%02x", b));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException("SHA-256 algorithm not available", e);
+        }
+    }
+}
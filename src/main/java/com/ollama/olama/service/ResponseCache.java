@@ -0,0 +1,237 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Exact-match cache of chat responses for deterministic requests (temperature 0 or a fixed seed),
+ * so repeated template prompts and regression checks do not cost a generation on the server.
+ * <p>
+ * An entry is addressed by the SHA-256 of the model digest, the messages (role and content only, with
+ * normalized line endings) and the options, and stored as one JSON file named after that hash.
+ * When the directory grows past maxBytes the least recently used entries are deleted.
+ */
+public class ResponseCache {
+
+    private static final String SUFFIX = ".json";
+
+    private final Path directory;
+    private final long maxBytes;
+    private final ObjectMapper objectMapper = new ObjectMapper()
+        .configure(SerializationFeature.ORDER_MAP_ENTRIES_BY_KEYS, true);
+    /** Entry sizes in least to most recently used order */
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalBytes;
+
+    /**
+     * A cached answer, stored as the tokens in the order they were streamed
+     * @param stats the counters of the generation that produced the answer
+     */
+    public record CachedResponse(List<String> tokens, GenerationStats stats) {
+
+        @JsonCreator
+        public CachedResponse(
+            @JsonProperty("tokens") List<String> tokens,
+            @JsonProperty("stats") GenerationStats stats
+        ) {
+            this.tokens = List.copyOf(tokens);
+            this.stats = stats;
+        }
+
+        public String content() {
+            return String.join("", tokens);
+        }
+    }
+
+    /**
+     * Opens the cache, indexing entries already on disk by their last use
+     * @param directory where entries are stored; created if missing
+     * @param maxBytes total size of entries to keep
+     */
+    public ResponseCache(Path directory, long maxBytes) throws IOException {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("Cache size must be positive");
+        }
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+        Files.createDirectories(directory);
+        loadIndex();
+    }
+
+    /**
+     * Tells whether options make Ollama's output repeatable: temperature 0 or a fixed seed.
+     * A negative seed asks Ollama for a random one, so it does not count.
+     */
+    public static boolean isDeterministic(Map<String, Object> options) {
+        if (options == null) {
+            return false;
+        }
+        return options.get("seed") instanceof Number seed && seed.longValue() >= 0
+            || options.get("temperature") instanceof Number temperature && temperature.doubleValue() == 0.0;
+    }
+
+    /**
+     * Computes the cache key of a request
+     * @param modelDigest the digest of the model's weights, so a re-pulled model does not reuse old answers
+     */
+    public String key(String modelDigest, List<ChatMessage> messages, Map<String, Object> options) {
+        List<Map<String, String>> normalized = new ArrayList<>(messages.size());
+        for (ChatMessage message : messages) {
+            normalized.add(Map.of(
+                "role", message.role(),
+                "content", message.content() != null ? message.content().replace("\r\n", "\n") : ""
+            ));
+        }
+        Map<String, Object> request = new TreeMap<>();
+        request.put("digest", modelDigest);
+        request.put("messages", normalized);
+        request.put("options", options != null ? new TreeMap<>(options) : Map.of());
+        try {
+            byte[] canonical = objectMapper.writeValueAsString(request).getBytes(StandardCharsets.UTF_8);
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(canonical));
+        } catch (IOException | NoSuchAlgorithmException e) {
+            throw new IllegalStateException("Cannot compute cache key", e);
+        }
+    }
+
+    /**
+     * Gets a cached response and marks it as recently used
+     */
+    public Optional<CachedResponse> get(String key) {
+        synchronized (this) {
+            if (entries.get(key) == null) {
+                return Optional.empty();
+            }
+        }
+        Path file = fileFor(key);
+        try {
+            CachedResponse response = objectMapper.readValue(file.toFile(), CachedResponse.class);
+            // The modification time records the last use across restarts
+            Files.setLastModifiedTime(file, FileTime.fromMillis(System.currentTimeMillis()));
+            return Optional.of(response);
+        } catch (NoSuchFileException e) {
+            // Evicted between the index check and the read
+            forget(key);
+            return Optional.empty();
+        } catch (IOException e) {
+            System.err.println("Failed to read cached response: " + e.getMessage());
+            forget(key);
+            return Optional.empty();
+        }
+    }
+
+    /**
+     * Stores a response, evicting the least recently used entries if the cache is over its size
+     */
+    public void put(String key, CachedResponse response) {
+        Path file = fileFor(key);
+        Path temp = null;
+        try {
+            byte[] json = objectMapper.writeValueAsBytes(response);
+            if (json.length > maxBytes) {
+                return;
+            }
+            temp = Files.createTempFile(directory, "entry", ".tmp");
+            Files.write(temp, json);
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            temp = null;
+            synchronized (this) {
+                Long previous = entries.put(key, (long) json.length);
+                totalBytes += json.length - (previous != null ? previous : 0);
+                evict();
+            }
+        } catch (IOException e) {
+            System.err.println("Failed to cache response: " + e.getMessage());
+        } finally {
+            if (temp != null) {
+                deleteQuietly(temp);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long totalBytes() {
+        return totalBytes;
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> eldest = entries.entrySet().iterator();
+        while (totalBytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<String, Long> entry = eldest.next();
+            totalBytes -= entry.getValue();
+            eldest.remove();
+            try {
+                Files.deleteIfExists(fileFor(entry.getKey()));
+            } catch (IOException e) {
+                System.err.println("Failed to evict cached response: " + e.getMessage());
+            }
+        }
+    }
+
+    private static void deleteQuietly(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            System.err.println("Failed to delete partial cache entry: " + e.getMessage());
+        }
+    }
+
+    private synchronized void forget(String key) {
+        Long size = entries.remove(key);
+        if (size != null) {
+            totalBytes -= size;
+        }
+    }
+
+    private void loadIndex() throws IOException {
+        record Found(String key, long size, FileTime lastUsed) {}
+        List<Found> found = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                found.add(new Found(
+                    name.substring(0, name.length() - SUFFIX.length()), Files.size(file), Files.getLastModifiedTime(file)
+                ));
+            }
+        }
+        found.sort(Comparator.comparing(Found::lastUsed));
+        synchronized (this) {
+            for (Found entry : found) {
+                entries.put(entry.key(), entry.size());
+                totalBytes += entry.size();
+            }
+            evict();
+        }
+    }
+
+    private Path fileFor(String key) {
+        return directory.resolve(key + SUFFIX);
+    }
+}
@@ -0,0 +1,65 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.GenerationStats;
+
+/**
+ * Measures client-side timing of one streamed response: time to first token and the gaps
+ * between consecutive tokens. Not thread-safe; tokens are reported from the reading thread.
+ */
+final class StreamTimer {
+
+    private final long requestStartNanos;
+    private long firstTokenNanos = -1;
+    private long lastTokenNanos;
+    private long gapTotalNanos;
+    private long maxGapNanos;
+    private long gaps;
+
+    /**
+     * @param requestStartNanos System.nanoTime() when the request was sent
+     */
+    StreamTimer(long requestStartNanos) {
+        this.requestStartNanos = requestStartNanos;
+    }
+
+    /**
+     * Records a token received at the given System.nanoTime()
+     */
+    void onToken(long nowNanos) {
+        if (firstTokenNanos < 0) {
+            firstTokenNanos = nowNanos;
+        } else {
+            long gap = nowNanos - lastTokenNanos;
+            gapTotalNanos += gap;
+            maxGapNanos = Math.max(maxGapNanos, gap);
+            gaps++;
+        }
+        lastTokenNanos = nowNanos;
+    }
+
+    /**
+     * Gets milliseconds from request start to the given time
+     */
+    long elapsedMs(long nowNanos) {
+        return (nowNanos - requestStartNanos) / 1_000_000;
+    }
+
+    /**
+     * Combines the measured timings with the counters the server reported
+     */
+    GenerationStats toStats(ChatStreamDecoder decoder) {
+        long timeToFirstTokenMs = firstTokenNanos >= 0 ? elapsedMs(firstTokenNanos) : -1;
+        double meanGapMs = gaps > 0 ? gapTotalNanos / (double) gaps / 1_000_000.0 : 0.0;
+        return new GenerationStats(
+            decoder.getTotalDurationNanos(),
+            decoder.getLoadDurationNanos(),
+            decoder.getPromptEvalCount(),
+            decoder.getPromptEvalDurationNanos(),
+            decoder.getEvalCount(),
+            decoder.getEvalDurationNanos(),
+            timeToFirstTokenMs,
+            meanGapMs,
+            maxGapNanos / 1_000_000.0
+        );
+    }
+}
@@ -0,0 +1,104 @@
+package com.ollama.olama.service;
+
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Watches one streamed response for stalls: first the time until the first token, then the gap
+ * between chunks. Tokens only record a timestamp; the single scheduled check moves itself forward
+ * when it finds that tokens arrived in the meantime, so a fast stream costs no rescheduling.
+ * Time spent waiting for a slow consumer is not counted, since the server is not stalled then.
+ */
+final class StreamWatchdog {
+
+    private static final long NO_TOKEN = Long.MIN_VALUE;
+
+    private final ChatTimeouts timeouts;
+    private final ScheduledExecutorService scheduler;
+    private final Consumer<ChatTimeouts.Phase> onStall;
+    private final long startNanos;
+    private volatile long lastTokenNanos = NO_TOKEN;
+    private volatile boolean paused;
+    private volatile boolean stopped;
+    private ScheduledFuture<?> check;
+
+    /**
+     * @param onStall called once, on the scheduler thread, with the phase that ran out of time
+     */
+    StreamWatchdog(ChatTimeouts timeouts, ScheduledExecutorService scheduler, Consumer<ChatTimeouts.Phase> onStall) {
+        this.timeouts = timeouts;
+        this.scheduler = scheduler;
+        this.onStall = onStall;
+        this.startNanos = System.nanoTime();
+        schedule(timeouts.firstToken().toNanos());
+    }
+
+    /**
+     * Records that a chunk arrived
+     */
+    void onToken() {
+        lastTokenNanos = System.nanoTime();
+    }
+
+    /**
+     * Stops counting idle time while a chunk is handed to a consumer that may block
+     */
+    void pause() {
+        paused = true;
+    }
+
+    /**
+     * Counts idle time again, starting now
+     */
+    void resume() {
+        lastTokenNanos = System.nanoTime();
+        paused = false;
+    }
+
+    /**
+     * Stops watching, e.g. because the response finished or was cancelled
+     */
+    synchronized void stop() {
+        stopped = true;
+        if (check != null) {
+            check.cancel(false);
+        }
+    }
+
+    private void check() {
+        if (paused) {
+            schedule(timeouts.idle().toNanos());
+            return;
+        }
+        long lastToken = lastTokenNanos;
+        ChatTimeouts.Phase phase = lastToken == NO_TOKEN ? ChatTimeouts.Phase.FIRST_TOKEN : ChatTimeouts.Phase.IDLE;
+        long since = lastToken == NO_TOKEN ? startNanos : lastToken;
+        long remaining = since + timeouts.of(phase).toNanos() - System.nanoTime();
+        if (remaining > 0) {
+            schedule(remaining);
+            return;
+        }
+        synchronized (this) {
+            if (stopped) {
+                return;
+            }
+            stopped = true;
+        }
+        onStall.accept(phase);
+    }
+
+    private synchronized void schedule(long delayNanos) {
+        if (stopped) {
+            return;
+        }
+        try {
+            check = scheduler.schedule(this::check, delayNanos, TimeUnit.NANOSECONDS);
+        } catch (RejectedExecutionException e) {
+            // The runtime is shutting down and the stream is being torn down with it
+            stopped = true;
+        }
+    }
+}
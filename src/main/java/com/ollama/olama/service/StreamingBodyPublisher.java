@@ -0,0 +1,209 @@
+package com.ollama.olama.service;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongConsumer;
+
+/**
+ * Request body written on demand by a BodyWriter and handed to the HTTP client in fixed-size chunks,
+ * so a large body never exists in memory as a whole. The writer runs on its own thread and blocks
+ * while the client has not asked for more, which bounds the memory to a couple of chunks.
+ * <p>
+ * Each subscription runs the writer again from the start, so the same publisher can be sent to
+ * another node after a failed connection. The content length is not known in advance, so the body
+ * is sent with chunked transfer encoding.
+ */
+public final class StreamingBodyPublisher implements HttpRequest.BodyPublisher {
+
+    public static final int DEFAULT_CHUNK_SIZE = 16 * 1024;
+
+    /**
+     * Writes the whole body; may be called once per subscription
+     */
+    @FunctionalInterface
+    public interface BodyWriter {
+        void writeTo(OutputStream out) throws IOException;
+    }
+
+    private final BodyWriter writer;
+    private final Executor executor;
+    private final int chunkSize;
+    private final LongConsumer onWritten;
+
+    /**
+     * @param executor runs the writer; it blocks while waiting for demand, so virtual threads suit it best
+     */
+    public StreamingBodyPublisher(BodyWriter writer, Executor executor) {
+        this(writer, executor, DEFAULT_CHUNK_SIZE, bytes -> { });
+    }
+
+    /**
+     * @param executor runs the writer; it blocks while waiting for demand, so virtual threads suit it best
+     * @param chunkSize bytes per buffer passed to the client
+     * @param onWritten called with the body size each time the body has been written completely
+     */
+    public StreamingBodyPublisher(BodyWriter writer, Executor executor, int chunkSize, LongConsumer onWritten) {
+        if (chunkSize <= 0) {
+            throw new IllegalArgumentException("Chunk size must be positive: " + chunkSize);
+        }
+        this.writer = writer;
+        this.executor = executor;
+        this.chunkSize = chunkSize;
+        this.onWritten = onWritten;
+    }
+
+    @Override
+    public long contentLength() {
+        return -1;
+    }
+
+    @Override
+    public void subscribe(Flow.Subscriber<? super ByteBuffer> subscriber) {
+        subscriber.onSubscribe(new ChunkSubscription(subscriber));
+    }
+
+    /**
+     * Thrown into the writer when the client cancels, to stop it at its next write
+     */
+    private static final class CancelledException extends IOException {
+        CancelledException() {
+            super("Request body cancelled", null);
+        }
+    }
+
+    private final class ChunkSubscription extends OutputStream implements Flow.Subscription, Runnable {
+
+        private final Flow.Subscriber<? super ByteBuffer> subscriber;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final Condition demandChanged = lock.newCondition();
+        private long demand;
+        private boolean started;
+        private boolean cancelled;
+        private Throwable invalidRequest;
+
+        private byte[] chunk = new byte[chunkSize];
+        private int count;
+        private long total;
+
+        ChunkSubscription(Flow.Subscriber<? super ByteBuffer> subscriber) {
+            this.subscriber = subscriber;
+        }
+
+        @Override
+        public void request(long n) {
+            boolean start;
+            lock.lock();
+            try {
+                if (cancelled) {
+                    return;
+                }
+                if (n <= 0) {
+                    // Reported by the writer thread so signals to the subscriber stay on one thread
+                    invalidRequest = new IllegalArgumentException("Requested " + n + " chunks");
+                    cancelled = true;
+                } else {
+                    demand = demand + n < 0 ? Long.MAX_VALUE : demand + n;
+                }
+                start = !started;
+                started = true;
+                demandChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+            if (start) {
+                try {
+                    executor.execute(this);
+                } catch (RejectedExecutionException e) {
+                    // The runtime is shutting down
+                    subscriber.onError(e);
+                }
+            }
+        }
+
+        @Override
+        public void cancel() {
+            lock.lock();
+            try {
+                cancelled = true;
+                demandChanged.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                writer.writeTo(this);
+                if (count > 0) {
+                    emit();
+                }
+            } catch (CancelledException e) {
+                if (invalidRequest != null) {
+                    subscriber.onError(invalidRequest);
+                }
+                return;
+            } catch (Throwable t) {
+                subscriber.onError(t);
+                return;
+            }
+            subscriber.onComplete();
+            onWritten.accept(total);
+        }
+
+        // OutputStream side, called by the writer
+
+        @Override
+        public void write(int b) throws IOException {
+            if (count == chunk.length) {
+                emit();
+            }
+            chunk[count++] = (byte) b;
+        }
+
+        @Override
+        public void write(byte[] bytes, int offset, int length) throws IOException {
+            while (length > 0) {
+                if (count == chunk.length) {
+                    emit();
+                }
+                int copied = Math.min(length, chunk.length - count);
+                System.arraycopy(bytes, offset, chunk, count, copied);
+                count += copied;
+                offset += copied;
+                length -= copied;
+            }
+        }
+
+        /**
+         * Waits for demand and passes the filled chunk on. The client may hold on to the buffer
+         * until it has been sent, so the next chunk gets a fresh array.
+         */
+        private void emit() throws IOException {
+            lock.lock();
+            try {
+                while (demand == 0 && !cancelled) {
+                    demandChanged.awaitUninterruptibly();
+                }
+                if (cancelled) {
+                    throw new CancelledException();
+                }
+                demand--;
+            } finally {
+                lock.unlock();
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(chunk, 0, count);
+            total += count;
+            chunk = new byte[chunkSize];
+            count = 0;
+            subscriber.onNext(buffer);
+        }
+    }
+}
@@ -0,0 +1,79 @@
+package com.ollama.olama.service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Group of asynchronous operations that belong to one window or session.
+ * Closing the scope cancels every operation that has not finished, so callbacks do not
+ * touch a window that is gone; operations tracked after closing are cancelled immediately.
+ */
+public final class TaskScope implements AutoCloseable {
+
+    private final AsyncRuntime runtime;
+    private final Set<CompletableFuture<?>> pending = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    TaskScope(AsyncRuntime runtime) {
+        this.runtime = runtime;
+    }
+
+    /**
+     * Ties a future to this scope
+     * @return the same future, for chaining
+     */
+    public <T> CompletableFuture<T> track(CompletableFuture<T> future) {
+        pending.add(future);
+        future.whenComplete((result, throwable) -> pending.remove(future));
+        if (closed) {
+            // Re-checked after adding so a concurrent close() cannot miss the future
+            future.cancel(true);
+        }
+        return future;
+    }
+
+    /**
+     * Runs blocking work on a virtual thread of the shared executor
+     */
+    public <T> CompletableFuture<T> supplyAsync(Callable<T> task) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        if (!closed) {
+            try {
+                runtime.executor().execute(() -> {
+                    if (future.isDone()) {
+                        return;
+                    }
+                    try {
+                        future.complete(task.call());
+                    } catch (Exception e) {
+                        future.completeExceptionally(e instanceof CompletionException ? e : new CompletionException(e));
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                // The runtime is shutting down
+                future.completeExceptionally(e);
+            }
+        }
+        return track(future);
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    /**
+     * Cancels all outstanding operations
+     */
+    @Override
+    public void close() {
+        closed = true;
+        List.copyOf(pending).forEach(future -> future.cancel(true));
+        pending.clear();
+        runtime.scopeClosed(this);
+    }
+}
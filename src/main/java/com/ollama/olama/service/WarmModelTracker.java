@@ -0,0 +1,127 @@
+package com.ollama.olama.service;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.LongSupplier;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+/**
+ * Tracks which models Ollama is expected to hold in memory.
+ * A model counts as warm until its keep-alive expires, measured from the last request that used it.
+ * This is a client-side estimate: Ollama may still evict a model early when it runs out of memory.
+ */
+public class WarmModelTracker {
+
+    private static final Pattern INTEGER = Pattern.compile("-?\\d+");
+    private static final Pattern DURATION_PART = Pattern.compile("(\\d+(?:\\.\\d+)?)(ms|s|m|h)");
+    private static final long FOREVER = Long.MAX_VALUE;
+
+    private final Map<String, Long> warmUntilNanos = new ConcurrentHashMap<>();
+    private final LongSupplier nanoClock;
+
+    public WarmModelTracker() {
+        this(System::nanoTime);
+    }
+
+    WarmModelTracker(LongSupplier nanoClock) {
+        this.nanoClock = nanoClock;
+    }
+
+    /**
+     * Records that a request using the model just finished
+     * @param model the model name
+     * @param keepAlive the keep-alive sent with the request, in Ollama's format
+     */
+    public void markWarm(String model, String keepAlive) {
+        Duration duration = parseKeepAlive(keepAlive);
+        if (duration == null) {
+            warmUntilNanos.put(model, FOREVER);
+        } else if (duration.isZero()) {
+            // keep_alive 0 asks Ollama to unload the model right away
+            warmUntilNanos.remove(model);
+        } else {
+            warmUntilNanos.put(model, nanoClock.getAsLong() + duration.toNanos());
+        }
+    }
+
+    /**
+     * Forgets a model, e.g. after a failed request
+     */
+    public void markCold(String model) {
+        warmUntilNanos.remove(model);
+    }
+
+    public boolean isWarm(String model) {
+        Long until = warmUntilNanos.get(model);
+        if (until == null) {
+            return false;
+        }
+        if (until != FOREVER && nanoClock.getAsLong() - until >= 0) {
+            warmUntilNanos.remove(model, until);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Gets the names of all models currently considered warm
+     */
+    public Set<String> getWarmModels() {
+        return warmUntilNanos.keySet().stream()
+            .filter(this::isWarm)
+            .collect(Collectors.toUnmodifiableSet());
+    }
+
+    /**
+     * Parses a keep-alive value the way Ollama does: a plain number is seconds,
+     * otherwise a duration such as "30s", "5m" or "1h30m". Negative values mean forever.
+     * @return the duration, or null for forever
+     * @throws IllegalArgumentException if the value is not a valid keep-alive
+     */
+    public static Duration parseKeepAlive(String keepAlive) {
+        if (keepAlive == null || keepAlive.isBlank()) {
+            throw new IllegalArgumentException("Keep-alive cannot be empty");
+        }
+
+        String value = keepAlive.trim();
+        if (INTEGER.matcher(value).matches()) {
+            long seconds = Long.parseLong(value);
+            return seconds < 0 ? null : Duration.ofSeconds(seconds);
+        }
+        if (value.startsWith("-")) {
+            return null;
+        }
+
+        Matcher matcher = DURATION_PART.matcher(value);
+        Duration total = Duration.ZERO;
+        int position = 0;
+        while (matcher.find() && matcher.start() == position) {
+            double amount = Double.parseDouble(matcher.group(1));
+            long millis = switch (matcher.group(2)) {
+                case "ms" -> Math.round(amount);
+                case "s" -> Math.round(amount * 1_000);
+                case "m" -> Math.round(amount * 60_000);
+                default -> Math.round(amount * 3_600_000);
+            };
+            total = total.plusMillis(millis);
+            position = matcher.end();
+        }
+        if (position == 0 || position != value.length()) {
+            throw new IllegalArgumentException("Invalid keep-alive: " + keepAlive);
+        }
+        return total;
+    }
+
+    /**
+     * Converts a keep-alive to the JSON value Ollama expects.
+     * Ollama reads numbers as seconds and strings as Go durations, so "-1" must be sent as a number.
+     */
+    static Object toApiValue(String keepAlive) {
+        String value = keepAlive.trim();
+        return INTEGER.matcher(value).matches() ? (Object) Long.parseLong(value) : value;
+    }
+}
@@ -0,0 +1,167 @@
+package com.ollama.olama.ui;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
+
+import java.time.LocalTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * View model for one row of the chat history.
+ * Holds the displayed state of a message independently of any node, so the history can be
+ * virtualized: cells bind to an entry while visible and receive streamed appends through a listener.
+ * Must only be used on the JavaFX application thread.
+ */
+public class ChatEntry {
+
+    /**
+     * Receives changes from an entry while a cell is displaying it
+     */
+    public interface Listener {
+        /**
+         * Text was appended to the content
+         */
+        void onAppend(String chunk);
+
+        /**
+         * Content was replaced or other display state changed
+         */
+        void onChanged();
+    }
+
+    private static final DateTimeFormatter TIME_FORMATTER = DateTimeFormatter.ofPattern("HH:mm");
+
+    private final MessageBubble.Role role;
+    private final StringBuilder content;
+    private String cachedContent;
+    private String timestamp;
+    private boolean typing;
+    private boolean error;
+    private final List<Listener> listeners = new ArrayList<>(1);
+
+    public ChatEntry(MessageBubble.Role role, String content, String timestamp) {
+        this.role = role;
+        this.content = new StringBuilder(content != null ? content : "");
+        this.timestamp = timestamp;
+    }
+
+    /**
+     * Creates an entry from a ChatMessage
+     */
+    public static ChatEntry of(ChatMessage message) {
+        return new ChatEntry(
+            MessageBubble.Role.valueOf(message.role().toUpperCase()),
+            message.content(),
+            formatTimestamp(message)
+        );
+    }
+
+    /**
+     * Formats the footer line of a message: its time, plus generation time and speed for responses
+     */
+    public static String formatTimestamp(ChatMessage message) {
+        StringBuilder text = new StringBuilder(message.timestamp().format(TIME_FORMATTER));
+        if (message.generationTimeMs() != null) {
+            text.append(" (").append(message.generationTimeMs()).append("ms");
+            GenerationStats stats = message.stats();
+            if (stats != null && stats.tokensPerSecond() > 0) {
+                text.append(String.format(Locale.ROOT, " · %.1f tok/s", stats.tokensPerSecond()));
+            }
+            text.append(')');
+        }
+        return text.toString();
+    }
+
+    /**
+     * Creates an entry with the current time as timestamp
+     */
+    public static ChatEntry now(MessageBubble.Role role, String content) {
+        return new ChatEntry(role, content, LocalTime.now().format(TIME_FORMATTER));
+    }
+
+    /**
+     * Appends streamed text
+     */
+    public void append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        content.append(chunk);
+        cachedContent = null;
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onAppend(chunk);
+        }
+    }
+
+    /**
+     * Replaces the complete content
+     */
+    public void setContent(String text) {
+        content.setLength(0);
+        content.append(text != null ? text : "");
+        cachedContent = null;
+        fireChanged();
+    }
+
+    public void setTimestamp(String timestamp) {
+        this.timestamp = timestamp;
+        fireChanged();
+    }
+
+    public void setTyping(boolean typing) {
+        if (this.typing != typing) {
+            this.typing = typing;
+            fireChanged();
+        }
+    }
+
+    /**
+     * Marks the entry to be shown with error styling while keeping its role
+     */
+    public void setError(boolean error) {
+        if (this.error != error) {
+            this.error = error;
+            fireChanged();
+        }
+    }
+
+    public MessageBubble.Role getRole() {
+        return role;
+    }
+
+    public String getContent() {
+        if (cachedContent == null) {
+            cachedContent = content.toString();
+        }
+        return cachedContent;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public boolean isTyping() {
+        return typing;
+    }
+
+    public boolean isError() {
+        return error;
+    }
+
+    void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    void removeListener(Listener listener) {
+        listeners.remove(listener);
+    }
+
+    private void fireChanged() {
+        for (int i = 0; i < listeners.size(); i++) {
+            listeners.get(i).onChanged();
+        }
+    }
+}
@@ -0,0 +1,200 @@
+package com.ollama.olama.ui;
+
+import javafx.collections.FXCollections;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.geometry.Pos;
+import javafx.scene.control.IndexedCell;
+import javafx.scene.control.ListCell;
+import javafx.scene.control.ListView;
+import javafx.scene.control.skin.VirtualFlow;
+import javafx.scene.layout.HBox;
+
+import java.util.List;
+
+/**
+ * Virtualized chat history built on a ListView.
+ * Only visible messages have nodes; each cell reuses one MessageBubble and rebinds it to
+ * whichever ChatEntry it shows. Cells have variable heights, keep the role-based alignment,
+ * and the view sticks to the bottom while new content arrives unless the user has scrolled up.
+ */
+public class ChatHistoryView {
+
+    private static final double AT_BOTTOM_EPSILON = 1e-3;
+    private static final Insets USER_MARGIN = new Insets(0, 0, 0, 50);
+    private static final Insets ASSISTANT_MARGIN = new Insets(0, 50, 0, 0);
+    private static final Insets CENTERED_MARGIN = new Insets(0, 50, 0, 50);
+
+    private final ListView<ChatEntry> listView;
+    private final ObservableList<ChatEntry> entries = FXCollections.observableArrayList();
+
+    public ChatHistoryView(ListView<ChatEntry> listView) {
+        this.listView = listView;
+        listView.setItems(entries);
+        listView.setCellFactory(view -> new MessageCell());
+        listView.setFocusTraversable(false);
+        listView.getStyleClass().add("chat-history");
+    }
+
+    /**
+     * Adds an entry to the end of the history, scrolling to it if the view was at the bottom
+     */
+    public void add(ChatEntry entry) {
+        boolean stick = isAtBottom();
+        entries.add(entry);
+        if (stick) {
+            scrollToBottom();
+        }
+    }
+
+    /**
+     * Appends streamed text to an entry, keeping the view pinned to the bottom if it was there
+     */
+    public void append(ChatEntry entry, String chunk) {
+        boolean stick = isAtBottom();
+        entry.append(chunk);
+        if (stick) {
+            scrollToBottom();
+        }
+    }
+
+    /**
+     * Replaces the whole history, e.g. with a restored conversation, and scrolls to its end
+     */
+    public void setAll(List<ChatEntry> restored) {
+        entries.setAll(restored);
+        scrollToBottom();
+    }
+
+    public void clear() {
+        entries.clear();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Scrolls so the end of the last message is visible
+     */
+    public void scrollToBottom() {
+        if (entries.isEmpty()) {
+            return;
+        }
+        VirtualFlow<?> flow = flow();
+        if (flow != null) {
+            // Position 1.0 aligns the bottom of the last cell with the viewport, even for tall cells
+            flow.setPosition(1.0);
+        } else {
+            listView.scrollTo(entries.size() - 1);
+        }
+    }
+
+    /**
+     * Scrolls so an entry is at the top of the view
+     */
+    public void scrollTo(int index) {
+        listView.scrollTo(index);
+    }
+
+    /**
+     * Checks whether the end of the history is currently visible
+     */
+    public boolean isAtBottom() {
+        VirtualFlow<?> flow = flow();
+        if (flow == null || entries.isEmpty()) {
+            return true;
+        }
+        if (flow.getPosition() >= 1.0 - AT_BOTTOM_EPSILON) {
+            return true;
+        }
+
+        // Everything fits in the viewport, so there is nothing to scroll
+        IndexedCell<?> first = flow.getFirstVisibleCell();
+        IndexedCell<?> last = flow.getLastVisibleCell();
+        return first != null && last != null
+            && first.getIndex() == 0
+            && last.getIndex() == entries.size() - 1
+            && last.getBoundsInParent().getMaxY() <= flow.getHeight();
+    }
+
+    private VirtualFlow<?> flow() {
+        return listView.lookup(".virtual-flow") instanceof VirtualFlow<?> flow ? flow : null;
+    }
+
+    /**
+     * Cell that shows a ChatEntry in a reusable MessageBubble
+     */
+    private static class MessageCell extends ListCell<ChatEntry> implements ChatEntry.Listener {
+
+        private final HBox container = new HBox();
+        private final MessageBubble bubble = new MessageBubble(MessageBubble.Role.ASSISTANT, "", "");
+        private ChatEntry bound;
+
+        MessageCell() {
+            container.setMaxWidth(Double.MAX_VALUE);
+            container.getChildren().add(bubble);
+            // Let the cell follow the list width instead of the bubble's preferred width
+            setPrefWidth(0);
+            getStyleClass().add("chat-cell");
+        }
+
+        @Override
+        protected void updateItem(ChatEntry entry, boolean empty) {
+            super.updateItem(entry, empty);
+
+            if (empty || entry == null) {
+                unbind();
+                setGraphic(null);
+                return;
+            }
+
+            if (entry != bound) {
+                unbind();
+                bound = entry;
+                entry.addListener(this);
+                onChanged();
+            }
+            setGraphic(container);
+        }
+
+        @Override
+        public void onAppend(String chunk) {
+            bubble.appendText(chunk);
+        }
+
+        @Override
+        public void onChanged() {
+            ChatEntry entry = bound;
+            bubble.setRole(entry.getRole());
+            applyAlignment(entry.getRole());
+            bubble.setContent(entry.getContent());
+            bubble.updateTimestamp(entry.getTimestamp());
+            bubble.setTyping(entry.isTyping());
+            bubble.setError(entry.isError());
+        }
+
+        private void unbind() {
+            if (bound != null) {
+                bound.removeListener(this);
+                bound = null;
+            }
+        }
+
+        private void applyAlignment(MessageBubble.Role role) {
+            if (role == MessageBubble.Role.USER) {
+                // User messages on the right
+                container.setAlignment(Pos.CENTER_RIGHT);
+                HBox.setMargin(bubble, USER_MARGIN); // Left margin to limit width
+            } else if (role == MessageBubble.Role.ASSISTANT) {
+                // Assistant messages on the left
+                container.setAlignment(Pos.CENTER_LEFT);
+                HBox.setMargin(bubble, ASSISTANT_MARGIN); // Right margin to limit width
+            } else {
+                // System and error messages centered
+                container.setAlignment(Pos.CENTER);
+                HBox.setMargin(bubble, CENTERED_MARGIN); // Both margins
+            }
+        }
+    }
+}
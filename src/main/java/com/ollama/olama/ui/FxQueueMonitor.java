@@ -0,0 +1,48 @@
+package com.ollama.olama.ui;
+
+import javafx.application.Platform;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Wraps Platform.runLater to count tasks posted to the JavaFX event queue that have
+ * not run yet. Only tasks posted through this class are counted.
+ */
+public final class FxQueueMonitor {
+
+    private static final AtomicInteger depth = new AtomicInteger();
+    private static final AtomicInteger maxDepth = new AtomicInteger();
+
+    private FxQueueMonitor() {
+    }
+
+    /**
+     * Posts a task to the JavaFX application thread and tracks it until it runs
+     */
+    public static void runLater(Runnable task) {
+        int current = depth.incrementAndGet();
+        maxDepth.accumulateAndGet(current, Math::max);
+        Platform.runLater(() -> {
+            depth.decrementAndGet();
+            task.run();
+        });
+    }
+
+    /**
+     * Gets the number of tracked tasks waiting on the FX queue
+     */
+    public static int getDepth() {
+        return depth.get();
+    }
+
+    /**
+     * Gets the highest queue depth observed since start or the last reset
+     */
+    public static int getMaxDepth() {
+        return maxDepth.get();
+    }
+
+    public static void resetMaxDepth() {
+        maxDepth.set(depth.get());
+    }
+}
@@ -19,9 +19,12 @@ public class MessageBubble extends HBox {
         USER, ASSISTANT, SYSTEM, ERROR 
     }
     
-    private final Label contentLabel;
+    private static final String TYPING_TEXT = "● ● ● typing...";
+    
+    private final StreamingText content;
+    private final Label typingLabel;
     private final Label timestampLabel;
-    private final Role role;
+    private Role role;
     private final VBox messageContainer;
     private boolean isTyping = false;
     
@@ -41,10 +44,14 @@ public class MessageBubble extends HBox {
     public MessageBubble(Role role, String content, String timestamp) {
         this.role = role;
         
-        // Create content label
-        this.contentLabel = new Label(content);
-        this.contentLabel.setWrapText(true);
-        this.contentLabel.setMaxWidth(400); // Limit bubble width
+        // Create content view; width limits the bubble
+        this.content = new StreamingText(content, 400);
+        
+        // Typing indicator is shown in place of the content until the first token arrives
+        this.typingLabel = new Label(TYPING_TEXT);
+        this.typingLabel.getStyleClass().add("typing-indicator");
+        this.typingLabel.setVisible(false);
+        this.typingLabel.setManaged(false);
         
         // Create timestamp label
         this.timestampLabel = new Label(timestamp);
@@ -52,7 +59,7 @@ public class MessageBubble extends HBox {
         
         // Create container for message content and timestamp
         this.messageContainer = new VBox(5);
-        this.messageContainer.getChildren().addAll(contentLabel, timestampLabel);
+        this.messageContainer.getChildren().addAll(typingLabel, this.content, timestampLabel);
         
         // Configure the HBox layout
         this.getChildren().add(messageContainer);
@@ -72,13 +79,10 @@ public class MessageBubble extends HBox {
     }
     
     /**
-     * Appends text to the content label for streaming responses
+     * Appends text to the content for streaming responses; only the trailing paragraph is re-laid out
      */
     public void appendText(String text) {
-        if (text != null && !text.isEmpty()) {
-            String currentText = contentLabel.getText();
-            contentLabel.setText(currentText + text);
-        }
+        content.append(text);
     }
     
     /**
@@ -86,7 +90,7 @@ public class MessageBubble extends HBox {
      */
     public void setContent(String content) {
         if (content != null) {
-            contentLabel.setText(content);
+            this.content.setText(content);
         }
     }
     
@@ -95,23 +99,18 @@ public class MessageBubble extends HBox {
      */
     public void setTyping(boolean typing) {
         this.isTyping = typing;
-        if (typing && role == Role.ASSISTANT) {
-            contentLabel.setText("● ● ● typing...");
-            contentLabel.getStyleClass().add("typing-indicator");
-        } else {
-            contentLabel.getStyleClass().remove("typing-indicator");
-            // Clear the typing text when stopping typing
-            if (!typing && contentLabel.getText().equals("● ● ● typing...")) {
-                contentLabel.setText("");
-            }
-        }
+        boolean showIndicator = typing && role == Role.ASSISTANT;
+        typingLabel.setVisible(showIndicator);
+        typingLabel.setManaged(showIndicator);
+        content.setVisible(!showIndicator);
+        content.setManaged(!showIndicator);
     }
     
     /**
      * Gets the current content text
      */
     public String getContent() {
-        return contentLabel.getText();
+        return content.getText();
     }
     
     /**
@@ -121,6 +120,30 @@ public class MessageBubble extends HBox {
         return role;
     }
     
+    /**
+     * Changes the message role and re-applies role styling, so a bubble can be reused for another message
+     */
+    public void setRole(Role role) {
+        if (this.role != role) {
+            this.role = role;
+            applyRoleStyles();
+            setTyping(isTyping);
+        }
+    }
+    
+    /**
+     * Shows or removes error styling without changing the role
+     */
+    public void setError(boolean error) {
+        if (error) {
+            if (!getStyleClass().contains("message-bubble-error")) {
+                getStyleClass().add("message-bubble-error");
+            }
+        } else if (role != Role.ERROR) {
+            getStyleClass().remove("message-bubble-error");
+        }
+    }
+    
     /**
      * Applies CSS styling and alignment based on message role
      */
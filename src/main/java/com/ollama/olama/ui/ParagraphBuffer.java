@@ -0,0 +1,78 @@
+package com.ollama.olama.ui;
+
+import java.util.function.Consumer;
+
+/**
+ * Appendable text buffer that splits streamed text into paragraphs separated by blank lines.
+ * Completed paragraphs are reported once as they are sealed; only the trailing paragraph
+ * keeps changing, so a view only has to re-render that part as text arrives.
+ */
+public class ParagraphBuffer {
+
+    private static final String PARAGRAPH_BREAK = "\n\n";
+
+    private final StringBuilder text = new StringBuilder();
+    private int tailStart;
+    private String cachedText = "";
+
+    /**
+     * Appends a chunk of text
+     * @param chunk the text to append
+     * @param onSealed called with each paragraph completed by this chunk, in order
+     */
+    public void append(CharSequence chunk, Consumer<String> onSealed) {
+        if (chunk == null || chunk.length() == 0) {
+            return;
+        }
+
+        // A break may straddle the previous chunk and this one
+        int searchFrom = Math.max(tailStart, text.length() - 1);
+        text.append(chunk);
+        cachedText = null;
+
+        int boundary;
+        while ((boundary = text.indexOf(PARAGRAPH_BREAK, searchFrom)) >= 0) {
+            int start = skipNewlines(tailStart);
+            if (start < boundary) {
+                onSealed.accept(text.substring(start, boundary));
+            }
+            tailStart = boundary + PARAGRAPH_BREAK.length();
+            searchFrom = tailStart;
+        }
+    }
+
+    /**
+     * Gets the trailing paragraph that is still being written, without leading newlines
+     */
+    public String tail() {
+        return text.substring(skipNewlines(tailStart));
+    }
+
+    /**
+     * Gets the complete text exactly as appended
+     */
+    public String text() {
+        if (cachedText == null) {
+            cachedText = text.toString();
+        }
+        return cachedText;
+    }
+
+    public int length() {
+        return text.length();
+    }
+
+    public void clear() {
+        text.setLength(0);
+        tailStart = 0;
+        cachedText = "";
+    }
+
+    private int skipNewlines(int from) {
+        int index = from;
+        while (index < text.length() && text.charAt(index) == '\n') {
+            index++;
+        }
+        return index;
+    }
+}
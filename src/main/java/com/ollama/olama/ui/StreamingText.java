@@ -0,0 +1,75 @@
+package com.ollama.olama.ui;
+
+import javafx.scene.control.Label;
+import javafx.scene.layout.VBox;
+
+/**
+ * Text component for streamed message content.
+ * Each completed paragraph is rendered once in its own Label; only the trailing paragraph's
+ * Label is updated as tokens arrive, so appends cost O(paragraph) instead of O(message)
+ * and earlier paragraphs are not re-measured or re-wrapped.
+ */
+public class StreamingText extends VBox {
+
+    private final ParagraphBuffer buffer = new ParagraphBuffer();
+    private final Label tailLabel;
+    private double wrapWidth;
+
+    public StreamingText(String text, double wrapWidth) {
+        super(6);
+        this.wrapWidth = wrapWidth;
+        this.tailLabel = createLabel();
+        getChildren().add(tailLabel);
+        getStyleClass().add("message-content");
+        setText(text);
+    }
+
+    /**
+     * Appends text, sealing any paragraphs it completes
+     */
+    public void append(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        buffer.append(chunk, this::addSealedParagraph);
+        tailLabel.setText(buffer.tail());
+    }
+
+    /**
+     * Replaces the complete text
+     */
+    public void setText(String text) {
+        buffer.clear();
+        getChildren().setAll(tailLabel);
+        tailLabel.setText("");
+        append(text);
+    }
+
+    /**
+     * Gets the complete text exactly as appended
+     */
+    public String getText() {
+        return buffer.text();
+    }
+
+    /**
+     * Sets the maximum width at which paragraphs wrap
+     */
+    public void setWrapWidth(double wrapWidth) {
+        this.wrapWidth = wrapWidth;
+        getChildren().forEach(node -> ((Label) node).setMaxWidth(wrapWidth));
+    }
+
+    private void addSealedParagraph(String paragraph) {
+        Label label = createLabel();
+        label.setText(paragraph);
+        getChildren().add(getChildren().size() - 1, label);
+    }
+
+    private Label createLabel() {
+        Label label = new Label();
+        label.setWrapText(true);
+        label.setMaxWidth(wrapWidth);
+        return label;
+    }
+}
@@ -0,0 +1,84 @@
+package com.ollama.olama.ui;
+
+/**
+ * Thread-safe buffer that collects streamed tokens on the network thread and hands
+ * them to the UI thread as a single batch. Tracks how long tokens wait before being drained.
+ */
+public class TokenCoalescer {
+
+    private final StringBuilder pending = new StringBuilder();
+    private int pendingTokens;
+    private long oldestPendingNanos;
+
+    private long totalTokens;
+    private long totalFlushes;
+    private long maxLatencyNanos;
+    private long lastLatencyNanos;
+
+    /**
+     * Buffers a token; safe to call from any thread
+     */
+    public synchronized void offer(String token) {
+        if (token == null || token.isEmpty()) {
+            return;
+        }
+        if (pendingTokens == 0) {
+            oldestPendingNanos = System.nanoTime();
+        }
+        pending.append(token);
+        pendingTokens++;
+        totalTokens++;
+    }
+
+    /**
+     * Removes and returns everything buffered since the last drain
+     * @return the concatenated tokens, or null if nothing is pending
+     */
+    public synchronized String drain() {
+        if (pendingTokens == 0) {
+            return null;
+        }
+        String batch = pending.toString();
+        lastLatencyNanos = System.nanoTime() - oldestPendingNanos;
+        maxLatencyNanos = Math.max(maxLatencyNanos, lastLatencyNanos);
+        totalFlushes++;
+
+        pending.setLength(0);
+        pendingTokens = 0;
+        return batch;
+    }
+
+    /**
+     * Discards anything buffered without counting it as a flush
+     */
+    public synchronized void clear() {
+        pending.setLength(0);
+        pendingTokens = 0;
+    }
+
+    public synchronized int getPendingTokens() {
+        return pendingTokens;
+    }
+
+    public synchronized long getTotalTokens() {
+        return totalTokens;
+    }
+
+    public synchronized long getTotalFlushes() {
+        return totalFlushes;
+    }
+
+    /**
+     * Gets the longest time a token waited in the buffer before being drained
+     */
+    public synchronized long getMaxLatencyNanos() {
+        return maxLatencyNanos;
+    }
+
+    /**
+     * Gets how long the oldest token of the most recent batch waited before being drained
+     */
+    public synchronized long getLastLatencyNanos() {
+        return lastLatencyNanos;
+    }
+}
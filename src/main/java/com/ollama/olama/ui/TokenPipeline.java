@@ -0,0 +1,113 @@
+package com.ollama.olama.ui;
+
+import com.ollama.olama.diagnostics.UiFlushEvent;
+import javafx.animation.AnimationTimer;
+
+import java.util.function.Consumer;
+
+/**
+ * Delivers streamed tokens from the network thread to the JavaFX thread once per pulse.
+ * Tokens are buffered off-thread in a TokenCoalescer and an AnimationTimer drains them,
+ * so each frame does at most one append and one scroll no matter how fast the model is.
+ * A token waits at most one pulse (about 16 ms at 60 fps) plus whatever the FX thread is busy with.
+ */
+public class TokenPipeline {
+
+    /**
+     * Snapshot of pipeline counters for diagnostics
+     */
+    public record Metrics(
+        long tokens,
+        long flushes,
+        int pendingTokens,
+        double maxLatencyMs,
+        double lastLatencyMs,
+        int fxQueueDepth,
+        int maxFxQueueDepth
+    ) {}
+
+    private final TokenCoalescer coalescer = new TokenCoalescer();
+    private final Consumer<String> onFlush;
+    private final AnimationTimer timer;
+    private volatile boolean stopped;
+
+    /**
+     * @param onFlush called on the FX thread with all tokens received since the previous pulse
+     */
+    public TokenPipeline(Consumer<String> onFlush) {
+        this.onFlush = onFlush;
+        this.timer = new AnimationTimer() {
+            @Override
+            public void handle(long now) {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Starts flushing on every pulse; must be called on the FX thread
+     */
+    public void start() {
+        stopped = false;
+        timer.start();
+    }
+
+    /**
+     * Buffers a token; safe to call from any thread. Tokens offered after stop are dropped.
+     */
+    public void offer(String token) {
+        if (!stopped) {
+            coalescer.offer(token);
+        }
+    }
+
+    /**
+     * Stops the timer and delivers anything still buffered; must be called on the FX thread
+     */
+    public void stop() {
+        stopped = true;
+        timer.stop();
+        flush();
+    }
+
+    /**
+     * Stops the timer and drops anything still buffered; must be called on the FX thread
+     */
+    public void discard() {
+        stopped = true;
+        timer.stop();
+        coalescer.clear();
+    }
+
+    public Metrics getMetrics() {
+        return new Metrics(
+            coalescer.getTotalTokens(),
+            coalescer.getTotalFlushes(),
+            coalescer.getPendingTokens(),
+            coalescer.getMaxLatencyNanos() / 1_000_000.0,
+            coalescer.getLastLatencyNanos() / 1_000_000.0,
+            FxQueueMonitor.getDepth(),
+            FxQueueMonitor.getMaxDepth()
+        );
+    }
+
+    private void flush() {
+        UiFlushEvent event = new UiFlushEvent();
+        event.begin();
+        
+        int batchTokens = event.isEnabled() ? coalescer.getPendingTokens() : 0;
+        String batch = coalescer.drain();
+        if (batch != null) {
+            onFlush.accept(batch);
+            
+            event.end();
+            if (event.shouldCommit()) {
+                event.tokenCount = batchTokens;
+                event.characters = batch.length();
+                event.waitNanos = coalescer.getLastLatencyNanos();
+                event.fxQueueDepth = FxQueueMonitor.getDepth();
+                event.commit();
+            }
+        }
+    }
+}
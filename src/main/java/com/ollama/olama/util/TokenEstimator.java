@@ -0,0 +1,69 @@
+package com.ollama.olama.util;
+
+/**
+ * Utility class for estimating how many tokens a text will use in a model's context window.
+ * Uses a tokenizer-free heuristic so it can run on every message without model-specific data.
+ */
+public class TokenEstimator {
+
+    /**
+     * Average number of ASCII characters per token for typical English text and code
+     */
+    private static final double ASCII_CHARS_PER_TOKEN = 4.0;
+
+    /**
+     * Estimates the token count of a text.
+     * ASCII text is counted at about four characters per token; other code points
+     * (accented letters, CJK, emoji) are counted as one token each, which errs on the high side.
+     *
+     * @param text the text to estimate, may be null
+     * @return the estimated token count, 0 for null or empty text
+     */
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+
+        int asciiChars = 0;
+        int otherCodePoints = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                asciiChars++;
+            } else if (!Character.isLowSurrogate(c)) {
+                otherCodePoints++;
+            }
+        }
+
+        return (int) Math.ceil(asciiChars / ASCII_CHARS_PER_TOKEN) + otherCodePoints;
+    }
+
+    /**
+     * Returns the longest prefix of a text that fits in the given number of tokens
+     *
+     * @param text the text to shorten
+     * @param maxTokens the token allowance
+     * @return the shortened text, or the original text if it already fits
+     */
+    public static String keepFirstTokens(String text, int maxTokens) {
+        if (text == null || estimate(text) <= maxTokens) {
+            return text;
+        }
+
+        int asciiChars = 0;
+        int otherCodePoints = 0;
+        int end = 0;
+        while (end < text.length()) {
+            int codePoint = text.codePointAt(end);
+            int nextAscii = asciiChars + (codePoint < 0x80 ? 1 : 0);
+            int nextOther = otherCodePoints + (codePoint < 0x80 ? 0 : 1);
+            if (Math.ceil(nextAscii / ASCII_CHARS_PER_TOKEN) + nextOther > maxTokens) {
+                break;
+            }
+            asciiChars = nextAscii;
+            otherCodePoints = nextOther;
+            end += Character.charCount(codePoint);
+        }
+        return text.substring(0, end);
+    }
+}
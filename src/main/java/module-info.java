@@ -2,6 +2,7 @@ module com.ollama.olama {
     requires javafx.controls;
     requires javafx.fxml;
     requires java.net.http;
+    requires jdk.jfr;
     requires com.fasterxml.jackson.core;
     requires com.fasterxml.jackson.databind;
     requires com.fasterxml.jackson.datatype.jsr310;
@@ -17,4 +18,6 @@ module com.ollama.olama {
     exports com.ollama.olama.manager;
     exports com.ollama.olama.service;
     exports com.ollama.olama.controller;
+    exports com.ollama.olama.diagnostics;
+    exports com.ollama.olama.search;
 }
\ No newline at end of file
@@ -0,0 +1,125 @@
+package com.ollama.olama.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.service.ChatRequestBody;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.net.http.HttpRequest;
+import java.nio.ByteBuffer;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures producing the /api/chat request body for growing histories, which happens on every send
+ * since the whole conversation is resent. Compares the streamed body against serializing a map of the
+ * whole request to one array, as was done before. The document sizes give bodies of 1 MB and 4 MB;
+ * add -prof gc to the JMH arguments to see the allocation per request.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ChatRequestBodyBenchmark -prof gc"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatRequestBodyBenchmark {
+
+    @Param({"10", "1000", "10000"})
+    int messages;
+
+    /**
+     * Size of a document pasted into the first message, 0 for none
+     */
+    @Param({"0", "1048576", "4194304"})
+    int documentBytes;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService executor;
+    private List<ChatMessage> history;
+
+    @Setup
+    public void setUp() {
+        history = ConversationFixtures.withPastedDocument(messages, documentBytes);
+        executor = Executors.newVirtualThreadPerTaskExecutor();
+    }
+
+    @TearDown
+    public void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Benchmark
+    public byte[] serializeMapToBytes() throws IOException {
+        List<Map<String, String>> apiMessages = history.stream()
+            .map(message -> Map.of("role", message.role(), "content", message.content()))
+            .toList();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("model", "llama3:8b");
+        body.put("messages", apiMessages);
+        body.put("stream", true);
+        body.put("keep_alive", "5m");
+        return objectMapper.writeValueAsBytes(body);
+    }
+
+    @Benchmark
+    public long streamToPublisher() {
+        HttpRequest.BodyPublisher publisher = ChatRequestBody.publisher(
+            objectMapper, "llama3:8b", history, "5m", Map.of(), executor, bytes -> { });
+        DrainingSubscriber subscriber = new DrainingSubscriber();
+        publisher.subscribe(subscriber);
+        return subscriber.done.join();
+    }
+
+    /**
+     * Reads every chunk as the HTTP client would, one at a time
+     */
+    private static final class DrainingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        final CompletableFuture<Long> done = new CompletableFuture<>();
+        private Flow.Subscription subscription;
+        private long bytes;
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            this.subscription = subscription;
+            subscription.request(1);
+        }
+
+        @Override
+        public void onNext(ByteBuffer item) {
+            bytes += item.remaining();
+            subscription.request(1);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(bytes);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package com.ollama.olama.benchmark;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.service.OllamaServiceImpl;
+import com.ollama.olama.testing.FakeOllamaServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures a full sendChatMessage round trip over loopback HTTP against the stand-in server,
+ * which streams as fast as it can. Shows the client-side cost per response: request building,
+ * HttpClient, decoding and callbacks.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ChatRoundTripBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatRoundTripBenchmark {
+
+    @Param({"100", "1000"})
+    int tokens;
+
+    @Param({"1", "8"})
+    int tokensPerLine;
+
+    private FakeOllamaServer server;
+    private OllamaServiceImpl service;
+    private List<ChatMessage> history;
+
+    @Setup
+    public void setUp() throws IOException {
+        server = FakeOllamaServer.start().responseTokens(tokens).chunking(tokensPerLine, 4);
+        service = new OllamaServiceImpl();
+        service.setBaseUrl(server.baseUrl());
+        history = ConversationFixtures.conversation(10);
+    }
+
+    @TearDown
+    public void tearDown() {
+        server.close();
+    }
+
+    @Benchmark
+    public ChatMessage sendChatMessage(Blackhole blackhole) {
+        return service.sendChatMessage("llama3:8b", history, blackhole::consume).result().join();
+    }
+}
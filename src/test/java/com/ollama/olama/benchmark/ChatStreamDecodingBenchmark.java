@@ -0,0 +1,90 @@
+package com.ollama.olama.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.service.ChatStreamDecoder;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the per-line JsonNode parsing that processStreamingResponse used to do with
+ * the byte-level ChatStreamDecoder. The benchmark profile adds the gc profiler, which reports allocation per op:
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ChatStreamDecodingBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChatStreamDecodingBenchmark {
+
+    @Param({"100", "1000"})
+    int tokens;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private byte[] body;
+
+    @Setup
+    public void setUp() {
+        body = StreamFixtures.chatStream(tokens).getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public void linesAndTrees(Blackhole blackhole) throws IOException {
+        StringBuilder completeContent = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(new ByteArrayInputStream(body), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.trim().isEmpty()) {
+                    continue;
+                }
+                JsonNode json = objectMapper.readTree(line);
+                JsonNode message = json.get("message");
+                if (message != null) {
+                    String content = message.get("content").asText();
+                    if (!content.isEmpty()) {
+                        completeContent.append(content);
+                        blackhole.consume(content);
+                    }
+                }
+                if (json.has("done") && json.get("done").asBoolean()) {
+                    blackhole.consume(json.get("eval_count").asLong());
+                }
+            }
+        }
+        blackhole.consume(completeContent.toString());
+    }
+
+    @Benchmark
+    public void streamingDecoder(Blackhole blackhole) throws IOException {
+        StringBuilder completeContent = new StringBuilder();
+        ChatStreamDecoder decoder = new ChatStreamDecoder(objectMapper.getFactory());
+        decoder.decode(new ByteArrayInputStream(body), content -> {
+            completeContent.append(content);
+            blackhole.consume(content);
+        });
+        blackhole.consume(decoder.getEvalCount());
+        blackhole.consume(completeContent.toString());
+    }
+}
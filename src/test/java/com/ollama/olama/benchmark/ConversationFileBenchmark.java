@@ -0,0 +1,77 @@
+package com.ollama.olama.benchmark;
+
+import com.ollama.olama.manager.ConversationManager;
+import com.ollama.olama.manager.ConversationManagerImpl;
+import com.ollama.olama.model.ChatMessage;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures saving and loading a conversation file. Includes file system time,
+ * so compare runs made on the same machine only.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="ConversationFileBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ConversationFileBenchmark {
+
+    @Param({"10", "1000"})
+    int messages;
+
+    private ConversationManager savedConversation;
+    private ConversationManager loadTarget;
+    private File saveFile;
+    private File loadFile;
+
+    @Setup
+    public void setUp() throws IOException {
+        savedConversation = new ConversationManagerImpl();
+        savedConversation.setSystemPrompt("You are a helpful assistant.");
+        for (ChatMessage message : ConversationFixtures.conversation(messages)) {
+            savedConversation.addMessage(message);
+        }
+
+        saveFile = Files.createTempFile("conversation-save", ".json").toFile();
+        loadFile = Files.createTempFile("conversation-load", ".json").toFile();
+        savedConversation.saveToFile(loadFile);
+        loadTarget = new ConversationManagerImpl();
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(saveFile.toPath());
+        Files.deleteIfExists(loadFile.toPath());
+    }
+
+    @Benchmark
+    public void save() throws IOException {
+        savedConversation.saveToFile(saveFile);
+    }
+
+    @Benchmark
+    public int load() throws IOException {
+        loadTarget.loadFromFile(loadFile);
+        return loadTarget.getMessages().size();
+    }
+}
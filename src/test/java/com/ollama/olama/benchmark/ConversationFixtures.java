@@ -0,0 +1,63 @@
+package com.ollama.olama.benchmark;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Builds representative conversation histories for benchmarks.
+ */
+final class ConversationFixtures {
+
+    private static final String QUESTION =
+        "Can you explain how the garbage collector decides when to promote objects to the old generation?";
+    private static final String ANSWER =
+        "Objects that survive a number of young collections are copied to the old generation. "
+            + "The threshold adapts to how full the survivor spaces are.\n\n"
+            + "```java\nvar list = new ArrayList<String>();\nfor (int i = 0; i < 1_000; i++) {\n"
+            + "    list.add(\"item \" + i);\n}\n```\n\n"
+            + "Large objects may be allocated directly in the old generation.";
+
+    private ConversationFixtures() {
+    }
+
+    /**
+     * Returns alternating user and assistant messages, the assistant ones with stats attached
+     */
+    static List<ChatMessage> conversation(int messages) {
+        LocalDateTime start = LocalDateTime.of(2024, 5, 12, 11, 0);
+        GenerationStats stats = new GenerationStats(
+            4_123_456_789L, 12_345_678L, 26, 130_000_000L, 120, 3_900_000_000L, 180, 32.5, 95.0);
+
+        List<ChatMessage> history = new ArrayList<>(messages);
+        for (int i = 0; i < messages; i++) {
+            LocalDateTime timestamp = start.plusSeconds(i * 30L);
+            if (i % 2 == 0) {
+                history.add(new ChatMessage("user", QUESTION + " (" + i + ")", timestamp, null));
+            } else {
+                history.add(new ChatMessage("assistant", ANSWER, timestamp, 4_200L, 0, stats));
+            }
+        }
+        return history;
+    }
+
+    /**
+     * Returns a conversation whose first user message carries a pasted document of about the given size,
+     * like a file dropped into the chat
+     */
+    static List<ChatMessage> withPastedDocument(int messages, int documentBytes) {
+        List<ChatMessage> history = conversation(messages);
+        if (documentBytes > 0 && !history.isEmpty()) {
+            StringBuilder document = new StringBuilder(documentBytes + ANSWER.length());
+            while (document.length() < documentBytes) {
+                document.append(ANSWER).append('\n');
+            }
+            ChatMessage first = history.get(0);
+            history.set(0, new ChatMessage(first.role(), "Please review this:\n" + document, first.timestamp(), null));
+        }
+        return history;
+    }
+}
@@ -0,0 +1,110 @@
+package com.ollama.olama.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares two JMH JSON result files, e.g. one saved from the previous commit and the latest run.
+ * Prints the score and normalized allocation (bytes/op from -prof gc) of each benchmark side by side.
+ * <pre>
+ * cp target/jmh-result.json baseline.json
+ * ... change code, run the benchmarks again ...
+ * mvn -Pbenchmark test-compile exec:exec@jmh-diff -Djmh.baseline=baseline.json
+ * </pre>
+ */
+public final class JmhResultDiff {
+
+    private static final String ALLOC_METRIC = "gc.alloc.rate.norm";
+
+    private JmhResultDiff() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: JmhResultDiff <baseline.json> <current.json>");
+            System.exit(2);
+        }
+
+        Map<String, Result> baseline = read(new File(args[0]));
+        Map<String, Result> current = read(new File(args[1]));
+
+        System.out.printf(Locale.ROOT, "%-60s %18s %18s %8s %12s %12s %8s%n",
+            "Benchmark", "Base score", "Score", "Change", "Base B/op", "B/op", "Change");
+        Map<String, Result> all = new TreeMap<>(baseline);
+        all.putAll(current);
+        for (String key : all.keySet()) {
+            Result before = baseline.get(key);
+            Result after = current.get(key);
+            System.out.printf(Locale.ROOT, "%-60s %18s %18s %8s %12s %12s %8s%n",
+                key,
+                format(before != null ? before.score : Double.NaN, before != null ? before.unit : ""),
+                format(after != null ? after.score : Double.NaN, after != null ? after.unit : ""),
+                change(before != null ? before.score : Double.NaN, after != null ? after.score : Double.NaN),
+                format(before != null ? before.allocBytesPerOp : Double.NaN, ""),
+                format(after != null ? after.allocBytesPerOp : Double.NaN, ""),
+                change(before != null ? before.allocBytesPerOp : Double.NaN,
+                    after != null ? after.allocBytesPerOp : Double.NaN));
+        }
+    }
+
+    /**
+     * Reads a result file keyed by benchmark name and parameters
+     */
+    static Map<String, Result> read(File file) throws IOException {
+        Map<String, Result> results = new LinkedHashMap<>();
+        for (JsonNode run : new ObjectMapper().readTree(file)) {
+            StringBuilder key = new StringBuilder(shortName(run.path("benchmark").asText()));
+            JsonNode params = run.path("params");
+            Iterator<Map.Entry<String, JsonNode>> fields = params.fields();
+            while (fields.hasNext()) {
+                Map.Entry<String, JsonNode> param = fields.next();
+                key.append(' ').append(param.getKey()).append('=').append(param.getValue().asText());
+            }
+
+            JsonNode primary = run.path("primaryMetric");
+            double alloc = Double.NaN;
+            Iterator<Map.Entry<String, JsonNode>> secondary = run.path("secondaryMetrics").fields();
+            while (secondary.hasNext()) {
+                Map.Entry<String, JsonNode> metric = secondary.next();
+                // Older JMH versions prefix profiler metrics with a middle dot
+                if (metric.getKey().endsWith(ALLOC_METRIC)) {
+                    alloc = metric.getValue().path("score").asDouble();
+                }
+            }
+            results.put(key.toString(), new Result(
+                primary.path("score").asDouble(), primary.path("scoreUnit").asText(), alloc));
+        }
+        return results;
+    }
+
+    private static String shortName(String benchmark) {
+        int methodDot = benchmark.lastIndexOf('.');
+        int classDot = methodDot > 0 ? benchmark.lastIndexOf('.', methodDot - 1) : -1;
+        return benchmark.substring(classDot + 1);
+    }
+
+    private static String format(double value, String unit) {
+        if (Double.isNaN(value)) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%.2f%s", value, unit.isEmpty() ? "" : " " + unit);
+    }
+
+    private static String change(double before, double after) {
+        if (Double.isNaN(before) || Double.isNaN(after) || before == 0) {
+            return "-";
+        }
+        return String.format(Locale.ROOT, "%+.1f%%", (after - before) / before * 100);
+    }
+
+    record Result(double score, String unit, double allocBytesPerOp) {
+    }
+}
@@ -0,0 +1,50 @@
+package com.ollama.olama.benchmark;
+
+import com.ollama.olama.service.PasswordHasher;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures hashing a new password and verifying a login against a stored hash.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="PasswordHashingBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PasswordHashingBenchmark {
+
+    private static final String PASSWORD = "correct horse battery staple";
+
+    private final PasswordHasher hasher = new PasswordHasher();
+    private String storedHash;
+
+    @Setup
+    public void setUp() {
+        storedHash = hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public String hash() {
+        return hasher.hash(PASSWORD);
+    }
+
+    @Benchmark
+    public boolean verify() {
+        return hasher.verify(PASSWORD, storedHash);
+    }
+}
@@ -0,0 +1,34 @@
+package com.ollama.olama.benchmark;
+
+/**
+ * Builds representative /api/chat response bodies for benchmarks.
+ */
+final class StreamFixtures {
+
+    private static final String[] WORDS = {
+        "The", " quick", " brown", " fox", " jumps", " over", " the", " lazy", " dog", ".",
+        "\n", " Streaming", " tokens", " are", " usually", " short", ",", " often", " one", " word"
+    };
+
+    private StreamFixtures() {
+    }
+
+    /**
+     * Returns an NDJSON body with the given number of content chunks and a final stats chunk
+     */
+    static String chatStream(int tokens) {
+        StringBuilder body = new StringBuilder(tokens * 120);
+        for (int i = 0; i < tokens; i++) {
+            body.append("{\"model\":\"llama3:8b\",\"created_at\":\"2024-05-12T11:35:25.123456Z\",")
+                .append("\"message\":{\"role\":\"assistant\",\"content\":\"")
+                .append(WORDS[i % WORDS.length].replace("\n", "\\n"))
+                .append("\"},\"done\":false}\n");
+        }
+        body.append("{\"model\":\"llama3:8b\",\"created_at\":\"2024-05-12T11:35:29.123456Z\",")
+            .append("\"message\":{\"role\":\"assistant\",\"content\":\"\"},\"done_reason\":\"stop\",\"done\":true,")
+            .append("\"total_duration\":4123456789,\"load_duration\":12345678,\"prompt_eval_count\":26,")
+            .append("\"prompt_eval_duration\":130000000,\"eval_count\":").append(tokens)
+            .append(",\"eval_duration\":3900000000}\n");
+        return body.toString();
+    }
+}
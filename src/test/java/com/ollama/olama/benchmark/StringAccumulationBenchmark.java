@@ -0,0 +1,80 @@
+package com.ollama.olama.benchmark;
+
+import com.ollama.olama.ui.ParagraphBuffer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ways of accumulating a streamed response for display, without the JavaFX layout cost:
+ * re-concatenating the whole text per token as MessageBubble's Label used to, a plain
+ * StringBuilder, and the ParagraphBuffer that StreamingText uses.
+ * <pre>
+ * mvn -Pbenchmark test-compile exec:exec -Djmh.args="StringAccumulationBenchmark"
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class StringAccumulationBenchmark {
+
+    private static final String[] WORDS = {
+        "The", " quick", " brown", " fox", " jumps", " over", " the", " lazy", " dog", ".",
+        "\n\n", "Streaming", " tokens", " are", " usually", " short", ",", " often", " one", " word"
+    };
+
+    @Param({"100", "2000"})
+    int tokens;
+
+    private String[] stream;
+
+    @Setup
+    public void setUp() {
+        stream = new String[tokens];
+        for (int i = 0; i < tokens; i++) {
+            stream[i] = WORDS[i % WORDS.length];
+        }
+    }
+
+    @Benchmark
+    public void concatenatePerToken(Blackhole blackhole) {
+        String text = "";
+        for (String token : stream) {
+            text = text + token;
+            blackhole.consume(text);
+        }
+    }
+
+    @Benchmark
+    public void stringBuilder(Blackhole blackhole) {
+        StringBuilder text = new StringBuilder();
+        for (String token : stream) {
+            text.append(token);
+        }
+        blackhole.consume(text.toString());
+    }
+
+    @Benchmark
+    public void paragraphBuffer(Blackhole blackhole) {
+        ParagraphBuffer buffer = new ParagraphBuffer();
+        for (String token : stream) {
+            buffer.append(token, blackhole::consume);
+            blackhole.consume(buffer.tail());
+        }
+        blackhole.consume(buffer.text());
+    }
+}
@@ -0,0 +1,351 @@
+package com.ollama.olama.loadtest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.manager.ConversationManager;
+import com.ollama.olama.manager.ConversationManagerImpl;
+import com.ollama.olama.model.AppSettings;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.service.AsyncRuntime;
+import com.ollama.olama.service.ChatGeneration;
+import com.ollama.olama.service.OllamaServiceImpl;
+import com.ollama.olama.testing.FakeOllamaServer;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Load generator that runs simulated chat users against an Ollama endpoint and reports how the
+ * client layer scales. Each user is a virtual thread with its own AsyncRuntime and OllamaServiceImpl
+ * (as each running app has) that plays scripted multi-turn conversations through ConversationManagerImpl.
+ * <p>
+ * For every concurrency level it prints time-to-first-token and completion latency percentiles,
+ * aggregate and per-stream tokens per second, error rate, peak heap, CPU and GC activity.
+ * Without --endpoint an in-process FakeOllamaServer is used; its CPU and heap are then included.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dload.args="--users 1,8,32 --turns 4"
+ * mvn -Ploadtest test-compile exec:exec -Dload.args="--endpoint http://gpu-box:11434 --model llama3:8b --json target/load.json"
+ * </pre>
+ */
+public final class ChatLoadHarness {
+
+    private static final String[] PROMPTS = {
+        "Summarize the main differences between TCP and UDP.",
+        "Give me three ideas for a weekend project in Java.",
+        "Explain what a virtual thread is in two sentences.",
+        "Now rewrite that answer for a ten year old.",
+        "What are common causes of high GC pause times?",
+        "Write a haiku about streaming tokens."
+    };
+
+    private static final String SYSTEM_PROMPT = "You are a helpful assistant. Keep answers short.";
+
+    /**
+     * Command line options; see {@link #usage()}
+     */
+    record Options(
+        String endpoint,
+        String model,
+        int[] userLevels,
+        int conversations,
+        int turns,
+        Duration thinkTime,
+        Duration requestTimeout,
+        int contextTokens,
+        double standInTokenRate,
+        Duration standInFirstToken,
+        int standInTokens,
+        Path json
+    ) {
+
+        static Options parse(String[] args) {
+            String endpoint = null;
+            String model = "llama3:8b";
+            int[] users = {1, 4, 16, 64};
+            int conversations = 2;
+            int turns = 4;
+            Duration thinkTime = Duration.ZERO;
+            Duration requestTimeout = Duration.ofMinutes(2);
+            int contextTokens = AppSettings.DEFAULT_CONTEXT_TOKENS;
+            double rate = 50;
+            Duration firstToken = Duration.ofMillis(200);
+            int tokens = 100;
+            Path json = null;
+
+            for (int i = 0; i < args.length; i++) {
+                String value = i + 1 < args.length ? args[i + 1] : null;
+                switch (args[i]) {
+                    case "--endpoint" -> endpoint = value;
+                    case "--model" -> model = value;
+                    case "--users" -> users = Arrays.stream(value.split(",")).mapToInt(Integer::parseInt).toArray();
+                    case "--conversations" -> conversations = Integer.parseInt(value);
+                    case "--turns" -> turns = Integer.parseInt(value);
+                    case "--think-ms" -> thinkTime = Duration.ofMillis(Long.parseLong(value));
+                    case "--timeout-s" -> requestTimeout = Duration.ofSeconds(Long.parseLong(value));
+                    case "--context-tokens" -> contextTokens = Integer.parseInt(value);
+                    case "--stand-in-rate" -> rate = Double.parseDouble(value);
+                    case "--stand-in-first-token-ms" -> firstToken = Duration.ofMillis(Long.parseLong(value));
+                    case "--stand-in-tokens" -> tokens = Integer.parseInt(value);
+                    case "--json" -> json = Path.of(value);
+                    case "--help" -> throw new IllegalArgumentException(usage());
+                    default -> throw new IllegalArgumentException("Unknown option " + args[i] + "\n" + usage());
+                }
+                i++;
+            }
+            return new Options(endpoint, model, users, conversations, turns, thinkTime, requestTimeout,
+                contextTokens, rate, firstToken, tokens, json);
+        }
+
+        static String usage() {
+            return """
+                Options:
+                  --endpoint URL                 Ollama base URL (default: in-process stand-in server)
+                  --model NAME                   model to chat with (default llama3:8b)
+                  --users 1,4,16,64              concurrency levels to run, in order
+                  --conversations N              conversations per user per level (default 2)
+                  --turns N                      user messages per conversation (default 4)
+                  --think-ms N                   pause between turns (default 0)
+                  --timeout-s N                  per-response timeout (default 120)
+                  --context-tokens N             prompt token budget (default 4096)
+                  --stand-in-rate N              stand-in tokens per second per stream (default 50)
+                  --stand-in-first-token-ms N    stand-in delay before the first token (default 200)
+                  --stand-in-tokens N            stand-in tokens per response (default 100)
+                  --json FILE                    also write results as JSON
+                """;
+        }
+    }
+
+    private final Options options;
+    private final String endpoint;
+
+    ChatLoadHarness(Options options, String endpoint) {
+        this.options = options;
+        this.endpoint = endpoint;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options;
+        try {
+            options = Options.parse(args);
+        } catch (IllegalArgumentException | NullPointerException e) {
+            System.err.println(e.getMessage() != null ? e.getMessage() : Options.usage());
+            System.exit(2);
+            return;
+        }
+
+        FakeOllamaServer standIn = null;
+        String endpoint = options.endpoint();
+        if (endpoint == null) {
+            standIn = FakeOllamaServer.start()
+                .tokenRate(options.standInTokenRate())
+                .firstTokenDelay(options.standInFirstToken())
+                .responseTokens(options.standInTokens());
+            endpoint = standIn.baseUrl();
+            System.out.println("No --endpoint given; using the in-process stand-in server (its CPU and heap are included)");
+        }
+
+        try {
+            ChatLoadHarness harness = new ChatLoadHarness(options, endpoint);
+
+            // Warm up the JIT and connection code before measuring
+            harness.runLevel(1, 1, 2);
+
+            System.out.println(header());
+            List<LoadLevelResult> results = new ArrayList<>();
+            for (int users : options.userLevels()) {
+                LoadLevelResult result = harness.runLevel(users, options.conversations(), options.turns());
+                results.add(result);
+                System.out.println(row(result));
+            }
+
+            if (options.json() != null) {
+                new ObjectMapper().writerWithDefaultPrettyPrinter().writeValue(options.json().toFile(), results);
+                System.out.println("Results written to " + options.json());
+            }
+        } finally {
+            if (standIn != null) {
+                standIn.close();
+            }
+        }
+    }
+
+    /**
+     * Runs the given number of users to completion and measures the whole level
+     */
+    LoadLevelResult runLevel(int users, int conversations, int turns) throws InterruptedException {
+        Percentiles timeToFirstToken = new Percentiles();
+        Percentiles completion = new Percentiles();
+        Percentiles streamRates = new Percentiles();
+        AtomicInteger totalTurns = new AtomicInteger();
+        AtomicInteger errors = new AtomicInteger();
+        LongAdder tokens = new LongAdder();
+
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+        heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+        long cpuStart = processCpuNanos();
+        long gcCountStart = gcCount();
+        long gcTimeStart = gcTimeMs();
+        long start = System.nanoTime();
+
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int user = 0; user < users; user++) {
+                int userId = user;
+                executor.submit(() -> runUser(userId, conversations, turns,
+                    timeToFirstToken, completion, streamRates, totalTurns, errors, tokens));
+            }
+        }
+
+        double wallSeconds = (System.nanoTime() - start) / 1e9;
+        long peakHeap = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        double cpuCores = (processCpuNanos() - cpuStart) / 1e9 / wallSeconds;
+        return new LoadLevelResult(
+            users,
+            totalTurns.get(),
+            errors.get(),
+            wallSeconds,
+            timeToFirstToken.summarize(),
+            completion.summarize(),
+            tokens.sum() / wallSeconds,
+            streamRates.summarize().p50() / 1000.0,
+            peakHeap,
+            cpuCores,
+            gcCount() - gcCountStart,
+            gcTimeMs() - gcTimeStart
+        );
+    }
+
+    private void runUser(int userId, int conversations, int turns,
+                         Percentiles timeToFirstToken, Percentiles completion, Percentiles streamRates,
+                         AtomicInteger totalTurns, AtomicInteger errors, LongAdder tokens) {
+        try (AsyncRuntime runtime = new AsyncRuntime(); OllamaServiceImpl service = new OllamaServiceImpl(runtime)) {
+            service.setBaseUrl(endpoint);
+            runConversations(service, userId, conversations, turns,
+                timeToFirstToken, completion, streamRates, totalTurns, errors, tokens);
+        }
+    }
+
+    private void runConversations(OllamaServiceImpl service, int userId, int conversations, int turns,
+                                  Percentiles timeToFirstToken, Percentiles completion, Percentiles streamRates,
+                                  AtomicInteger totalTurns, AtomicInteger errors, LongAdder tokens) {
+
+        for (int c = 0; c < conversations; c++) {
+            ConversationManager conversation = new ConversationManagerImpl();
+            conversation.setSystemPrompt(SYSTEM_PROMPT);
+
+            for (int turn = 0; turn < turns; turn++) {
+                conversation.addMessage(ChatMessage.user(PROMPTS[(userId + c + turn) % PROMPTS.length]));
+                totalTurns.incrementAndGet();
+
+                AtomicLong firstTokenAt = new AtomicLong();
+                AtomicInteger chunks = new AtomicInteger();
+                long sentAt = System.nanoTime();
+                ChatGeneration generation = service.sendChatMessage(
+                    options.model(),
+                    conversation.getMessagesForApi(options.contextTokens()),
+                    token -> {
+                        firstTokenAt.compareAndSet(0, System.nanoTime());
+                        chunks.incrementAndGet();
+                    }
+                );
+                try {
+                    ChatMessage reply = generation.result().get(options.requestTimeout().toMillis(), TimeUnit.MILLISECONDS);
+                    long doneAt = System.nanoTime();
+                    conversation.addMessage(reply);
+
+                    long generated = reply.stats() != null && reply.stats().evalCount() > 0
+                        ? reply.stats().evalCount()
+                        : chunks.get();
+                    tokens.add(generated);
+                    completion.add(TimeUnit.NANOSECONDS.toMillis(doneAt - sentAt));
+                    if (firstTokenAt.get() != 0) {
+                        timeToFirstToken.add(TimeUnit.NANOSECONDS.toMillis(firstTokenAt.get() - sentAt));
+                        long streamNanos = doneAt - firstTokenAt.get();
+                        if (streamNanos > 0) {
+                            // Stored in milli-tokens per second to keep precision in a long
+                            streamRates.add((long) (generated * 1e12 / streamNanos));
+                        }
+                    }
+                } catch (ExecutionException | TimeoutException e) {
+                    errors.incrementAndGet();
+                    generation.cancel();
+                    // Abandon this conversation like a user who gives up after an error
+                    break;
+                } catch (InterruptedException e) {
+                    generation.cancel();
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+
+                if (!options.thinkTime().isZero()) {
+                    try {
+                        Thread.sleep(options.thinkTime());
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        return;
+                    }
+                }
+            }
+        }
+    }
+
+    private static String header() {
+        return String.format(Locale.ROOT, "%6s %6s %7s | %-20s | %-20s | %9s %9s | %8s %6s %5s %7s",
+            "users", "turns", "errors", "TTFT ms p50/p90/p99", "total ms p50/p90/p99",
+            "tok/s all", "tok/s p50", "heap MB", "cpu", "gcs", "gc ms");
+    }
+
+    private static String row(LoadLevelResult result) {
+        Percentiles.Summary ttft = result.timeToFirstTokenMs();
+        Percentiles.Summary total = result.completionMs();
+        return String.format(Locale.ROOT, "%6d %6d %6.1f%% | %-20s | %-20s | %9.1f %9.1f | %8.1f %6.2f %5d %7d",
+            result.users(),
+            result.turns(),
+            result.errorRate() * 100,
+            ttft.p50() + "/" + ttft.p90() + "/" + ttft.p99(),
+            total.p50() + "/" + total.p90() + "/" + total.p99(),
+            result.aggregateTokensPerSecond(),
+            result.medianStreamTokensPerSecond(),
+            result.peakHeapBytes() / (1024.0 * 1024.0),
+            result.cpuCores(),
+            result.gcCount(),
+            result.gcTimeMs());
+    }
+
+    private static long processCpuNanos() {
+        if (ManagementFactory.getOperatingSystemMXBean() instanceof com.sun.management.OperatingSystemMXBean os) {
+            return os.getProcessCpuTime();
+        }
+        return 0;
+    }
+
+    private static long gcCount() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+            .filter(count -> count > 0)
+            .sum();
+    }
+
+    private static long gcTimeMs() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+            .mapToLong(GarbageCollectorMXBean::getCollectionTime)
+            .filter(time -> time > 0)
+            .sum();
+    }
+}
@@ -0,0 +1,114 @@
+package com.ollama.olama.loadtest;
+
+import com.ollama.olama.manager.ConversationLibrary;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.search.FullTextIndex;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.stream.Stream;
+
+/**
+ * Feeds a FullTextIndex generated messages and reports how fast they are indexed and how much heap it
+ * takes, to check that the heap stays bounded however many messages go in. Run it with a small maximum
+ * heap; finishing without an OutOfMemoryError is the check, the live heap after the run is the measure.
+ * <pre>
+ * mvn -Ploadtest test-compile exec:exec -Dload.main=com.ollama.olama.loadtest.FullTextIndexHarness \
+ *     -Dload.jvm=-Xmx96m -Dload.args="--messages 1000000"
+ * </pre>
+ */
+public final class FullTextIndexHarness {
+
+    private static final String[] WORDS = {
+        "the", "build", "fails", "with", "a", "missing", "module", "when", "running", "tests", "connection",
+        "refused", "timeout", "retry", "stream", "token", "model", "context", "window", "heap", "thread",
+        "virtual", "gradle", "maven", "docker", "kubernetes", "pod", "restart", "query", "index", "segment",
+        "answer", "question", "explain", "summarize", "rewrite", "function", "class", "method", "null",
+        "pointer", "exception", "stack", "trace", "latency", "throughput", "cache", "memory", "disk", "file"
+    };
+
+    private FullTextIndexHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        int messages = 1_000_000;
+        int perConversation = 200;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--messages" -> messages = Integer.parseInt(args[i + 1]);
+                case "--per-conversation" -> perConversation = Integer.parseInt(args[i + 1]);
+                default -> {
+                    System.err.println("Options: --messages N (default 1000000), --per-conversation N (default 200)");
+                    System.exit(2);
+                }
+            }
+        }
+
+        Path directory = Files.createTempDirectory("fulltext-harness");
+        ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+        List<MemoryPoolMXBean> heapPools = ManagementFactory.getMemoryPoolMXBeans().stream()
+            .filter(pool -> pool.getType() == MemoryType.HEAP)
+            .toList();
+        Path libraryDirectory = directory.resolve("library");
+        try (ConversationLibrary library = ConversationLibrary.open(libraryDirectory, scheduler, Runnable::run)) {
+            // Indexing on the calling thread, so the harness never queues more than the index holds itself
+            FullTextIndex index = new FullTextIndex(directory.resolve("fulltext"), library, scheduler, Runnable::run);
+            Random random = new Random(42);
+            heapPools.forEach(MemoryPoolMXBean::resetPeakUsage);
+            long start = System.nanoTime();
+            for (int i = 0; i < messages; i++) {
+                index.messageAdded("conversation-" + i / perConversation, i % perConversation, message(random, i));
+            }
+            index.flush();
+            double seconds = (System.nanoTime() - start) / 1e9;
+            index.close();
+            System.gc();
+            long live = ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+            long peak = heapPools.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+            System.out.printf(Locale.ROOT, "messages %d in %.1f s (%.0f/s), segments %d, index on disk %.1f MB%n",
+                messages, seconds, messages / seconds, index.segmentCount(), directorySize(directory) / 1e6);
+            System.out.printf(Locale.ROOT, "max heap %.1f MB, peak heap pools %.1f MB, live after GC %.1f MB%n",
+                Runtime.getRuntime().maxMemory() / 1e6, peak / 1e6, live / 1e6);
+        } finally {
+            scheduler.shutdownNow();
+            deleteRecursively(directory);
+        }
+    }
+
+    /**
+     * A message of 10 to 40 words, with an error code and an identifier so the vocabulary keeps growing
+     */
+    private static ChatMessage message(Random random, int i) {
+        StringBuilder content = new StringBuilder();
+        int words = 10 + random.nextInt(31);
+        for (int w = 0; w < words; w++) {
+            content.append(WORDS[random.nextInt(WORDS.length)]).append(' ');
+        }
+        content.append("E").append(random.nextInt(10_000)).append(" getItem").append(i % 50_000);
+        return i % 2 == 0 ? ChatMessage.user(content.toString()) : ChatMessage.assistant(content.toString(), 100L);
+    }
+
+    private static long directorySize(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files.filter(Files::isRegularFile).mapToLong(file -> file.toFile().length()).sum();
+        }
+    }
+
+    private static void deleteRecursively(Path directory) throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            for (Path file : files.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
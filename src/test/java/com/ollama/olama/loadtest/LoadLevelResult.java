@@ -0,0 +1,25 @@
+package com.ollama.olama.loadtest;
+
+/**
+ * Results of running all simulated users at one concurrency level.
+ * Latencies are in milliseconds; CPU is process CPU time divided by wall time, so 2.0 means two busy cores.
+ */
+record LoadLevelResult(
+    int users,
+    int turns,
+    int errors,
+    double wallSeconds,
+    Percentiles.Summary timeToFirstTokenMs,
+    Percentiles.Summary completionMs,
+    double aggregateTokensPerSecond,
+    double medianStreamTokensPerSecond,
+    long peakHeapBytes,
+    double cpuCores,
+    long gcCount,
+    long gcTimeMs
+) {
+
+    double errorRate() {
+        return turns == 0 ? 0.0 : (double) errors / turns;
+    }
+}
@@ -0,0 +1,54 @@
+package com.ollama.olama.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Collects samples from many threads and computes nearest-rank percentiles.
+ */
+final class Percentiles {
+
+    private long[] samples = new long[256];
+    private int count;
+
+    synchronized void add(long value) {
+        if (count == samples.length) {
+            samples = Arrays.copyOf(samples, count * 2);
+        }
+        samples[count++] = value;
+    }
+
+    synchronized int count() {
+        return count;
+    }
+
+    /**
+     * Gets a snapshot of the distribution
+     */
+    synchronized Summary summarize() {
+        if (count == 0) {
+            return new Summary(0, 0, 0, 0, 0, 0);
+        }
+        long[] sorted = Arrays.copyOf(samples, count);
+        Arrays.sort(sorted);
+        double sum = 0;
+        for (long value : sorted) {
+            sum += value;
+        }
+        return new Summary(
+            count,
+            sum / count,
+            rank(sorted, 50),
+            rank(sorted, 90),
+            rank(sorted, 99),
+            sorted[count - 1]
+        );
+    }
+
+    private static long rank(long[] sorted, double percentile) {
+        int index = (int) Math.ceil(percentile / 100.0 * sorted.length) - 1;
+        return sorted[Math.max(0, Math.min(sorted.length - 1, index))];
+    }
+
+    record Summary(int count, double mean, long p50, long p90, long p99, long max) {
+    }
+}
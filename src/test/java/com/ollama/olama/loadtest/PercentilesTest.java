@@ -0,0 +1,42 @@
+package com.ollama.olama.loadtest;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PercentilesTest {
+
+    @Test
+    void shouldComputeNearestRankPercentiles() {
+        // Given
+        Percentiles percentiles = new Percentiles();
+        for (int value = 100; value >= 1; value--) {
+            percentiles.add(value);
+        }
+
+        // When
+        Percentiles.Summary summary = percentiles.summarize();
+
+        // Then
+        assertThat(summary.count()).isEqualTo(100);
+        assertThat(summary.mean()).isCloseTo(50.5, within(0.001));
+        assertThat(summary.p50()).isEqualTo(50);
+        assertThat(summary.p90()).isEqualTo(90);
+        assertThat(summary.p99()).isEqualTo(99);
+        assertThat(summary.max()).isEqualTo(100);
+    }
+
+    @Test
+    void shouldSummarizeEmptyAndSingleSampleSets() {
+        // Given
+        Percentiles empty = new Percentiles();
+        Percentiles single = new Percentiles();
+        single.add(42);
+
+        // When / Then
+        assertThat(empty.summarize().count()).isZero();
+        assertThat(single.summarize().p50()).isEqualTo(42);
+        assertThat(single.summarize().p99()).isEqualTo(42);
+    }
+}
@@ -0,0 +1,92 @@
+package com.ollama.olama.manager;
+
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContextBuilderTest {
+
+    private static final String LONG_TEXT = "word ".repeat(400);
+
+    @Test
+    void shouldKeepEverythingWhenHistoryFitsBudget() {
+        // Given
+        ContextBuilder builder = new ContextBuilder(ContextBuilder.Policy.DROP_OLDEST, 1);
+        ChatMessage system = ChatMessage.system("Be helpful");
+        List<ChatMessage> history = List.of(
+            ChatMessage.user("Hi"),
+            ChatMessage.assistant("Hello", 10),
+            ChatMessage.user("How are you?")
+        );
+
+        // When
+        List<ChatMessage> result = builder.build(system, history, 4096);
+
+        // Then
+        assertThat(result).containsExactly(system, history.get(0), history.get(1), history.get(2));
+    }
+
+    @Test
+    void shouldDropOldestMessagesButKeepSystemPromptAndLatestTurn() {
+        // Given
+        ContextBuilder builder = new ContextBuilder(ContextBuilder.Policy.DROP_OLDEST, 1);
+        ChatMessage system = ChatMessage.system("Be helpful");
+        ChatMessage oldUser = ChatMessage.user(LONG_TEXT);
+        ChatMessage oldReply = ChatMessage.assistant(LONG_TEXT, 10);
+        ChatMessage latest = ChatMessage.user("Latest question");
+        int budget = ContextBuilder.estimateTokens(List.of(system, oldReply, latest)) + 1;
+
+        // When
+        List<ChatMessage> result = builder.build(system, List.of(oldUser, oldReply, latest), budget);
+
+        // Then
+        assertThat(result).containsExactly(system, oldReply, latest);
+        assertThat(ContextBuilder.estimateTokens(result)).isLessThanOrEqualTo(budget);
+    }
+
+    @Test
+    void shouldKeepLatestTurnEvenWhenItExceedsBudget() {
+        // Given
+        ContextBuilder builder = new ContextBuilder(ContextBuilder.Policy.DROP_OLDEST, 1);
+        ChatMessage older = ChatMessage.user("Older");
+        ChatMessage latest = ChatMessage.user(LONG_TEXT);
+
+        // When
+        List<ChatMessage> result = builder.build(null, List.of(older, latest), 10);
+
+        // Then
+        assertThat(result).containsExactly(latest);
+    }
+
+    @Test
+    void shouldTruncateBoundaryMessageWithTruncatePolicy() {
+        // Given
+        ContextBuilder builder = new ContextBuilder(ContextBuilder.Policy.TRUNCATE_OLDEST, 1);
+        ChatMessage oldest = ChatMessage.user("Oldest");
+        ChatMessage boundary = ChatMessage.assistant(LONG_TEXT, 10);
+        ChatMessage latest = ChatMessage.user("Latest question");
+        int budget = ContextBuilder.estimateTokens(List.of(latest)) + 100;
+
+        // When
+        List<ChatMessage> result = builder.build(null, List.of(oldest, boundary, latest), budget);
+
+        // Then
+        assertThat(result).hasSize(2);
+        assertThat(result.get(0).role()).isEqualTo("assistant");
+        assertThat(result.get(0).content()).endsWith(ContextBuilder.TRUNCATION_MARKER);
+        assertThat(LONG_TEXT).startsWith(result.get(0).content().replace(ContextBuilder.TRUNCATION_MARKER, ""));
+        assertThat(result.get(1)).isEqualTo(latest);
+        assertThat(ContextBuilder.estimateTokens(result)).isLessThanOrEqualTo(budget);
+    }
+
+    @Test
+    void shouldFallBackToDropOldestForUnknownPolicyName() {
+        // When / Then
+        assertThat(ContextBuilder.Policy.fromName("truncate_oldest")).isEqualTo(ContextBuilder.Policy.TRUNCATE_OLDEST);
+        assertThat(ContextBuilder.Policy.fromName("bogus")).isEqualTo(ContextBuilder.Policy.DROP_OLDEST);
+        assertThat(ContextBuilder.Policy.fromName(null)).isEqualTo(ContextBuilder.Policy.DROP_OLDEST);
+    }
+}
@@ -0,0 +1,242 @@
+package com.ollama.olama.manager;
+
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationJournalTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private Path journalFile() {
+        return tempDir.resolve("users").resolve("alice").resolve("conversation.journal");
+    }
+
+    private ConversationJournal open() throws IOException {
+        return ConversationJournal.open(journalFile(), ConversationJournal.SyncPolicy.ALWAYS, scheduler, Runnable::run);
+    }
+
+    @Test
+    void shouldRecoverTheConversationByReplayingTheJournal() throws IOException {
+        // Given
+        ConversationManager conversation = new ConversationManagerImpl();
+        ConversationJournal journal = open();
+        conversation.addListener(journal);
+        conversation.addMessage(ChatMessage.user("What is a write-ahead log?"));
+        conversation.addMessage(ChatMessage.assistant("A log written before the data it describes.", 800L));
+        String id = conversation.getConversationId();
+        journal.close();
+
+        // When
+        ConversationJournal reopened = open();
+        ConversationManager restored = new ConversationManagerImpl();
+        restored.restoreConversation(reopened.conversationId(), reopened.messages());
+
+        // Then
+        assertThat(reopened.conversationId()).isEqualTo(id);
+        assertThat(restored.getConversationId()).isEqualTo(id);
+        assertThat(restored.getMessages()).isEqualTo(conversation.getMessages());
+    }
+
+    @Test
+    void shouldStartEmptyAfterTheConversationWasCleared() throws IOException {
+        // Given
+        ConversationManager conversation = new ConversationManagerImpl();
+        ConversationJournal journal = open();
+        conversation.addListener(journal);
+        conversation.addMessage(ChatMessage.user("old question"));
+        conversation.clearConversation();
+        conversation.addMessage(ChatMessage.user("new question"));
+        journal.close();
+
+        // When
+        ConversationJournal reopened = open();
+
+        // Then
+        assertThat(reopened.conversationId()).isEqualTo(conversation.getConversationId());
+        assertThat(reopened.messages()).extracting(ChatMessage::content).containsExactly("new question");
+    }
+
+    @Test
+    void shouldDropATornRecordAndKeepAppendingAfterIt() throws IOException {
+        // Given
+        ConversationJournal journal = open();
+        journal.messageAdded("c1", 0, ChatMessage.user("first"));
+        journal.messageAdded("c1", 1, ChatMessage.assistant("second", 100L));
+        journal.close();
+        long intact = Files.size(journalFile());
+        // A crash in the middle of writing the next record
+        try (FileChannel channel = FileChannel.open(journalFile(), StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 7, 7, 7}));
+        }
+
+        // When
+        ConversationJournal recovered = open();
+        recovered.messageAdded("c1", 2, ChatMessage.user("third"));
+        recovered.close();
+        ConversationJournal reopened = open();
+
+        // Then
+        assertThat(recovered.sizeBytes()).isGreaterThan(intact);
+        assertThat(reopened.messages()).extracting(ChatMessage::content).containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void shouldIgnoreARecordWithABadChecksum() throws IOException {
+        // Given
+        ConversationJournal journal = open();
+        journal.messageAdded("c1", 0, ChatMessage.user("kept"));
+        long intact = journal.sizeBytes();
+        journal.messageAdded("c1", 1, ChatMessage.user("corrupted"));
+        journal.close();
+        try (FileChannel channel = FileChannel.open(journalFile(), StandardOpenOption.WRITE)) {
+            // Flip a byte in the second record's payload
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), intact + 20);
+        }
+
+        // When
+        ConversationJournal reopened = open();
+
+        // Then
+        assertThat(reopened.messages()).extracting(ChatMessage::content).containsExactly("kept");
+        assertThat(reopened.sizeBytes()).isEqualTo(intact);
+    }
+
+    @Test
+    void shouldCompactToTheCurrentConversation() throws IOException {
+        // Given
+        ConversationManager conversation = new ConversationManagerImpl();
+        ConversationJournal journal = open();
+        conversation.addListener(journal);
+        for (int i = 0; i < 50; i++) {
+            conversation.addMessage(ChatMessage.user("cleared message " + i));
+        }
+        conversation.clearConversation();
+        conversation.addMessage(ChatMessage.user("current"));
+        long before = journal.sizeBytes();
+
+        // When
+        journal.compact().join();
+        conversation.addMessage(ChatMessage.assistant("still journaled after compaction", 100L));
+        journal.close();
+        ConversationJournal reopened = open();
+
+        // Then
+        assertThat(reopened.sizeBytes()).isLessThan(before / 10);
+        assertThat(reopened.conversationId()).isEqualTo(conversation.getConversationId());
+        assertThat(reopened.messages()).extracting(ChatMessage::content)
+            .containsExactly("current", "still journaled after compaction");
+    }
+
+    @Test
+    void shouldRecordAConversationLoadedFromAFile() throws IOException {
+        // Given
+        ConversationManager saved = new ConversationManagerImpl();
+        saved.addMessage(ChatMessage.user("from a file"));
+        saved.saveToFile(tempDir.resolve("saved.json").toFile());
+        ConversationManager conversation = new ConversationManagerImpl();
+        ConversationJournal journal = open();
+        conversation.addListener(journal);
+        conversation.addMessage(ChatMessage.user("replaced"));
+
+        // When
+        conversation.loadFromFile(tempDir.resolve("saved.json").toFile());
+        journal.close();
+        ConversationJournal reopened = open();
+
+        // Then
+        assertThat(reopened.conversationId()).isEqualTo(saved.getConversationId());
+        assertThat(reopened.messages()).extracting(ChatMessage::content).containsExactly("from a file");
+    }
+
+    @Test
+    void shouldRecordOnlyTheMessagesTheJournalDoesNotHave() throws IOException {
+        // Given
+        ConversationManager conversation = new ConversationManagerImpl();
+        ConversationJournal journal = open();
+        conversation.addListener(journal);
+        conversation.addMessage(ChatMessage.user("recorded question"));
+        conversation.addMessage(ChatMessage.assistant("recorded answer", 100L));
+        long recorded = journal.sizeBytes();
+        List<ChatMessage> longer = new ArrayList<>(conversation.getMessages());
+        longer.add(ChatMessage.user("not recorded yet"));
+
+        // When
+        journal.conversationLoaded(conversation.getConversationId(), conversation.getMessages());
+        long afterSameConversation = journal.sizeBytes();
+        journal.conversationLoaded(conversation.getConversationId(), longer);
+        journal.close();
+
+        // Then
+        assertThat(afterSameConversation).isEqualTo(recorded);
+        assertThat(open().messages()).isEqualTo(longer);
+    }
+
+    @Test
+    void shouldRecordOnlyAnOpenRecordForAConversationTheLibraryHolds() throws IOException {
+        // Given
+        ConversationLibrary library = ConversationLibrary.open(tempDir.resolve("library"), scheduler, Runnable::run);
+        List<ChatMessage> saved = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            saved.add(ChatMessage.user("saved message " + i));
+        }
+        library.conversationLoaded("saved-conversation", saved);
+        ConversationJournal journal = ConversationJournal.open(
+            journalFile(), ConversationJournal.SyncPolicy.ALWAYS, library, scheduler, Runnable::run);
+        ConversationManager conversation = new ConversationManagerImpl();
+        conversation.addListener(library);
+        conversation.addListener(journal);
+        long before = journal.sizeBytes();
+
+        // When
+        conversation.restoreConversation("saved-conversation", saved);
+        long afterOpen = journal.sizeBytes();
+        conversation.addMessage(ChatMessage.user("asked after opening"));
+        journal.close();
+        ConversationJournal reopened = ConversationJournal.open(
+            journalFile(), ConversationJournal.SyncPolicy.ALWAYS, library, scheduler, Runnable::run);
+
+        // Then
+        assertThat(afterOpen - before).isLessThan(100);
+        assertThat(reopened.conversationId()).isEqualTo("saved-conversation");
+        assertThat(reopened.messages()).isEqualTo(conversation.getMessages());
+        library.close();
+    }
+
+    @Test
+    void shouldKeepAnUnreadableFileAside() throws IOException {
+        // Given
+        Files.createDirectories(journalFile().getParent());
+        Files.writeString(journalFile(), "not a journal");
+
+        // When
+        ConversationJournal journal = open();
+
+        // Then
+        assertThat(journal.messages()).isEmpty();
+        assertThat(journalFile().resolveSibling("conversation.journal.unreadable")).hasContent("not a journal");
+        assertThat(journal.conversationId()).isNull();
+    }
+}
@@ -0,0 +1,294 @@
+package com.ollama.olama.manager;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.ConversationSummary;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConversationLibraryTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    private Path libraryDirectory() {
+        return tempDir.resolve("users").resolve("alice").resolve("library");
+    }
+
+    private ConversationLibrary open() throws IOException {
+        return ConversationLibrary.open(libraryDirectory(), scheduler, Runnable::run);
+    }
+
+    private static ConversationManager conversationWith(ConversationLibrary library, String... contents) {
+        ConversationManager conversation = new ConversationManagerImpl();
+        conversation.addListener(library);
+        for (int i = 0; i < contents.length; i++) {
+            conversation.addMessage(i % 2 == 0
+                ? ChatMessage.user(contents[i])
+                : ChatMessage.assistant(contents[i], 100L));
+        }
+        return conversation;
+    }
+
+    @Test
+    void shouldListConversationsFromTheIndexAlone() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager first = conversationWith(library, "How do B-trees   split?", "When a node overflows.");
+        ConversationManager second = conversationWith(library, "Explain   memory\nmapping");
+        library.modelUsed(first.getConversationId(), "llama3:8b");
+        library.close();
+        // Damage a message without changing the file size; listing must not read it
+        Path file = libraryDirectory().resolve("conversations").resolve(first.getConversationId() + ".conv");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[] {'X'}), 20);
+        }
+
+        // When
+        ConversationLibrary reopened = open();
+        List<ConversationSummary> summaries = reopened.list();
+
+        // Then
+        assertThat(summaries).extracting(ConversationSummary::id)
+            .containsExactly(second.getConversationId(), first.getConversationId());
+        assertThat(summaries.get(0).title()).isEqualTo("Explain memory mapping");
+        assertThat(summaries.get(1).title()).isEqualTo("How do B-trees split?");
+        assertThat(summaries.get(1).messageCount()).isEqualTo(2);
+        assertThat(summaries.get(1).model()).isEqualTo("llama3:8b");
+    }
+
+    @Test
+    void shouldReadMessagesPageByPage() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        String[] contents = new String[120];
+        for (int i = 0; i < contents.length; i++) {
+            contents[i] = "message " + i;
+        }
+        ConversationManager conversation = conversationWith(library, contents);
+
+        // When
+        try (ConversationPages pages = library.openPages(conversation.getConversationId())) {
+
+            // Then
+            assertThat(pages.size()).isEqualTo(120);
+            assertThat(pages.pageCount()).isEqualTo(3);
+            assertThat(pages.page(0)).hasSize(ConversationPages.PAGE_SIZE)
+                .first().extracting(ChatMessage::content).isEqualTo("message 0");
+            assertThat(pages.page(2)).extracting(ChatMessage::content)
+                .hasSize(20).endsWith("message 119");
+            assertThat(pages.get(77)).isEqualTo(conversation.getMessages().get(77));
+        }
+        assertThat(library.load(conversation.getConversationId())).isEqualTo(conversation.getMessages());
+    }
+
+    @Test
+    void shouldRescanConversationsTheIndexDoesNotMatch() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "question", "answer");
+        library.close();
+        Path index = libraryDirectory().resolve("index.json");
+        byte[] staleIndex = Files.readAllBytes(index);
+        ConversationLibrary appended = open();
+        conversation.addListener(appended);
+        conversation.addMessage(ChatMessage.user("asked after the index was saved"));
+        // The app stopped before the index was saved again
+        Files.write(index, staleIndex);
+
+        // When
+        ConversationLibrary reopened = open();
+
+        // Then
+        assertThat(reopened.summary(conversation.getConversationId())).get()
+            .extracting(ConversationSummary::messageCount).isEqualTo(3);
+        assertThat(reopened.load(conversation.getConversationId())).isEqualTo(conversation.getMessages());
+    }
+
+    @Test
+    void shouldDropAMessageCutShortAndKeepAppending() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "first", "second");
+        library.close();
+        Path file = libraryDirectory().resolve("conversations").resolve(conversation.getConversationId() + ".conv");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 1, 0, 7, 7, 7}));
+        }
+
+        // When
+        ConversationLibrary reopened = open();
+        reopened.messageAdded(conversation.getConversationId(), 2, ChatMessage.user("third"));
+
+        // Then
+        assertThat(reopened.load(conversation.getConversationId())).extracting(ChatMessage::content)
+            .containsExactly("first", "second", "third");
+    }
+
+    @Test
+    void shouldKeepAConversationListedWhenItsFileCannotBeRead() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "first", "second");
+        library.close();
+        Path file = libraryDirectory().resolve("conversations").resolve(conversation.getConversationId() + ".conv");
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // A complete record whose checksum does not match
+            channel.write(ByteBuffer.wrap(new byte[] {0, 0, 0, 3, 0, 0, 0, 0, 7, 7, 7}));
+        }
+
+        // When
+        ConversationLibrary reopened = open();
+
+        // Then
+        assertThat(reopened.summary(conversation.getConversationId())).get()
+            .extracting(ConversationSummary::messageCount).isEqualTo(2);
+    }
+
+    @Test
+    void shouldStoreOnlyTheMissingMessagesOfALoadedConversation() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "kept", "also kept");
+        List<ChatMessage> longer = new ArrayList<>(conversation.getMessages());
+        longer.add(ChatMessage.user("only in the journal"));
+        long before = library.summary(conversation.getConversationId()).orElseThrow().sizeBytes();
+
+        // When
+        ConversationManager restored = new ConversationManagerImpl();
+        restored.addListener(library);
+        restored.restoreConversation(conversation.getConversationId(), longer);
+
+        // Then
+        ConversationSummary summary = library.summary(conversation.getConversationId()).orElseThrow();
+        assertThat(summary.messageCount()).isEqualTo(3);
+        assertThat(summary.sizeBytes()).isGreaterThan(before);
+        assertThat(library.load(conversation.getConversationId())).isEqualTo(longer);
+    }
+
+    @Test
+    void shouldReplaceAConversationLoadedWithFewerMessages() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "one", "two", "three");
+
+        // When
+        library.conversationLoaded(conversation.getConversationId(), List.of(ChatMessage.user("edited elsewhere")));
+
+        // Then
+        assertThat(library.load(conversation.getConversationId())).extracting(ChatMessage::content)
+            .containsExactly("edited elsewhere");
+        assertThat(library.summary(conversation.getConversationId())).get()
+            .extracting(ConversationSummary::title).isEqualTo("edited elsewhere");
+    }
+
+    @Test
+    void shouldReplaceAConversationLoadedWithTheSameCountButOtherMessages() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "question", "first answer");
+        List<ChatMessage> regenerated = List.of(conversation.getMessages().get(0),
+            ChatMessage.assistant("regenerated answer", 100L));
+
+        // When
+        library.conversationLoaded(conversation.getConversationId(), regenerated);
+
+        // Then
+        assertThat(library.load(conversation.getConversationId())).extracting(ChatMessage::content)
+            .containsExactly("question", "regenerated answer");
+    }
+
+    @Test
+    void shouldKeepPagesOpenedBeforeAConversationWasReplacedReadable() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "one", "two", "three");
+
+        try (ConversationPages pages = library.openPages(conversation.getConversationId())) {
+            // When
+            library.conversationLoaded(conversation.getConversationId(), List.of(ChatMessage.user("edited elsewhere")));
+
+            // Then
+            assertThat(pages.all()).extracting(ChatMessage::content).containsExactly("one", "two", "three");
+        }
+        assertThat(library.load(conversation.getConversationId())).extracting(ChatMessage::content)
+            .containsExactly("edited elsewhere");
+        library.close();
+        assertThat(open().load(conversation.getConversationId())).extracting(ChatMessage::content)
+            .containsExactly("edited elsewhere");
+        try (var files = Files.list(libraryDirectory().resolve("conversations"))) {
+            assertThat(files).hasSize(1);
+        }
+    }
+
+    @Test
+    void shouldFinishADeletionLeftUndoneWhenOpened() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "still mapped somewhere");
+        library.close();
+        Path conversations = libraryDirectory().resolve("conversations");
+        // What delete leaves when the file could not be removed yet
+        Files.createFile(conversations.resolve(conversation.getConversationId() + ".1.conv"));
+
+        // When
+        ConversationLibrary reopened = open();
+
+        // Then
+        assertThat(reopened.list()).isEmpty();
+        assertThat(conversations).isEmptyDirectory();
+    }
+
+    @Test
+    void shouldDeleteAConversationAndNotifyListeners() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+        ConversationManager conversation = conversationWith(library, "to delete");
+        AtomicInteger changes = new AtomicInteger();
+        library.addChangeListener(changes::incrementAndGet);
+
+        // When
+        library.delete(conversation.getConversationId());
+        library.close();
+        ConversationLibrary reopened = open();
+
+        // Then
+        assertThat(changes).hasValue(1);
+        assertThat(reopened.list()).isEmpty();
+        assertThat(libraryDirectory().resolve("conversations")).isEmptyDirectory();
+    }
+
+    @Test
+    void shouldNotStoreAConversationWhoseIdIsNotAFileName() throws IOException {
+        // Given
+        ConversationLibrary library = open();
+
+        // When
+        library.conversationLoaded("../escaped", List.of(ChatMessage.user("imported")));
+
+        // Then
+        assertThat(library.list()).isEmpty();
+        assertThat(libraryDirectory().resolve("escaped.conv")).doesNotExist();
+    }
+}
@@ -9,6 +9,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Path;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 
 import static org.assertj.core.api.Assertions.assertThat;
@@ -102,4 +103,55 @@ class ConversationManagerTest {
         assertThat(apiMessages.get(0).role()).isEqualTo("system");
         assertThat(apiMessages.get(0).content()).isEqualTo(systemPrompt);
     }
-}
\ No newline at end of file
+    
+    @Test
+    void shouldKeepConversationIdAcrossSaveAndLoad() throws IOException {
+        // Given
+        conversationManager.addMessage(ChatMessage.user("Hello"));
+        String id = conversationManager.getConversationId();
+        File saveFile = tempDir.resolve("conversation_with_id.json").toFile();
+        conversationManager.saveToFile(saveFile);
+        
+        // When
+        ConversationManager newManager = new ConversationManagerImpl();
+        newManager.loadFromFile(saveFile);
+        conversationManager.clearConversation();
+        
+        // Then
+        assertThat(newManager.getConversationId()).isEqualTo(id);
+        assertThat(conversationManager.getConversationId()).isNotEqualTo(id);
+    }
+    
+    @Test
+    void shouldNotifyListenersOfChanges() throws IOException {
+        // Given
+        List<String> events = new ArrayList<>();
+        conversationManager.addListener(new ConversationListener() {
+            @Override
+            public void messageAdded(String conversationId, int index, ChatMessage message) {
+                events.add("added " + index + " " + message.content());
+            }
+            
+            @Override
+            public void conversationCleared(String conversationId) {
+                events.add("cleared");
+            }
+            
+            @Override
+            public void conversationLoaded(String conversationId, List<ChatMessage> messages) {
+                events.add("loaded " + messages.size());
+            }
+        });
+        File saveFile = tempDir.resolve("listened_conversation.json").toFile();
+        
+        // When
+        conversationManager.addMessage(ChatMessage.user("first"));
+        conversationManager.addMessage(ChatMessage.assistant("second", 100L));
+        conversationManager.saveToFile(saveFile);
+        conversationManager.clearConversation();
+        conversationManager.loadFromFile(saveFile);
+        
+        // Then
+        assertThat(events).containsExactly("added 0 first", "added 1 second", "cleared", "loaded 2");
+    }
+}
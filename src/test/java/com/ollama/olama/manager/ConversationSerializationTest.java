@@ -1,6 +1,7 @@
 package com.ollama.olama.manager;
 
 import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 
@@ -44,4 +45,24 @@ class ConversationSerializationTest {
         assertThat(jsonContent).contains("\"generationTimeMs\":1000");
         assertThat(jsonContent).contains("\"systemPrompt\":\"You are helpful\"");
     }
+    
+    @Test
+    void shouldPersistGenerationStats() throws IOException {
+        // Given
+        GenerationStats stats = new GenerationStats(9_000, 2_000, 20, 500, 50, 2_000_000_000L, 250, 20.5, 31.0);
+        ConversationManager manager = new ConversationManagerImpl();
+        manager.addMessage(ChatMessage.assistant("Hi there!", 1000L, stats));
+        File saveFile = tempDir.resolve("stats.json").toFile();
+        
+        // When
+        manager.saveToFile(saveFile);
+        ConversationManager loaded = new ConversationManagerImpl();
+        loaded.loadFromFile(saveFile);
+        
+        // Then
+        assertThat(Files.readString(saveFile.toPath())).contains("\"evalCount\":50");
+        assertThat(loaded.getMessages()).hasSize(1);
+        assertThat(loaded.getMessages().get(0).stats()).isEqualTo(stats);
+        assertThat(loaded.getMessages().get(0).stats().tokensPerSecond()).isEqualTo(25.0);
+    }
 }
\ No newline at end of file
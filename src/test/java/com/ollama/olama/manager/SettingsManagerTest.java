@@ -1,5 +1,7 @@
 package com.ollama.olama.manager;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.ollama.olama.model.AppSettings;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -8,6 +10,8 @@ import org.junit.jupiter.api.io.TempDir;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
@@ -18,6 +22,17 @@ class SettingsManagerTest {
     @TempDir
     Path tempDir;
     
+    /**
+     * Builds default settings with some properties changed, by their JSON names, so tests do not
+     * have to list every settings field
+     */
+    private static AppSettings defaultsWith(Map<String, Object> changes) {
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Object> values = mapper.convertValue(AppSettings.defaults(), new TypeReference<>() {});
+        values.putAll(changes);
+        return mapper.convertValue(values, AppSettings.class);
+    }
+    
     @BeforeEach
     void setUp() {
         // Override system property to use temp directory for testing
@@ -72,6 +87,85 @@ class SettingsManagerTest {
         assertThat(loadedSettings.systemPrompt()).isEqualTo("You are a helpful coding assistant.");
     }
     
+    @Test
+    void shouldSaveAndLoadAdditionalEndpoints() throws IOException {
+        // Given
+        AppSettings settings = defaultsWith(Map.of(
+            "ollamaBaseUrl", "http://node-a:11434/",
+            "ollamaEndpoints", List.of("http://node-b:11434", "http://node-a:11434", " ")
+        ));
+        
+        // When
+        settingsManager.saveSettings(settings);
+        AppSettings loadedSettings = settingsManager.loadSettings();
+        
+        // Then
+        assertThat(loadedSettings.ollamaEndpoints()).containsExactly("http://node-b:11434", "http://node-a:11434", " ");
+        assertThat(loadedSettings.endpoints()).containsExactly("http://node-a:11434", "http://node-b:11434");
+        assertThat(AppSettings.defaults().endpoints()).containsExactly("http://localhost:11434");
+    }
+    
+    @Test
+    void shouldSaveChatTimeoutsAndDefaultMissingOnes() throws IOException {
+        // Given
+        AppSettings settings = defaultsWith(Map.of(
+            "connectTimeoutSeconds", 3,
+            "firstTokenTimeoutSeconds", 600,
+            "idleTimeoutSeconds", 0
+        ));
+        
+        // When
+        settingsManager.saveSettings(settings);
+        AppSettings loadedSettings = settingsManager.loadSettings();
+        
+        // Then
+        assertThat(loadedSettings.connectTimeoutSeconds()).isEqualTo(3);
+        assertThat(loadedSettings.firstTokenTimeoutSeconds()).isEqualTo(600);
+        assertThat(loadedSettings.idleTimeoutSeconds()).isEqualTo(AppSettings.DEFAULT_IDLE_TIMEOUT_SECONDS);
+        assertThat(loadedSettings.withLastSelectedModel("llama3:8b").firstTokenTimeoutSeconds()).isEqualTo(600);
+    }
+    
+    @Test
+    void shouldSaveChatOptionsAndCacheSettings() throws IOException {
+        // Given
+        AppSettings settings = defaultsWith(Map.of(
+            "chatOptions", Map.of("temperature", 0, "seed", 42),
+            "responseCacheEnabled", true,
+            "responseCacheMaxMb", 64,
+            "cacheReplayTokensPerSecond", 200
+        ));
+        
+        // When
+        settingsManager.saveSettings(settings);
+        AppSettings loadedSettings = settingsManager.loadSettings();
+        
+        // Then
+        assertThat(loadedSettings.chatOptions()).containsEntry("temperature", 0).containsEntry("seed", 42);
+        assertThat(loadedSettings.responseCacheEnabled()).isTrue();
+        assertThat(loadedSettings.responseCacheMaxMb()).isEqualTo(64);
+        assertThat(loadedSettings.cacheReplayTokensPerSecond()).isEqualTo(200);
+        assertThat(AppSettings.defaults().responseCacheMaxMb()).isEqualTo(AppSettings.DEFAULT_RESPONSE_CACHE_MAX_MB);
+    }
+    
+    @Test
+    void shouldSaveSemanticSearchSettings() throws IOException {
+        // Given
+        AppSettings settings = defaultsWith(Map.of(
+            "semanticSearchEnabled", true,
+            "embeddingModel", "mxbai-embed-large"
+        ));
+        
+        // When
+        settingsManager.saveSettings(settings);
+        AppSettings loadedSettings = settingsManager.loadSettings();
+        
+        // Then
+        assertThat(loadedSettings.semanticSearchEnabled()).isTrue();
+        assertThat(loadedSettings.embeddingModel()).isEqualTo("mxbai-embed-large");
+        assertThat(AppSettings.defaults().semanticSearchEnabled()).isFalse();
+        assertThat(AppSettings.defaults().embeddingModel()).isEqualTo(AppSettings.DEFAULT_EMBEDDING_MODEL);
+    }
+    
     @Test
     void shouldCreateSettingsDirectoryIfNotExists() throws IOException {
         // Given
@@ -0,0 +1,214 @@
+package com.ollama.olama.search;
+
+import com.ollama.olama.manager.ConversationLibrary;
+import com.ollama.olama.manager.ConversationManager;
+import com.ollama.olama.manager.ConversationManagerImpl;
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FullTextIndexTest {
+
+    @TempDir
+    Path tempDir;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private ConversationLibrary library;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        library = ConversationLibrary.open(tempDir.resolve("library"), scheduler, Runnable::run);
+    }
+
+    @AfterEach
+    void tearDown() {
+        library.close();
+        scheduler.shutdownNow();
+    }
+
+    private FullTextIndex open() {
+        return new FullTextIndex(tempDir.resolve("fulltext"), library, scheduler, Runnable::run);
+    }
+
+    private ConversationManager conversation(FullTextIndex index) {
+        ConversationManager conversation = new ConversationManagerImpl();
+        conversation.addListener(library);
+        conversation.addListener(index);
+        return conversation;
+    }
+
+    private static List<String> contents(List<FullTextIndex.Hit> hits) {
+        return hits.stream().map(hit -> hit.message().content()).toList();
+    }
+
+    @Test
+    void shouldFindWordsPhrasesAndPrefixesAsMessagesArrive() {
+        // Given
+        FullTextIndex index = open();
+        ConversationManager conversation = conversation(index);
+        conversation.addMessage(ChatMessage.user("The build fails with ERR_CONNECTION_REFUSED in getUserById"));
+        conversation.addMessage(ChatMessage.assistant("Nothing listens there, so the connection is refused.", 100L));
+        conversation.addMessage(ChatMessage.user("Still connection refused after a java.lang.NullPointerException"));
+
+        // When
+        List<FullTextIndex.Hit> code = index.search("err_connection_refused", 10).join();
+        List<FullTextIndex.Hit> phrase = index.search("\"connection refused\"", 10).join();
+        List<FullTextIndex.Hit> words = index.search("connection refused", 10).join();
+        List<FullTextIndex.Hit> prefix = index.search("getuser*", 10).join();
+        List<FullTextIndex.Hit> dotted = index.search("java.lang.NullPointerException", 10).join();
+
+        // Then
+        assertThat(code).extracting(FullTextIndex.Hit::messageIndex).containsExactly(0);
+        assertThat(contents(phrase)).containsExactly("Still connection refused after a java.lang.NullPointerException");
+        assertThat(words).extracting(FullTextIndex.Hit::messageIndex).containsExactly(2, 1);
+        assertThat(prefix).extracting(FullTextIndex.Hit::conversationId).containsExactly(conversation.getConversationId());
+        assertThat(dotted).extracting(FullTextIndex.Hit::messageIndex).containsExactly(2);
+        assertThat(index.search("\"refused connection\"", 10).join()).isEmpty();
+    }
+
+    @Test
+    void shouldSearchWrittenSegmentsAndNewMessagesTogether() {
+        // Given
+        FullTextIndex index = open();
+        ConversationManager conversation = conversation(index);
+        conversation.addMessage(ChatMessage.user("timeout in the first session"));
+        index.flush();
+        conversation.addMessage(ChatMessage.assistant("another timeout, not yet written", 100L));
+
+        // When
+        List<FullTextIndex.Hit> hits = index.search("timeout", 10).join();
+
+        // Then
+        assertThat(index.segmentCount()).isEqualTo(1);
+        assertThat(contents(hits)).containsExactly("another timeout, not yet written", "timeout in the first session");
+    }
+
+    @Test
+    void shouldKeepWrittenMessagesAcrossRestartsWithoutIndexingThemTwice() {
+        // Given
+        FullTextIndex index = open();
+        ConversationManager conversation = conversation(index);
+        conversation.addMessage(ChatMessage.user("segfault in libfoo"));
+        conversation.addMessage(ChatMessage.assistant("run it under gdb", 100L));
+        index.close();
+
+        // When
+        FullTextIndex reopened = open();
+        reopened.conversationLoaded(conversation.getConversationId(), conversation.getMessages());
+
+        // Then
+        assertThat(reopened.size()).isEqualTo(2);
+        assertThat(contents(reopened.search("segfault", 10).join())).containsExactly("segfault in libfoo");
+    }
+
+    @Test
+    void shouldIndexSavedConversationsItDoesNotHaveYet() {
+        // Given
+        ConversationManager saved = new ConversationManagerImpl();
+        saved.addListener(library);
+        for (int i = 0; i < 120; i++) {
+            saved.addMessage(ChatMessage.user("saved request " + i + " failed with E" + (2000 + i)));
+        }
+        FullTextIndex index = open();
+        ConversationManager current = conversation(index);
+        current.addMessage(ChatMessage.user("indexed as it arrived"));
+
+        // When
+        index.indexLibrary();
+        index.indexLibrary();
+
+        // Then
+        assertThat(index.size()).isEqualTo(121);
+        assertThat(index.search("e2119", 10).join()).extracting(FullTextIndex.Hit::messageIndex).containsExactly(119);
+        assertThat(index.search("saved", 200).join()).hasSize(120);
+    }
+
+    @Test
+    void shouldMergeSegmentsAndStillFindEveryMessage() {
+        // Given
+        FullTextIndex index = open();
+        ConversationManager conversation = conversation(index);
+        for (int i = 0; i < 40; i++) {
+            conversation.addMessage(ChatMessage.user("request " + i + " failed with E" + (1000 + i)));
+            if (i % 3 == 0) {
+                index.flush();
+            }
+        }
+        index.close();
+
+        // When
+        FullTextIndex reopened = open();
+
+        // Then
+        assertThat(reopened.segmentCount()).isLessThanOrEqualTo(FullTextIndex.MAX_SEGMENTS);
+        assertThat(reopened.search("e1017", 10).join()).extracting(FullTextIndex.Hit::messageIndex).containsExactly(17);
+        assertThat(reopened.search("e10*", 100).join()).hasSize(40);
+        assertThat(contents(reopened.search("\"request 7 failed\"", 10).join())).containsExactly("request 7 failed with E1007");
+    }
+
+    @Test
+    void shouldLeaveOutMessagesOfDeletedConversations() {
+        // Given
+        FullTextIndex index = open();
+        ConversationManager deleted = conversation(index);
+        deleted.addMessage(ChatMessage.user("secret token in here"));
+        ConversationManager kept = conversation(index);
+        kept.addMessage(ChatMessage.user("a token worth keeping"));
+
+        // When
+        library.delete(deleted.getConversationId());
+
+        // Then
+        assertThat(contents(index.search("token", 10).join())).containsExactly("a token worth keeping");
+    }
+
+    @Test
+    void shouldDeleteSegmentFilesTheManifestDoesNotList() throws IOException {
+        // Given
+        FullTextIndex index = open();
+        conversation(index).addMessage(ChatMessage.user("kept"));
+        index.close();
+        Path leftover = tempDir.resolve("fulltext").resolve("segment-99.postings");
+        Files.writeString(leftover, "from a merge that did not finish");
+
+        // When
+        FullTextIndex reopened = open();
+
+        // Then
+        assertThat(leftover).doesNotExist();
+        assertThat(reopened.search("kept", 10).join()).hasSize(1);
+    }
+
+    @Test
+    void shouldEvaluateSegmentsInParallel() {
+        // Given
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        FullTextIndex index = new FullTextIndex(tempDir.resolve("fulltext"), library, scheduler, executor);
+        ConversationManager conversation = new ConversationManagerImpl();
+        conversation.addListener(library);
+        for (int i = 0; i < 20; i++) {
+            conversation.addMessage(ChatMessage.user("parallel message " + i));
+            index.index(conversation.getConversationId(), i, conversation.getMessages().get(i));
+            index.flush();
+        }
+
+        // When
+        List<FullTextIndex.Hit> hits = index.search("parallel", 5).join();
+        executor.shutdown();
+
+        // Then
+        assertThat(hits).extracting(FullTextIndex.Hit::messageIndex).containsExactly(19, 18, 17, 16, 15);
+    }
+}
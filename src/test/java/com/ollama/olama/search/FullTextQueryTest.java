@@ -0,0 +1,83 @@
+package com.ollama.olama.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FullTextQueryTest {
+
+    private static MemorySegment segmentOf(String... messages) {
+        MemorySegment segment = new MemorySegment(100);
+        for (int i = 0; i < messages.length; i++) {
+            segment.add(0, i, FullTextQuery.tokenize(messages[i]));
+        }
+        return segment;
+    }
+
+    @Test
+    void shouldSplitIdentifiersAndCodesIntoLowerCaseWords() {
+        // When
+        List<String> tokens = FullTextQuery.tokenize("Call getUserById() -> ERR_42, see java.lang.String & naïve café");
+
+        // Then
+        assertThat(tokens).containsExactly("call", "getuserbyid", "err_42", "see", "java", "lang", "string", "naïve", "café");
+    }
+
+    @Test
+    void shouldCutVeryLongWords() {
+        // When
+        List<String> tokens = FullTextQuery.tokenize("a".repeat(200));
+
+        // Then
+        assertThat(tokens).singleElement().extracting(String::length).isEqualTo(FullTextQuery.MAX_TERM_LENGTH);
+    }
+
+    @Test
+    void shouldRequireEveryClause() {
+        // Given
+        MemorySegment segment = segmentOf("null pointer in parser", "pointer arithmetic", "parser error");
+
+        // When
+        int[] matches = FullTextQuery.parse("pointer parser").newest(segment, 10);
+
+        // Then
+        assertThat(matches).containsExactly(100);
+    }
+
+    @Test
+    void shouldMatchPhrasesOnlyInOrder() {
+        // Given
+        MemorySegment segment = segmentOf("stack overflow error", "overflow of the stack", "a stack that did overflow");
+
+        // When
+        int[] matches = FullTextQuery.parse("\"stack overflow\"").newest(segment, 10);
+
+        // Then
+        assertThat(matches).containsExactly(100);
+    }
+
+    @Test
+    void shouldExpandPrefixesAndReturnTheNewestFirst() {
+        // Given
+        MemorySegment segment = segmentOf("config loaded", "configuration missing", "conflict", "reconfigure");
+
+        // When
+        int[] matches = FullTextQuery.parse("config*").newest(segment, 10);
+        int[] limited = FullTextQuery.parse("config*").newest(segment, 1);
+
+        // Then
+        assertThat(matches).containsExactly(101, 100);
+        assertThat(limited).containsExactly(101);
+    }
+
+    @Test
+    void shouldIgnoreQueriesWithoutWords() {
+        // When
+        FullTextQuery query = FullTextQuery.parse("  \"\" * -- ");
+
+        // Then
+        assertThat(query.isEmpty()).isTrue();
+    }
+}
@@ -0,0 +1,137 @@
+package com.ollama.olama.search;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HnswIndexTest {
+
+    private static final int DIMENSIONS = 32;
+
+    /**
+     * Points scattered around a few centres, closer to real embeddings than uniform noise
+     */
+    private static float[][] clusteredVectors(int count, Random random) {
+        float[][] centres = new float[20][DIMENSIONS];
+        for (float[] centre : centres) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                centre[i] = (float) random.nextGaussian();
+            }
+        }
+        float[][] vectors = new float[count][DIMENSIONS];
+        for (int n = 0; n < count; n++) {
+            float[] centre = centres[random.nextInt(centres.length)];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vectors[n][i] = centre[i] + (float) random.nextGaussian() * 0.3f;
+            }
+        }
+        return vectors;
+    }
+
+    private static int bruteForceNearest(float[][] vectors, float[] query) {
+        int best = -1;
+        double bestSimilarity = Double.NEGATIVE_INFINITY;
+        for (int n = 0; n < vectors.length; n++) {
+            double dot = 0;
+            double norm = 0;
+            for (int i = 0; i < DIMENSIONS; i++) {
+                dot += vectors[n][i] * query[i];
+                norm += vectors[n][i] * vectors[n][i];
+            }
+            double similarity = dot / Math.sqrt(norm);
+            if (similarity > bestSimilarity) {
+                bestSimilarity = similarity;
+                best = n;
+            }
+        }
+        return best;
+    }
+
+    @Test
+    void shouldFindTheTrueNearestNeighbourForMostQueries() {
+        // Given
+        Random random = new Random(7);
+        float[][] vectors = clusteredVectors(3000, random);
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+
+        // When
+        int found = 0;
+        for (int q = 0; q < 100; q++) {
+            // Near a stored message, like a query about something discussed before
+            float[] query = vectors[random.nextInt(vectors.length)].clone();
+            for (int i = 0; i < DIMENSIONS; i++) {
+                query[i] += (float) random.nextGaussian() * 0.3f;
+            }
+            int nearest = bruteForceNearest(vectors, query);
+            if (index.search(query, 10, 64).stream().anyMatch(neighbor -> neighbor.id() == nearest)) {
+                found++;
+            }
+        }
+
+        // Then
+        assertThat(index.size()).isEqualTo(3000);
+        assertThat(found).isGreaterThanOrEqualTo(95);
+    }
+
+    @Test
+    void shouldReturnHitsMostSimilarFirst() {
+        // Given
+        HnswIndex index = new HnswIndex(3, 4, 16, 1);
+        index.add(new float[] {1, 0, 0});
+        index.add(new float[] {0, 1, 0});
+        index.add(new float[] {0.9f, 0.1f, 0});
+
+        // When
+        List<HnswIndex.Neighbor> hits = index.search(new float[] {2, 0, 0}, 2, 8);
+
+        // Then
+        assertThat(hits).extracting(HnswIndex.Neighbor::id).containsExactly(0, 2);
+        assertThat(hits.get(0).similarity()).isCloseTo(1f, within(0.01f));
+    }
+
+    @Test
+    void shouldReadBackWhatItWrote() throws IOException {
+        // Given
+        Random random = new Random(3);
+        float[][] vectors = clusteredVectors(500, random);
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+        for (float[] vector : vectors) {
+            index.add(vector);
+        }
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        index.writeTo(new DataOutputStream(bytes));
+
+        // When
+        HnswIndex read = HnswIndex.readFrom(new DataInputStream(new ByteArrayInputStream(bytes.toByteArray())));
+
+        // Then
+        assertThat(read.size()).isEqualTo(500);
+        assertThat(read.dimensions()).isEqualTo(DIMENSIONS);
+        assertThat(read.search(vectors[42], 5, 64)).isEqualTo(index.search(vectors[42], 5, 64));
+        read.add(vectors[0]);
+        assertThat(read.size()).isEqualTo(501);
+    }
+
+    @Test
+    void shouldRejectVectorsOfAnotherLength() {
+        // Given
+        HnswIndex index = new HnswIndex(DIMENSIONS);
+
+        // When / Then
+        assertThatThrownBy(() -> index.add(new float[DIMENSIONS + 1])).isInstanceOf(IllegalArgumentException.class);
+        assertThat(index.search(new float[DIMENSIONS], 5, 10)).isEmpty();
+    }
+}
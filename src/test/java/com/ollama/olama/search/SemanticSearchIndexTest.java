@@ -0,0 +1,231 @@
+package com.ollama.olama.search;
+
+import com.ollama.olama.manager.ConversationLibrary;
+import com.ollama.olama.manager.ConversationManager;
+import com.ollama.olama.manager.ConversationManagerImpl;
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class SemanticSearchIndexTest {
+
+    private static final int DIMENSIONS = 64;
+
+    @TempDir
+    Path tempDir;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+    private final List<Integer> batchSizes = new CopyOnWriteArrayList<>();
+    private final AtomicBoolean failEmbedding = new AtomicBoolean();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Stand-in for an embedding model: each word adds to one dimension, so texts sharing words are similar
+     */
+    private CompletableFuture<List<float[]>> embed(List<String> texts) {
+        if (failEmbedding.get()) {
+            return CompletableFuture.failedFuture(new IllegalStateException("model not loaded"));
+        }
+        batchSizes.add(texts.size());
+        return CompletableFuture.completedFuture(texts.stream().map(text -> {
+            float[] vector = new float[DIMENSIONS];
+            for (String word : text.toLowerCase().split("\\W+")) {
+                if (!word.isEmpty()) {
+                    vector[Math.floorMod(word.hashCode(), DIMENSIONS)] += 1;
+                }
+            }
+            return vector;
+        }).toList());
+    }
+
+    private SemanticSearchIndex open(String model) {
+        return new SemanticSearchIndex(tempDir.resolve("semantic-index.bin"), model, this::embed, scheduler, Runnable::run);
+    }
+
+    @Test
+    void shouldFindMessagesAddedToTheConversation() {
+        // Given
+        SemanticSearchIndex index = open("nomic-embed-text");
+        ConversationManager conversation = new ConversationManagerImpl();
+        conversation.addListener(index);
+        conversation.setSystemPrompt("You are helpful");
+        conversation.addMessage(ChatMessage.user("How long should I boil pasta?"));
+        conversation.addMessage(ChatMessage.assistant("Boil pasta for about ten minutes in salted water.", 900));
+        conversation.addMessage(ChatMessage.user("Why does my Java build fail with a missing module?"));
+
+        // When
+        index.flush().join();
+        List<SemanticSearchIndex.Hit> hits = index.search("boil pasta", 2).join();
+
+        // Then
+        assertThat(index.size()).isEqualTo(3);
+        assertThat(hits).hasSize(2);
+        assertThat(hits).extracting(SemanticSearchIndex.Hit::conversationId)
+            .containsOnly(conversation.getConversationId());
+        assertThat(hits).extracting(SemanticSearchIndex.Hit::messageIndex).containsExactlyInAnyOrder(0, 1);
+        assertThat(hits.get(0).score()).isGreaterThan(0.5f);
+        assertThat(hits.get(0).excerpt()).containsIgnoringCase("pasta");
+    }
+
+    @Test
+    void shouldEmbedInBatches() {
+        // Given
+        SemanticSearchIndex index = open("nomic-embed-text");
+        List<ChatMessage> messages = new ArrayList<>();
+        for (int i = 0; i < 70; i++) {
+            messages.add(ChatMessage.user("message number " + i));
+        }
+
+        // When
+        index.indexConversation("c1", messages);
+        index.flush().join();
+
+        // Then
+        assertThat(batchSizes).containsExactly(32, 32, 6);
+        assertThat(index.size()).isEqualTo(70);
+        assertThat(index.pendingCount()).isZero();
+    }
+
+    @Test
+    void shouldNotEmbedTheSameMessageTwice() {
+        // Given
+        SemanticSearchIndex index = open("nomic-embed-text");
+        List<ChatMessage> messages = List.of(
+            ChatMessage.system("system prompts are not searchable"),
+            ChatMessage.user("first"),
+            ChatMessage.user("   "),
+            ChatMessage.assistant("second", 100)
+        );
+
+        // When
+        index.conversationLoaded("c1", messages);
+        index.flush().join();
+        index.conversationLoaded("c1", messages);
+        index.messageAdded("c1", 3, messages.get(3));
+        index.flush().join();
+
+        // Then
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(batchSizes).containsExactly(2);
+    }
+
+    @Test
+    void shouldRequeueABatchThatFailedToEmbed() {
+        // Given
+        SemanticSearchIndex index = open("nomic-embed-text");
+        index.messageAdded("c1", 0, ChatMessage.user("remember the deployment checklist"));
+        failEmbedding.set(true);
+
+        // When
+        Throwable failure = catchThrowable(() -> index.flush().join());
+        failEmbedding.set(false);
+        index.flush().join();
+
+        // Then
+        assertThat(failure).hasRootCauseMessage("model not loaded");
+        assertThat(index.size()).isEqualTo(1);
+        assertThat(index.pendingCount()).isZero();
+    }
+
+    @Test
+    void shouldEmbedAgainMessagesThatGotNoVector() {
+        // Given
+        AtomicBoolean dropLast = new AtomicBoolean(true);
+        SemanticSearchIndex index = new SemanticSearchIndex(tempDir.resolve("semantic-index.bin"), "nomic-embed-text",
+            texts -> embed(texts).thenApply(vectors ->
+                dropLast.get() ? vectors.subList(0, vectors.size() - 1) : vectors),
+            scheduler, Runnable::run);
+        List<ChatMessage> messages = List.of(ChatMessage.user("first question"), ChatMessage.user("second question"));
+        index.conversationLoaded("c1", messages);
+        index.flush().join();
+
+        // When
+        dropLast.set(false);
+        index.conversationLoaded("c1", messages);
+        index.flush().join();
+
+        // Then
+        assertThat(index.size()).isEqualTo(2);
+        assertThat(batchSizes).containsExactly(2, 1);
+    }
+
+    @Test
+    void shouldEmbedSavedConversationsNotIndexedYet() throws Exception {
+        // Given
+        try (ConversationLibrary library = ConversationLibrary.open(tempDir.resolve("library"), scheduler, Runnable::run)) {
+            List<ChatMessage> older = new ArrayList<>();
+            for (int i = 0; i < 70; i++) {
+                older.add(ChatMessage.user("saved question " + i));
+            }
+            older.set(69, ChatMessage.user("kubernetes pod keeps restarting"));
+            library.conversationLoaded("c1", older);
+            library.conversationLoaded("c2", List.of(ChatMessage.user("already indexed")));
+            SemanticSearchIndex index = open("nomic-embed-text");
+            index.conversationLoaded("c2", List.of(ChatMessage.user("already indexed")));
+            index.flush().join();
+            batchSizes.clear();
+
+            // When
+            index.indexLibrary(library);
+            index.flush().join();
+            index.indexLibrary(library);
+            index.flush().join();
+
+            // Then
+            assertThat(index.size()).isEqualTo(71);
+            assertThat(batchSizes.stream().mapToInt(Integer::intValue).sum()).isEqualTo(70);
+            assertThat(index.search("pod restarting", 1).join())
+                .singleElement()
+                .satisfies(hit -> assertThat(hit.messageIndex()).isEqualTo(69));
+        }
+    }
+
+    @Test
+    void shouldReloadSavedIndexOnlyForTheSameModel() throws Exception {
+        // Given
+        SemanticSearchIndex index = open("nomic-embed-text");
+        index.messageAdded("c1", 0, ChatMessage.user("kubernetes pod keeps restarting"));
+        index.messageAdded("c1", 1, ChatMessage.assistant("check the liveness probe", 100));
+        index.flush().get(5, TimeUnit.SECONDS);
+        index.close();
+
+        // When
+        SemanticSearchIndex reopened = open("nomic-embed-text");
+        SemanticSearchIndex otherModel = open("mxbai-embed-large");
+
+        // Then
+        assertThat(reopened.size()).isEqualTo(2);
+        assertThat(reopened.search("pod restarting", 1).join())
+            .singleElement()
+            .satisfies(hit -> {
+                assertThat(hit.messageIndex()).isZero();
+                assertThat(hit.role()).isEqualTo("user");
+                assertThat(hit.timestamp()).isNotNull();
+            });
+        assertThat(otherModel.size()).isZero();
+
+        // Messages already in the saved index are not embedded again
+        batchSizes.clear();
+        reopened.conversationLoaded("c1", List.of(ChatMessage.user("kubernetes pod keeps restarting")));
+        reopened.flush().join();
+        assertThat(batchSizes).isEmpty();
+    }
+}
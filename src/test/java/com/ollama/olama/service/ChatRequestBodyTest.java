@@ -0,0 +1,66 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatRequestBodyTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private JsonNode write(List<ChatMessage> messages, String keepAlive, Map<String, Object> options) throws IOException {
+        StringWriter json = new StringWriter();
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(json)) {
+            ChatRequestBody.write(generator, "llama3:8b", messages, keepAlive, options);
+        }
+        return objectMapper.readTree(json.toString());
+    }
+
+    @Test
+    void shouldWriteOnlyRoleAndContentOfEachMessage() throws IOException {
+        // Given
+        List<ChatMessage> messages = List.of(
+            ChatMessage.system("Be brief"),
+            ChatMessage.user("Quote \"this\"\nand\ttab, ünïcode ✓"),
+            ChatMessage.assistant("Done", 1_200L)
+        );
+
+        // When
+        JsonNode body = write(messages, null, Map.of());
+
+        // Then
+        assertThat(body.path("model").asText()).isEqualTo("llama3:8b");
+        assertThat(body.path("stream").asBoolean()).isTrue();
+        assertThat(body.has("keep_alive")).isFalse();
+        assertThat(body.has("options")).isFalse();
+        assertThat(body.path("messages")).hasSize(3);
+        JsonNode user = body.path("messages").get(1);
+        assertThat(user.size()).isEqualTo(2);
+        assertThat(user.path("role").asText()).isEqualTo("user");
+        assertThat(user.path("content").asText()).isEqualTo("Quote \"this\"\nand\ttab, ünïcode ✓");
+    }
+
+    @Test
+    void shouldWriteKeepAliveAndOptions() throws IOException {
+        // When
+        JsonNode seconds = write(List.of(ChatMessage.user("Hi")), "600", Map.of("temperature", 0.2, "seed", 42));
+        JsonNode duration = write(List.of(ChatMessage.user("Hi")), "30m", null);
+
+        // Then
+        assertThat(seconds.path("keep_alive").isNumber()).isTrue();
+        assertThat(seconds.path("keep_alive").asLong()).isEqualTo(600);
+        assertThat(seconds.path("options").path("temperature").asDouble()).isEqualTo(0.2);
+        assertThat(seconds.path("options").path("seed").asInt()).isEqualTo(42);
+        assertThat(duration.path("keep_alive").asText()).isEqualTo("30m");
+        assertThat(duration.has("options")).isFalse();
+    }
+}
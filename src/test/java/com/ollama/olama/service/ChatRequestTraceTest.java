@@ -0,0 +1,92 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.diagnostics.ChatCompletionEvent;
+import com.ollama.olama.model.GenerationStats;
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatRequestTraceTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void shouldRecordEveryStageOfAChatRequest() throws IOException {
+        // Given
+        List<RecordedEvent> events;
+        try (Recording recording = new Recording()) {
+            for (String name : List.of("ChatRequestBuild", "ChatConnect", "ChatFirstByte",
+                    "ChatFirstToken", "ChatCompletion")) {
+                recording.enable("com.ollama.olama." + name);
+            }
+            recording.start();
+
+            // When
+            ChatRequestTrace trace = new ChatRequestTrace("llama3");
+            trace.requestStarted(3);
+            trace.bodyWritten(120);
+            trace.bodyWritten(120);
+            trace.headersReceived(200);
+            try (InputStream body = trace.trace(new ByteArrayInputStream(new byte[64]))) {
+                body.readAllBytes();
+            }
+            trace.tokenDecoded();
+            trace.tokenDecoded();
+            trace.finished(ChatCompletionEvent.COMPLETED,
+                new GenerationStats(0, 0, 11, 0, 2, 0, 0, 0.0, 0.0));
+
+            recording.stop();
+            Path dump = tempDir.resolve("chat.jfr");
+            recording.dump(dump);
+            events = RecordingFile.readAllEvents(dump);
+        }
+
+        // Then
+        Map<String, RecordedEvent> byName = events.stream()
+            .collect(Collectors.toMap(event -> event.getEventType().getName(), Function.identity()));
+        assertThat(byName).containsOnlyKeys(
+            "com.ollama.olama.ChatRequestBuild", "com.ollama.olama.ChatConnect",
+            "com.ollama.olama.ChatFirstByte", "com.ollama.olama.ChatFirstToken",
+            "com.ollama.olama.ChatCompletion");
+        assertThat(byName.values()).allSatisfy(event ->
+            assertThat(event.getString("model")).isEqualTo("llama3"));
+
+        RecordedEvent build = byName.get("com.ollama.olama.ChatRequestBuild");
+        assertThat(build.getInt("messageCount")).isEqualTo(3);
+        assertThat(build.getLong("bodyBytes")).isEqualTo(120);
+        assertThat(byName.get("com.ollama.olama.ChatConnect").getInt("statusCode")).isEqualTo(200);
+
+        RecordedEvent completion = byName.get("com.ollama.olama.ChatCompletion");
+        assertThat(completion.getString("outcome")).isEqualTo("completed");
+        assertThat(completion.getLong("tokenCount")).isEqualTo(2);
+        assertThat(completion.getLong("bytesReceived")).isEqualTo(64);
+        assertThat(completion.getLong("promptEvalCount")).isEqualTo(11);
+        assertThat(completion.getLong("evalCount")).isEqualTo(2);
+    }
+
+    @Test
+    void shouldNotWrapBodyWhenNoRecordingIsActive() {
+        // Given
+        InputStream body = new ByteArrayInputStream(new byte[0]);
+
+        // When
+        InputStream traced = new ChatRequestTrace("llama3").trace(body);
+
+        // Then
+        assertThat(traced).isSameAs(body);
+    }
+}
@@ -0,0 +1,130 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ChatStreamDecoderTest {
+
+    private static final String STREAM = """
+        {"model":"llama3","created_at":"2024-01-01T00:00:00Z","message":{"role":"assistant","content":"Hel"},"done":false}
+        {"model":"llama3","created_at":"2024-01-01T00:00:00Z","message":{"role":"assistant","content":"lo"},"done":false}
+        {"model":"llama3","created_at":"2024-01-01T00:00:00Z","message":{"role":"assistant","content":""},"done_reason":"stop","done":true,"total_duration":5000,"load_duration":1000,"prompt_eval_count":12,"prompt_eval_duration":800,"eval_count":2,"eval_duration":3000}
+        """;
+
+    private final ChatStreamDecoder decoder = new ChatStreamDecoder(new JsonFactory());
+
+    @Test
+    void shouldEmitContentAndFinalStats() throws IOException {
+        // Given
+        List<String> tokens = new ArrayList<>();
+
+        // When
+        boolean done = decoder.decode(stream(STREAM), tokens::add);
+
+        // Then
+        assertThat(done).isTrue();
+        assertThat(tokens).containsExactly("Hel", "lo");
+        assertThat(decoder.getDoneReason()).isEqualTo("stop");
+        assertThat(decoder.getTotalDurationNanos()).isEqualTo(5000);
+        assertThat(decoder.getLoadDurationNanos()).isEqualTo(1000);
+        assertThat(decoder.getPromptEvalCount()).isEqualTo(12);
+        assertThat(decoder.getPromptEvalDurationNanos()).isEqualTo(800);
+        assertThat(decoder.getEvalCount()).isEqualTo(2);
+        assertThat(decoder.getEvalDurationNanos()).isEqualTo(3000);
+        assertThat(decoder.getError()).isNull();
+    }
+
+    @Test
+    void shouldEmitTypedChunksForThinkingAndToolCalls() throws IOException {
+        // Given
+        String stream = """
+            {"message":{"role":"assistant","content":"","thinking":"Need the weather"},"done":false}
+            {"message":{"role":"assistant","content":"","tool_calls":[{"function":{"name":"get_weather","arguments":{"city":"Paris","days":[1,2]}}}]},"done":false}
+            {"message":{"role":"assistant","content":"Sunny"},"done":false}
+            {"message":{"role":"assistant","content":""},"done":true,"eval_count":3}
+            """;
+        List<ChatChunk> chunks = new ArrayList<>();
+        List<String> contentOnly = new ArrayList<>();
+
+        // When
+        boolean done = decoder.decodeChunks(stream(stream), chunks::add);
+        new ChatStreamDecoder(new JsonFactory()).decode(stream(stream), contentOnly::add);
+
+        // Then
+        assertThat(done).isTrue();
+        assertThat(chunks).containsExactly(
+            new ChatChunk.Thinking("Need the weather"),
+            new ChatChunk.ToolCall("get_weather", "{\"city\":\"Paris\",\"days\":[1,2]}"),
+            new ChatChunk.Content("Sunny")
+        );
+        assertThat(contentOnly).containsExactly("Sunny");
+        assertThat(decoder.getEvalCount()).isEqualTo(3);
+    }
+
+    @Test
+    void shouldHandleChunksSplitAcrossReads() throws IOException {
+        // Given - an input stream that returns at most 7 bytes per read
+        byte[] bytes = STREAM.getBytes(StandardCharsets.UTF_8);
+        InputStream trickle = new ByteArrayInputStream(bytes) {
+            @Override
+            public synchronized int read(byte[] b, int off, int len) {
+                return super.read(b, off, Math.min(len, 7));
+            }
+        };
+        List<String> tokens = new ArrayList<>();
+
+        // When
+        boolean done = decoder.decode(trickle, tokens::add);
+
+        // Then
+        assertThat(done).isTrue();
+        assertThat(String.join("", tokens)).isEqualTo("Hello");
+    }
+
+    @Test
+    void shouldSkipUnknownNestedFields() throws IOException {
+        // Given
+        String body = """
+            {"message":{"role":"assistant","images":null,"tool_calls":[{"function":{"name":"f","arguments":{"a":[1,2]}}}],"content":"ok"},"extra":{"x":[{}]},"done":false}
+            """;
+        List<String> tokens = new ArrayList<>();
+
+        // When
+        boolean done = decoder.decode(stream(body), tokens::add);
+
+        // Then
+        assertThat(done).isFalse();
+        assertThat(tokens).containsExactly("ok");
+    }
+
+    @Test
+    void shouldCaptureInStreamError() throws IOException {
+        // When
+        decoder.decode(stream("{\"error\":\"model 'x' not found\"}\n"), token -> { });
+
+        // Then
+        assertThat(decoder.getError()).isEqualTo("model 'x' not found");
+        assertThat(decoder.isDone()).isFalse();
+    }
+
+    @Test
+    void shouldRejectMalformedJson() {
+        assertThatThrownBy(() -> decoder.decode(stream("{\"message\":{\"content\":\"a\"}\n{oops"), token -> { }))
+            .isInstanceOf(JsonParseException.class);
+    }
+
+    private static InputStream stream(String body) {
+        return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
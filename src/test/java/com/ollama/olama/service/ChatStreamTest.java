@@ -0,0 +1,184 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatStreamTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldBlockPublisherWhileSubscriberBufferIsFull() throws Exception {
+        // Given
+        ChatStream stream = new ChatStream(2, executor, s -> new ChatGeneration());
+        RecordingSubscriber subscriber = new RecordingSubscriber(0);
+        stream.subscribe(subscriber);
+        subscriber.subscribed.get(1, TimeUnit.SECONDS);
+
+        // When
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            for (int i = 0; i < 5; i++) {
+                stream.publish(new ChatChunk.Content("t" + i));
+            }
+        }, executor);
+        Thread.sleep(200);
+        boolean blockedOnFullBuffer = !producer.isDone();
+        subscriber.request(10);
+        producer.get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(blockedOnFullBuffer).isTrue();
+        awaitSize(subscriber.chunks, 5);
+        assertThat(subscriber.chunks).extracting(chunk -> ((ChatChunk.Content) chunk).text())
+            .containsExactly("t0", "t1", "t2", "t3", "t4");
+    }
+
+    @Test
+    void shouldDeliverEveryChunkToEachSubscriberByItsOwnDemand() throws Exception {
+        // Given
+        ChatStream stream = new ChatStream(8, executor, s -> new ChatGeneration());
+        RecordingSubscriber eager = new RecordingSubscriber(Long.MAX_VALUE);
+        RecordingSubscriber oneAtATime = new RecordingSubscriber(1);
+        oneAtATime.requestOnEach = true;
+        stream.subscribe(eager);
+        stream.subscribe(oneAtATime);
+        eager.subscribed.get(1, TimeUnit.SECONDS);
+        oneAtATime.subscribed.get(1, TimeUnit.SECONDS);
+        ChatChunk.Done done = new ChatChunk.Done(null);
+
+        // When
+        stream.publish(new ChatChunk.Thinking("hmm"));
+        stream.publish(new ChatChunk.Content("Hi"));
+        stream.complete(done);
+
+        // Then
+        assertThat(eager.completion.get(1, TimeUnit.SECONDS)).isNull();
+        assertThat(oneAtATime.completion.get(1, TimeUnit.SECONDS)).isNull();
+        List<ChatChunk> expected = List.of(new ChatChunk.Thinking("hmm"), new ChatChunk.Content("Hi"), done);
+        assertThat(eager.chunks).isEqualTo(expected);
+        assertThat(oneAtATime.chunks).isEqualTo(expected);
+    }
+
+    @Test
+    void shouldSignalErrorsRightAwayAndReleaseWaitingPublisher() throws Exception {
+        // Given
+        ChatStream stream = new ChatStream(1, executor, s -> new ChatGeneration());
+        RecordingSubscriber stalled = new RecordingSubscriber(0);
+        stream.subscribe(stalled);
+        stalled.subscribed.get(1, TimeUnit.SECONDS);
+        stream.publish(new ChatChunk.Content("a"));
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(
+            () -> stream.publish(new ChatChunk.Content("b")), executor);
+
+        // When
+        stream.fail(new CancellationException("Generation cancelled"));
+
+        // Then
+        producer.get(1, TimeUnit.SECONDS);
+        assertThat(stalled.completion.get(1, TimeUnit.SECONDS)).isInstanceOf(CancellationException.class);
+        assertThat(stalled.chunks).isEmpty();
+    }
+
+    @Test
+    void shouldRejectNonPositiveRequestAndIgnoreCancelledSubscriber() throws Exception {
+        // Given
+        ChatStream stream = new ChatStream(1, executor, s -> new ChatGeneration());
+        RecordingSubscriber invalid = new RecordingSubscriber(0);
+        RecordingSubscriber leaving = new RecordingSubscriber(0);
+        stream.subscribe(invalid);
+        stream.subscribe(leaving);
+        invalid.subscribed.get(1, TimeUnit.SECONDS).request(0);
+        leaving.subscribed.get(1, TimeUnit.SECONDS).cancel();
+
+        // When
+        CompletableFuture<Void> producer = CompletableFuture.runAsync(() -> {
+            stream.publish(new ChatChunk.Content("a"));
+            stream.publish(new ChatChunk.Content("b"));
+        }, executor);
+
+        // Then
+        assertThat(invalid.completion.get(1, TimeUnit.SECONDS)).isInstanceOf(IllegalArgumentException.class);
+        producer.get(1, TimeUnit.SECONDS);
+        assertThat(leaving.completion).isNotDone();
+    }
+
+    @Test
+    void shouldConnectOnlyOnce() {
+        // Given
+        ChatGeneration generation = new ChatGeneration();
+        ChatStream stream = new ChatStream(1, executor, s -> generation);
+
+        // When / Then
+        assertThat(stream.connect()).isSameAs(generation);
+        assertThat(stream.connect()).isSameAs(generation);
+    }
+
+    private static void awaitSize(List<?> list, int size) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(1);
+        while (list.size() < size && System.nanoTime() < deadline) {
+            Thread.sleep(5);
+        }
+    }
+
+    /**
+     * Records what it receives; completion holds null on onComplete or the error on onError
+     */
+    private static final class RecordingSubscriber implements Flow.Subscriber<ChatChunk> {
+
+        final CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+        final CompletableFuture<Throwable> completion = new CompletableFuture<>();
+        final List<ChatChunk> chunks = new CopyOnWriteArrayList<>();
+        final long initialRequest;
+        volatile boolean requestOnEach;
+
+        RecordingSubscriber(long initialRequest) {
+            this.initialRequest = initialRequest;
+        }
+
+        void request(long n) {
+            subscribed.join().request(n);
+        }
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            if (initialRequest > 0) {
+                subscription.request(initialRequest);
+            }
+            subscribed.complete(subscription);
+        }
+
+        @Override
+        public void onNext(ChatChunk item) {
+            chunks.add(item);
+            if (requestOnEach) {
+                request(1);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            completion.complete(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            completion.complete(null);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CircuitBreakerTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final CircuitBreaker breaker = new CircuitBreaker(2, Duration.ofSeconds(5), clock::get);
+
+    @Test
+    void shouldOpenAfterConsecutiveFailuresAndFailFast() {
+        // When
+        breaker.recordFailure();
+        boolean allowedAfterOneFailure = breaker.allowRequest();
+        breaker.recordFailure();
+
+        // Then
+        assertThat(allowedAfterOneFailure).isTrue();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+        assertThat(breaker.getRetryDelay()).isEqualTo(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void shouldLetOneTrialThroughAfterCoolDownAndCloseOnSuccess() {
+        // Given
+        breaker.recordFailure();
+        breaker.recordFailure();
+        clock.addAndGet(5 * SECOND);
+
+        // When
+        boolean trial = breaker.allowRequest();
+        boolean second = breaker.allowRequest();
+        breaker.recordSuccess();
+
+        // Then
+        assertThat(trial).isTrue();
+        assertThat(second).isFalse();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+
+    @Test
+    void shouldReopenWhenTrialFails() {
+        // Given
+        breaker.recordFailure();
+        breaker.recordFailure();
+        clock.addAndGet(5 * SECOND);
+        breaker.allowRequest();
+
+        // When
+        breaker.recordFailure();
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(breaker.allowRequest()).isFalse();
+    }
+
+    @Test
+    void shouldAllowNewTrialWhenPreviousNeverReportsBack() {
+        // Given
+        breaker.recordFailure();
+        breaker.recordFailure();
+        clock.addAndGet(5 * SECOND);
+        breaker.allowRequest();
+
+        // When
+        clock.addAndGet(5 * SECOND);
+
+        // Then
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+        assertThat(breaker.allowRequest()).isTrue();
+    }
+}
@@ -0,0 +1,79 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ConnectionHealthMonitorTest {
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor();
+
+    @AfterEach
+    void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Test
+    void shouldGrowRetryDelayWithJitterUpToCap() {
+        // When / Then
+        assertThat(ConnectionHealthMonitor.retryDelay(1, () -> 0.0)).isEqualTo(Duration.ofMillis(500));
+        assertThat(ConnectionHealthMonitor.retryDelay(1, () -> 1.0)).isEqualTo(Duration.ofSeconds(1));
+        assertThat(ConnectionHealthMonitor.retryDelay(4, () -> 1.0)).isEqualTo(Duration.ofSeconds(8));
+        assertThat(ConnectionHealthMonitor.retryDelay(4, () -> 0.5)).isEqualTo(Duration.ofSeconds(6));
+        assertThat(ConnectionHealthMonitor.retryDelay(40, () -> 1.0)).isEqualTo(Duration.ofSeconds(30));
+    }
+
+    @Test
+    void shouldPublishOnlyStateChanges() throws Exception {
+        // Given
+        AtomicBoolean reachable = new AtomicBoolean(false);
+        ConnectionHealthMonitor monitor = new ConnectionHealthMonitor(
+            () -> CompletableFuture.completedFuture(reachable.get()), scheduler);
+        List<ConnectionState> states = new CopyOnWriteArrayList<>();
+        monitor.addListener(states::add);
+
+        // When
+        monitor.probeNow().get(1, TimeUnit.SECONDS);
+        monitor.probeNow().get(1, TimeUnit.SECONDS);
+        reachable.set(true);
+        monitor.probeNow().get(1, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(states).containsExactly(
+            ConnectionState.CONNECTING, ConnectionState.DISCONNECTED, ConnectionState.CONNECTED);
+        assertThat(monitor.getState()).isEqualTo(ConnectionState.CONNECTED);
+    }
+
+    @Test
+    void shouldShareProbeInFlightAndTreatErrorsAsDown() throws Exception {
+        // Given
+        AtomicInteger probes = new AtomicInteger();
+        CompletableFuture<Boolean> pending = new CompletableFuture<>();
+        ConnectionHealthMonitor monitor = new ConnectionHealthMonitor(() -> {
+            probes.incrementAndGet();
+            return pending;
+        }, scheduler);
+
+        // When
+        CompletableFuture<Boolean> first = monitor.probeNow();
+        CompletableFuture<Boolean> second = monitor.probeNow();
+        pending.completeExceptionally(new IllegalStateException("refused"));
+
+        // Then
+        assertThat(probes).hasValue(1);
+        assertThat(first.get(1, TimeUnit.SECONDS)).isFalse();
+        assertThat(second).isSameAs(first);
+        assertThat(monitor.getState()).isEqualTo(ConnectionState.DISCONNECTED);
+    }
+}
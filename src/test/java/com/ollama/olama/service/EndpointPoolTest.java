@@ -0,0 +1,110 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class EndpointPoolTest {
+
+    private static final long SECOND = 1_000_000_000L;
+
+    private final AtomicLong clock = new AtomicLong();
+    private final EndpointPool pool = new EndpointPool(
+        List.of("http://node-a:11434/", "http://node-b:11434", "http://node-a:11434"), clock::get
+    );
+    private final EndpointPool.Endpoint nodeA = pool.getEndpoints().get(0);
+    private final EndpointPool.Endpoint nodeB = pool.getEndpoints().get(1);
+
+    @Test
+    void shouldNormalizeAndDeduplicateUrls() {
+        // Then
+        assertThat(pool.getBaseUrls()).containsExactly("http://node-a:11434", "http://node-b:11434");
+        assertThatThrownBy(() -> new EndpointPool(List.of()))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSpreadRequestsAcrossNodesByInFlightCount() {
+        // When
+        EndpointPool.Endpoint first = pool.select("llama3:8b", Set.of());
+        pool.requestStarted(first);
+        EndpointPool.Endpoint second = pool.select("llama3:8b", Set.of());
+        pool.requestStarted(second);
+        pool.requestFinished(first);
+        EndpointPool.Endpoint third = pool.select("llama3:8b", Set.of());
+
+        // Then
+        assertThat(first).isSameAs(nodeA);
+        assertThat(second).isSameAs(nodeB);
+        assertThat(third).isSameAs(nodeA);
+    }
+
+    @Test
+    void shouldPreferFasterNodeAndNodeWithModelLoaded() {
+        // Given
+        pool.responded(nodeA, null, 400);
+        pool.responded(nodeB, null, 100);
+
+        // When
+        EndpointPool.Endpoint faster = pool.select("llama3:8b", Set.of());
+        pool.modelLoaded(nodeA, "mistral:7b");
+        EndpointPool.Endpoint warm = pool.select("mistral:7b", Set.of());
+
+        // Then
+        assertThat(faster).isSameAs(nodeB);
+        assertThat(warm).isSameAs(nodeA);
+    }
+
+    @Test
+    void shouldBackOffFromFailedNodeUntilItRecovers() {
+        // Given
+        pool.failed(nodeA);
+
+        // When
+        EndpointPool.Endpoint duringBackoff = pool.select(null, Set.of());
+        clock.addAndGet(2 * SECOND);
+        EndpointPool.Endpoint afterBackoff = pool.select(null, Set.of());
+        pool.probeSucceeded(nodeA, Set.of("llama3:8b"));
+
+        // Then
+        assertThat(duringBackoff).isSameAs(nodeB);
+        assertThat(afterBackoff).isSameAs(nodeA);
+        assertThat(nodeA.consecutiveFailures()).isZero();
+        assertThat(nodeA.loadedModels()).containsExactly("llama3:8b");
+    }
+
+    @Test
+    void shouldStillTryNodeWhoseBackoffEndsFirstWhenAllAreDown() {
+        // Given
+        pool.failed(nodeA);
+        pool.failed(nodeA);
+        pool.failed(nodeB);
+
+        // When / Then
+        assertThat(pool.select(null, Set.of())).isSameAs(nodeB);
+        assertThat(pool.select(null, Set.of(nodeB))).isSameAs(nodeA);
+        assertThat(pool.select(null, Set.of(nodeA, nodeB))).isNull();
+    }
+
+    @Test
+    void shouldReportWhetherAnyNodeCanBeTriedNow() {
+        // Given
+        pool.failed(nodeA);
+        boolean oneDown = pool.isAnyAvailable();
+        pool.failed(nodeB);
+
+        // When
+        boolean allDown = pool.isAnyAvailable();
+        clock.addAndGet(2 * SECOND);
+
+        // Then
+        assertThat(oneDown).isTrue();
+        assertThat(allDown).isFalse();
+        assertThat(pool.isAnyAvailable()).isTrue();
+    }
+}
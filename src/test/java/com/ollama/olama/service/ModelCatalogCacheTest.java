@@ -0,0 +1,102 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.OllamaModel;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelCatalogCacheTest {
+
+    private static final OllamaModel LLAMA = new OllamaModel("llama3:8b", "4.3 GB", 4_661_224_676L, "2024-05-12");
+    private static final OllamaModel MISTRAL = new OllamaModel("mistral:7b", "3.8 GB", 4_109_865_159L, "2024-05-10");
+
+    @TempDir
+    Path tempDir;
+
+    private final AtomicLong clock = new AtomicLong(1_000_000);
+    private final AtomicInteger fetches = new AtomicInteger();
+    private CompletableFuture<List<OllamaModel>> pendingFetch = new CompletableFuture<>();
+
+    private ModelCatalogCache cache(Path file, String source) {
+        return new ModelCatalogCache(file, source, Duration.ofMinutes(5), () -> {
+            fetches.incrementAndGet();
+            return pendingFetch;
+        }, clock::get);
+    }
+
+    @Test
+    void shouldShareOneFetchBetweenConcurrentRefreshes() {
+        // Given
+        ModelCatalogCache cache = cache(null, "http://localhost:11434");
+
+        // When
+        CompletableFuture<List<OllamaModel>> first = cache.get();
+        CompletableFuture<List<OllamaModel>> second = cache.refresh();
+        pendingFetch.complete(List.of(LLAMA));
+
+        // Then
+        assertThat(fetches).hasValue(1);
+        assertThat(first.join()).containsExactly(LLAMA);
+        assertThat(second.join()).containsExactly(LLAMA);
+    }
+
+    @Test
+    void shouldServeFromMemoryUntilTtlExpires() {
+        // Given
+        ModelCatalogCache cache = cache(null, "http://localhost:11434");
+        pendingFetch.complete(List.of(LLAMA));
+        cache.get().join();
+
+        // When
+        List<OllamaModel> whileFresh = cache.get().join();
+        clock.addAndGet(Duration.ofMinutes(6).toMillis());
+        boolean freshAfterTtl = cache.isFresh();
+        cache.get().join();
+
+        // Then
+        assertThat(whileFresh).containsExactly(LLAMA);
+        assertThat(freshAfterTtl).isFalse();
+        assertThat(fetches).hasValue(2);
+    }
+
+    @Test
+    void shouldKeepStaleCatalogWhenRefreshFails() {
+        // Given
+        ModelCatalogCache cache = cache(null, "http://localhost:11434");
+        pendingFetch.complete(List.of(LLAMA));
+        cache.refresh().join();
+        pendingFetch = CompletableFuture.failedFuture(new IllegalStateException("offline"));
+
+        // When
+        CompletableFuture<List<OllamaModel>> refresh = cache.refresh();
+
+        // Then
+        assertThat(refresh).isCompletedExceptionally();
+        assertThat(cache.getCached()).containsExactly(LLAMA);
+    }
+
+    @Test
+    void shouldLoadPersistedCatalogOnlyForSameEndpoints() {
+        // Given
+        Path file = tempDir.resolve("models-cache.json");
+        pendingFetch.complete(List.of(LLAMA, MISTRAL));
+        cache(file, "http://localhost:11434").refresh().join();
+
+        // When
+        ModelCatalogCache restarted = cache(file, "http://localhost:11434");
+        ModelCatalogCache otherEndpoint = cache(file, "http://gpu-box:11434");
+
+        // Then
+        assertThat(restarted.getCached()).containsExactly(LLAMA, MISTRAL);
+        assertThat(restarted.isFresh()).isTrue();
+        assertThat(otherEndpoint.getCached()).isEmpty();
+    }
+}
@@ -0,0 +1,47 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.OllamaModel;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelCatalogDiffTest {
+
+    @Test
+    void shouldPatchSortedListWithOnlyTheChanges() {
+        // Given
+        OllamaModel gemma = model("gemma:2b", 1_000);
+        OllamaModel llama = model("llama3:8b", 4_000);
+        OllamaModel mistral = model("mistral:7b", 3_000);
+        List<OllamaModel> displayed = new ArrayList<>(List.of(gemma, llama, mistral));
+        OllamaModel updatedLlama = model("llama3:8b", 4_500);
+        OllamaModel phi = model("phi3:mini", 2_000);
+        OllamaModel codellama = model("codellama:7b", 3_500);
+
+        // When
+        ModelCatalogDiff diff = ModelCatalogDiff.between(displayed, List.of(codellama, updatedLlama, mistral, phi));
+        diff.applyTo(displayed);
+
+        // Then
+        assertThat(diff.added()).containsExactly(codellama, phi);
+        assertThat(diff.removed()).containsExactly(gemma);
+        assertThat(diff.changed()).containsExactly(updatedLlama);
+        assertThat(displayed).containsExactly(codellama, updatedLlama, mistral, phi);
+    }
+
+    @Test
+    void shouldBeEmptyForIdenticalCatalogs() {
+        // Given
+        List<OllamaModel> catalog = List.of(model("llama3:8b", 4_000));
+
+        // When / Then
+        assertThat(ModelCatalogDiff.between(catalog, List.copyOf(catalog)).isEmpty()).isTrue();
+    }
+
+    private static OllamaModel model(String name, long sizeBytes) {
+        return new OllamaModel(name, sizeBytes + " B", sizeBytes, "2024-05-12");
+    }
+}
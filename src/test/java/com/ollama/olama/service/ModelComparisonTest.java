@@ -0,0 +1,137 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.testing.FakeOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ModelComparisonTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final Map<String, StringBuilder> streamed = new ConcurrentHashMap<>();
+    private final ModelComparison.Listener listener = new ModelComparison.Listener() {
+        @Override
+        public void onStarted(String model) {
+            streamed.put(model, new StringBuilder());
+        }
+
+        @Override
+        public void onToken(String model, String token) {
+            streamed.get(model).append(token);
+        }
+
+        @Override
+        public void onFinished(ModelComparison.Result result) {
+        }
+    };
+
+    private FakeOllamaServer server;
+    private OllamaServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = FakeOllamaServer.start()
+            .model("mistral:7b", 4_109_865_159L)
+            .model("phi3:mini", 2_176_178_913L)
+            .responseTokens(10)
+            .tokenRate(100);
+        service = new OllamaServiceImpl();
+        service.setBaseUrl(server.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        server.close();
+        executor.shutdownNow();
+    }
+
+    @Test
+    void shouldMeasureEachModelWithinConcurrencyLimit() throws Exception {
+        // Given
+        ModelComparison comparison = new ModelComparison(service, executor, 2);
+        List<ChatMessage> messages = List.of(ChatMessage.system("Be brief."), ChatMessage.user("Hi"));
+
+        // When
+        List<ModelComparison.Result> results = comparison
+            .run(List.of("llama3:8b", "mistral:7b", "phi3:mini"), messages, listener)
+            .get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(results).extracting(ModelComparison.Result::model)
+            .containsExactly("llama3:8b", "mistral:7b", "phi3:mini");
+        assertThat(results).allSatisfy(result -> {
+            assertThat(result.succeeded()).isTrue();
+            assertThat(result.timeToFirstTokenMs()).isGreaterThanOrEqualTo(0);
+            assertThat(result.tokensPerSecond()).isPositive();
+            assertThat(result.totalMs()).isGreaterThanOrEqualTo(result.timeToFirstTokenMs());
+            assertThat(streamed.get(result.model()).toString()).isEqualTo(result.message().content());
+        });
+        assertThat(server.maxConcurrentRequests()).isEqualTo(2);
+        assertThat(server.requests()).extracting(request -> request.path("messages").size()).containsOnly(2);
+    }
+
+    @Test
+    void shouldSendEachModelItsOwnHistory() throws Exception {
+        // Given
+        ModelComparison comparison = new ModelComparison(service, executor, 2);
+        Map<String, List<ChatMessage>> histories = Map.of(
+            "llama3:8b", List.of(ChatMessage.user("Hi")),
+            "mistral:7b", List.of(ChatMessage.user("Earlier"), ChatMessage.assistant("Yes", 10L), ChatMessage.user("Hi"))
+        );
+
+        // When
+        comparison.run(List.of("llama3:8b", "mistral:7b"), histories::get, listener).get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(server.requests()).extracting(request -> request.path("messages").size())
+            .containsExactlyInAnyOrder(1, 3);
+    }
+
+    @Test
+    void shouldReportFailuresPerModel() throws Exception {
+        // Given
+        ModelComparison comparison = new ModelComparison(service, executor, 2);
+
+        // When
+        List<ModelComparison.Result> results = comparison
+            .run(List.of("llama3:8b", "missing:1b"), List.of(ChatMessage.user("Hi")), listener)
+            .get(10, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(results.get(0).succeeded()).isTrue();
+        assertThat(results.get(1).succeeded()).isFalse();
+        assertThat(results.get(1).error()).hasRootCauseInstanceOf(OllamaException.class);
+    }
+
+    @Test
+    void shouldCancelRunningAndQueuedModels() throws Exception {
+        // Given
+        server.firstTokenDelay(Duration.ofSeconds(5));
+        ModelComparison comparison = new ModelComparison(service, executor, 1);
+        var running = comparison.run(List.of("llama3:8b", "mistral:7b"), List.of(ChatMessage.user("Hi")), listener);
+        Thread.sleep(200);
+
+        // When
+        comparison.cancel();
+        List<ModelComparison.Result> results = running.get(2, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(results).allSatisfy(result ->
+            assertThat(result.error()).isInstanceOf(CancellationException.class));
+        assertThat(server.requests()).hasSize(1);
+    }
+}
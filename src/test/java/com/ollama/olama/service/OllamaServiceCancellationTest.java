@@ -0,0 +1,145 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Verifies that cancelling a generation closes the socket to the server instead of
+ * leaving the stream running. Uses a raw socket stand-in so connection closure is observable.
+ */
+class OllamaServiceCancellationTest {
+
+    private ServerSocket serverSocket;
+    private Thread serverThread;
+    private final CountDownLatch requestReceived = new CountDownLatch(1);
+    private final CountDownLatch firstChunkSent = new CountDownLatch(1);
+    private final CountDownLatch socketClosed = new CountDownLatch(1);
+    private volatile boolean respond = true;
+
+    private OllamaServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        serverSocket = new ServerSocket(0);
+        serverThread = new Thread(this::serveEndlessStream, "stand-in-ollama");
+        serverThread.setDaemon(true);
+        serverThread.start();
+
+        service = new OllamaServiceImpl();
+        service.setBaseUrl("http://127.0.0.1:" + serverSocket.getLocalPort());
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        serverSocket.close();
+    }
+
+    @Test
+    void cancellingWhileStreamingClosesTheConnection() throws Exception {
+        // Given
+        ChatGeneration generation = service.sendChatMessage("llama3", List.of(ChatMessage.user("Hi")), token -> { });
+        assertThat(firstChunkSent.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        boolean cancelled = generation.cancel();
+
+        // Then
+        assertThat(cancelled).isTrue();
+        assertThat(socketClosed.await(5, TimeUnit.SECONDS))
+            .withFailMessage("Server socket was not closed after cancel()")
+            .isTrue();
+        assertThat(generation.isCancelled()).isTrue();
+        assertThatThrownBy(() -> generation.result().join()).isInstanceOf(CancellationException.class);
+    }
+
+    @Test
+    void cancellingBeforeResponseHeadersClosesTheConnection() throws Exception {
+        // Given - the stand-in accepts the request but never answers
+        respond = false;
+        ChatGeneration generation = service.sendChatMessage("llama3", List.of(ChatMessage.user("Hi")), token -> { });
+        assertThat(requestReceived.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        generation.cancel();
+
+        // Then
+        assertThat(socketClosed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(generation.result()).isCancelled();
+    }
+
+    @Test
+    void cancelCurrentRequestCancelsLatestGeneration() throws Exception {
+        // Given
+        ChatGeneration generation = service.sendChatMessage("llama3", List.of(ChatMessage.user("Hi")), token -> { });
+        assertThat(firstChunkSent.await(5, TimeUnit.SECONDS)).isTrue();
+
+        // When
+        service.cancelCurrentRequest();
+
+        // Then
+        assertThat(socketClosed.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(generation.isCancelled()).isTrue();
+        assertThat(generation.cancel()).isFalse();
+    }
+
+    /**
+     * Accepts one connection and streams chunks until the client goes away
+     */
+    private void serveEndlessStream() {
+        try (Socket socket = serverSocket.accept()) {
+            BufferedReader reader = new BufferedReader(
+                new InputStreamReader(socket.getInputStream(), StandardCharsets.ISO_8859_1));
+            String line;
+            while ((line = reader.readLine()) != null && !line.isEmpty()) {
+                // Skip request headers
+            }
+            requestReceived.countDown();
+
+            if (!respond) {
+                // Blocks until the client closes the connection
+                while (reader.read() != -1) {
+                    // Discard request body
+                }
+                socketClosed.countDown();
+                return;
+            }
+
+            OutputStream out = socket.getOutputStream();
+            out.write(("HTTP/1.1 200 OK\r\n"
+                + "Content-Type: application/x-ndjson\r\n"
+                + "Transfer-Encoding: chunked\r\n\r\n").getBytes(StandardCharsets.ISO_8859_1));
+            byte[] chunk = "{\"message\":{\"role\":\"assistant\",\"content\":\"tok \"},\"done\":false}\n"
+                .getBytes(StandardCharsets.UTF_8);
+            while (true) {
+                out.write((Integer.toHexString(chunk.length) + "\r\n").getBytes(StandardCharsets.ISO_8859_1));
+                out.write(chunk);
+                out.write("\r\n".getBytes(StandardCharsets.ISO_8859_1));
+                out.flush();
+                firstChunkSent.countDown();
+                Thread.sleep(20);
+            }
+        } catch (IOException e) {
+            // Broken pipe or reset: the client closed the connection
+            socketClosed.countDown();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,456 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.OllamaModel;
+import com.ollama.olama.testing.FakeOllamaServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+/**
+ * Exercises OllamaServiceImpl over real HTTP against the in-process stand-in server.
+ */
+class OllamaServiceHttpTest {
+
+    private FakeOllamaServer server;
+    private OllamaServiceImpl service;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = FakeOllamaServer.start().model("mistral:7b", 4_109_865_159L);
+        service = new OllamaServiceImpl();
+        service.setBaseUrl(server.baseUrl());
+    }
+
+    @AfterEach
+    void tearDown() {
+        service.close();
+        server.close();
+    }
+
+    @Test
+    void shouldListModelsSortedByName() throws Exception {
+        // When
+        List<OllamaModel> models = service.getAvailableModels().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(models).extracting(OllamaModel::name).containsExactly("llama3:8b", "mistral:7b");
+        assertThat(models.get(0).size()).isEqualTo("4.3 GB");
+        assertThat(service.checkConnection().get(5, TimeUnit.SECONDS)).isTrue();
+    }
+
+    @Test
+    void shouldStreamTokensAndCollectStats() throws Exception {
+        // Given
+        server.responseTokens(30).chunking(2, 3).firstTokenDelay(Duration.ofMillis(50));
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // When
+        ChatMessage reply = service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), tokens::add)
+            .result().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(tokens).hasSize(15);
+        assertThat(String.join("", tokens)).isEqualTo(reply.content());
+        assertThat(reply.stats().evalCount()).isEqualTo(30);
+        assertThat(reply.stats().timeToFirstTokenMs()).isGreaterThanOrEqualTo(50);
+        assertThat(reply.stats().tokensPerSecond()).isPositive();
+
+        JsonNode request = server.requests().get(0);
+        assertThat(request.path("model").asText()).isEqualTo("llama3:8b");
+        assertThat(request.path("messages").get(0).path("content").asText()).isEqualTo("Hi");
+    }
+
+    @Test
+    void shouldReportUnknownModelAsModelNotFound() {
+        // When
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("missing", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(ollamaException(failure).getType()).isEqualTo(OllamaException.Type.MODEL_NOT_FOUND);
+    }
+
+    @Test
+    void shouldStreamALargeHistoryIntact() throws Exception {
+        // Given
+        String document = "Pasted document line with \"quotes\" and ünïcode.\n".repeat(40_000);
+        List<ChatMessage> history = List.of(
+            ChatMessage.user("Summarize this:\n" + document),
+            ChatMessage.assistant("It repeats one line.", 900L),
+            ChatMessage.user("Are you sure?")
+        );
+
+        // When
+        service.sendChatMessage("llama3:8b", history, token -> { }).result().get(10, TimeUnit.SECONDS);
+
+        // Then
+        JsonNode messages = server.requests().get(0).path("messages");
+        assertThat(messages).hasSize(3);
+        assertThat(messages.get(0).path("content").asText()).hasSize(document.length() + 16).endsWith(document);
+        assertThat(messages.get(2).path("content").asText()).isEqualTo("Are you sure?");
+    }
+
+    @Test
+    void shouldEmbedAllInputsInOneRequest() throws Exception {
+        // Given
+        server.model("nomic-embed-text", 274_302_450L);
+
+        // When
+        List<float[]> vectors = service.embed("nomic-embed-text", List.of("abc", "hello")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(vectors).hasSize(2);
+        assertThat(vectors.get(0)).containsExactly(3f, 'a', 1f);
+        assertThat(vectors.get(1)).containsExactly(5f, 'h', 1f);
+        assertThat(server.requests()).singleElement()
+            .satisfies(request -> assertThat(request.path("input")).hasSize(2));
+    }
+
+    @Test
+    void shouldReportUnknownEmbeddingModelAsModelNotFound() {
+        // When
+        Throwable failure = catchThrowable(() -> service.embed("missing", List.of("abc")).get(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(ollamaException(failure).getType()).isEqualTo(OllamaException.Type.MODEL_NOT_FOUND);
+    }
+
+    @Test
+    void shouldReportServerErrorStatus() {
+        // Given
+        server.failWith(503, "server busy");
+
+        // When
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(ollamaException(failure).getType()).isEqualTo(OllamaException.Type.SERVER_ERROR);
+    }
+
+    @Test
+    void shouldFailWhenConnectionDropsMidStream() {
+        // Given
+        server.responseTokens(50).disconnectAfter(10);
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // When
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), tokens::add)
+            .result().get(5, TimeUnit.SECONDS));
+
+        // Then - HttpClient may drop chunks it buffered before the connection broke
+        assertThat(tokens).hasSizeLessThanOrEqualTo(10);
+        assertThat(ollamaException(failure)).isNotNull();
+    }
+
+    @Test
+    void shouldSurfaceErrorSentInsideStream() {
+        // Given
+        server.streamErrorAfter(5, "llama runner process has terminated");
+
+        // When
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(ollamaException(failure).getUserMessage()).contains("llama runner process has terminated");
+    }
+
+    @Test
+    void shouldWarmUpModelWithKeepAliveAndReuseItForChats() throws Exception {
+        // When
+        boolean loaded = service.warmUp("mistral:7b", "10m").get(5, TimeUnit.SECONDS);
+        service.sendChatMessage("mistral:7b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(loaded).isTrue();
+        assertThat(service.isModelWarm("mistral:7b")).isTrue();
+        assertThat(server.loadedModels()).containsExactly("mistral:7b");
+        assertThat(server.requests()).hasSize(2);
+        assertThat(server.requests().get(0).path("messages").isEmpty()).isTrue();
+        assertThat(server.requests()).allSatisfy(request ->
+            assertThat(request.path("keep_alive").asText()).isEqualTo("10m"));
+    }
+
+    @Test
+    void shouldFailOverToNextEndpointWhenConnectionIsRefused() throws Exception {
+        // Given
+        String deadUrl = "http://127.0.0.1:" + unusedPort();
+        service.setEndpoints(List.of(deadUrl, server.baseUrl()));
+
+        // When
+        ChatMessage reply = service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(reply.content()).isNotEmpty();
+        assertThat(server.requests()).hasSize(1);
+        EndpointPool.Endpoint dead = service.getEndpointPool().getEndpoints().get(0);
+        EndpointPool.Endpoint live = service.getEndpointPool().getEndpoints().get(1);
+        assertThat(dead.consecutiveFailures()).isPositive();
+        assertThat(live.loadedModels()).contains("llama3:8b");
+        assertThat(live.inFlight()).isZero();
+    }
+
+    @Test
+    void shouldListModelsAndEmbedThroughNextEndpointWhenConnectionIsRefused() throws Exception {
+        // Given
+        service.setEndpoints(List.of("http://127.0.0.1:" + unusedPort(), server.baseUrl()));
+
+        // When
+        List<OllamaModel> models = service.getAvailableModels().get(5, TimeUnit.SECONDS);
+        server.model("nomic-embed-text", 274_302_450L);
+        List<float[]> vectors = service.embed("nomic-embed-text", List.of("hello")).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(models).extracting(OllamaModel::name).containsExactly("llama3:8b", "mistral:7b");
+        assertThat(vectors).hasSize(1);
+        assertThat(service.getEndpointPool().getEndpoints()).allSatisfy(endpoint ->
+            assertThat(endpoint.inFlight()).isZero());
+    }
+
+    @Test
+    void shouldKeepBreakerClosedWhileAnotherEndpointIsUp() throws Exception {
+        // Given
+        service.setEndpoints(List.of(
+            "http://127.0.0.1:" + unusedPort(), "http://127.0.0.1:" + unusedPort(), server.baseUrl()));
+        EndpointPool.Endpoint firstDead = service.getEndpointPool().getEndpoints().get(0);
+        EndpointPool.Endpoint secondDead = service.getEndpointPool().getEndpoints().get(1);
+
+        // When - the background probe and the warm-ups each find a dead node
+        service.warmUp("llama3:8b", "5m").get(5, TimeUnit.SECONDS);
+        service.warmUp("mistral:7b", "5m").get(5, TimeUnit.SECONDS);
+        ChatMessage reply = service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(firstDead.consecutiveFailures()).isPositive();
+        assertThat(secondDead.consecutiveFailures()).isPositive();
+        assertThat(service.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(reply.content()).isNotEmpty();
+    }
+
+    @Test
+    void shouldSpreadConcurrentChatsAcrossEndpoints() throws Exception {
+        // Given
+        try (FakeOllamaServer second = FakeOllamaServer.start()) {
+            server.firstTokenDelay(Duration.ofMillis(200));
+            second.firstTokenDelay(Duration.ofMillis(200));
+            service.setEndpoints(List.of(server.baseUrl(), second.baseUrl()));
+
+            // When
+            List<ChatGeneration> generations = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                generations.add(service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi " + i)), token -> { }));
+            }
+            for (ChatGeneration generation : generations) {
+                generation.result().get(5, TimeUnit.SECONDS);
+            }
+
+            // Then
+            assertThat(server.requests()).isNotEmpty();
+            assertThat(second.requests()).isNotEmpty();
+            assertThat(server.requests().size() + second.requests().size()).isEqualTo(8);
+        }
+    }
+
+    @Test
+    void shouldPublishOneResponseToSeveralSubscribers() throws Exception {
+        // Given
+        server.responseTokens(20);
+        ChatStream stream = service.streamChat("llama3:8b", List.of(ChatMessage.user("Hi")));
+        CollectingSubscriber ui = new CollectingSubscriber();
+        CollectingSubscriber metrics = new CollectingSubscriber();
+        stream.subscribe(ui);
+        stream.subscribe(metrics);
+
+        // When
+        ChatMessage reply = stream.connect().result().get(5, TimeUnit.SECONDS);
+        ui.done.get(5, TimeUnit.SECONDS);
+        metrics.done.get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(ui.chunks).isEqualTo(metrics.chunks);
+        assertThat(ui.chunks).hasSize(21).last().isEqualTo(new ChatChunk.Done(reply));
+        assertThat(ui.chunks.subList(0, 20)).allSatisfy(chunk -> assertThat(chunk).isInstanceOf(ChatChunk.Content.class));
+        assertThat(((ChatChunk.Done) ui.chunks.get(20)).stats().evalCount()).isEqualTo(20);
+    }
+
+    @Test
+    void shouldReplayDeterministicChatFromCache(@TempDir Path cacheDir) throws Exception {
+        // Given
+        server.responseTokens(12);
+        service.setChatOptions(Map.of("temperature", 0));
+        service.setResponseCache(new ResponseCache(cacheDir, 1_000_000), 0);
+        service.getAvailableModels().get(5, TimeUnit.SECONDS);
+        List<String> firstTokens = new CopyOnWriteArrayList<>();
+        List<String> replayedTokens = new CopyOnWriteArrayList<>();
+
+        // When
+        ChatMessage first = service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), firstTokens::add)
+            .result().get(5, TimeUnit.SECONDS);
+        ChatMessage replayed = service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), replayedTokens::add)
+            .result().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(server.requests()).hasSize(1);
+        assertThat(server.requests().get(0).path("options").path("temperature").asInt(-1)).isZero();
+        assertThat(replayedTokens).isEqualTo(firstTokens);
+        assertThat(replayed.content()).isEqualTo(first.content());
+        assertThat(replayed.stats().evalCount()).isEqualTo(12);
+    }
+
+    @Test
+    void shouldNotCacheSampledChats(@TempDir Path cacheDir) throws Exception {
+        // Given
+        service.setChatOptions(Map.of("temperature", 0.8));
+        service.setResponseCache(new ResponseCache(cacheDir, 1_000_000), 0);
+        service.getAvailableModels().get(5, TimeUnit.SECONDS);
+
+        // When
+        for (int i = 0; i < 2; i++) {
+            service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+                .result().get(5, TimeUnit.SECONDS);
+        }
+
+        // Then
+        assertThat(server.requests()).hasSize(2);
+    }
+
+    @Test
+    void shouldReportFirstTokenPhaseWhenModelNeverStartsAnswering() {
+        // Given
+        server.firstTokenDelay(Duration.ofSeconds(5));
+        service.setChatTimeouts(new ChatTimeouts(Duration.ofSeconds(2), Duration.ofMillis(300), Duration.ofSeconds(5)));
+
+        // When
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(3, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(ollamaException(failure)).isInstanceOfSatisfying(ChatTimeoutException.class, timeout -> {
+            assertThat(timeout.getType()).isEqualTo(OllamaException.Type.TIMEOUT);
+            assertThat(timeout.getPhase()).isEqualTo(ChatTimeouts.Phase.FIRST_TOKEN);
+        });
+    }
+
+    @Test
+    void shouldCutOffStreamThatGoesIdle() {
+        // Given
+        server.responseTokens(20).stall(5, Duration.ofSeconds(5));
+        service.setChatTimeouts(new ChatTimeouts(Duration.ofSeconds(2), Duration.ofSeconds(2), Duration.ofMillis(300)));
+        List<String> tokens = new CopyOnWriteArrayList<>();
+
+        // When
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), tokens::add)
+            .result().get(3, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(tokens).hasSize(5);
+        assertThat(ollamaException(failure)).isInstanceOfSatisfying(ChatTimeoutException.class, timeout ->
+            assertThat(timeout.getPhase()).isEqualTo(ChatTimeouts.Phase.IDLE));
+    }
+
+    @Test
+    void shouldLetSteadyStreamRunPastEveryPhaseDeadline() throws Exception {
+        // Given
+        server.responseTokens(40).tokenRate(50);
+        service.setChatTimeouts(new ChatTimeouts(Duration.ofSeconds(2), Duration.ofMillis(300), Duration.ofMillis(300)));
+
+        // When
+        ChatMessage reply = service.sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(reply.generationTimeMs()).isGreaterThan(600);
+        assertThat(reply.stats().evalCount()).isEqualTo(40);
+    }
+
+    @Test
+    void shouldFailFastWhileOllamaIsKnownToBeDown() throws Exception {
+        // Given
+        service.setBaseUrl("http://127.0.0.1:" + unusedPort());
+        assertThat(service.checkConnection().get(5, TimeUnit.SECONDS)).isFalse();
+        assertThat(service.checkConnection().get(5, TimeUnit.SECONDS)).isFalse();
+
+        // When
+        long start = System.nanoTime();
+        Throwable failure = catchThrowable(() -> service
+            .sendChatMessage("llama3:8b", List.of(ChatMessage.user("Hi")), token -> { })
+            .result().get(5, TimeUnit.SECONDS));
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        // Then
+        assertThat(service.getCircuitBreaker().getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThat(ollamaException(failure).getType()).isEqualTo(OllamaException.Type.CONNECTION_FAILED);
+        assertThat(ollamaException(failure).getUserMessage()).contains("unreachable");
+        assertThat(elapsedMs).isLessThan(500);
+    }
+
+    private static final class CollectingSubscriber implements Flow.Subscriber<ChatChunk> {
+
+        final List<ChatChunk> chunks = new CopyOnWriteArrayList<>();
+        final CompletableFuture<Void> done = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscription.request(Long.MAX_VALUE);
+        }
+
+        @Override
+        public void onNext(ChatChunk item) {
+            chunks.add(item);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public void onComplete() {
+            done.complete(null);
+        }
+    }
+
+    private static int unusedPort() throws IOException {
+        try (ServerSocket socket = new ServerSocket(0, 1, InetAddress.getLoopbackAddress())) {
+            return socket.getLocalPort();
+        }
+    }
+
+    private static OllamaException ollamaException(Throwable failure) {
+        for (Throwable cause = failure; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OllamaException ollamaException) {
+                return ollamaException;
+            }
+        }
+        throw new AssertionError("No OllamaException in cause chain", failure);
+    }
+}
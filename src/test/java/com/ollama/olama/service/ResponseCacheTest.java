@@ -0,0 +1,117 @@
+package com.ollama.olama.service;
+
+import com.ollama.olama.model.ChatMessage;
+import com.ollama.olama.model.GenerationStats;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ResponseCacheTest {
+
+    @TempDir
+    Path tempDir;
+
+    private static final GenerationStats STATS = new GenerationStats(5000, 0, 12, 800, 2, 3000, 40, 1.5, 3.0);
+
+    @Test
+    void shouldDetectDeterministicOptions() {
+        // When / Then
+        assertThat(ResponseCache.isDeterministic(Map.of("temperature", 0))).isTrue();
+        assertThat(ResponseCache.isDeterministic(Map.of("temperature", 0.0, "top_k", 10))).isTrue();
+        assertThat(ResponseCache.isDeterministic(Map.of("temperature", 0.7, "seed", 42))).isTrue();
+        assertThat(ResponseCache.isDeterministic(Map.of("temperature", 0.7))).isFalse();
+        assertThat(ResponseCache.isDeterministic(Map.of("temperature", 0.7, "seed", -1))).isFalse();
+        assertThat(ResponseCache.isDeterministic(Map.of())).isFalse();
+        assertThat(ResponseCache.isDeterministic(null)).isFalse();
+    }
+
+    @Test
+    void shouldKeyOnDigestNormalizedMessagesAndOptions() throws IOException {
+        // Given
+        ResponseCache cache = new ResponseCache(tempDir, 1_000_000);
+        Map<String, Object> options = new HashMap<>();
+        options.put("temperature", 0);
+        options.put("num_ctx", 4096);
+        List<ChatMessage> messages = List.of(ChatMessage.user("line one\r\nline two"));
+
+        // When
+        String key = cache.key("sha256:abc", messages, options);
+
+        // Then
+        assertThat(key).hasSize(64);
+        assertThat(cache.key("sha256:abc", List.of(ChatMessage.user("line one\nline two")),
+            Map.of("num_ctx", 4096, "temperature", 0))).isEqualTo(key);
+        assertThat(cache.key("sha256:def", messages, options)).isNotEqualTo(key);
+        assertThat(cache.key("sha256:abc", List.of(ChatMessage.user("line one")), options)).isNotEqualTo(key);
+        assertThat(cache.key("sha256:abc", messages, Map.of("temperature", 0))).isNotEqualTo(key);
+    }
+
+    @Test
+    void shouldStoreResponsesAcrossRestarts() throws IOException {
+        // Given
+        ResponseCache cache = new ResponseCache(tempDir, 1_000_000);
+        String key = cache.key("d", List.of(ChatMessage.user("Hi")), Map.of("seed", 1));
+
+        // When
+        cache.put(key, new ResponseCache.CachedResponse(List.of("Hel", "lo"), STATS));
+        ResponseCache reopened = new ResponseCache(tempDir, 1_000_000);
+
+        // Then
+        assertThat(reopened.get(key)).hasValueSatisfying(response -> {
+            assertThat(response.tokens()).containsExactly("Hel", "lo");
+            assertThat(response.content()).isEqualTo("Hello");
+            assertThat(response.stats()).isEqualTo(STATS);
+        });
+        assertThat(reopened.get("0".repeat(64))).isEmpty();
+    }
+
+    @Test
+    void shouldEvictLeastRecentlyUsedWhenOverSize() throws IOException {
+        // Given
+        ResponseCache.CachedResponse response = new ResponseCache.CachedResponse(List.of("x".repeat(200)), STATS);
+        ResponseCache probe = new ResponseCache(tempDir.resolve("probe"), 1_000_000);
+        probe.put("a", response);
+        long entrySize = probe.totalBytes();
+        ResponseCache cache = new ResponseCache(tempDir.resolve("cache"), entrySize * 2);
+        cache.put("a", response);
+        cache.put("b", response);
+
+        // When
+        cache.get("a");
+        cache.put("c", response);
+
+        // Then
+        assertThat(cache.size()).isEqualTo(2);
+        assertThat(cache.totalBytes()).isLessThanOrEqualTo(entrySize * 2);
+        assertThat(cache.get("a")).isPresent();
+        assertThat(cache.get("b")).isEmpty();
+        assertThat(cache.get("c")).isPresent();
+        assertThat(tempDir.resolve("cache").resolve("b.json")).doesNotExist();
+    }
+
+    @Test
+    void shouldNotLeaveTempFileWhenStoringFails() throws IOException {
+        // Given
+        ResponseCache cache = new ResponseCache(tempDir, 1_000_000);
+        Path blocked = Files.createDirectories(tempDir.resolve("k.json"));
+        Files.writeString(blocked.resolve("inside"), "keeps the directory from being replaced");
+
+        // When
+        cache.put("k", new ResponseCache.CachedResponse(List.of("Hi"), STATS));
+
+        // Then
+        assertThat(cache.size()).isZero();
+        try (Stream<Path> files = Files.list(tempDir)) {
+            assertThat(files).containsExactly(blocked);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.ollama.olama.service;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.ollama.olama.model.GenerationStats;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class StreamTimerTest {
+
+    private static final long MS = 1_000_000L;
+
+    @Test
+    void shouldMeasureFirstTokenAndGapsAndKeepServerCounters() throws IOException {
+        // Given
+        ChatStreamDecoder decoder = new ChatStreamDecoder(new JsonFactory());
+        decoder.decode(new ByteArrayInputStream("""
+            {"done":true,"total_duration":9000000000,"load_duration":2000000000,"prompt_eval_count":20,"prompt_eval_duration":500000000,"eval_count":50,"eval_duration":2000000000}
+            """.getBytes(StandardCharsets.UTF_8)), token -> { });
+        StreamTimer timer = new StreamTimer(1_000 * MS);
+
+        // When
+        timer.onToken(1_250 * MS);
+        timer.onToken(1_260 * MS);
+        timer.onToken(1_290 * MS);
+        GenerationStats stats = timer.toStats(decoder);
+
+        // Then
+        assertThat(stats.timeToFirstTokenMs()).isEqualTo(250);
+        assertThat(stats.meanTokenGapMs()).isCloseTo(20.0, within(0.001));
+        assertThat(stats.maxTokenGapMs()).isCloseTo(30.0, within(0.001));
+        assertThat(stats.loadDurationNanos()).isEqualTo(2_000_000_000L);
+        assertThat(stats.tokensPerSecond()).isCloseTo(25.0, within(0.001));
+        assertThat(stats.promptTokensPerSecond()).isCloseTo(40.0, within(0.001));
+        assertThat(timer.elapsedMs(1_300 * MS)).isEqualTo(300);
+    }
+
+    @Test
+    void shouldReportNoFirstTokenForEmptyResponse() {
+        // Given
+        StreamTimer timer = new StreamTimer(0);
+
+        // When
+        GenerationStats stats = timer.toStats(new ChatStreamDecoder(new JsonFactory()));
+
+        // Then
+        assertThat(stats.timeToFirstTokenMs()).isEqualTo(-1);
+        assertThat(stats.meanTokenGapMs()).isZero();
+        assertThat(stats.tokensPerSecond()).isZero();
+    }
+}
@@ -0,0 +1,171 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Flow;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.catchThrowable;
+
+class StreamingBodyPublisherTest {
+
+    private static final int CHUNK_SIZE = 1024;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Collects the chunks and asks for more only when told to
+     */
+    private static final class CollectingSubscriber implements Flow.Subscriber<ByteBuffer> {
+
+        final List<Integer> chunkSizes = new CopyOnWriteArrayList<>();
+        final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        final CompletableFuture<byte[]> done = new CompletableFuture<>();
+        final CompletableFuture<Flow.Subscription> subscribed = new CompletableFuture<>();
+
+        @Override
+        public void onSubscribe(Flow.Subscription subscription) {
+            subscribed.complete(subscription);
+        }
+
+        @Override
+        public synchronized void onNext(ByteBuffer item) {
+            chunkSizes.add(item.remaining());
+            byte[] chunk = new byte[item.remaining()];
+            item.get(chunk);
+            bytes.writeBytes(chunk);
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            done.completeExceptionally(throwable);
+        }
+
+        @Override
+        public synchronized void onComplete() {
+            done.complete(bytes.toByteArray());
+        }
+
+        Flow.Subscription subscription() throws Exception {
+            return subscribed.get(5, TimeUnit.SECONDS);
+        }
+    }
+
+    private static byte[] randomBytes(int length) {
+        byte[] bytes = new byte[length];
+        new Random(1).nextBytes(bytes);
+        return bytes;
+    }
+
+    @Test
+    void shouldPassChunksOnlyAsTheyAreRequested() throws Exception {
+        // Given
+        byte[] body = randomBytes(10 * CHUNK_SIZE + 100);
+        AtomicLong written = new AtomicLong();
+        StreamingBodyPublisher publisher = new StreamingBodyPublisher(
+            out -> out.write(body), executor, CHUNK_SIZE, written::set);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        publisher.subscribe(subscriber);
+
+        // When
+        subscriber.subscription().request(2);
+        Thread.sleep(100);
+        int afterTwo = subscriber.chunkSizes.size();
+        subscriber.subscription().request(Long.MAX_VALUE);
+        byte[] received = subscriber.done.get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(afterTwo).isEqualTo(2);
+        assertThat(received).isEqualTo(body);
+        assertThat(subscriber.chunkSizes).hasSize(11).allSatisfy(size -> assertThat(size).isLessThanOrEqualTo(CHUNK_SIZE));
+        assertThat(publisher.contentLength()).isEqualTo(-1);
+        assertThat(written).hasValue(body.length);
+    }
+
+    @Test
+    void shouldWriteTheBodyAgainForEverySubscriber() throws Exception {
+        // Given
+        AtomicInteger writes = new AtomicInteger();
+        StreamingBodyPublisher publisher = new StreamingBodyPublisher(out -> {
+            writes.incrementAndGet();
+            for (int i = 0; i < 500; i++) {
+                out.write(("line " + i + "\n").getBytes());
+            }
+        }, executor);
+
+        // When
+        CollectingSubscriber first = new CollectingSubscriber();
+        publisher.subscribe(first);
+        first.subscription().request(Long.MAX_VALUE);
+        CollectingSubscriber second = new CollectingSubscriber();
+        publisher.subscribe(second);
+        second.subscription().request(Long.MAX_VALUE);
+
+        // Then
+        assertThat(second.done.get(5, TimeUnit.SECONDS)).isEqualTo(first.done.get(5, TimeUnit.SECONDS));
+        assertThat(writes).hasValue(2);
+    }
+
+    @Test
+    void shouldStopTheWriterWhenCancelled() throws Exception {
+        // Given
+        CompletableFuture<Throwable> writerStopped = new CompletableFuture<>();
+        StreamingBodyPublisher publisher = new StreamingBodyPublisher(out -> {
+            try {
+                while (true) {
+                    out.write(new byte[100]);
+                }
+            } catch (IOException e) {
+                writerStopped.complete(e);
+                throw e;
+            }
+        }, executor, CHUNK_SIZE, bytes -> { });
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        publisher.subscribe(subscriber);
+
+        // When
+        subscriber.subscription().request(3);
+        subscriber.subscription().cancel();
+
+        // Then
+        assertThat(writerStopped.get(5, TimeUnit.SECONDS)).isInstanceOf(IOException.class);
+        assertThat(subscriber.done).isNotDone();
+        assertThat(subscriber.chunkSizes).hasSizeLessThanOrEqualTo(3);
+    }
+
+    @Test
+    void shouldReportAFailingWriter() throws Exception {
+        // Given
+        StreamingBodyPublisher publisher = new StreamingBodyPublisher(out -> {
+            out.write(new byte[10]);
+            throw new IOException("disk gone");
+        }, executor);
+        CollectingSubscriber subscriber = new CollectingSubscriber();
+        publisher.subscribe(subscriber);
+
+        // When
+        subscriber.subscription().request(1);
+        Throwable failure = catchThrowable(() -> subscriber.done.get(5, TimeUnit.SECONDS));
+
+        // Then
+        assertThat(failure).hasRootCauseMessage("disk gone");
+    }
+}
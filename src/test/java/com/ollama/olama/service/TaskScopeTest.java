@@ -0,0 +1,73 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TaskScopeTest {
+
+    private final AsyncRuntime runtime = new AsyncRuntime();
+
+    @AfterEach
+    void tearDown() {
+        runtime.close();
+    }
+
+    @Test
+    void shouldRunBlockingWorkOnVirtualThreads() throws Exception {
+        // Given
+        TaskScope scope = runtime.openScope();
+
+        // When
+        boolean virtual = scope.supplyAsync(() -> Thread.currentThread().isVirtual()).get(5, TimeUnit.SECONDS);
+
+        // Then
+        assertThat(virtual).isTrue();
+    }
+
+    @Test
+    void shouldCancelOutstandingWorkWhenClosed() throws Exception {
+        // Given
+        TaskScope scope = runtime.openScope();
+        CountDownLatch started = new CountDownLatch(1);
+        CompletableFuture<String> blocked = scope.supplyAsync(() -> {
+            started.countDown();
+            Thread.sleep(10_000);
+            return "done";
+        });
+        CompletableFuture<String> external = scope.track(new CompletableFuture<>());
+        started.await(5, TimeUnit.SECONDS);
+
+        // When
+        scope.close();
+        CompletableFuture<String> afterClose = scope.track(new CompletableFuture<>());
+
+        // Then
+        assertThat(blocked).isCancelled();
+        assertThat(external).isCancelled();
+        assertThat(afterClose).isCancelled();
+        assertThat(scope.isClosed()).isTrue();
+    }
+
+    @Test
+    void shouldCloseScopesAndRejectWorkWhenRuntimeCloses() {
+        // Given
+        TaskScope scope = runtime.openScope();
+        CompletableFuture<String> pending = scope.track(new CompletableFuture<>());
+
+        // When
+        runtime.close();
+        CompletableFuture<String> rejected = runtime.openScope().supplyAsync(() -> "too late");
+
+        // Then
+        assertThat(pending).isCancelled();
+        assertThat(rejected).isCompletedExceptionally();
+        assertThat(runtime.executor().isShutdown()).isTrue();
+        assertThat(runtime.scheduler().isShutdown()).isTrue();
+    }
+}
@@ -0,0 +1,82 @@
+package com.ollama.olama.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class WarmModelTrackerTest {
+
+    private final AtomicLong now = new AtomicLong();
+    private final WarmModelTracker tracker = new WarmModelTracker(now::get);
+
+    @Test
+    void shouldTreatModelAsWarmUntilKeepAliveExpires() {
+        // Given
+        tracker.markWarm("llama3", "5m");
+
+        // When
+        now.addAndGet(Duration.ofMinutes(4).toNanos());
+        boolean warmBeforeExpiry = tracker.isWarm("llama3");
+        now.addAndGet(Duration.ofMinutes(1).toNanos());
+        boolean warmAfterExpiry = tracker.isWarm("llama3");
+
+        // Then
+        assertThat(warmBeforeExpiry).isTrue();
+        assertThat(warmAfterExpiry).isFalse();
+        assertThat(tracker.getWarmModels()).isEmpty();
+    }
+
+    @Test
+    void shouldKeepModelWarmForeverWithNegativeKeepAlive() {
+        // Given
+        tracker.markWarm("llama3", "-1");
+
+        // When
+        now.addAndGet(Duration.ofDays(30).toNanos());
+
+        // Then
+        assertThat(tracker.isWarm("llama3")).isTrue();
+        assertThat(tracker.getWarmModels()).containsExactly("llama3");
+    }
+
+    @Test
+    void shouldForgetModelWithZeroKeepAliveOrWhenMarkedCold() {
+        // Given
+        tracker.markWarm("llama3", "1h");
+        tracker.markWarm("mistral", "1h");
+
+        // When
+        tracker.markWarm("llama3", "0");
+        tracker.markCold("mistral");
+
+        // Then
+        assertThat(tracker.isWarm("llama3")).isFalse();
+        assertThat(tracker.isWarm("mistral")).isFalse();
+    }
+
+    @Test
+    void shouldParseOllamaKeepAliveFormats() {
+        // When / Then
+        assertThat(WarmModelTracker.parseKeepAlive("300")).isEqualTo(Duration.ofMinutes(5));
+        assertThat(WarmModelTracker.parseKeepAlive("30s")).isEqualTo(Duration.ofSeconds(30));
+        assertThat(WarmModelTracker.parseKeepAlive("1h30m")).isEqualTo(Duration.ofMinutes(90));
+        assertThat(WarmModelTracker.parseKeepAlive("1.5h")).isEqualTo(Duration.ofMinutes(90));
+        assertThat(WarmModelTracker.parseKeepAlive("-1")).isNull();
+        assertThat(WarmModelTracker.parseKeepAlive("-5m")).isNull();
+        assertThatThrownBy(() -> WarmModelTracker.parseKeepAlive("5 minutes"))
+            .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> WarmModelTracker.parseKeepAlive(""))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void shouldSendNumericKeepAliveAsNumber() {
+        // When / Then
+        assertThat(WarmModelTracker.toApiValue("-1")).isEqualTo(-1L);
+        assertThat(WarmModelTracker.toApiValue("10m")).isEqualTo("10m");
+    }
+}
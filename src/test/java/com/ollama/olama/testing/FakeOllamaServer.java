@@ -0,0 +1,528 @@
+package com.ollama.olama.testing;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-process stand-in for an Ollama server, so the real HTTP path can be tested and
+ * benchmarked without a live Ollama. Implements /api/tags, /api/chat, /api/generate,
+ * /api/show, /api/ps and /api/embed with configurable timing and failures.
+ * <p>
+ * Settings are read when a request starts, so they can be changed between requests.
+ * Each request is handled on its own virtual thread.
+ * <pre>
+ * try (FakeOllamaServer server = FakeOllamaServer.start()) {
+ *     server.tokenRate(50).firstTokenDelay(Duration.ofMillis(200)).responseTokens(100);
+ *     service.setBaseUrl(server.baseUrl());
+ * }
+ * </pre>
+ */
+public class FakeOllamaServer implements AutoCloseable {
+
+    private static final String[] WORDS = {
+        "The", " quick", " brown", " fox", " jumps", " over", " the", " lazy", " dog", ".",
+        "\n\n", "Streaming", " tokens", " are", " usually", " short", ",", " often", " one", " word"
+    };
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Long> models = new ConcurrentHashMap<>();
+    private final Map<String, Instant> loadedUntil = new ConcurrentHashMap<>();
+    private final List<JsonNode> requests = new CopyOnWriteArrayList<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger maxInFlight = new AtomicInteger();
+
+    private volatile double tokensPerSecond;
+    private volatile Duration firstTokenDelay = Duration.ZERO;
+    private volatile int responseTokens = 20;
+    private volatile int tokensPerLine = 1;
+    private volatile int linesPerFlush = 1;
+    private volatile int stallAfterTokens = -1;
+    private volatile Duration stallDuration = Duration.ZERO;
+    private volatile int disconnectAfterTokens = -1;
+    private volatile int errorAfterTokens = -1;
+    private volatile int errorStatus;
+    private volatile String errorMessage = "simulated failure";
+
+    private FakeOllamaServer(HttpServer server) {
+        this.server = server;
+        this.executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext("/api/tags", exchange -> handle(exchange, this::handleTags));
+        server.createContext("/api/chat", exchange -> handle(exchange, ex -> handleCompletion(ex, true)));
+        server.createContext("/api/generate", exchange -> handle(exchange, ex -> handleCompletion(ex, false)));
+        server.createContext("/api/show", exchange -> handle(exchange, this::handleShow));
+        server.createContext("/api/ps", exchange -> handle(exchange, this::handlePs));
+        server.createContext("/api/embed", exchange -> handle(exchange, this::handleEmbed));
+        model("llama3:8b", 4_661_224_676L);
+    }
+
+    /**
+     * Starts a server on a free loopback port with one model, "llama3:8b"
+     */
+    public static FakeOllamaServer start() throws IOException {
+        // Small streamed chunks otherwise hit Nagle + delayed ACK stalls of ~40 ms; read once by HttpServer
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+        HttpServer httpServer = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        FakeOllamaServer fake = new FakeOllamaServer(httpServer);
+        httpServer.start();
+        return fake;
+    }
+
+    public String baseUrl() {
+        return "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    // Configuration
+
+    /**
+     * Adds a model to /api/tags
+     */
+    public FakeOllamaServer model(String name, long sizeBytes) {
+        models.put(name, sizeBytes);
+        return this;
+    }
+
+    /**
+     * Generated tokens per second; 0 streams as fast as possible
+     */
+    public FakeOllamaServer tokenRate(double tokensPerSecond) {
+        this.tokensPerSecond = tokensPerSecond;
+        return this;
+    }
+
+    /**
+     * Delay before the first token, like prompt evaluation or model loading
+     */
+    public FakeOllamaServer firstTokenDelay(Duration delay) {
+        this.firstTokenDelay = delay;
+        return this;
+    }
+
+    /**
+     * Number of tokens in each response
+     */
+    public FakeOllamaServer responseTokens(int tokens) {
+        this.responseTokens = tokens;
+        return this;
+    }
+
+    /**
+     * Tokens per NDJSON line and NDJSON lines per HTTP chunk
+     */
+    public FakeOllamaServer chunking(int tokensPerLine, int linesPerFlush) {
+        this.tokensPerLine = Math.max(1, tokensPerLine);
+        this.linesPerFlush = Math.max(1, linesPerFlush);
+        return this;
+    }
+
+    /**
+     * Pauses once after the given number of tokens
+     */
+    public FakeOllamaServer stall(int afterTokens, Duration duration) {
+        this.stallAfterTokens = afterTokens;
+        this.stallDuration = duration;
+        return this;
+    }
+
+    /**
+     * Drops the connection after the given number of tokens without ending the stream
+     */
+    public FakeOllamaServer disconnectAfter(int tokens) {
+        this.disconnectAfterTokens = tokens;
+        return this;
+    }
+
+    /**
+     * Sends an {"error": ...} chunk after the given number of tokens, as Ollama does for runner crashes
+     */
+    public FakeOllamaServer streamErrorAfter(int tokens, String message) {
+        this.errorAfterTokens = tokens;
+        this.errorMessage = message;
+        return this;
+    }
+
+    /**
+     * Answers every request with this status code and an {"error": ...} body; 0 disables
+     */
+    public FakeOllamaServer failWith(int status, String message) {
+        this.errorStatus = status;
+        this.errorMessage = message;
+        return this;
+    }
+
+    /**
+     * Restores default timing and removes all simulated failures
+     */
+    public FakeOllamaServer reset() {
+        tokensPerSecond = 0;
+        firstTokenDelay = Duration.ZERO;
+        responseTokens = 20;
+        tokensPerLine = 1;
+        linesPerFlush = 1;
+        stallAfterTokens = -1;
+        stallDuration = Duration.ZERO;
+        disconnectAfterTokens = -1;
+        errorAfterTokens = -1;
+        errorStatus = 0;
+        requests.clear();
+        loadedUntil.clear();
+        maxInFlight.set(inFlight.get());
+        return this;
+    }
+
+    // Inspection
+
+    /**
+     * Gets the JSON bodies of all POST requests received, oldest first
+     */
+    public List<JsonNode> requests() {
+        return Collections.unmodifiableList(new ArrayList<>(requests));
+    }
+
+    /**
+     * Gets the names of models currently loaded, as /api/ps reports them
+     */
+    public List<String> loadedModels() {
+        Instant now = Instant.now();
+        return loadedUntil.entrySet().stream()
+            .filter(entry -> entry.getValue().isAfter(now))
+            .map(Map.Entry::getKey)
+            .sorted()
+            .toList();
+    }
+
+    public int maxConcurrentRequests() {
+        return maxInFlight.get();
+    }
+
+    @Override
+    public void close() {
+        server.stop(0);
+        executor.shutdownNow();
+    }
+
+    // Handlers
+
+    private interface Handler {
+        void handle(HttpExchange exchange) throws Exception;
+    }
+
+    private void handle(HttpExchange exchange, Handler handler) throws IOException {
+        maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        boolean disconnect = false;
+        try {
+            if (errorStatus != 0) {
+                drain(exchange.getRequestBody());
+                sendJson(exchange, errorStatus, error(errorMessage));
+                return;
+            }
+            handler.handle(exchange);
+        } catch (SimulatedDisconnect e) {
+            // Rethrown without closing the exchange so HttpServer drops the connection
+            // instead of writing the terminating chunk
+            disconnect = true;
+            throw e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            // Client went away
+        } catch (Exception e) {
+            throw new IllegalStateException("Stand-in handler failed", e);
+        } finally {
+            inFlight.decrementAndGet();
+            if (!disconnect) {
+                exchange.close();
+            }
+        }
+    }
+
+    private void handleTags(HttpExchange exchange) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode list = body.putArray("models");
+        models.forEach((name, size) -> {
+            ObjectNode model = modelNode(name, size);
+            model.put("modified_at", "2024-05-12T11:35:25.123456789Z");
+            list.add(model);
+        });
+        sendJson(exchange, 200, body);
+    }
+
+    private void handleShow(HttpExchange exchange) throws IOException {
+        JsonNode request = readRequest(exchange);
+        String name = request.path("model").asText(request.path("name").asText());
+        if (!models.containsKey(name)) {
+            sendJson(exchange, 404, error("model '" + name + "' not found"));
+            return;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("modelfile", "FROM " + name);
+        body.put("parameters", "stop \"<|eot_id|>\"");
+        body.put("template", "{{ .Prompt }}");
+        body.set("details", details());
+        ObjectNode info = body.putObject("model_info");
+        info.put("general.architecture", "llama");
+        info.put("llama.context_length", 8192);
+        sendJson(exchange, 200, body);
+    }
+
+    private void handlePs(HttpExchange exchange) throws IOException {
+        ObjectNode body = objectMapper.createObjectNode();
+        ArrayNode list = body.putArray("models");
+        Instant now = Instant.now();
+        loadedUntil.forEach((name, until) -> {
+            if (until.isAfter(now)) {
+                ObjectNode model = modelNode(name, models.getOrDefault(name, 0L));
+                model.put("expires_at", until.toString());
+                model.put("size_vram", models.getOrDefault(name, 0L));
+                list.add(model);
+            }
+        });
+        sendJson(exchange, 200, body);
+    }
+
+    /**
+     * Returns a small vector per input derived from its length and first character, so equal inputs
+     * get equal vectors
+     */
+    private void handleEmbed(HttpExchange exchange) throws IOException {
+        JsonNode request = readRequest(exchange);
+        String model = request.path("model").asText();
+        if (!models.containsKey(model)) {
+            sendJson(exchange, 404, error("model \"" + model + "\" not found, try pulling it first"));
+            return;
+        }
+        ObjectNode body = objectMapper.createObjectNode();
+        body.put("model", model);
+        ArrayNode embeddings = body.putArray("embeddings");
+        for (JsonNode input : request.path("input")) {
+            String text = input.asText();
+            ArrayNode vector = embeddings.addArray();
+            vector.add(text.length());
+            vector.add(text.isEmpty() ? 0 : text.charAt(0));
+            vector.add(1);
+        }
+        sendJson(exchange, 200, body);
+    }
+
+    /**
+     * Serves /api/chat (message chunks) and /api/generate (response chunks)
+     */
+    private void handleCompletion(HttpExchange exchange, boolean chat) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        JsonNode request = readRequest(exchange);
+        String model = request.path("model").asText();
+        if (!models.containsKey(model)) {
+            sendJson(exchange, 404, error("model \"" + model + "\" not found, try pulling it first"));
+            return;
+        }
+        keepLoaded(model, request.get("keep_alive"));
+
+        boolean loadOnly = chat
+            ? request.path("messages").isArray() && request.path("messages").isEmpty()
+            : request.path("prompt").asText().isEmpty();
+        if (loadOnly) {
+            ObjectNode done = chunk(model, chat, "");
+            done.put("done_reason", "load");
+            done.put("done", true);
+            sendJson(exchange, 200, done);
+            return;
+        }
+
+        Thread.sleep(firstTokenDelay.toMillis());
+        boolean stream = request.path("stream").asBoolean(true);
+        if (!stream) {
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < responseTokens; i++) {
+                content.append(WORDS[i % WORDS.length]);
+            }
+            sendJson(exchange, 200, finalChunk(model, chat, content.toString(), start));
+            return;
+        }
+
+        exchange.getResponseHeaders().set("Content-Type", "application/x-ndjson");
+        exchange.sendResponseHeaders(200, 0);
+        OutputStream out = exchange.getResponseBody();
+        long tokenIntervalNanos = tokensPerSecond > 0 ? (long) (1_000_000_000L / tokensPerSecond) : 0;
+        long nextTokenAt = System.nanoTime();
+        int lines = 0;
+        int sent = 0;
+
+        while (sent < responseTokens) {
+            if (sent == disconnectAfterTokens) {
+                out.flush();
+                throw new SimulatedDisconnect();
+            }
+            if (sent == errorAfterTokens) {
+                writeLine(out, error(errorMessage));
+                out.flush();
+                return;
+            }
+            if (sent == stallAfterTokens) {
+                out.flush();
+                Thread.sleep(stallDuration.toMillis());
+                nextTokenAt = System.nanoTime();
+            }
+
+            StringBuilder content = new StringBuilder();
+            for (int i = 0; i < tokensPerLine && sent < responseTokens; i++, sent++) {
+                content.append(WORDS[sent % WORDS.length]);
+                nextTokenAt += tokenIntervalNanos;
+            }
+            long wait = nextTokenAt - System.nanoTime();
+            if (wait > 0) {
+                TimeUnit.NANOSECONDS.sleep(wait);
+            }
+
+            writeLine(out, chunk(model, chat, content.toString()));
+            if (++lines % linesPerFlush == 0) {
+                out.flush();
+            }
+        }
+        writeLine(out, finalChunk(model, chat, "", start));
+        out.flush();
+    }
+
+    // JSON helpers
+
+    private ObjectNode chunk(String model, boolean chat, String content) {
+        ObjectNode chunk = objectMapper.createObjectNode();
+        chunk.put("model", model);
+        chunk.put("created_at", Instant.now().toString());
+        if (chat) {
+            ObjectNode message = chunk.putObject("message");
+            message.put("role", "assistant");
+            message.put("content", content);
+        } else {
+            chunk.put("response", content);
+        }
+        chunk.put("done", false);
+        return chunk;
+    }
+
+    private ObjectNode finalChunk(String model, boolean chat, String content, long startNanos) {
+        long total = System.nanoTime() - startNanos;
+        long promptEval = firstTokenDelay.toNanos();
+        ObjectNode done = chunk(model, chat, content);
+        done.put("done_reason", "stop");
+        done.put("done", true);
+        done.put("total_duration", total);
+        done.put("load_duration", 0L);
+        done.put("prompt_eval_count", 26);
+        done.put("prompt_eval_duration", promptEval);
+        done.put("eval_count", responseTokens);
+        done.put("eval_duration", Math.max(1, total - promptEval));
+        return done;
+    }
+
+    private ObjectNode modelNode(String name, long size) {
+        ObjectNode model = objectMapper.createObjectNode();
+        model.put("name", name);
+        model.put("model", name);
+        model.put("size", size);
+        model.put("digest", Integer.toHexString(name.hashCode()));
+        model.set("details", details());
+        return model;
+    }
+
+    private ObjectNode details() {
+        ObjectNode details = objectMapper.createObjectNode();
+        details.put("format", "gguf");
+        details.put("family", "llama");
+        details.put("parameter_size", "8.0B");
+        details.put("quantization_level", "Q4_0");
+        return details;
+    }
+
+    private ObjectNode error(String message) {
+        ObjectNode error = objectMapper.createObjectNode();
+        error.put("error", message);
+        return error;
+    }
+
+    private void keepLoaded(String model, JsonNode keepAlive) {
+        Duration duration = Duration.ofMinutes(5);
+        if (keepAlive != null && keepAlive.isNumber()) {
+            duration = keepAlive.asLong() < 0 ? Duration.ofDays(36_500) : Duration.ofSeconds(keepAlive.asLong());
+        } else if (keepAlive != null && keepAlive.isTextual()) {
+            duration = parseGoDuration(keepAlive.asText());
+        }
+        if (duration.isZero()) {
+            loadedUntil.remove(model);
+        } else {
+            loadedUntil.put(model, Instant.now().plus(duration));
+        }
+    }
+
+    private static Duration parseGoDuration(String value) {
+        // Enough of Go's format for tests: a single number with an s, m or h unit
+        long amount = Long.parseLong(value.substring(0, value.length() - 1));
+        return switch (value.charAt(value.length() - 1)) {
+            case 's' -> Duration.ofSeconds(amount);
+            case 'h' -> Duration.ofHours(amount);
+            default -> Duration.ofMinutes(amount);
+        };
+    }
+
+    private JsonNode readRequest(HttpExchange exchange) throws IOException {
+        try (InputStream in = exchange.getRequestBody()) {
+            byte[] bytes = in.readAllBytes();
+            JsonNode request = bytes.length > 0 ? objectMapper.readTree(bytes) : objectMapper.createObjectNode();
+            requests.add(request);
+            return request;
+        }
+    }
+
+    private void sendJson(HttpExchange exchange, int status, JsonNode body) throws IOException {
+        byte[] bytes = objectMapper.writeValueAsBytes(body);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private void writeLine(OutputStream out, JsonNode chunk) throws IOException {
+        out.write(objectMapper.writeValueAsBytes(chunk));
+        out.write('\n');
+    }
+
+    private static void drain(InputStream in) throws IOException {
+        try (in) {
+            in.transferTo(OutputStream.nullOutputStream());
+        }
+    }
+
+    /**
+     * Thrown out of a handler so HttpServer closes the connection mid-stream
+     */
+    private static final class SimulatedDisconnect extends RuntimeException {
+        SimulatedDisconnect() {
+            super("simulated disconnect", null, false, false);
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.ollama.olama.ui;
+
+import com.ollama.olama.model.ChatMessage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ChatEntryTest {
+
+    @Test
+    void shouldCreateEntryFromChatMessage() {
+        // When
+        ChatEntry entry = ChatEntry.of(ChatMessage.user("Hello"));
+
+        // Then
+        assertThat(entry.getRole()).isEqualTo(MessageBubble.Role.USER);
+        assertThat(entry.getContent()).isEqualTo("Hello");
+        assertThat(entry.getTimestamp()).matches("\\d{2}:\\d{2}");
+    }
+
+    @Test
+    void shouldNotifyBoundListenersOfAppendsAndChanges() {
+        // Given
+        ChatEntry entry = ChatEntry.now(MessageBubble.Role.ASSISTANT, "");
+        RecordingListener listener = new RecordingListener();
+        entry.addListener(listener);
+
+        // When
+        entry.setTyping(true);
+        entry.setTyping(true);
+        entry.append("Hel");
+        entry.append("lo");
+        entry.setError(true);
+
+        // Then
+        assertThat(listener.appended).containsExactly("Hel", "lo");
+        assertThat(listener.changes).isEqualTo(2);
+        assertThat(entry.getContent()).isEqualTo("Hello");
+    }
+
+    @Test
+    void shouldStopNotifyingRemovedListener() {
+        // Given
+        ChatEntry entry = ChatEntry.now(MessageBubble.Role.ASSISTANT, "a");
+        RecordingListener listener = new RecordingListener();
+        entry.addListener(listener);
+        entry.removeListener(listener);
+
+        // When
+        entry.append("b");
+        entry.setContent("replaced");
+
+        // Then
+        assertThat(listener.appended).isEmpty();
+        assertThat(listener.changes).isZero();
+        assertThat(entry.getContent()).isEqualTo("replaced");
+    }
+
+    private static class RecordingListener implements ChatEntry.Listener {
+        final List<String> appended = new ArrayList<>();
+        int changes;
+
+        @Override
+        public void onAppend(String chunk) {
+            appended.add(chunk);
+        }
+
+        @Override
+        public void onChanged() {
+            changes++;
+        }
+    }
+}
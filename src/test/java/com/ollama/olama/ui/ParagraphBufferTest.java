@@ -0,0 +1,78 @@
+package com.ollama.olama.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParagraphBufferTest {
+
+    private final ParagraphBuffer buffer = new ParagraphBuffer();
+    private final List<String> sealed = new ArrayList<>();
+
+    @Test
+    void shouldKeepGrowingTextInTail() {
+        // When
+        buffer.append("Hello", sealed::add);
+        buffer.append(", world", sealed::add);
+
+        // Then
+        assertThat(sealed).isEmpty();
+        assertThat(buffer.tail()).isEqualTo("Hello, world");
+        assertThat(buffer.text()).isEqualTo("Hello, world");
+    }
+
+    @Test
+    void shouldSealParagraphWhenBreakStraddlesChunks() {
+        // When
+        buffer.append("First paragraph.\n", sealed::add);
+        buffer.append("\nSecond", sealed::add);
+
+        // Then
+        assertThat(sealed).containsExactly("First paragraph.");
+        assertThat(buffer.tail()).isEqualTo("Second");
+    }
+
+    @Test
+    void shouldSealSeveralParagraphsFromOneChunkAndSkipExtraBlankLines() {
+        // When
+        buffer.append("one\n\ntwo\n\n\n\nthree", sealed::add);
+
+        // Then
+        assertThat(sealed).containsExactly("one", "two");
+        assertThat(buffer.tail()).isEqualTo("three");
+    }
+
+    @Test
+    void shouldPreserveExactTextIncludingBreaks() {
+        // Given
+        String text = "a\n\nb\nc\n\n\nd";
+
+        // When - append one character at a time, as a token stream might
+        for (char c : text.toCharArray()) {
+            buffer.append(String.valueOf(c), sealed::add);
+        }
+
+        // Then
+        assertThat(buffer.text()).isEqualTo(text);
+        assertThat(buffer.length()).isEqualTo(text.length());
+        assertThat(sealed).containsExactly("a", "b\nc");
+        assertThat(buffer.tail()).isEqualTo("d");
+    }
+
+    @Test
+    void shouldResetOnClear() {
+        // Given
+        buffer.append("x\n\ny", sealed::add);
+
+        // When
+        buffer.clear();
+        buffer.append("z", sealed::add);
+
+        // Then
+        assertThat(buffer.text()).isEqualTo("z");
+        assertThat(buffer.tail()).isEqualTo("z");
+    }
+}
@@ -0,0 +1,96 @@
+package com.ollama.olama.ui;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenCoalescerTest {
+
+    @Test
+    void shouldCoalesceTokensIntoSingleBatch() {
+        // Given
+        TokenCoalescer coalescer = new TokenCoalescer();
+
+        // When
+        coalescer.offer("Hel");
+        coalescer.offer("lo");
+        coalescer.offer("");
+        coalescer.offer(null);
+        coalescer.offer(" world");
+
+        // Then
+        assertThat(coalescer.getPendingTokens()).isEqualTo(3);
+        assertThat(coalescer.drain()).isEqualTo("Hello world");
+        assertThat(coalescer.drain()).isNull();
+        assertThat(coalescer.getTotalTokens()).isEqualTo(3);
+        assertThat(coalescer.getTotalFlushes()).isEqualTo(1);
+    }
+
+    @Test
+    void shouldTrackLatencyOfOldestPendingToken() throws InterruptedException {
+        // Given
+        TokenCoalescer coalescer = new TokenCoalescer();
+        coalescer.offer("a");
+        Thread.sleep(20);
+        coalescer.offer("b");
+
+        // When
+        coalescer.drain();
+
+        // Then
+        assertThat(coalescer.getLastLatencyNanos()).isGreaterThanOrEqualTo(20_000_000L);
+        assertThat(coalescer.getMaxLatencyNanos()).isEqualTo(coalescer.getLastLatencyNanos());
+    }
+
+    @Test
+    void shouldDropPendingTokensOnClear() {
+        // Given
+        TokenCoalescer coalescer = new TokenCoalescer();
+        coalescer.offer("stale");
+
+        // When
+        coalescer.clear();
+
+        // Then
+        assertThat(coalescer.drain()).isNull();
+        assertThat(coalescer.getTotalFlushes()).isZero();
+    }
+
+    @Test
+    void shouldNotLoseTokensWithConcurrentProducerAndConsumer() throws InterruptedException {
+        // Given
+        TokenCoalescer coalescer = new TokenCoalescer();
+        int tokenCount = 50_000;
+        CountDownLatch producerDone = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            for (int i = 0; i < tokenCount; i++) {
+                coalescer.offer("x");
+            }
+            producerDone.countDown();
+        });
+
+        // When - drain like the pulse timer would while the producer runs
+        List<String> batches = new ArrayList<>();
+        producer.start();
+        while (producerDone.getCount() > 0) {
+            String batch = coalescer.drain();
+            if (batch != null) {
+                batches.add(batch);
+            }
+        }
+        String last = coalescer.drain();
+        if (last != null) {
+            batches.add(last);
+        }
+
+        // Then
+        int received = batches.stream().mapToInt(String::length).sum();
+        assertThat(received).isEqualTo(tokenCount);
+        assertThat(batches.size()).isLessThanOrEqualTo(tokenCount);
+        assertThat(coalescer.getTotalFlushes()).isEqualTo(batches.size());
+    }
+}